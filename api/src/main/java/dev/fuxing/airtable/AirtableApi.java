@@ -1,10 +1,15 @@
 package dev.fuxing.airtable;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.fuxing.airtable.columnar.ColumnarBatch;
+import dev.fuxing.airtable.entity.AirtableEntities;
+import dev.fuxing.airtable.entity.AirtableEntity;
+import dev.fuxing.airtable.entity.AirtableEntityList;
+import dev.fuxing.airtable.entity.AirtableEntityMapper;
+import dev.fuxing.airtable.entity.AirtableId;
 import dev.fuxing.airtable.exceptions.AirtableApiException;
 import dev.fuxing.airtable.exceptions.AirtableClientException;
 import org.apache.commons.lang3.StringUtils;
@@ -12,15 +17,18 @@ import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.client.fluent.Response;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ContentType;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +38,9 @@ import java.util.Map;
  * Time: 22:04
  */
 public class AirtableApi {
+    /**
+     * Mapper of the built-in {@link AirtableCodec}, configure it before the first request.
+     */
     public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private final String apiKey;
@@ -91,7 +102,17 @@ public class AirtableApi {
          * @return Table api object
          */
         public Table table(String table) {
-            return new Table(base, table);
+            return table(table, AirtableReader.tree());
+        }
+
+        /**
+         * @param table  name of the table in Airtable
+         * @param reader to read records from responses with
+         * @return Table api object
+         * @see AirtableReader#LAZY to only decode fields that are accessed
+         */
+        public Table table(String table, AirtableReader reader) {
+            return new Table(base, table, reader);
         }
     }
 
@@ -103,10 +124,12 @@ public class AirtableApi {
     public class Table implements AirtableTable {
         private final String base;
         private final String table;
+        private final AirtableReader reader;
 
-        private Table(String base, String table) {
+        private Table(String base, String table, AirtableReader reader) {
             this.base = base;
             this.table = table;
+            this.reader = reader;
         }
 
         /**
@@ -126,35 +149,26 @@ public class AirtableApi {
         @Override
         public PaginationList list(QuerySpec querySpec) {
             try {
-                URI uri = new URIBuilder(querySpec.build())
-                        .setScheme("https")
-                        .setHost("api.airtable.com")
-                        .setPathSegments("v0", base, table)
-                        .build();
-
-                Request request = Request.Get(uri)
+                Request request = Request.Get(createUri(querySpec))
                         .addHeader("Authorization", "Bearer " + apiKey);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return new AirtableList(node);
-            } catch (URISyntaxException | IOException e) {
+                return executor.execute(request)
+                        .handleResponse(response -> handleResponse(response, reader::readList));
+            } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
         }
 
         @Override
         public AirtableRecord post(AirtableRecord record, boolean typecast) {
+            AirtableBuffer body = writeBody(record, typecast, false);
             try {
                 Request request = Request.Post(createUri())
                         .addHeader("Authorization", "Bearer " + apiKey)
-                        .bodyString(toString(record, typecast), ContentType.APPLICATION_JSON);
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return new AirtableRecord(node);
+                return execute(request, body)
+                        .handleResponse(response -> handleResponse(response, reader::readRecord));
             } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
@@ -164,33 +178,48 @@ public class AirtableApi {
         public List<AirtableRecord> patch(List<AirtableRecord> records, boolean typecast) {
             AirtableClientException.assert10Records(records);
 
+            // Records without dirty fields are not sent, nothing would change
+            List<AirtableRecord> dirty = new ArrayList<>(records.size());
+            for (AirtableRecord record : records) {
+                if (record.isDirty()) dirty.add(record);
+            }
+            if (dirty.isEmpty()) return new ArrayList<>(records);
+
+            AirtableBuffer body = writeBody(dirty, typecast, true);
+            List<AirtableRecord> patched;
             try {
                 Request request = Request.Patch(createUri())
                         .addHeader("Authorization", "Bearer " + apiKey)
-                        .bodyString(toString(records, typecast), ContentType.APPLICATION_JSON);
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return AirtableList.parse(node.path("records"));
+                patched = execute(request, body)
+                        .handleResponse(response -> handleResponse(response, reader::readRecords));
             } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
+            if (dirty.size() == records.size()) return patched;
+
+            // Patched records in place of the dirty records, in the order given
+            List<AirtableRecord> results = new ArrayList<>(records.size());
+            Iterator<AirtableRecord> iterator = patched.iterator();
+            for (AirtableRecord record : records) {
+                results.add(record.isDirty() && iterator.hasNext() ? iterator.next() : record);
+            }
+            return results;
         }
 
         @Override
         public List<AirtableRecord> put(List<AirtableRecord> records, boolean typecast) {
             AirtableClientException.assert10Records(records);
 
+            AirtableBuffer body = writeBody(records, typecast, false);
             try {
                 Request request = Request.Put(createUri())
                         .addHeader("Authorization", "Bearer " + apiKey)
-                        .bodyString(toString(records, typecast), ContentType.APPLICATION_JSON);
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return AirtableList.parse(node.path("records"));
+                return execute(request, body)
+                        .handleResponse(response -> handleResponse(response, reader::readRecords));
             } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
@@ -203,10 +232,8 @@ public class AirtableApi {
                 Request request = Request.Get(createUri(recordId))
                         .addHeader("Authorization", "Bearer " + apiKey);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return new AirtableRecord(node);
+                return executor.execute(request)
+                        .handleResponse(response -> handleResponse(response, reader::readRecord));
             } catch (IOException e) {
                 throw new AirtableClientException(e);
             } catch (AirtableApiException e) {
@@ -221,15 +248,14 @@ public class AirtableApi {
             AirtableClientException.assert10Records(records);
 
 
+            AirtableBuffer body = writeBody(records, typecast, false);
             try {
                 Request request = Request.Post(createUri())
                         .addHeader("Authorization", "Bearer " + apiKey)
-                        .bodyString(toString(records, typecast), ContentType.APPLICATION_JSON);
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return AirtableList.parse(node.path("records"));
+                return execute(request, body)
+                        .handleResponse(response -> handleResponse(response, reader::readRecords));
             } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
@@ -237,15 +263,17 @@ public class AirtableApi {
 
         @Override
         public AirtableRecord patch(AirtableRecord record, boolean typecast) {
+            // Nothing would change
+            if (!record.isDirty()) return record;
+
+            AirtableBuffer body = writeBody(record, typecast, true);
             try {
                 Request request = Request.Patch(createUri(record.getId()))
                         .addHeader("Authorization", "Bearer " + apiKey)
-                        .bodyString(toString(record, typecast), ContentType.APPLICATION_JSON);
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
 
-                JsonNode node = executor.execute(request)
-                        .handleResponse(AirtableApi.this::handleResponse);
-
-                return new AirtableRecord(node);
+                return execute(request, body)
+                        .handleResponse(response -> handleResponse(response, reader::readRecord));
             } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
@@ -298,54 +326,163 @@ public class AirtableApi {
         }
 
         /**
-         * @param record to convert to json string
-         * @return json string
+         * List records straight into entities, fields are read from the response tokens without a tree.
+         *
+         * @param querySpec to query
+         * @param type      annotated with {@link AirtableEntity}
+         * @param <T>       type of the entity
+         * @return page of entities, use {@link AirtableEntityList#getOffset()} for the next page
          */
-        private String toString(AirtableRecord record, boolean typecast) {
-            ObjectNode node = OBJECT_MAPPER.createObjectNode();
-            if (typecast) {
-                node.put("typecast", typecast);
+        public <T> AirtableEntityList<T> listEntities(QuerySpec querySpec, Class<T> type) {
+            AirtableEntityMapper<T> mapper = AirtableEntities.mapper(type);
+            try {
+                Request request = Request.Get(createUri(querySpec))
+                        .addHeader("Authorization", "Bearer " + apiKey);
+
+                return executor.execute(request)
+                        .handleResponse(response -> handleResponse(response, in -> {
+                            try (JsonParser parser = AirtableCodec.DEFAULT.getFactory().createParser(in)) {
+                                parser.nextToken();
+                                return AirtableEntities.readList(parser, mapper);
+                            }
+                        }));
+            } catch (IOException e) {
+                throw new AirtableClientException(e);
             }
+        }
 
-            ObjectNode fields = node.putObject("fields");
-            record.getFields().forEach(fields::set);
+        /**
+         * @param recordId of the entity
+         * @param type     annotated with {@link AirtableEntity}
+         * @param <T>      type of the entity
+         * @return entity, {@code null} if not found
+         */
+        @Nullable
+        public <T> T getEntity(String recordId, Class<T> type) {
+            AirtableEntityMapper<T> mapper = AirtableEntities.mapper(type);
             try {
-                return OBJECT_MAPPER.writeValueAsString(node);
-            } catch (JsonProcessingException e) {
+                Request request = Request.Get(createUri(recordId))
+                        .addHeader("Authorization", "Bearer " + apiKey);
+
+                return executor.execute(request)
+                        .handleResponse(response -> handleResponse(response, in -> readEntity(in, mapper)));
+            } catch (IOException e) {
                 throw new AirtableClientException(e);
+            } catch (AirtableApiException e) {
+                // For Get Request, status 404 is resolved into null
+                if (e.getCode() == 404) return null;
+                throw e;
             }
         }
 
         /**
-         * @param records to convert into json string
-         * @return json string
+         * @param entity   to create, fields with null value are not sent
+         * @param typecast automatic data conversion from string values
+         * @param <T>      type of the entity
+         * @return created entity
          */
-        private String toString(List<AirtableRecord> records, boolean typecast) {
-            ObjectNode node = OBJECT_MAPPER.createObjectNode();
-            if (typecast) {
-                node.put("typecast", typecast);
+        public <T> T postEntity(T entity, boolean typecast) {
+            AirtableEntityMapper<T> mapper = mapper(entity);
+            AirtableBuffer body = writeBody(entity, mapper, typecast);
+            try {
+                Request request = Request.Post(createUri())
+                        .addHeader("Authorization", "Bearer " + apiKey)
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
+
+                return execute(request, body)
+                        .handleResponse(response -> handleResponse(response, in -> readEntity(in, mapper)));
+            } catch (IOException e) {
+                throw new AirtableClientException(e);
             }
+        }
 
-            ArrayNode arrayNode = node.putArray("records");
-            for (AirtableRecord record : records) {
-                ObjectNode recordNode = OBJECT_MAPPER.createObjectNode();
-                if (record.getId() != null) {
-                    recordNode.put("id", record.getId());
-                }
+        /**
+         * Fields with null value are not sent, hence not cleared.
+         *
+         * @param entity   to patch, must have {@link AirtableId}
+         * @param typecast automatic data conversion from string values
+         * @param <T>      type of the entity
+         * @return patched entity
+         */
+        public <T> T patchEntity(T entity, boolean typecast) {
+            AirtableEntityMapper<T> mapper = mapper(entity);
+            String recordId = mapper.id(entity);
+            if (recordId == null) {
+                throw new AirtableClientException("Entity must have an id to patch.");
+            }
 
-                ObjectNode fields = recordNode.putObject("fields");
-                record.getFields().forEach(fields::set);
+            AirtableBuffer body = writeBody(entity, mapper, typecast);
+            try {
+                Request request = Request.Patch(createUri(recordId))
+                        .addHeader("Authorization", "Bearer " + apiKey)
+                        .bodyByteArray(body.array(), 0, body.size(), ContentType.APPLICATION_JSON);
 
-                arrayNode.add(recordNode);
+                return execute(request, body)
+                        .handleResponse(response -> handleResponse(response, in -> readEntity(in, mapper)));
+            } catch (IOException e) {
+                throw new AirtableClientException(e);
             }
+        }
+
+        /**
+         * List a page of records straight into columns, without AirtableRecord or JsonNode for primitive fields.
+         *
+         * @param querySpec to query
+         * @return ColumnarBatch of the page, use {@link ColumnarBatch#getOffset()} for the next page
+         */
+        public ColumnarBatch listColumnar(QuerySpec querySpec) {
+            ColumnarBatch.Builder builder = ColumnarBatch.builder();
+            readColumnar(querySpec, builder);
+            return builder.build();
+        }
 
+        /**
+         * Scan every page of the query into one ColumnarBatch, for analytics over the whole table.
+         *
+         * @param querySpec to query, the offset is overridden while paginating
+         * @return ColumnarBatch of every record
+         */
+        public ColumnarBatch scanColumnar(QuerySpec querySpec) {
+            ColumnarBatch.Builder builder = ColumnarBatch.builder();
+            String offset = readColumnar(querySpec, builder);
+            while (offset != null) {
+                offset = readColumnar(querySpec.offset(offset), builder);
+            }
+            return builder.build();
+        }
+
+        /**
+         * @return offset of the next page
+         */
+        @Nullable
+        private String readColumnar(QuerySpec querySpec, ColumnarBatch.Builder builder) {
             try {
-                return OBJECT_MAPPER.writeValueAsString(node);
-            } catch (JsonProcessingException e) {
+                Request request = Request.Get(createUri(querySpec))
+                        .addHeader("Authorization", "Bearer " + apiKey);
+
+                return executor.execute(request)
+                        .handleResponse(response -> handleResponse(response, builder::read));
+            } catch (IOException e) {
                 throw new AirtableClientException(e);
             }
         }
 
+        @SuppressWarnings("unchecked")
+        private <T> AirtableEntityMapper<T> mapper(T entity) {
+            return AirtableEntities.mapper((Class<T>) entity.getClass());
+        }
+
+        private <T> T readEntity(InputStream in, AirtableEntityMapper<T> mapper) throws IOException {
+            try (JsonParser parser = AirtableCodec.DEFAULT.getFactory().createParser(in)) {
+                parser.nextToken();
+                return mapper.read(parser);
+            }
+        }
+
+        private URI createUri(QuerySpec querySpec) {
+            return listUri(base, table, querySpec);
+        }
+
         private URI createUri() {
             try {
                 return new URIBuilder()
@@ -369,6 +506,130 @@ public class AirtableApi {
         }
     }
 
+    /**
+     * @param base      name of the base
+     * @param table     name of the table
+     * @param querySpec to query
+     * @return url of the list call, as sent to airtable
+     * @throws AirtableClientException uri syntax exception when building the uri
+     */
+    static URI listUri(String base, String table, AirtableTable.QuerySpec querySpec) {
+        try {
+            return new URIBuilder(querySpec.build())
+                    .setScheme("https")
+                    .setHost("api.airtable.com")
+                    .setPathSegments("v0", base, table)
+                    .build();
+        } catch (URISyntaxException e) {
+            throw new AirtableClientException(e);
+        }
+    }
+
+    /**
+     * @param record    to write
+     * @param typecast  automatic data conversion from string values
+     * @param dirtyOnly whether to only include dirty fields, for patch
+     * @return json body in a buffer of this thread, release it after the request
+     */
+    static AirtableBuffer writeBody(AirtableRecord record, boolean typecast, boolean dirtyOnly) {
+        return writeBody(generator -> {
+            generator.writeStartObject();
+            if (typecast) {
+                generator.writeBooleanField("typecast", true);
+            }
+
+            generator.writeFieldName("fields");
+            writeFields(generator, record, dirtyOnly);
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * @param records   to write
+     * @param typecast  automatic data conversion from string values
+     * @param dirtyOnly whether to only include dirty fields, for patch
+     * @return json body in a buffer of this thread, release it after the request
+     */
+    static AirtableBuffer writeBody(List<AirtableRecord> records, boolean typecast, boolean dirtyOnly) {
+        return writeBody(generator -> {
+            generator.writeStartObject();
+            if (typecast) {
+                generator.writeBooleanField("typecast", true);
+            }
+
+            generator.writeArrayFieldStart("records");
+            for (AirtableRecord record : records) {
+                generator.writeStartObject();
+                if (record.getId() != null) {
+                    generator.writeStringField("id", record.getId());
+                }
+
+                generator.writeFieldName("fields");
+                writeFields(generator, record, dirtyOnly);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * @param entity   to write, fields with null value are not written
+     * @param mapper   of the entity
+     * @param typecast automatic data conversion from string values
+     * @param <T>      type of the entity
+     * @return json body in a buffer of this thread, release it after the request
+     */
+    static <T> AirtableBuffer writeBody(T entity, AirtableEntityMapper<T> mapper, boolean typecast) {
+        return writeBody(generator -> {
+            generator.writeStartObject();
+            if (typecast) {
+                generator.writeBooleanField("typecast", true);
+            }
+
+            generator.writeObjectFieldStart("fields");
+            mapper.writeFields(entity, generator);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        });
+    }
+
+    private static AirtableBuffer writeBody(ContentWriter writer) {
+        AirtableBuffer buffer = AirtableBuffer.acquire();
+        try (JsonGenerator generator = AirtableCodec.DEFAULT.getFactory().createGenerator(buffer)) {
+            writer.write(generator);
+        } catch (IOException e) {
+            throw new AirtableClientException(e);
+        }
+        return buffer;
+    }
+
+    /**
+     * @param generator to write into
+     * @param record    to get fields from
+     * @param dirtyOnly whether to only write dirty fields, removed fields are written as null to clear it
+     */
+    private static void writeFields(JsonGenerator generator, AirtableRecord record, boolean dirtyOnly) throws IOException {
+        generator.writeStartObject();
+        if (!dirtyOnly) {
+            for (Map.Entry<String, JsonNode> entry : record.getFields().entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                AirtableCodec.DEFAULT.writeTree(generator, entry.getValue());
+            }
+        } else {
+            for (String name : record.getDirtyFields()) {
+                JsonNode value = record.getFields().get(name);
+                generator.writeFieldName(name);
+                if (value != null) {
+                    AirtableCodec.DEFAULT.writeTree(generator, value);
+                } else {
+                    generator.writeNull();
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+
     /**
      * @param response to handle
      * @return JsonNode
@@ -376,13 +637,41 @@ public class AirtableApi {
      * @throws AirtableApiException    server error, originated from https://api.airtable.com/v0
      */
     @Nullable
-    private JsonNode handleResponse(HttpResponse response) throws AirtableClientException, AirtableApiException {
+    /**
+     * The body is released once the request is sent, including any retry, before the response is read.
+     * So the response is read into the same buffer of this thread, rather than a new one for the nested acquire.
+     *
+     * @param request to execute
+     * @param body    of the request, released after
+     * @return response not yet read
+     * @throws IOException if the request failed
+     */
+    private Response execute(Request request, AirtableBuffer body) throws IOException {
         try {
-            JsonNode node = OBJECT_MAPPER.readTree(response.getEntity().getContent());
+            return executor.execute(request);
+        } finally {
+            body.release();
+        }
+    }
 
+    private JsonNode handleResponse(HttpResponse response) throws AirtableClientException, AirtableApiException {
+        return handleResponse(response, AirtableCodec.DEFAULT::readTree);
+    }
+
+    /**
+     * @param response to handle
+     * @param reader   to read the content of a successful response
+     * @param <T>      type of the content
+     * @return content read by reader
+     * @throws AirtableClientException client error, not caused by airtable api
+     * @throws AirtableApiException    server error, originated from https://api.airtable.com/v0
+     */
+    private <T> T handleResponse(HttpResponse response, ContentReader<T> reader) throws AirtableClientException, AirtableApiException {
+        try {
             StatusLine status = response.getStatusLine();
-            if (status.getStatusCode() == 200) return node;
+            if (status.getStatusCode() == 200) return reader.read(response.getEntity().getContent());
 
+            JsonNode node = AirtableCodec.DEFAULT.readTree(response.getEntity().getContent());
             JsonNode error = node.path("error");
             if (error.isTextual()) {
                 throw new AirtableApiException(status.getStatusCode(), error.asText(), error.asText());
@@ -400,6 +689,16 @@ public class AirtableApi {
         }
     }
 
+    @FunctionalInterface
+    private interface ContentReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
     /**
      * QuerySpec implementation with URI builder
      */
@@ -415,6 +714,16 @@ public class AirtableApi {
                     .setPathSegments("v0");
         }
 
+        /**
+         * @param querySpec to copy, by the uri it builds
+         * @return copy that can be changed without changing the given query spec
+         */
+        static QuerySpecImpl copyOf(AirtableTable.QuerySpec querySpec) {
+            QuerySpecImpl copy = new QuerySpecImpl();
+            copy.builder = new URIBuilder(querySpec.build());
+            return copy;
+        }
+
         @Override
         public AirtableTable.QuerySpec offset(String offset) {
             builder.setParameter("offset", offset);
@@ -0,0 +1,81 @@
+package dev.fuxing.airtable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reusable byte buffer for request and response bodies, one is kept per thread.
+ * <p>
+ * Acquire it, use it and release it on the same thread, a nested acquire before the release gets a new buffer.
+ * A buffer not released, e.g. on error, is simply garbage collected.
+ * Buffers grown past {@link #MAX_RETAINED_SIZE} are not kept, so a thread only ever retains a buffer of that size at most.
+ *
+ * <pre>
+ * AirtableBuffer buffer = AirtableBuffer.acquire();
+ * try {
+ *     buffer.readFrom(in);
+ *     ...
+ * } finally {
+ *     buffer.release();
+ * }
+ * </pre>
+ */
+final class AirtableBuffer extends ByteArrayOutputStream {
+    /**
+     * Page of 100 records is usually under 256KB, a larger body is rare enough to not be worth keeping.
+     */
+    static final int MAX_RETAINED_SIZE = 1 << 20;
+
+    private static final int INITIAL_SIZE = 16384;
+    private static final ThreadLocal<AirtableBuffer> LOCAL = new ThreadLocal<>();
+
+    private AirtableBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /**
+     * @return empty buffer of this thread, or a new buffer if it's in use
+     */
+    static AirtableBuffer acquire() {
+        AirtableBuffer buffer = LOCAL.get();
+        if (buffer == null) return new AirtableBuffer();
+
+        LOCAL.set(null);
+        buffer.reset();
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer to this thread, it must not be used after.
+     */
+    void release() {
+        if (buf.length <= MAX_RETAINED_SIZE) {
+            LOCAL.set(this);
+        }
+    }
+
+    /**
+     * @param in to read until the end, not closed
+     * @throws IOException if it fails to read
+     */
+    void readFrom(InputStream in) throws IOException {
+        while (true) {
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+
+            int read = in.read(buf, count, buf.length - count);
+            if (read == -1) return;
+            count += read;
+        }
+    }
+
+    /**
+     * @return backing array, only valid from 0 until {@link #size()}, and until it's released
+     */
+    byte[] array() {
+        return buf;
+    }
+}
@@ -0,0 +1,285 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import dev.fuxing.airtable.fields.AttachmentField;
+import dev.fuxing.airtable.fields.CollaboratorField;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the json of https://api.airtable.com/v0,
+ * used by AirtableApi, AirtableRecord and the readers for every request and response body.
+ * <p>
+ * The codec is chosen once with the system property {@value #PROPERTY}:
+ * {@code jackson} (default), or the class name of an AirtableCodec with a no-arg constructor,
+ * e.g. a codec over a mapper with Afterburner or Blackbird registered.
+ * Compare a codec with {@code AirtableCodecBenchmark} in test before switching to it.
+ *
+ * <pre>
+ * -Ddev.fuxing.airtable.codec=com.example.AfterburnerCodec
+ * </pre>
+ */
+public interface AirtableCodec {
+    String PROPERTY = "dev.fuxing.airtable.codec";
+
+    /**
+     * Codec used by this library, see {@link #PROPERTY}.
+     */
+    AirtableCodec DEFAULT = forName(System.getProperty(PROPERTY, "jackson"));
+
+    /**
+     * @param name {@code jackson} or class name of an AirtableCodec with a no-arg constructor
+     * @return codec of the name, over {@link AirtableApi#OBJECT_MAPPER} for the built-in codecs
+     * @throws AirtableClientException if the codec can't be created
+     */
+    static AirtableCodec forName(String name) throws AirtableClientException {
+        switch (name) {
+            case "jackson":
+                return jackson(AirtableApi.OBJECT_MAPPER);
+            default:
+                try {
+                    return (AirtableCodec) Class.forName(name).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new AirtableClientException(e);
+                }
+        }
+    }
+
+    /**
+     * @param mapper configured mapper, changes to the mapper after are not reflected
+     * @return codec with reader and writer of JsonNode prebuilt from the mapper
+     */
+    static AirtableCodec jackson(ObjectMapper mapper) {
+        return new Jackson(mapper);
+    }
+
+    /**
+     * @return factory to create parser and generator from, for streaming reads and writes
+     */
+    JsonFactory getFactory();
+
+    /**
+     * @return factory to create new JsonNode with
+     */
+    JsonNodeFactory getNodeFactory();
+
+    /**
+     * @param in to read, not closed
+     * @return JsonNode read, or MissingNode if there is no content
+     * @throws IOException if the content is not valid json
+     */
+    JsonNode readTree(InputStream in) throws IOException;
+
+    /**
+     * @param parser at the first token of the value, or before it
+     * @return JsonNode of the value, the parser is at the last token of the value after
+     * @throws IOException if the content is not valid json
+     */
+    JsonNode readTree(JsonParser parser) throws IOException;
+
+    /**
+     * @param generator to write to
+     * @param node      to write
+     * @throws IOException if it fails to write
+     */
+    void writeTree(JsonGenerator generator, JsonNode node) throws IOException;
+
+    /**
+     * @param node to write
+     * @return utf-8 json of the node
+     * @throws IOException if it fails to write
+     */
+    byte[] writeBytes(JsonNode node) throws IOException;
+
+    /**
+     * @param value to convert, e.g. String, Number, CollaboratorField, List of AttachmentField
+     * @return new JsonNode of the value, or null if the value is null, same as {@link ObjectMapper#valueToTree(Object)}
+     */
+    @Nullable
+    JsonNode valueToTree(@Nullable Object value);
+
+    /**
+     * @param node  array to convert
+     * @param clazz to convert each element into
+     * @param <T>   converted type
+     * @return List of the elements in T type
+     */
+    <T> List<T> convertList(JsonNode node, Class<T> clazz);
+
+    /**
+     * Tuned Jackson codec, the reader and writer of JsonNode are built once, trees are written directly on the generator,
+     * and values commonly put into records are converted without serializing them through the mapper.
+     */
+    final class Jackson implements AirtableCodec {
+        private final ObjectMapper mapper;
+        private final JsonFactory factory;
+        private final JsonNodeFactory nodes;
+
+        private final ObjectReader reader;
+        private final ObjectWriter writer;
+
+        private Jackson(ObjectMapper mapper) {
+            this.mapper = mapper;
+            this.factory = mapper.getFactory();
+            this.nodes = mapper.getNodeFactory();
+            this.reader = mapper.readerFor(JsonNode.class);
+            // Values are written into a larger document, flushed when the generator is closed
+            this.writer = mapper.writerFor(JsonNode.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        public JsonFactory getFactory() {
+            return factory;
+        }
+
+        @Override
+        public JsonNodeFactory getNodeFactory() {
+            return nodes;
+        }
+
+        @Override
+        public JsonNode readTree(InputStream in) throws IOException {
+            JsonNode node = reader.readTree(in);
+            return node != null ? node : MissingNode.getInstance();
+        }
+
+        @Override
+        public JsonNode readTree(JsonParser parser) throws IOException {
+            JsonNode node = reader.readTree(parser);
+            return node != null ? node : MissingNode.getInstance();
+        }
+
+        /**
+         * Written directly on the generator, without a serializer provider per value.
+         */
+        @Override
+        public void writeTree(JsonGenerator generator, JsonNode node) throws IOException {
+            switch (node.getNodeType()) {
+                case OBJECT:
+                    generator.writeStartObject();
+                    Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                    while (fields.hasNext()) {
+                        Map.Entry<String, JsonNode> entry = fields.next();
+                        generator.writeFieldName(entry.getKey());
+                        writeTree(generator, entry.getValue());
+                    }
+                    generator.writeEndObject();
+                    return;
+
+                case ARRAY:
+                    generator.writeStartArray();
+                    for (JsonNode element : node) {
+                        writeTree(generator, element);
+                    }
+                    generator.writeEndArray();
+                    return;
+
+                case STRING:
+                    generator.writeString(node.textValue());
+                    return;
+
+                case NUMBER:
+                    switch (node.numberType()) {
+                        case INT:
+                            generator.writeNumber(node.intValue());
+                            return;
+                        case LONG:
+                            generator.writeNumber(node.longValue());
+                            return;
+                        case BIG_INTEGER:
+                            generator.writeNumber(node.bigIntegerValue());
+                            return;
+                        case FLOAT:
+                            generator.writeNumber(node.floatValue());
+                            return;
+                        case BIG_DECIMAL:
+                            generator.writeNumber(node.decimalValue());
+                            return;
+                        default:
+                            generator.writeNumber(node.doubleValue());
+                            return;
+                    }
+
+                case BOOLEAN:
+                    generator.writeBoolean(node.booleanValue());
+                    return;
+
+                case NULL:
+                case MISSING:
+                    generator.writeNull();
+                    return;
+
+                default:
+                    // Binary and POJO are never read from airtable
+                    writer.writeValue(generator, node);
+            }
+        }
+
+        @Override
+        public byte[] writeBytes(JsonNode node) throws IOException {
+            return writer.writeValueAsBytes(node);
+        }
+
+        @Override
+        @Nullable
+        public JsonNode valueToTree(@Nullable Object value) {
+            if (value == null) return null;
+            if (value instanceof JsonNode) return ((JsonNode) value).deepCopy();
+            if (value instanceof String) return nodes.textNode((String) value);
+            if (value instanceof Integer) return nodes.numberNode((Integer) value);
+            if (value instanceof Long) return nodes.numberNode((Long) value);
+            if (value instanceof Double) return nodes.numberNode((Double) value);
+            if (value instanceof Boolean) return nodes.booleanNode((Boolean) value);
+
+            if (value instanceof CollaboratorField) {
+                CollaboratorField collaborator = (CollaboratorField) value;
+                ObjectNode node = nodes.objectNode();
+                node.put("id", collaborator.getId());
+                node.put("email", collaborator.getEmail());
+                node.put("name", collaborator.getName());
+                return node;
+            }
+
+            if (value instanceof AttachmentField) {
+                ObjectNode node = nodes.objectNode();
+                ((AttachmentField) value).getJsonValue().forEach(node::put);
+                return node;
+            }
+
+            if (value instanceof Collection) {
+                ArrayNode array = nodes.arrayNode();
+                for (Object element : (Collection<?>) value) {
+                    array.add(valueToTree(element));
+                }
+                return array;
+            }
+
+            return mapper.valueToTree(value);
+        }
+
+        @Override
+        public <T> List<T> convertList(JsonNode node, Class<T> clazz) {
+            CollectionType type = mapper.getTypeFactory().constructCollectionType(List.class, clazz);
+            return mapper.convertValue(node, type);
+        }
+    }
+}
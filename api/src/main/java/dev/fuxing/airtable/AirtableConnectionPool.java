@@ -0,0 +1,441 @@
+package dev.fuxing.airtable;
+
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Connection pool to https://api.airtable.com, with explicit warm up and connection churn metrics.
+ * <p>
+ * Every pool has its own TLS context, so TLS sessions are resumed across connections of the same pool
+ * instead of paying a full handshake for every new connection.
+ *
+ * <pre>
+ * AirtableConnectionPool pool = AirtableConnectionPool.builder()
+ *      .maxConnections(8)
+ *      .warmConnections(4)
+ *      .keepAlive(30, TimeUnit.SECONDS)
+ *      .build();
+ * pool.warmUp();
+ *
+ * Executor executor = AirtableExecutor.builder()
+ *      .connectionPool(pool)
+ *      .build();
+ * </pre>
+ */
+public final class AirtableConnectionPool implements Closeable {
+    static final HttpRoute ROUTE = new HttpRoute(new HttpHost("api.airtable.com", 443, "https"), null, true);
+
+    private final PoolingHttpClientConnectionManager manager;
+    private final SSLSessionContext sessions;
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+
+    private final int warmConnections;
+    private final long keepAliveMillis;
+    private final int connectTimeoutMillis;
+
+    private AirtableConnectionPool(Builder builder) {
+        SSLContext sslContext = createSSLContext();
+        LayeredConnectionSocketFactory ssl;
+        if (sslContext != null) {
+            this.sessions = sslContext.getClientSessionContext();
+            this.sessions.setSessionCacheSize(builder.tlsSessionCacheSize);
+            this.sessions.setSessionTimeout(builder.tlsSessionTimeoutSeconds);
+
+            ssl = new SSLConnectionSocketFactory(sslContext,
+                    split(System.getProperty("https.protocols")),
+                    split(System.getProperty("https.cipherSuites")),
+                    SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+        } else {
+            this.sessions = null;
+            ssl = SSLConnectionSocketFactory.getSystemSocketFactory();
+        }
+
+        this.manager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new CountingSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
+                .register("https", new CountingSocketFactory(ssl))
+                .build(), new CountingConnectionFactory());
+        this.manager.setMaxTotal(builder.maxConnections);
+        this.manager.setDefaultMaxPerRoute(builder.maxConnections);
+        this.manager.setValidateAfterInactivity(builder.validateAfterInactivityMillis);
+
+        this.warmConnections = builder.warmConnections;
+        this.keepAliveMillis = builder.keepAliveMillis;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+    }
+
+    /**
+     * Open connections up to the configured warm connections, TCP and TLS handshake included.
+     *
+     * @return number of new connections opened
+     * @throws AirtableClientException if any connection failed to open
+     * @see Builder#warmConnections(int)
+     */
+    public int warmUp() {
+        return warmUp(warmConnections);
+    }
+
+    /**
+     * Open connections up to the given number, TCP and TLS handshake included.
+     * Connections already open in the pool are counted, so calling it periodically keeps the pool topped up.
+     *
+     * @param connections number of connections to have open, capped by max connections
+     * @return number of new connections opened
+     * @throws AirtableClientException if any connection failed to open
+     */
+    public int warmUp(int connections) {
+        int target = Math.min(connections, manager.getMaxPerRoute(ROUTE));
+        List<HttpClientConnection> leased = new ArrayList<>();
+        int count = 0;
+
+        try {
+            for (int i = 0; i < target; i++) {
+                ConnectionRequest request = manager.requestConnection(ROUTE, null);
+                HttpClientConnection connection = request.get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                leased.add(connection);
+
+                if (!connection.isOpen()) {
+                    HttpClientContext context = HttpClientContext.create();
+                    manager.connect(connection, ROUTE, connectTimeoutMillis, context);
+                    manager.routeComplete(connection, ROUTE, context);
+                    count++;
+                }
+            }
+            return count;
+        } catch (IOException | ExecutionException e) {
+            throw new AirtableClientException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AirtableClientException(e);
+        } finally {
+            for (HttpClientConnection connection : leased) {
+                manager.releaseConnection(connection, null, keepAliveMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return Metrics of the pool, for connection churn
+     */
+    public Metrics metrics() {
+        PoolStats stats = manager.getTotalStats();
+        int tlsSessions = sessions == null ? 0 : Collections.list(sessions.getIds()).size();
+        return new Metrics(opened.get(), closed.get(), stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(), tlsSessions);
+    }
+
+    /**
+     * @return ConnectionKeepAliveStrategy, server Keep-Alive header takes precedence over the configured keep alive
+     */
+    ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            if (duration > 0) return duration;
+            return keepAliveMillis;
+        };
+    }
+
+    PoolingHttpClientConnectionManager getConnectionManager() {
+        return manager;
+    }
+
+    /**
+     * Close all connections in this pool, executors using it can no longer be used.
+     */
+    @Override
+    public void close() {
+        manager.close();
+    }
+
+    /**
+     * @return new Builder, with default of 8 max connections
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private int maxConnections = 8;
+        private int warmConnections = 0;
+        private int validateAfterInactivityMillis = 1000;
+        private long keepAliveMillis = -1;
+        private int connectTimeoutMillis = 10_000;
+        private int tlsSessionCacheSize = 0;
+        private int tlsSessionTimeoutSeconds = 86400;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxConnections maximum number of connections in the pool, default to 8
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param warmConnections number of connections to open on {@link AirtableConnectionPool#warmUp()}, default to 0
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder warmConnections(int warmConnections) {
+            this.warmConnections = warmConnections;
+            return this;
+        }
+
+        /**
+         * Connections idle for longer than this are checked (stale check) before being reused.
+         * With a keep alive shorter than the server idle timeout, this can be raised to skip most checks.
+         *
+         * @param duration of inactivity before a connection is validated, default to 1 second, non-positive to disable
+         * @param timeUnit of duration
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder validateAfterInactivity(long duration, TimeUnit timeUnit) {
+            this.validateAfterInactivityMillis = (int) timeUnit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Keep alive is only applied if the server did not specify one with a Keep-Alive header.
+         *
+         * @param duration idle connections are kept for, default to indefinitely, non-positive for indefinitely
+         * @param timeUnit of duration
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder keepAlive(long duration, TimeUnit timeUnit) {
+            this.keepAliveMillis = duration > 0 ? timeUnit.toMillis(duration) : -1;
+            return this;
+        }
+
+        /**
+         * @param duration to wait for a connection to be leased and connected during warm up, default to 10 seconds
+         * @param timeUnit of duration
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder connectTimeout(long duration, TimeUnit timeUnit) {
+            this.connectTimeoutMillis = (int) timeUnit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * TLS sessions cached are resumed by new connections, skipping the full handshake.
+         *
+         * @param size     maximum number of TLS sessions cached, 0 for no limit, default to 0
+         * @param timeout  of cached TLS sessions, default to 24 hours
+         * @param timeUnit of timeout
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder tlsSessionCache(int size, long timeout, TimeUnit timeUnit) {
+            this.tlsSessionCacheSize = size;
+            this.tlsSessionTimeoutSeconds = (int) timeUnit.toSeconds(timeout);
+            return this;
+        }
+
+        /**
+         * @return AirtableConnectionPool
+         */
+        public AirtableConnectionPool build() {
+            return new AirtableConnectionPool(this);
+        }
+    }
+
+    /**
+     * Point in time metrics of the pool.
+     */
+    public static final class Metrics {
+        private final long opened;
+        private final long closed;
+        private final int leased;
+        private final int available;
+        private final int pending;
+        private final int max;
+        private final int tlsSessions;
+
+        Metrics(long opened, long closed, int leased, int available, int pending, int max, int tlsSessions) {
+            this.opened = opened;
+            this.closed = closed;
+            this.leased = leased;
+            this.available = available;
+            this.pending = pending;
+            this.max = max;
+            this.tlsSessions = tlsSessions;
+        }
+
+        /**
+         * @return total connections opened since the pool is created
+         */
+        public long getOpened() {
+            return opened;
+        }
+
+        /**
+         * @return total connections closed since the pool is created
+         */
+        public long getClosed() {
+            return closed;
+        }
+
+        /**
+         * @return connections currently in use
+         */
+        public int getLeased() {
+            return leased;
+        }
+
+        /**
+         * @return connections currently idle in the pool
+         */
+        public int getAvailable() {
+            return available;
+        }
+
+        /**
+         * @return requests waiting for a connection
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * @return maximum connections of the pool
+         */
+        public int getMax() {
+            return max;
+        }
+
+        /**
+         * @return TLS sessions cached for resumption
+         */
+        public int getTlsSessions() {
+            return tlsSessions;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "opened=" + opened +
+                    ", closed=" + closed +
+                    ", leased=" + leased +
+                    ", available=" + available +
+                    ", pending=" + pending +
+                    ", max=" + max +
+                    ", tlsSessions=" + tlsSessions +
+                    '}';
+        }
+    }
+
+    /**
+     * Socket factory decorator to count connections opened.
+     */
+    private final class CountingSocketFactory implements LayeredConnectionSocketFactory {
+        private final ConnectionSocketFactory factory;
+
+        private CountingSocketFactory(ConnectionSocketFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return factory.createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            Socket socket = factory.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+            opened.incrementAndGet();
+            return socket;
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            return ((LayeredConnectionSocketFactory) factory).createLayeredSocket(socket, target, port, context);
+        }
+    }
+
+    /**
+     * Connection factory decorator to count connections closed, once per connected socket,
+     * whether closed by the pool, on shutdown or when the response is not reusable.
+     */
+    private final class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            ManagedHttpClientConnection connection = ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+            AtomicReference<Socket> counted = new AtomicReference<>();
+
+            return (ManagedHttpClientConnection) Proxy.newProxyInstance(AirtableConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{ManagedHttpClientConnection.class}, (proxy, method, args) -> {
+                        if (method.getParameterCount() == 0 && (method.getName().equals("close") || method.getName().equals("shutdown"))) {
+                            Socket socket = connection.getSocket();
+                            if (socket != null && socket.isConnected() && counted.getAndSet(socket) != socket) {
+                                closed.incrementAndGet();
+                            }
+                        }
+
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * The "Default" context is initialized by the provider from the {@code javax.net.ssl.*} system properties,
+     * same as {@link SSLConnectionSocketFactory#getSystemSocketFactory()}, but every instance has its own session cache.
+     *
+     * @return new TLS context of the pool, or null if not available
+     */
+    @Nullable
+    private static SSLContext createSSLContext() {
+        try {
+            return SSLContext.getInstance("Default");
+        } catch (final SecurityException | NoSuchAlgorithmException ignore) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static String[] split(String value) {
+        if (StringUtils.isBlank(value)) return null;
+        return value.split(" *, *");
+    }
+}
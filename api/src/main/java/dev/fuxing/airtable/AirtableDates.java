@@ -0,0 +1,242 @@
+package dev.fuxing.airtable;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * ISO-8601 parser and formatter for the date shapes used by Airtable, without any intermediate allocation.
+ * <p>
+ * Parses:
+ * <ul>
+ * <li>{@code 2019-04-20T14:12:52.000Z}, timestamp in UTC, as returned by Airtable</li>
+ * <li>{@code 2019-04-20T22:12:52+08:00}, timestamp with offset, fraction of second is optional and truncated to millis</li>
+ * <li>{@code 2019-04-20}, date field, start of the day in UTC</li>
+ * </ul>
+ * Formats timestamps as {@code 2019-04-20T14:12:52.000Z} and dates as {@code 2019-04-20}.
+ */
+public final class AirtableDates {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private AirtableDates() {
+    }
+
+    /**
+     * @param text ISO-8601 timestamp or date
+     * @return milliseconds since epoch
+     * @throws IllegalArgumentException if text is not a supported ISO-8601 shape
+     */
+    public static long parseMillis(CharSequence text) {
+        int length = text.length();
+        if (length < 10 || text.charAt(4) != '-' || text.charAt(7) != '-') throw invalid(text);
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) throw invalid(text);
+
+        long millis = epochDay(year, month, day) * MILLIS_PER_DAY;
+        if (length == 10) return millis;
+
+        if (length < 16 || (text.charAt(10) != 'T' && text.charAt(10) != 't') || text.charAt(13) != ':') {
+            throw invalid(text);
+        }
+
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = 0;
+        int milli = 0;
+
+        int i = 16;
+        if (i < length && text.charAt(i) == ':') {
+            if (i + 3 > length) throw invalid(text);
+            second = digits(text, i + 1, 2);
+            i += 3;
+
+            if (i < length && (text.charAt(i) == '.' || text.charAt(i) == ',')) {
+                int start = ++i;
+                while (i < length && isDigit(text.charAt(i))) {
+                    // Truncate to millis
+                    if (i - start < 3) milli = milli * 10 + (text.charAt(i) - '0');
+                    i++;
+                }
+                if (i == start) throw invalid(text);
+                for (int n = i - start; n < 3; n++) milli *= 10;
+            }
+        }
+        if (hour > 23 || minute > 59 || second > 59) throw invalid(text);
+
+        millis += ((hour * 60L + minute) * 60 + second) * 1000 + milli;
+        return millis - offsetMillis(text, i);
+    }
+
+    /**
+     * @param text ISO-8601 timestamp or date
+     * @return Instant
+     * @throws IllegalArgumentException if text is not a supported ISO-8601 shape
+     */
+    public static Instant parseInstant(CharSequence text) {
+        return Instant.ofEpochMilli(parseMillis(text));
+    }
+
+    /**
+     * @param text ISO-8601 date, or timestamp which will be converted to the date in UTC
+     * @return LocalDate
+     * @throws IllegalArgumentException if text is not a supported ISO-8601 shape
+     */
+    public static LocalDate parseLocalDate(CharSequence text) {
+        return LocalDate.ofEpochDay(Math.floorDiv(parseMillis(text), MILLIS_PER_DAY));
+    }
+
+    /**
+     * @param epochMillis milliseconds since epoch
+     * @return timestamp in UTC, e.g. {@code 2019-04-20T14:12:52.000Z}
+     */
+    public static String format(long epochMillis) {
+        long epochDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        char[] chars = new char[24];
+        writeDate(chars, epochDay);
+        chars[10] = 'T';
+        write2(chars, 11, millisOfDay / 3_600_000);
+        chars[13] = ':';
+        write2(chars, 14, millisOfDay / 60_000 % 60);
+        chars[16] = ':';
+        write2(chars, 17, millisOfDay / 1000 % 60);
+        chars[19] = '.';
+        int milli = millisOfDay % 1000;
+        chars[20] = (char) ('0' + milli / 100);
+        write2(chars, 21, milli % 100);
+        chars[23] = 'Z';
+        return new String(chars);
+    }
+
+    /**
+     * @param instant to format
+     * @return timestamp in UTC, e.g. {@code 2019-04-20T14:12:52.000Z}
+     */
+    public static String format(Instant instant) {
+        return format(instant.toEpochMilli());
+    }
+
+    /**
+     * @param date to format
+     * @return date, e.g. {@code 2019-04-20}
+     */
+    public static String format(LocalDate date) {
+        char[] chars = new char[10];
+        writeDate(chars, date.toEpochDay());
+        return new String(chars);
+    }
+
+    private static long offsetMillis(CharSequence text, int i) {
+        int length = text.length();
+        if (i == length) throw invalid(text);
+
+        char c = text.charAt(i);
+        if (c == 'Z' || c == 'z') {
+            if (i + 1 != length) throw invalid(text);
+            return 0;
+        }
+
+        if (c != '+' && c != '-') throw invalid(text);
+        int hours;
+        int minutes;
+        if (length - i == 6 && text.charAt(i + 3) == ':') {
+            hours = digits(text, i + 1, 2);
+            minutes = digits(text, i + 4, 2);
+        } else if (length - i == 5) {
+            hours = digits(text, i + 1, 2);
+            minutes = digits(text, i + 3, 2);
+        } else if (length - i == 3) {
+            hours = digits(text, i + 1, 2);
+            minutes = 0;
+        } else {
+            throw invalid(text);
+        }
+        if (hours > 18 || minutes > 59) throw invalid(text);
+
+        long offset = (hours * 60L + minutes) * 60_000;
+        return c == '-' ? -offset : offset;
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        if (start + count > text.length()) throw invalid(text);
+
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) throw invalid(text);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days from civil, proleptic Gregorian calendar.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Civil from days, writes yyyy-MM-dd into the first 10 chars.
+     */
+    private static void writeDate(char[] chars, long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        if (year < 0 || year > 9999) {
+            throw new IllegalArgumentException("Year out of range for ISO-8601 format: " + year);
+        }
+
+        write2(chars, 0, year / 100);
+        write2(chars, 2, year % 100);
+        chars[4] = '-';
+        write2(chars, 5, month);
+        chars[7] = '-';
+        write2(chars, 8, day);
+    }
+
+    private static void write2(char[] chars, int offset, int value) {
+        chars[offset] = (char) ('0' + value / 10);
+        chars[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text) {
+        return new IllegalArgumentException("Invalid ISO-8601 date: " + text);
+    }
+}
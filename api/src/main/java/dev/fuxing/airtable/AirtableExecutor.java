@@ -1,29 +1,47 @@
 package dev.fuxing.airtable;
 
+import dev.fuxing.airtable.limit.AdaptiveConcurrencyLimiter;
+import dev.fuxing.airtable.limit.AirtableBackoff;
+import dev.fuxing.airtable.limit.AirtableConcurrencyLimiter;
+import dev.fuxing.airtable.limit.AirtableRateLimiter;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.fluent.Executor;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLInitializationException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
 import org.apache.http.cookie.Cookie;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.protocol.HttpContext;
 
-import javax.net.ssl.SSLContext;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -33,35 +51,19 @@ import java.util.logging.Logger;
  */
 public final class AirtableExecutor {
 
+    /**
+     * No point having too many, or else it will cause 429 error rather quickly
+     */
+    final static AirtableConnectionPool DEFAULT_POOL;
     final static PoolingHttpClientConnectionManager CONNECTION_MANAGER;
     final static RequestConfig REQUEST_CONFIG;
     final static HttpClient CLIENT;
-    final static Registry<ConnectionSocketFactory> SFR;
 
     static {
-        LayeredConnectionSocketFactory ssl = null;
-        try {
-            ssl = SSLConnectionSocketFactory.getSystemSocketFactory();
-        } catch (final SSLInitializationException ex) {
-            final SSLContext sslcontext;
-            try {
-                sslcontext = SSLContext.getInstance(SSLConnectionSocketFactory.TLS);
-                sslcontext.init(null, null, null);
-                ssl = new SSLConnectionSocketFactory(sslcontext);
-            } catch (final SecurityException | KeyManagementException | NoSuchAlgorithmException ignore) {
-            }
-        }
-
-        SFR = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                .register("https", ssl != null ? ssl : SSLConnectionSocketFactory.getSocketFactory())
+        DEFAULT_POOL = AirtableConnectionPool.builder()
+                .maxConnections(8)
                 .build();
-
-        CONNECTION_MANAGER = new PoolingHttpClientConnectionManager(SFR);
-        // No point having too many, or else it will cause 429 error rather quickly
-        CONNECTION_MANAGER.setMaxTotal(8);
-        CONNECTION_MANAGER.setDefaultMaxPerRoute(8);
-        CONNECTION_MANAGER.setValidateAfterInactivity(1000);
+        CONNECTION_MANAGER = DEFAULT_POOL.getConnectionManager();
 
         REQUEST_CONFIG = RequestConfig.custom()
                 .setCookieSpec(CookieSpecs.STANDARD).build();
@@ -73,6 +75,25 @@ public final class AirtableExecutor {
                 .build();
     }
 
+    /**
+     * Open connections of the pool shared by all default executors ahead of the first request,
+     * so that the first requests don't pay for TCP and TLS handshake.
+     *
+     * @param connections number of connections to have open, capped at 8
+     * @return number of new connections opened
+     * @throws dev.fuxing.airtable.exceptions.AirtableClientException if any connection failed to open
+     */
+    public static int warmUp(int connections) {
+        return DEFAULT_POOL.warmUp(connections);
+    }
+
+    /**
+     * @return Metrics of the pool shared by all default executors
+     */
+    public static AirtableConnectionPool.Metrics metrics() {
+        return DEFAULT_POOL.metrics();
+    }
+
     /**
      * @return default Executor with 3 maximum retry before failing
      */
@@ -81,38 +102,353 @@ public final class AirtableExecutor {
     }
 
     /**
+     * With auto retry, a 429 received by any executor with auto retry pauses all requests to that base in the JVM until the penalty expires.
+     *
      * @param autoRetry whether auto try is enabled
      * @param maxRetry  maximum retry before failing
      * @return Executor
+     * @see AirtableBackoff#shared()
      */
     public static Executor newInstance(boolean autoRetry, int maxRetry) {
-        HttpClientBuilder builder = HttpClientBuilder.create()
-                .setConnectionManager(CONNECTION_MANAGER)
-                .setDefaultRequestConfig(REQUEST_CONFIG);
+        return builder()
+                .retry(autoRetry, maxRetry)
+                .build();
+    }
+
+    /**
+     * Concurrency per base is adapted from observed latency and 429 responses,
+     * starting at 4 in-flight requests and growing up to 100 while Airtable is tolerating it.
+     * <p>
+     * Requests to a base penalized by a 429 fail immediately with 429 rather than being sent.
+     *
+     * @return Executor with no retry, with 100 max conneciton pool
+     * @see AdaptiveConcurrencyLimiter
+     * @see AirtableBackoff#shared()
+     */
+    public static Executor newInstanceTurbo() {
+        return builder()
+                .retry(false, 0)
+                .maxConnections(100)
+                .concurrencyLimiter(new AdaptiveConcurrencyLimiter(4, 1, 100))
+                .backoff(AirtableBackoff.shared(), false)
+                .build();
+    }
+
+    /**
+     * <pre>
+     * Executor executor = AirtableExecutor.builder()
+     *      .retry(true, 3)
+     *      .rateLimiter(SharedRateLimiter.open(path))
+     *      .build();
+     * </pre>
+     *
+     * @return Builder to customize the Executor, defaults to {@link AirtableExecutor#newInstance()}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private boolean autoRetry = true;
+        private int maxRetry = 3;
+        private AirtableConnectionPool connectionPool = DEFAULT_POOL;
+        private AirtableRateLimiter rateLimiter;
+        private AirtableConcurrencyLimiter concurrencyLimiter;
+        private AirtableBackoff backoff;
+        private boolean backoffWait = true;
+        private boolean backoffSet;
+
+        private Builder() {
+        }
+
+        /**
+         * @param autoRetry whether auto try is enabled
+         * @param maxRetry  maximum retry before failing
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder retry(boolean autoRetry, int maxRetry) {
+            this.autoRetry = autoRetry;
+            this.maxRetry = maxRetry;
+            return this;
+        }
+
+        /**
+         * By default, the executor shares a connection pool of 8 with all default executors.
+         * Same as {@code connectionPool(AirtableConnectionPool.builder().maxConnections(max).build())}.
+         *
+         * @param max number of connections for a new connection pool owned by this executor
+         * @return the same Builder instance for fluent chaining
+         */
+        public Builder maxConnections(int max) {
+            return connectionPool(AirtableConnectionPool.builder()
+                    .maxConnections(max)
+                    .build());
+        }
+
+        /**
+         * @param connectionPool to use, can be shared across executors
+         * @return the same Builder instance for fluent chaining
+         * @see AirtableConnectionPool#builder() for keep alive, warm up and TLS session cache
+         */
+        public Builder connectionPool(AirtableConnectionPool connectionPool) {
+            this.connectionPool = connectionPool;
+            return this;
+        }
+
+        /**
+         * @param rateLimiter to acquire from before sending every request to a base, including retries
+         * @return the same Builder instance for fluent chaining
+         * @see dev.fuxing.airtable.limit.SharedRateLimiter for rate limit across JVMs
+         */
+        public Builder rateLimiter(AirtableRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * @param concurrencyLimiter to acquire from before sending every request to a base, including retries
+         * @return the same Builder instance for fluent chaining
+         * @see AdaptiveConcurrencyLimiter for concurrency adapted from observed latency and 429 responses
+         */
+        public Builder concurrencyLimiter(AirtableConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * With backoff, a 429 pauses every request to the base sent through executors sharing the same backoff.
+         * Auto retry no longer sleeps the thread that received the 429, the retry waits for the penalty like every other request.
+         * <p>
+         * Defaults to {@link AirtableBackoff#shared()} with wait if auto retry is enabled, else disabled,
+         * so executors without retry are never blocked by a 429 received by another executor.
+         *
+         * @param backoff penalty state to share, {@code null} to disable
+         * @param wait    {@code true} to wait for the penalty to expire and be released in a ramp,
+         *                {@code false} to fail immediately with status 429 without sending the request
+         * @return the same Builder instance for fluent chaining
+         * @see AirtableBackoff#shared()
+         */
+        public Builder backoff(@Nullable AirtableBackoff backoff, boolean wait) {
+            this.backoff = backoff;
+            this.backoffWait = wait;
+            this.backoffSet = true;
+            return this;
+        }
+
+        /**
+         * @return backoff set, else the shared backoff if auto retry is enabled
+         */
+        @Nullable
+        AirtableBackoff resolveBackoff() {
+            if (backoffSet) return backoff;
+            return autoRetry && maxRetry > 0 ? AirtableBackoff.shared() : null;
+        }
+
+        /**
+         * @return Executor
+         */
+        public Executor build() {
+            AirtableBackoff backoff = resolveBackoff();
+            LimitExec.Config config = new LimitExec.Config(rateLimiter, concurrencyLimiter, backoff, backoffWait);
+
+            HttpClientBuilder builder = new HttpClientBuilder() {
+                @Override
+                protected ClientExecChain decorateProtocolExec(ClientExecChain protocolExec) {
+                    if (config.isEmpty()) return protocolExec;
+                    return new LimitExec(protocolExec, config);
+                }
+            };
+
+            builder.setConnectionManager(connectionPool.getConnectionManager())
+                    .setKeepAliveStrategy(connectionPool.keepAliveStrategy())
+                    .setDefaultRequestConfig(REQUEST_CONFIG);
 
-        if (autoRetry) {
-            builder.setServiceUnavailableRetryStrategy(new RetryStrategy(maxRetry));
+            if (autoRetry) {
+                builder.setServiceUnavailableRetryStrategy(new RetryStrategy(maxRetry, backoff == null || !backoffWait));
+            }
+
+            return Executor.newInstance(builder.build())
+                    .use(new CookieStore());
         }
+    }
+
+    /**
+     * Decorate the protocol exec, so that it's called for every attempt including retries.
+     */
+    static final class LimitExec implements ClientExecChain {
+        private final ClientExecChain exec;
+        private final Config config;
+
+        LimitExec(ClientExecChain exec, Config config) {
+            this.exec = exec;
+            this.config = config;
+        }
+
+        @Override
+        public CloseableHttpResponse execute(HttpRoute route, HttpRequestWrapper request, HttpClientContext context, HttpExecutionAware execAware) throws IOException, HttpException {
+            String base = base(request.getURI());
+            if (base == null) {
+                return exec.execute(route, request, context, execAware);
+            }
+
+            AirtableConcurrencyLimiter.Listener listener = null;
+            try {
+                if (config.backoff != null) {
+                    if (config.backoffWait) {
+                        config.backoff.await(base);
+                    } else if (config.backoff.isPenalized(base)) {
+                        return new PenalizedResponse(base);
+                    }
+                }
+
+                // Wait for concurrency first, so that rate limit is not spent while waiting
+                if (config.concurrencyLimiter != null) listener = config.concurrencyLimiter.acquire(base);
+                if (config.rateLimiter != null) config.rateLimiter.acquire(base);
+            } catch (InterruptedException e) {
+                if (listener != null) listener.onIgnore();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for limit of " + base);
+            } catch (RuntimeException e) {
+                // e.g. SharedRateLimiter failed to read its file, the request is not sent
+                if (listener != null) listener.onIgnore();
+                throw e;
+            }
+
+            long start = System.nanoTime();
+            CloseableHttpResponse response;
+            try {
+                response = exec.execute(route, request, context, execAware);
+            } catch (IOException | HttpException | RuntimeException e) {
+                if (listener != null) listener.onIgnore();
+                throw e;
+            }
+
+            if (response.getStatusLine().getStatusCode() == 429) {
+                if (config.backoff != null) config.backoff.penalize(base);
+                if (listener != null) listener.onDropped();
+            } else if (listener != null) {
+                long latency = System.nanoTime() - start;
+                AirtableConcurrencyLimiter.Listener success = listener;
+                return releaseOnClose(response, () -> success.onSuccess(latency));
+            }
+            return response;
+        }
+
+        /**
+         * The request holds the concurrency permit until the body is read or the response is closed,
+         * whichever is first, the body is still streamed from airtable after the status line.
+         *
+         * @param response to release
+         * @param release  called once
+         * @return response that releases when closed
+         */
+        static CloseableHttpResponse releaseOnClose(CloseableHttpResponse response, Runnable release) {
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable once = () -> {
+                if (released.compareAndSet(false, true)) release.run();
+            };
+
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                once.run();
+                return response;
+            }
 
-        return Executor.newInstance(builder.build())
-                .use(new CookieStore());
+            EofSensorWatcher watcher = new EofSensorWatcher() {
+                @Override
+                public boolean eofDetected(InputStream wrapped) {
+                    once.run();
+                    return true;
+                }
+
+                @Override
+                public boolean streamClosed(InputStream wrapped) {
+                    once.run();
+                    return true;
+                }
+
+                @Override
+                public boolean streamAbort(InputStream wrapped) {
+                    once.run();
+                    return true;
+                }
+            };
+            response.setEntity(new HttpEntityWrapper(entity) {
+                @Override
+                public InputStream getContent() throws IOException {
+                    return new EofSensorInputStream(super.getContent(), watcher);
+                }
+
+                @Override
+                public void writeTo(OutputStream outStream) throws IOException {
+                    try {
+                        super.writeTo(outStream);
+                    } finally {
+                        once.run();
+                    }
+                }
+            });
+
+            // Same as HttpClient does for its own responses, only close is intercepted
+            return (CloseableHttpResponse) Proxy.newProxyInstance(AirtableExecutor.class.getClassLoader(),
+                    new Class<?>[]{CloseableHttpResponse.class}, (proxy, method, args) -> {
+                        try {
+                            return method.invoke(response, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            if (method.getName().equals("close") && method.getParameterCount() == 0) once.run();
+                        }
+                    });
+        }
+
+        static final class Config {
+            private final AirtableRateLimiter rateLimiter;
+            private final AirtableConcurrencyLimiter concurrencyLimiter;
+            private final AirtableBackoff backoff;
+            private final boolean backoffWait;
+
+            Config(@Nullable AirtableRateLimiter rateLimiter, @Nullable AirtableConcurrencyLimiter concurrencyLimiter, @Nullable AirtableBackoff backoff, boolean backoffWait) {
+                this.rateLimiter = rateLimiter;
+                this.concurrencyLimiter = concurrencyLimiter;
+                this.backoff = backoff;
+                this.backoffWait = backoffWait;
+            }
+
+            boolean isEmpty() {
+                return rateLimiter == null && concurrencyLimiter == null && backoff == null;
+            }
+        }
     }
 
     /**
-     * @return Executor with no retry, with 100 max conneciton pool
+     * Response for requests not sent because the base is penalized, handled like a 429 from Airtable.
      */
-    public static Executor newInstanceTurbo() {
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(SFR);
-        connectionManager.setMaxTotal(100);
-        connectionManager.setDefaultMaxPerRoute(100);
-        connectionManager.setValidateAfterInactivity(1000);
+    static final class PenalizedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        PenalizedResponse(String base) {
+            super(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+            setEntity(new StringEntity("{\"error\":{\"type\":\"TOO_MANY_REQUESTS\",\"message\":\"" +
+                    "Base " + base + " is penalized, request not sent.\"}}", ContentType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 
-        HttpClientBuilder builder = HttpClientBuilder.create()
-                .setConnectionManager(connectionManager)
-                .setDefaultRequestConfig(REQUEST_CONFIG);
+    /**
+     * @param uri of airtable request, e.g. https://api.airtable.com/v0/app.../Table
+     * @return id of the app, {@code null} if not an airtable base request
+     */
+    @Nullable
+    static String base(URI uri) {
+        String path = uri.getRawPath();
+        if (path == null || !path.startsWith("/v0/")) return null;
 
-        return Executor.newInstance(builder.build())
-                .use(new CookieStore());
+        int end = path.indexOf('/', 4);
+        String base = end == -1 ? path.substring(4) : path.substring(4, end);
+        return base.isEmpty() ? null : base;
     }
 
     public static final class CookieStore implements org.apache.http.client.CookieStore {
@@ -142,15 +478,31 @@ public final class AirtableExecutor {
         private static final Logger logger = Logger.getLogger(RetryStrategy.class.getName());
 
         private final int maxCount;
+        private final boolean sleep;
 
         public RetryStrategy(int maxCount) {
+            this(maxCount, true);
+        }
+
+        /**
+         * @param maxCount maximum retry before failing
+         * @param sleep    whether to sleep 30 seconds before retry,
+         *                 {@code false} if the retry waits for {@link AirtableBackoff} penalty instead
+         */
+        public RetryStrategy(int maxCount, boolean sleep) {
             this.maxCount = maxCount;
+            this.sleep = sleep;
         }
 
         @Override
         public boolean retryRequest(HttpResponse response, int executionCount, HttpContext context) {
             int statusCode = response.getStatusLine().getStatusCode();
             if (statusCode == 429 && executionCount < maxCount) {
+                if (!sleep) {
+                    logger.info("429: Airtable Retry, Waiting for backoff, Count: " + executionCount);
+                    return true;
+                }
+
                 logger.info("429: Airtable Retry, Sleeping, Count: " + executionCount);
                 sleep();
                 logger.info("429: Airtable Retry, Resuming, Count: " + executionCount);
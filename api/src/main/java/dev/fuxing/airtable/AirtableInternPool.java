@@ -0,0 +1,164 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Dedupes repeated cell values of a table, e.g. single select, multiple select and collaborator,
+ * so records holding the same value share one JsonNode instead of each having a copy.
+ * <p>
+ * Only short text, and small arrays and objects of scalars are interned.
+ * The pool is bounded, values are weakly referenced so they are released once no record holds them.
+ * Interned values are shared across records and must not be mutated in place, put a new value into the record instead.
+ *
+ * <pre>
+ * AirtableApi.Table table = api.app("app...").table("Table", AirtableReader.tree(new AirtableInternPool(10_000)));
+ * </pre>
+ */
+public final class AirtableInternPool {
+    /**
+     * Longer text is unlikely to repeat, e.g. long text or rich text.
+     */
+    static final int MAX_TEXT_LENGTH = 128;
+
+    /**
+     * Collaborator object has 3 fields, multiple select is an array of a few options.
+     */
+    static final int MAX_CONTAINER_SIZE = 16;
+
+    private final int maxSize;
+    private final Map<JsonNode, WeakReference<JsonNode>> pool = new WeakHashMap<>();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize max number of distinct values in the pool, values not in the pool are not interned when full
+     */
+    public AirtableInternPool(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Children of an array or object are interned into a new array or object if any of them is deduped,
+     * the value passed in is never mutated, it may already be shared by another thread.
+     *
+     * @param value to intern
+     * @return an equal value in the pool, or the value itself if added or not internable
+     */
+    public JsonNode intern(JsonNode value) {
+        if (value.isTextual()) {
+            if (value.textValue().length() > MAX_TEXT_LENGTH) return value;
+            return lookup(value);
+        }
+
+        if (value.isArray()) {
+            if (value.size() > MAX_CONTAINER_SIZE) return value;
+            ArrayNode array = null;
+            for (int i = 0; i < value.size(); i++) {
+                JsonNode element = value.get(i);
+                if (element.isContainerNode() && !isSmallObject(element)) return value;
+                JsonNode interned = intern(element);
+                if (array == null && interned != element) {
+                    array = JsonNodeFactory.instance.arrayNode(value.size());
+                    for (int j = 0; j < i; j++) {
+                        array.add(value.get(j));
+                    }
+                }
+                if (array != null) array.add(interned);
+            }
+            return lookup(array == null ? value : array);
+        }
+
+        if (isSmallObject(value)) {
+            ObjectNode object = null;
+            Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                JsonNode interned = intern(entry.getValue());
+                if (object == null && interned != entry.getValue()) {
+                    object = JsonNodeFactory.instance.objectNode();
+                    Iterator<Map.Entry<String, JsonNode>> copied = value.fields();
+                    while (true) {
+                        Map.Entry<String, JsonNode> copy = copied.next();
+                        if (copy.getKey().equals(entry.getKey())) break;
+                        object.set(copy.getKey(), copy.getValue());
+                    }
+                }
+                if (object != null) object.set(entry.getKey(), interned);
+            }
+            return lookup(object == null ? value : object);
+        }
+
+        // Numbers and booleans are as small as the reference to them
+        return value;
+    }
+
+    /**
+     * @param node of a record: {@code {"id": "...", "fields": {...}, "createdTime": "..."}}
+     */
+    void internFields(JsonNode node) {
+        JsonNode fields = node.path("fields");
+        if (!fields.isObject()) return;
+
+        Iterator<Map.Entry<String, JsonNode>> iterator = fields.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> entry = iterator.next();
+            entry.setValue(intern(entry.getValue()));
+        }
+    }
+
+    /**
+     * @return number of distinct values in the pool, including values no longer referenced but not yet cleared
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+
+    /**
+     * @return number of values deduped
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return number of values added to the pool or not added because the pool is full
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private synchronized JsonNode lookup(JsonNode value) {
+        WeakReference<JsonNode> reference = pool.get(value);
+        if (reference != null) {
+            JsonNode interned = reference.get();
+            if (interned != null) {
+                hits++;
+                return interned;
+            }
+        }
+
+        misses++;
+        if (pool.size() < maxSize) {
+            pool.put(value, new WeakReference<>(value));
+        }
+        return value;
+    }
+
+    private static boolean isSmallObject(JsonNode value) {
+        if (!value.isObject() || value.size() > MAX_CONTAINER_SIZE) return false;
+        for (JsonNode child : value) {
+            if (child.isContainerNode()) return false;
+        }
+        return true;
+    }
+}
@@ -17,10 +17,23 @@ public class AirtableList extends ArrayList<AirtableRecord> implements AirtableT
     private String offset;
 
     public AirtableList(JsonNode node) {
-        super(parse(node.path("records")));
+        this(node, new FieldSchema());
+    }
+
+    /**
+     * @param node   json node from https://api.airtable.com/v0
+     * @param schema to share field names with records of the same table
+     */
+    AirtableList(JsonNode node, FieldSchema schema) {
+        super(parse(node.path("records"), schema));
         this.offset = node.path("offset").asText(null);
     }
 
+    AirtableList(List<AirtableRecord> records, @Nullable String offset) {
+        super(records);
+        this.offset = offset;
+    }
+
     /**
      * @return offset
      * @see AirtableTable.PaginationList#getOffset()
@@ -31,12 +44,20 @@ public class AirtableList extends ArrayList<AirtableRecord> implements AirtableT
         return offset;
     }
 
+    /**
+     * @param node array of records
+     * @return records sharing field names
+     */
     public static List<AirtableRecord> parse(JsonNode node) {
+        return parse(node, new FieldSchema());
+    }
+
+    static List<AirtableRecord> parse(JsonNode node, FieldSchema schema) {
         if (node.isMissingNode()) return Collections.emptyList();
 
-        List<AirtableRecord> records = new ArrayList<>();
+        List<AirtableRecord> records = new ArrayList<>(node.size());
         for (JsonNode jsonNode : node) {
-            records.add(new AirtableRecord(jsonNode));
+            records.add(new AirtableRecord(jsonNode, schema));
         }
         return records;
     }
@@ -0,0 +1,176 @@
+package dev.fuxing.airtable;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive Streams {@link Publisher} over a table scan.
+ * <p>
+ * Pages are fetched with {@link AirtableTable#list(AirtableTable.QuerySpec)} only when downstream demand
+ * exceeds the records already buffered from the previous page.
+ * Once the subscriber cancels, no further page is requested from Airtable.
+ * <p>
+ * Each subscription pages with its own copy of the QuerySpec, the given QuerySpec is never changed.
+ *
+ * @see AirtableTable#publish(AirtableTable.QuerySpec, Executor)
+ */
+public class AirtablePublisher implements Publisher<AirtableRecord> {
+
+    private final AirtableTable table;
+    private final AirtableTable.QuerySpec querySpec;
+    private final Executor executor;
+
+    /**
+     * @param table     to scan
+     * @param querySpec fluent query spec with all the querystring options
+     * @param executor  to fetch pages &#x26; signal the subscriber on, {@code Runnable::run} to use the requesting thread
+     */
+    public AirtablePublisher(AirtableTable table, AirtableTable.QuerySpec querySpec, Executor executor) {
+        this.table = Objects.requireNonNull(table);
+        this.querySpec = Objects.requireNonNull(querySpec);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super AirtableRecord> subscriber) {
+        Objects.requireNonNull(subscriber);
+        subscriber.onSubscribe(new PageSubscription(subscriber));
+    }
+
+    private final class PageSubscription implements Subscription, Runnable {
+        private final Subscriber<? super AirtableRecord> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalid;
+
+        // Only accessed by the thread draining, guarded by wip
+        private AirtableTable.QuerySpec pageSpec;
+        private final Queue<AirtableRecord> buffer = new ArrayDeque<>();
+        private boolean fetched;
+        private String offset;
+
+        private PageSubscription(Subscriber<? super AirtableRecord> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Rule 3.9, non-positive request signals onError
+                invalid = new IllegalArgumentException("Reactive Streams Rule 3.9: request must be positive, was: " + n);
+            } else {
+                requested.getAndUpdate(current -> {
+                    long next = current + n;
+                    return next < 0 ? Long.MAX_VALUE : next;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                if (drain()) {
+                    buffer.clear();
+                    return;
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+
+        /**
+         * @return whether this subscription is terminated
+         */
+        private boolean drain() {
+            long demand = requested.get();
+            long emitted = 0;
+
+            while (true) {
+                if (cancelled) return true;
+
+                Throwable error = invalid;
+                if (error != null) {
+                    cancelled = true;
+                    subscriber.onError(error);
+                    return true;
+                }
+
+                if (buffer.isEmpty()) {
+                    if (fetched && offset == null) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return true;
+                    }
+
+                    // Only go to airtable when demand exceed what is buffered
+                    if (emitted == demand) break;
+
+                    try {
+                        fetch();
+                    } catch (RuntimeException e) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return true;
+                    }
+                    continue;
+                }
+
+                if (emitted == demand) {
+                    demand = requested.addAndGet(-emitted);
+                    emitted = 0;
+                    if (demand == 0) break;
+                }
+
+                subscriber.onNext(buffer.poll());
+                emitted++;
+            }
+
+            if (emitted != 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+            return false;
+        }
+
+        private void fetch() {
+            if (fetched) {
+                pageSpec.offset(offset);
+            } else {
+                pageSpec = AirtableApi.QuerySpecImpl.copyOf(querySpec);
+            }
+
+            AirtableTable.PaginationList list = table.list(pageSpec);
+            fetched = true;
+            offset = list.getOffset();
+            buffer.addAll(list);
+        }
+    }
+}
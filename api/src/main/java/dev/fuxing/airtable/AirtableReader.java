@@ -0,0 +1,240 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads successful responses from https://api.airtable.com/v0 into AirtableRecord.
+ *
+ * <pre>
+ * AirtableApi.Table table = api.app("app...").table("Table", AirtableReader.LAZY);
+ * </pre>
+ */
+public interface AirtableReader {
+
+    /**
+     * Every field of every record is decoded into JsonNode eagerly,
+     * records of the same response share field names.
+     */
+    AirtableReader TREE = new Tree(null, null);
+
+    /**
+     * Fields of every record are only decoded on first access, and cached after.
+     *
+     * @see Lazy
+     */
+    AirtableReader LAZY = new Lazy();
+
+    /**
+     * Default reader of {@link AirtableApi.Application#table(String)}.
+     *
+     * @return new reader, every field of every record is decoded into JsonNode eagerly,
+     * records read by the same reader share field names
+     */
+    static AirtableReader tree() {
+        return new Tree(new FieldSchema(), null);
+    }
+
+    /**
+     * @param pool to dedupe repeated cell values of the table with
+     * @return new reader, every field of every record is decoded into JsonNode eagerly,
+     * records read by the same reader share field names and values interned by the pool
+     */
+    static AirtableReader tree(AirtableInternPool pool) {
+        return new Tree(new FieldSchema(), pool);
+    }
+
+    /**
+     * @param in response of list records: {@code {"records": [...], "offset": "..."}}
+     * @return PaginationList
+     * @throws IOException if failed to read the response
+     */
+    AirtableTable.PaginationList readList(InputStream in) throws IOException;
+
+    /**
+     * @param in response of a single record: {@code {"id": "...", "fields": {...}, "createdTime": "..."}}
+     * @return AirtableRecord
+     * @throws IOException if failed to read the response
+     */
+    AirtableRecord readRecord(InputStream in) throws IOException;
+
+    /**
+     * @param in response of batch operations: {@code {"records": [...]}}
+     * @return list of AirtableRecord
+     * @throws IOException if failed to read the response
+     */
+    List<AirtableRecord> readRecords(InputStream in) throws IOException;
+
+    /**
+     * Reads the full response into a JsonNode tree, then copies every field into the record.
+     * <p>
+     * Fields are stored in a flat array indexed by a field name dictionary shared with other records,
+     * {@link AirtableRecord#getFields()} is a Map view over it.
+     */
+    final class Tree implements AirtableReader {
+        private final FieldSchema schema;
+        private final AirtableInternPool pool;
+
+        /**
+         * @param schema to share across responses, {@code null} to only share within a response
+         * @param pool   to intern cell values with, {@code null} to not intern
+         */
+        private Tree(@Nullable FieldSchema schema, @Nullable AirtableInternPool pool) {
+            this.schema = schema;
+            this.pool = pool;
+        }
+
+        private FieldSchema schema() {
+            return schema != null ? schema : new FieldSchema();
+        }
+
+        @Override
+        public AirtableTable.PaginationList readList(InputStream in) throws IOException {
+            JsonNode node = AirtableCodec.DEFAULT.readTree(in);
+            intern(node.path("records"));
+            return new AirtableList(node, schema());
+        }
+
+        @Override
+        public AirtableRecord readRecord(InputStream in) throws IOException {
+            JsonNode node = AirtableCodec.DEFAULT.readTree(in);
+            if (pool != null) pool.internFields(node);
+            if (schema == null) return new AirtableRecord(node);
+            return new AirtableRecord(node, schema);
+        }
+
+        @Override
+        public List<AirtableRecord> readRecords(InputStream in) throws IOException {
+            JsonNode records = AirtableCodec.DEFAULT.readTree(in).path("records");
+            intern(records);
+            return AirtableList.parse(records, schema());
+        }
+
+        /**
+         * @param records array of records to intern the fields of, before they are copied into AirtableRecord
+         */
+        private void intern(JsonNode records) {
+            if (pool == null) return;
+            for (JsonNode record : records) {
+                pool.internFields(record);
+            }
+        }
+    }
+
+    /**
+     * Reads the response into bytes, and only tokenize it to find where the fields of each record is.
+     * <p>
+     * The field names of a record are indexed on first access of any field,
+     * a field value is only decoded into JsonNode when it's accessed.
+     * Every record from the same response holds on to the bytes of the response,
+     * until all of its fields are decoded or modified.
+     */
+    final class Lazy implements AirtableReader {
+        private static final JsonFactory FACTORY = AirtableCodec.DEFAULT.getFactory();
+
+        private Lazy() {
+        }
+
+        @Override
+        public AirtableTable.PaginationList readList(InputStream in) throws IOException {
+            byte[] bytes = toByteArray(in);
+            List<AirtableRecord> records = new ArrayList<>();
+            String offset = null;
+
+            try (JsonParser parser = FACTORY.createParser(bytes)) {
+                expect(parser.nextToken(), JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+
+                    if ("records".equals(name) && token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            records.add(record(parser, bytes));
+                        }
+                    } else if ("offset".equals(name) && token == JsonToken.VALUE_STRING) {
+                        offset = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            return new AirtableList(records, offset);
+        }
+
+        @Override
+        public AirtableRecord readRecord(InputStream in) throws IOException {
+            byte[] bytes = toByteArray(in);
+            try (JsonParser parser = FACTORY.createParser(bytes)) {
+                expect(parser.nextToken(), JsonToken.START_OBJECT);
+                return record(parser, bytes);
+            }
+        }
+
+        @Override
+        public List<AirtableRecord> readRecords(InputStream in) throws IOException {
+            return readList(in);
+        }
+
+        /**
+         * @param parser at START_OBJECT of the record, will be at END_OBJECT of the record after
+         * @param bytes  the parser is reading from, with 0 offset
+         * @return AirtableRecord with lazy fields
+         */
+        private static AirtableRecord record(JsonParser parser, byte[] bytes) throws IOException {
+            String id = null;
+            String createdTime = null;
+            Map<String, JsonNode> fields = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if ("id".equals(name) && token == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if ("createdTime".equals(name) && token == JsonToken.VALUE_STRING) {
+                    createdTime = parser.getText();
+                } else if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                    int start = (int) parser.getTokenLocation().getByteOffset();
+                    parser.skipChildren();
+                    int end = (int) parser.getCurrentLocation().getByteOffset();
+                    fields = new LazyFieldMap(bytes, start, end - start);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (fields == null) fields = new HashMap<>();
+            return new AirtableRecord(id, fields, createdTime);
+        }
+
+        /**
+         * @return exact copy of the response, read through the buffer of this thread so only the copy is allocated
+         */
+        private static byte[] toByteArray(InputStream in) throws IOException {
+            AirtableBuffer buffer = AirtableBuffer.acquire();
+            try {
+                buffer.readFrom(in);
+                return buffer.toByteArray();
+            } finally {
+                buffer.release();
+            }
+        }
+
+        private static void expect(JsonToken actual, JsonToken expected) {
+            if (actual != expected) {
+                throw new AirtableClientException("Expected " + expected + " but got " + actual);
+            }
+        }
+    }
+}
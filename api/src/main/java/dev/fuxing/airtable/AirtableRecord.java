@@ -3,14 +3,14 @@ package dev.fuxing.airtable;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.MissingNode;
-import com.fasterxml.jackson.databind.type.CollectionType;
 import dev.fuxing.airtable.fields.AttachmentField;
 import dev.fuxing.airtable.fields.CollaboratorField;
 import org.apache.commons.lang3.time.FastDateFormat;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 
 /**
@@ -20,11 +20,18 @@ import java.util.*;
  */
 public class AirtableRecord {
     public static final ObjectMapper OBJECT_MAPPER = AirtableApi.OBJECT_MAPPER;
+
+    /**
+     * Formats in the default time zone of the JVM, not UTC.
+     *
+     * @see AirtableDates for the parser and formatter used by AirtableRecord
+     */
     public static final FastDateFormat DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
 
     private String id;
     private Map<String, JsonNode> fields;
     private Date createdTime;
+    private String createdTimeText;
 
     /**
      * @param id recordId
@@ -39,22 +46,48 @@ public class AirtableRecord {
     }
 
     /**
+     * Fields modified after this are tracked as dirty.
+     *
      * @param node json node from https://api.airtable.com/v0
      */
     public AirtableRecord(JsonNode node) {
         this.id = node.path("id").asText();
-        this.fields = new HashMap<>();
-
-        try {
-            this.createdTime = DATE_FORMAT.parse(node.path("createdTime").asText());
-        } catch (ParseException e) {
-            // Shouldn't happen, wrapped in IllegalStateException
-            throw new IllegalStateException(e);
-        }
+        this.createdTimeText = node.path("createdTime").asText(null);
 
+        Map<String, JsonNode> fields = new HashMap<>();
         node.path("fields").fields().forEachRemaining(entry -> {
-            this.fields.put(entry.getKey(), entry.getValue());
+            fields.put(entry.getKey(), entry.getValue());
+        });
+        this.fields = new TrackingFieldMap(fields);
+    }
+
+    /**
+     * @param node   json node from https://api.airtable.com/v0
+     * @param schema to share field names with records of the same page or table
+     * @see CompactFieldMap
+     */
+    AirtableRecord(JsonNode node, FieldSchema schema) {
+        this.id = node.path("id").asText();
+        this.createdTimeText = node.path("createdTime").asText(null);
+
+        JsonNode fieldsNode = node.path("fields");
+        Map<String, JsonNode> fields = new CompactFieldMap(schema, Math.max(schema.size(), fieldsNode.size()));
+        fieldsNode.fields().forEachRemaining(entry -> {
+            fields.put(entry.getKey(), entry.getValue());
         });
+        this.fields = new TrackingFieldMap(fields);
+    }
+
+    /**
+     * @param id          of the record
+     * @param fields      of the record, not copied
+     * @param createdTime unparsed, only parsed on {@link #getCreatedTime()}
+     * @see AirtableReader.Lazy
+     */
+    AirtableRecord(String id, Map<String, JsonNode> fields, @Nullable String createdTime) {
+        this.id = id;
+        this.fields = new TrackingFieldMap(fields);
+        this.createdTimeText = createdTime;
     }
 
     /**
@@ -75,19 +108,72 @@ public class AirtableRecord {
         return fields;
     }
 
+    /**
+     * @param fields of the record, all fields are dirty after
+     */
     public void setFields(Map<String, JsonNode> fields) {
         this.fields = fields;
     }
 
     /**
+     * Records loaded from airtable only track fields put or removed after it's loaded,
+     * records created locally or with {@link #setFields(Map)} have all fields dirty.
+     * <p>
+     * Mutating a JsonNode value in place is not tracked, put the field again instead.
+     *
+     * @return names of fields modified, removed fields are included but no longer in {@link #getFields()}
+     * @see AirtableTable#patch(AirtableRecord) only dirty fields are sent
+     */
+    public Set<String> getDirtyFields() {
+        if (fields instanceof TrackingFieldMap) {
+            return ((TrackingFieldMap) fields).dirty();
+        }
+        return Collections.unmodifiableSet(fields.keySet());
+    }
+
+    /**
+     * @return whether any field is dirty
+     */
+    public boolean isDirty() {
+        return !getDirtyFields().isEmpty();
+    }
+
+    /**
+     * Mark all fields as clean, only fields modified after are dirty.
+     */
+    public void markClean() {
+        if (fields instanceof TrackingFieldMap) {
+            ((TrackingFieldMap) fields).clean();
+        } else {
+            fields = new TrackingFieldMap(fields);
+        }
+    }
+
+    /**
+     * Mark all fields as dirty, e.g. to patch every field.
+     */
+    public void markDirty() {
+        if (fields instanceof TrackingFieldMap) {
+            fields = ((TrackingFieldMap) fields).unwrap();
+        }
+    }
+
+    /**
+     * createdTime is only parsed when it's first requested.
+     *
      * @return date time when the record is created
      */
     public Date getCreatedTime() {
+        if (createdTime == null && createdTimeText != null) {
+            this.createdTime = new Date(AirtableDates.parseMillis(createdTimeText));
+            this.createdTimeText = null;
+        }
         return createdTime;
     }
 
     public void setCreatedTime(Date createdTime) {
         this.createdTime = createdTime;
+        this.createdTimeText = null;
     }
 
     /**
@@ -135,7 +221,23 @@ public class AirtableRecord {
      * @param date object
      */
     public void putField(String name, Date date) {
-        putField(name, (Object) DATE_FORMAT.format(date));
+        putField(name, (Object) AirtableDates.format(date.getTime()));
+    }
+
+    /**
+     * @param name    of the field
+     * @param instant formatted as timestamp in UTC
+     */
+    public void putField(String name, Instant instant) {
+        putField(name, (Object) AirtableDates.format(instant));
+    }
+
+    /**
+     * @param name of the field
+     * @param date formatted as date, for date field without time
+     */
+    public void putField(String name, LocalDate date) {
+        putField(name, (Object) AirtableDates.format(date));
     }
 
     /**
@@ -178,7 +280,7 @@ public class AirtableRecord {
      * @param value to be mapped into JsonNode
      */
     public void putField(String name, Object value) {
-        putField(name, (JsonNode) OBJECT_MAPPER.valueToTree(value));
+        putField(name, AirtableCodec.DEFAULT.valueToTree(value));
     }
 
     /**
@@ -207,8 +309,7 @@ public class AirtableRecord {
     public <T> List<T> getFieldList(String name, Class<T> clazz) {
         JsonNode field = getField(name);
         if (field.isMissingNode()) return Collections.emptyList();
-        CollectionType type = OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, clazz);
-        return OBJECT_MAPPER.convertValue(field, type);
+        return AirtableCodec.DEFAULT.convertList(field, clazz);
     }
 
     @Nullable
@@ -251,11 +352,29 @@ public class AirtableRecord {
         JsonNode jsonNode = fields.get(name);
         if (jsonNode == null) return null;
 
-        try {
-            return DATE_FORMAT.parse(jsonNode.asText());
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
+        return new Date(AirtableDates.parseMillis(jsonNode.asText()));
+    }
+
+    /**
+     * @param name of the field
+     * @return Instant of timestamp, or start of the day in UTC for date field
+     */
+    @Nullable
+    public Instant getFieldInstant(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return AirtableDates.parseInstant(jsonNode.asText());
+    }
+
+    /**
+     * @param name of the field
+     * @return LocalDate of date field, or the date in UTC for timestamp
+     */
+    @Nullable
+    public LocalDate getFieldLocalDate(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return AirtableDates.parseLocalDate(jsonNode.asText());
     }
 
     /**
@@ -306,7 +425,7 @@ public class AirtableRecord {
         return "AirtableRecord{" +
                 "id='" + id + '\'' +
                 ", fields=" + fields +
-                ", createdTime=" + createdTime +
+                ", createdTime=" + getCreatedTime() +
                 '}';
     }
 }
@@ -0,0 +1,393 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import dev.fuxing.airtable.fields.AttachmentField;
+import dev.fuxing.airtable.fields.CollaboratorField;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Immutable view of a record, safe to share across threads and callers without copying or locking.
+ * <p>
+ * Scalar values are immutable JsonNode and shared with the record it's taken from,
+ * arrays and objects are copied once when the snapshot is taken and never exposed,
+ * {@link #getField(String)} returns a copy of them.
+ * Read them with the typed getters to not copy.
+ * <p>
+ * Use {@link #toBuilder()} to derive a new snapshot, unchanged fields are shared with this snapshot.
+ *
+ * <pre>
+ * AirtableRecordSnapshot snapshot = AirtableRecordSnapshot.of(record);
+ * AirtableRecordSnapshot renamed = snapshot.toBuilder().putField("Name", "New Name").build();
+ * </pre>
+ */
+public final class AirtableRecordSnapshot {
+    private final String id;
+    private final Instant createdTime;
+    private final Map<String, JsonNode> fields;
+
+    /**
+     * @param fields owned by the snapshot, every container value must not be referenced elsewhere
+     */
+    private AirtableRecordSnapshot(String id, @Nullable Instant createdTime, Map<String, JsonNode> fields) {
+        this.id = id;
+        this.createdTime = createdTime;
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * @param record to take a snapshot of, changes to the record after are not reflected
+     * @return immutable snapshot of the record
+     */
+    public static AirtableRecordSnapshot of(AirtableRecord record) {
+        Map<String, JsonNode> fields = new HashMap<>(Math.max(16, record.getFields().size() * 4 / 3 + 1));
+        record.getFields().forEach((name, value) -> fields.put(name, own(value)));
+
+        Date createdTime = record.getCreatedTime();
+        return new AirtableRecordSnapshot(record.getId(), createdTime == null ? null : createdTime.toInstant(), fields);
+    }
+
+    /**
+     * Takes over the values of the record without copying them, for records freshly read from airtable.
+     * The record and its values must not be used or modified after.
+     *
+     * @param record to take over
+     * @return immutable snapshot of the record
+     */
+    public static AirtableRecordSnapshot adopt(AirtableRecord record) {
+        Date createdTime = record.getCreatedTime();
+        return new AirtableRecordSnapshot(record.getId(), createdTime == null ? null : createdTime.toInstant(),
+                new HashMap<>(record.getFields()));
+    }
+
+    /**
+     * @param records to take over, must not be used or modified after
+     * @return immutable list of snapshots
+     * @see #adopt(AirtableRecord)
+     */
+    public static List<AirtableRecordSnapshot> adopt(List<AirtableRecord> records) {
+        List<AirtableRecordSnapshot> snapshots = new ArrayList<>(records.size());
+        for (AirtableRecord record : records) {
+            snapshots.add(adopt(record));
+        }
+        return Collections.unmodifiableList(snapshots);
+    }
+
+    /**
+     * @return id of the record, prefixed with 'rec'
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return time the record is created
+     */
+    @Nullable
+    public Instant getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * @return names of every field
+     */
+    public Set<String> getFieldNames() {
+        return fields.keySet();
+    }
+
+    /**
+     * @param name of the field
+     * @return whether the record has the field
+     */
+    public boolean hasField(String name) {
+        return fields.containsKey(name);
+    }
+
+    /**
+     * Arrays and objects are copied, use the typed getters to read without copying.
+     *
+     * @param name name of field
+     * @return JsonNode or Missing Node if not found
+     */
+    public JsonNode getField(String name) {
+        JsonNode node = fields.get(name);
+        if (node == null) return MissingNode.getInstance();
+        return node.isContainerNode() ? node.deepCopy() : node;
+    }
+
+    /**
+     * @param name name of field
+     * @return JsonNode shared with the snapshot, or Missing Node if not found, must not be modified
+     */
+    JsonNode peekField(String name) {
+        JsonNode node = fields.get(name);
+        return node == null ? MissingNode.getInstance() : node;
+    }
+
+    /**
+     * @param name  of field
+     * @param clazz to convert field array into
+     * @param <T>   converted type
+     * @return nonnull List of field in T type
+     */
+    @Nonnull
+    public <T> List<T> getFieldList(String name, Class<T> clazz) {
+        JsonNode field = fields.get(name);
+        if (field == null) return Collections.emptyList();
+        return AirtableCodec.DEFAULT.convertList(field, clazz);
+    }
+
+    @Nullable
+    public String getFieldString(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return jsonNode.asText(null);
+    }
+
+    @Nullable
+    public Integer getFieldInteger(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return jsonNode.asInt();
+    }
+
+    @Nullable
+    public Long getFieldLong(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return jsonNode.asLong();
+    }
+
+    @Nullable
+    public Double getFieldDouble(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return jsonNode.asDouble();
+    }
+
+    @Nullable
+    public Boolean getFieldBoolean(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return jsonNode.asBoolean();
+    }
+
+    /**
+     * @param name of the field
+     * @return Instant of timestamp, or start of the day in UTC for date field
+     */
+    @Nullable
+    public Instant getFieldInstant(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return AirtableDates.parseInstant(jsonNode.asText());
+    }
+
+    /**
+     * @param name of the field
+     * @return LocalDate of date field, or the date in UTC for timestamp
+     */
+    @Nullable
+    public LocalDate getFieldLocalDate(String name) {
+        JsonNode jsonNode = fields.get(name);
+        if (jsonNode == null) return null;
+        return AirtableDates.parseLocalDate(jsonNode.asText());
+    }
+
+    /**
+     * @param name of the field
+     * @return wrapped into CollaboratorField
+     */
+    @Nullable
+    public CollaboratorField getFieldCollaborator(String name) {
+        JsonNode field = fields.get(name);
+        if (field == null) return null;
+        return new CollaboratorField(field);
+    }
+
+    /**
+     * @param name of the field
+     * @return wrapped into list of CollaboratorField
+     */
+    @Nullable
+    public List<CollaboratorField> getFieldCollaboratorList(String name) {
+        JsonNode field = fields.get(name);
+        if (field == null) return null;
+
+        List<CollaboratorField> fields = new ArrayList<>();
+        for (JsonNode node : field) {
+            fields.add(new CollaboratorField(node));
+        }
+        return fields;
+    }
+
+    /**
+     * @param name of the field
+     * @return wrapped into list of AttachmentField
+     */
+    @Nullable
+    public List<AttachmentField> getFieldAttachmentList(String name) {
+        JsonNode field = fields.get(name);
+        if (field == null) return null;
+
+        List<AttachmentField> fields = new ArrayList<>();
+        for (JsonNode node : field) {
+            fields.add(new AttachmentField(node));
+        }
+        return fields;
+    }
+
+    /**
+     * @return new mutable record with copies of every field, no field is dirty
+     */
+    public AirtableRecord toRecord() {
+        Map<String, JsonNode> copy = new HashMap<>(Math.max(16, fields.size() * 4 / 3 + 1));
+        fields.forEach((name, value) -> copy.put(name, value.isContainerNode() ? value.deepCopy() : value));
+
+        AirtableRecord record = new AirtableRecord(id);
+        record.setFields(copy);
+        if (createdTime != null) record.setCreatedTime(Date.from(createdTime));
+        record.markClean();
+        return record;
+    }
+
+    /**
+     * Fields are only copied on the first change, unchanged values are shared with this snapshot.
+     *
+     * @return builder for a new snapshot derived from this
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AirtableRecordSnapshot that = (AirtableRecordSnapshot) o;
+        return Objects.equals(id, that.id) &&
+                Objects.equals(createdTime, that.createdTime) &&
+                fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, createdTime, fields);
+    }
+
+    @Override
+    public String toString() {
+        return "AirtableRecordSnapshot{" +
+                "id='" + id + '\'' +
+                ", fields=" + fields +
+                ", createdTime=" + createdTime +
+                '}';
+    }
+
+    /**
+     * @return value owned by a snapshot, copied if it can be mutated
+     */
+    private static JsonNode own(JsonNode value) {
+        return value.isContainerNode() ? value.deepCopy() : value;
+    }
+
+    /**
+     * Read path for the formula evaluator, query router and snapshot indexes of this library, not part of the api.
+     * Values are read without copying, they must never be modified.
+     */
+    public static final class Internal {
+        private Internal() {
+        }
+
+        /**
+         * @param snapshot to read
+         * @param name     of the field
+         * @return JsonNode shared with the snapshot, or Missing Node if not found, must not be modified
+         */
+        public static JsonNode peekField(AirtableRecordSnapshot snapshot, String name) {
+            return snapshot.peekField(name);
+        }
+    }
+
+    /**
+     * Builds a new snapshot from a base snapshot, not thread safe.
+     */
+    public static final class Builder {
+        private AirtableRecordSnapshot base;
+        private String id;
+        private Map<String, JsonNode> fields;
+
+        private Builder(AirtableRecordSnapshot base) {
+            this.base = base;
+            this.id = base.id;
+        }
+
+        /**
+         * @param id of the record
+         * @return this builder
+         */
+        public Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * @param name  of the field
+         * @param value raw JsonNode, copied if it's an array or object
+         * @return this builder
+         */
+        public Builder putField(String name, JsonNode value) {
+            fields().put(name, own(value));
+            return this;
+        }
+
+        /**
+         * @param name  of the field
+         * @param value to be mapped into JsonNode
+         * @return this builder
+         */
+        public Builder putField(String name, Object value) {
+            // valueToTree always creates a new tree, no copy needed
+            JsonNode node = AirtableCodec.DEFAULT.valueToTree(value);
+            fields().put(name, node == null ? NullNode.getInstance() : node);
+            return this;
+        }
+
+        /**
+         * @param name of the field
+         * @return this builder
+         */
+        public Builder removeField(String name) {
+            if (fields != null || base.fields.containsKey(name)) {
+                fields().remove(name);
+            }
+            return this;
+        }
+
+        /**
+         * @return new snapshot, or the base snapshot if nothing is changed
+         */
+        public AirtableRecordSnapshot build() {
+            if (fields == null && Objects.equals(id, base.id)) return base;
+            Map<String, JsonNode> fields = this.fields != null ? this.fields : new HashMap<>(base.fields);
+
+            // Builder can continue to be used after, further changes are copied from the built snapshot
+            this.base = new AirtableRecordSnapshot(id, base.createdTime, fields);
+            this.fields = null;
+            return base;
+        }
+
+        private Map<String, JsonNode> fields() {
+            if (fields == null) {
+                fields = new HashMap<>(base.fields);
+            }
+            return fields;
+        }
+    }
+}
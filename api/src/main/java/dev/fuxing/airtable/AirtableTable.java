@@ -1,13 +1,18 @@
 package dev.fuxing.airtable;
 
 import dev.fuxing.airtable.formula.AirtableFormula;
+import dev.fuxing.airtable.formula.AirtableFormulaOptimizer;
+import dev.fuxing.airtable.formula.AirtableFormulaTemplate;
 import dev.fuxing.airtable.formula.AirtableFunction;
 import dev.fuxing.airtable.formula.AirtableOperator;
+import org.apache.commons.lang3.StringUtils;
+import org.reactivestreams.Publisher;
 
 import javax.annotation.Nullable;
 import java.net.URI;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -17,6 +22,16 @@ import java.util.function.Consumer;
  */
 public interface AirtableTable {
 
+    /**
+     * Max length of the url of a request accepted by airtable.
+     */
+    int MAX_URL_LENGTH = 16_000;
+
+    /**
+     * Length reserved in the url of a list call for the offset of the next page, e.g. {@code itrXXXXXXXXXXXXXX/recXXXXXXXXXXXXXX} once encoded.
+     */
+    int MAX_OFFSET_LENGTH = 64;
+
     /**
      * @return name of the base the table is in.
      */
@@ -83,6 +98,113 @@ public interface AirtableTable {
         };
     }
 
+    /**
+     * @param consumer query spec fluent consumer with all the querystring options, except filterByFormula.
+     * @param formula  to filter records by, split into multiple list calls if the url exceeds {@link #MAX_URL_LENGTH}
+     * @return Iterator of AirtableRecord, of every split formula without duplicates
+     * @see AirtableTable#iterator(Consumer, AirtableFormula.Object, int)
+     */
+    default Iterator<AirtableRecord> iterator(Consumer<QuerySpec> consumer, AirtableFormula.Object formula) {
+        return iterator(consumer, formula, MAX_URL_LENGTH);
+    }
+
+    /**
+     * To iterate records by a formula that may be too long for a single url, e.g. {@code OR({Key}='a',{Key}='b',...)} of many keys.
+     * The formula is optimized and split into as few list calls as needed, each within the max url length,
+     * measured on the url as sent with {@link #MAX_OFFSET_LENGTH} reserved for the offset of the next pages.
+     * Calls are made one after another, records already returned by an earlier call are skipped.
+     * <p>
+     * Sort and maxRecords apply to each call, not across them.
+     *
+     * @param consumer     query spec fluent consumer with all the querystring options, except filterByFormula.
+     * @param formula      to filter records by
+     * @param maxUrlLength of each list call
+     * @return Iterator of AirtableRecord, of every split formula without duplicates
+     * @throws dev.fuxing.airtable.exceptions.AirtableClientException if the formula can't be split within the max url length
+     * @see AirtableFormulaOptimizer#split(AirtableFormula.Object, int)
+     */
+    default Iterator<AirtableRecord> iterator(Consumer<QuerySpec> consumer, AirtableFormula.Object formula, int maxUrlLength) {
+        QuerySpec base = QuerySpec.create();
+        consumer.accept(base);
+        // Url of the list call as sent, including the offset of the next pages
+        base.offset(StringUtils.repeat('0', MAX_OFFSET_LENGTH));
+        int length = AirtableApi.listUri(baseName(), tableName(), base).toString().length() + "&filterByFormula=".length();
+        List<AirtableFormula.Object> formulas = AirtableFormulaOptimizer.split(formula, maxUrlLength - length);
+
+        return new Iterator<AirtableRecord>() {
+            final Set<String> ids = new HashSet<>();
+            int index = 0;
+            Iterator<AirtableRecord> records = Collections.emptyIterator();
+            AirtableRecord next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (records.hasNext()) {
+                        AirtableRecord record = records.next();
+                        if (formulas.size() == 1 || ids.add(record.getId())) next = record;
+                    } else if (index < formulas.size()) {
+                        QuerySpec querySpec = QuerySpec.create();
+                        consumer.accept(querySpec);
+                        records = iterator(querySpec.filterByFormula(formulas.get(index++)));
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public AirtableRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                AirtableRecord record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    /**
+     * To publish records in a table with Reactive Streams backpressure.
+     * Pages are fetched on the thread that signals demand, only when demand exceed the buffered records.
+     *
+     * @param consumer query spec fluent consumer with all the querystring options.
+     * @return Publisher of AirtableRecord, using build in airtable pagination to paginate all the records
+     * @see AirtableTable#publish(QuerySpec, Executor)
+     */
+    default Publisher<AirtableRecord> publish(Consumer<QuerySpec> consumer) {
+        QuerySpec querySpec = QuerySpec.create();
+        consumer.accept(querySpec);
+        return publish(querySpec);
+    }
+
+    /**
+     * To publish records in a table with Reactive Streams backpressure.
+     * Pages are fetched on the thread that signals demand, only when demand exceed the buffered records.
+     *
+     * @param querySpec fluent query spec with all the querystring options
+     * @return Publisher of AirtableRecord, using build in airtable pagination to paginate all the records
+     * @see AirtableTable#publish(QuerySpec, Executor)
+     */
+    default Publisher<AirtableRecord> publish(QuerySpec querySpec) {
+        return publish(querySpec, Runnable::run);
+    }
+
+    /**
+     * To publish records in a table with Reactive Streams backpressure.
+     * <p>
+     * The next page is only fetched when downstream demand exceed the records buffered from the previous page.
+     * No further request is made to Airtable once the subscriber cancels.
+     * Returned records do not include any fields with "empty" values, e.g. "", [], or false.
+     *
+     * @param querySpec fluent query spec with all the querystring options
+     * @param executor  to fetch pages and signal the subscriber on, so that event loops are never blocked on IO
+     * @return Publisher of AirtableRecord, using build in airtable pagination to paginate all the records
+     */
+    default Publisher<AirtableRecord> publish(QuerySpec querySpec, Executor executor) {
+        return new AirtablePublisher(this, querySpec, executor);
+    }
+
     /**
      * To list records in a table without query spec.
      * Returned records do not include any fields with "empty" values, e.g. "", [], or false.
@@ -238,6 +360,8 @@ public interface AirtableTable {
     /**
      * To update some (but not all) fields of records, issue a PATCH request to the record endpoint.
      * Any fields that are not included will not be updated.
+     * Only {@link AirtableRecord#getDirtyFields() dirty fields} are included, removed fields are cleared.
+     * Records without any dirty field are not sent and returned as they are, no request is made if none is dirty.
      * <p>
      * To add attachments, add new attachment objects to the existing array.
      * Be sure to include all existing attachment objects that you wish to retain.
@@ -262,6 +386,8 @@ public interface AirtableTable {
     /**
      * To update some (but not all) fields of records, issue a PATCH request to the record endpoint.
      * Any fields that are not included will not be updated.
+     * Only {@link AirtableRecord#getDirtyFields() dirty fields} are included, removed fields are cleared.
+     * Records without any dirty field are not sent and returned as they are, no request is made if none is dirty.
      * <p>
      * To add attachments, add new attachment objects to the existing array.
      * Be sure to include all existing attachment objects that you wish to retain.
@@ -320,6 +446,8 @@ public interface AirtableTable {
     /**
      * To update some (but not all) fields of records, issue a PATCH request to the record endpoint.
      * Any fields that are not included will not be updated.
+     * Only {@link AirtableRecord#getDirtyFields() dirty fields} are included, removed fields are cleared.
+     * If no field is dirty, no request is made and the record is returned as it is.
      * <p>
      * To add attachments, add new attachment objects to the existing array.
      * Be sure to include all existing attachment objects that you wish to retain.
@@ -343,6 +471,8 @@ public interface AirtableTable {
     /**
      * To update some (but not all) fields of records, issue a PATCH request to the record endpoint.
      * Any fields that are not included will not be updated.
+     * Only {@link AirtableRecord#getDirtyFields() dirty fields} are included, removed fields are cleared.
+     * If no field is dirty, no request is made and the record is returned as it is.
      * <p>
      * To add attachments, add new attachment objects to the existing array.
      * Be sure to include all existing attachment objects that you wish to retain.
@@ -431,6 +561,15 @@ public interface AirtableTable {
          */
         QuerySpec filterByFormula(String formula);
 
+        /**
+         * @param formula expression tree, rendered once and cached by the tree
+         * @return QuerySpec instance for fluent chaining
+         * @see QuerySpec#filterByFormula(String)
+         */
+        default QuerySpec filterByFormula(AirtableFormula.Object formula) {
+            return filterByFormula(formula.toString());
+        }
+
         /**
          * @param operator an airtable operator to use
          * @param left     value
@@ -453,6 +592,16 @@ public interface AirtableTable {
             return filterByFormula(function.apply(objects));
         }
 
+        /**
+         * @param template formula with {@code ?} parameters, parsed once
+         * @param values   of each parameter, escaped when bound
+         * @return QuerySpec instance for fluent chaining
+         * @see QuerySpec#filterByFormula(String)
+         */
+        default QuerySpec filterByFormula(AirtableFormulaTemplate template, Object... values) {
+            return filterByFormula(template.bind(values));
+        }
+
         /**
          * The maximum total number of records that will be returned in your requests.
          * If this value is larger than pageSize (which is 100 by default), you may have to load multiple pages to reach this total.
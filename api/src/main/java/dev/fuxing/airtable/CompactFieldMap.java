@@ -0,0 +1,220 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+
+/**
+ * Fields of a record stored in a flat array indexed by the slot of the field in a shared {@link FieldSchema}.
+ * <p>
+ * Unlike a HashMap, there is no entry object nor key reference per field,
+ * field names are stored once in the schema for all records sharing it.
+ * Fields without a slot (schema is full) or with a {@code null} value are kept in an overflow HashMap.
+ * <p>
+ * The array is sized to the schema, a record with only a few of many fields (Airtable omits empty fields)
+ * still pays one reference per field of the schema, which is far less than a HashMap entry per field.
+ */
+final class CompactFieldMap extends AbstractMap<String, JsonNode> {
+    private final FieldSchema schema;
+    private JsonNode[] values;
+    private int size;
+
+    private Map<String, JsonNode> overflow;
+
+    /**
+     * @param schema   to share field names with
+     * @param capacity expected number of slots
+     */
+    CompactFieldMap(FieldSchema schema, int capacity) {
+        this.schema = schema;
+        this.values = new JsonNode[capacity];
+    }
+
+    @Override
+    public JsonNode get(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot != -1 && slot < values.length && values[slot] != null) {
+            return values[slot];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot != -1 && slot < values.length && values[slot] != null) {
+            return true;
+        }
+        return overflow != null && overflow.containsKey(key);
+    }
+
+    @Override
+    public JsonNode put(String key, JsonNode value) {
+        int slot = value == null ? -1 : schema.add(key);
+        if (slot == -1) {
+            JsonNode previous = removeSlot(schema.slotOf(key));
+            if (overflow == null) overflow = new HashMap<>();
+            JsonNode overflowed = overflow.put(key, value);
+            return previous != null ? previous : overflowed;
+        }
+
+        if (slot >= values.length) {
+            values = Arrays.copyOf(values, Math.max(slot + 1, schema.size()));
+        }
+
+        JsonNode previous = values[slot];
+        values[slot] = value;
+        if (previous == null) {
+            size++;
+            if (overflow != null && overflow.containsKey(key)) {
+                return overflow.remove(key);
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    public JsonNode remove(Object key) {
+        JsonNode previous = removeSlot(schema.slotOf(key));
+        if (previous != null) return previous;
+        return overflow == null ? null : overflow.remove(key);
+    }
+
+    private JsonNode removeSlot(int slot) {
+        if (slot == -1 || slot >= values.length) return null;
+
+        JsonNode previous = values[slot];
+        if (previous != null) {
+            values[slot] = null;
+            size--;
+        }
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return overflow == null ? size : size + overflow.size();
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        overflow = null;
+    }
+
+    @Override
+    public Set<Entry<String, JsonNode>> entrySet() {
+        return new AbstractSet<Entry<String, JsonNode>>() {
+            @Override
+            public Iterator<Entry<String, JsonNode>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactFieldMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                CompactFieldMap.this.clear();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, JsonNode>> {
+        private static final int OVERFLOW = -2;
+
+        private int next = advance(0);
+        private int last = -1;
+        private Iterator<Entry<String, JsonNode>> overflowIterator;
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < values.length) return true;
+            if (overflow == null) return false;
+            if (overflowIterator == null) overflowIterator = overflow.entrySet().iterator();
+            return overflowIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, JsonNode> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            if (next < values.length) {
+                last = next;
+                next = advance(next + 1);
+                return new SlotEntry(last);
+            }
+
+            last = OVERFLOW;
+            return overflowIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (last == OVERFLOW) {
+                overflowIterator.remove();
+                last = -1;
+                return;
+            }
+
+            if (last == -1 || values[last] == null) throw new IllegalStateException();
+            values[last] = null;
+            size--;
+            last = -1;
+        }
+    }
+
+    private final class SlotEntry implements Entry<String, JsonNode> {
+        private final int slot;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return schema.name(slot);
+        }
+
+        @Override
+        public JsonNode getValue() {
+            return values[slot];
+        }
+
+        /**
+         * @throws NullPointerException if value is null, use {@link CompactFieldMap#put(String, JsonNode)} instead
+         */
+        @Override
+        public JsonNode setValue(JsonNode value) {
+            Objects.requireNonNull(value);
+            JsonNode previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
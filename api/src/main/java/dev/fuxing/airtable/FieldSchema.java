@@ -0,0 +1,76 @@
+package dev.fuxing.airtable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of field names to slots, shared by records of the same page or table.
+ * <p>
+ * Slots are only ever added, never removed or reassigned, so a slot is stable for the lifetime of the schema.
+ * Reads are lock free over copy-on-write snapshots, new field names are rare after the first page.
+ *
+ * @see CompactFieldMap
+ */
+final class FieldSchema {
+    /**
+     * Airtable limits a table to 500 fields, anything beyond is probably not a field name.
+     */
+    static final int MAX_SLOTS = 1024;
+
+    private volatile String[] names = new String[0];
+    private volatile Map<String, Integer> slots = Collections.emptyMap();
+
+    /**
+     * @param name of the field
+     * @return slot of the field, -1 if not in the schema
+     */
+    int slotOf(Object name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @param name of the field
+     * @return slot of the field, added if not in the schema, -1 if the schema is full
+     */
+    int add(String name) {
+        int slot = slotOf(name);
+        if (slot != -1) return slot;
+
+        synchronized (this) {
+            slot = slotOf(name);
+            if (slot != -1) return slot;
+
+            String[] names = this.names;
+            if (names.length >= MAX_SLOTS) return -1;
+
+            slot = names.length;
+            String[] newNames = Arrays.copyOf(names, slot + 1);
+            newNames[slot] = name;
+            Map<String, Integer> newSlots = new HashMap<>(this.slots);
+            newSlots.put(name, slot);
+
+            // names must be published before slots, any slot found must have its name
+            this.names = newNames;
+            this.slots = newSlots;
+            return slot;
+        }
+    }
+
+    /**
+     * @param slot of the field
+     * @return name of the field
+     */
+    String name(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * @return number of slots in the schema
+     */
+    int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,253 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Fields of a record backed by the bytes of the {@code "fields"} object in the response.
+ * <p>
+ * Field names and the byte span of each value are indexed on first access, without decoding any value.
+ * A value is decoded into JsonNode on first {@link #get(Object)}, and cached.
+ * Iterating the entries or modifying the map decodes every remaining value into a HashMap,
+ * and the bytes are released.
+ *
+ * @see AirtableReader#LAZY
+ */
+final class LazyFieldMap extends AbstractMap<String, JsonNode> {
+    private static final JsonFactory FACTORY = AirtableCodec.DEFAULT.getFactory();
+
+    private byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private String[] names;
+    private int[] starts;
+    private int[] ends;
+    private JsonNode[] values;
+
+    private Map<String, JsonNode> map;
+
+    /**
+     * @param bytes  of the response
+     * @param offset of the {@code "fields"} object in bytes
+     * @param length of the {@code "fields"} object in bytes
+     */
+    LazyFieldMap(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public synchronized JsonNode get(Object key) {
+        if (map != null) return map.get(key);
+
+        int i = indexOf(key);
+        if (i == -1) return null;
+
+        if (values[i] == null) {
+            values[i] = decode(i);
+        }
+        return values[i];
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        if (map != null) return map.containsKey(key);
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public synchronized int size() {
+        if (map != null) return map.size();
+        index();
+        return names.length;
+    }
+
+    @Override
+    public synchronized JsonNode put(String key, JsonNode value) {
+        return materialize().put(key, value);
+    }
+
+    @Override
+    public synchronized JsonNode remove(Object key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        materialize().clear();
+    }
+
+    /**
+     * @return key set, iterating it does not decode any value
+     */
+    @Override
+    public synchronized Set<String> keySet() {
+        if (map != null) return map.keySet();
+        index();
+
+        String[] snapshot = names;
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                synchronized (LazyFieldMap.this) {
+                    if (map != null) return map.keySet().iterator();
+                }
+
+                return new Iterator<String>() {
+                    private int cursor = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return cursor < snapshot.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return snapshot[cursor++];
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (cursor == 0) throw new IllegalStateException();
+                        LazyFieldMap.this.remove(snapshot[cursor - 1]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyFieldMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                synchronized (LazyFieldMap.this) {
+                    if (!containsKey(o)) return false;
+                    LazyFieldMap.this.remove(o);
+                    return true;
+                }
+            }
+        };
+    }
+
+    /**
+     * Decodes every remaining value.
+     */
+    @Override
+    public synchronized Set<Entry<String, JsonNode>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    /**
+     * @return number of values decoded, for testing
+     */
+    synchronized int decoded() {
+        if (map != null) return map.size();
+        index();
+
+        int count = 0;
+        for (JsonNode value : values) {
+            if (value != null) count++;
+        }
+        return count;
+    }
+
+    private Map<String, JsonNode> materialize() {
+        if (map != null) return map;
+        index();
+
+        Map<String, JsonNode> map = new HashMap<>((int) (names.length / 0.75f) + 1);
+        for (int i = 0; i < names.length; i++) {
+            JsonNode value = values[i];
+            map.put(names[i], value != null ? value : decode(i));
+        }
+
+        this.map = map;
+        this.bytes = null;
+        this.names = null;
+        this.starts = null;
+        this.ends = null;
+        this.values = null;
+        return map;
+    }
+
+    /**
+     * @return index of the key, last index if duplicated like JsonNode, -1 if not found
+     */
+    private int indexOf(Object key) {
+        index();
+        for (int i = names.length - 1; i >= 0; i--) {
+            if (names[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    private void index() {
+        if (names != null) return;
+
+        List<String> names = new ArrayList<>();
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+
+        try (JsonParser parser = FACTORY.createParser(bytes, offset, length)) {
+            parser.nextToken();
+            // Byte offset is relative to the start of the object, regardless of how the parser count it
+            long origin = parser.getTokenLocation().getByteOffset();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                // Names are canonicalized by the JsonFactory, it's not allocated for every record
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                int start = (int) (parser.getTokenLocation().getByteOffset() - origin);
+
+                if (token == JsonToken.VALUE_STRING) {
+                    // String is not read until required, current location would still be at the opening quote
+                    parser.finishToken();
+                } else {
+                    parser.skipChildren();
+                }
+                int end = (int) (parser.getCurrentLocation().getByteOffset() - origin);
+
+                int i = names.size();
+                if (i == starts.length) {
+                    starts = Arrays.copyOf(starts, i * 2);
+                    ends = Arrays.copyOf(ends, i * 2);
+                }
+                names.add(name);
+                starts[i] = offset + start;
+                ends[i] = offset + end;
+            }
+        } catch (IOException e) {
+            throw new AirtableClientException(e);
+        }
+
+        this.names = names.toArray(new String[0]);
+        this.starts = starts;
+        this.ends = ends;
+        this.values = new JsonNode[this.names.length];
+    }
+
+    private JsonNode decode(int i) {
+        try (JsonParser parser = FACTORY.createParser(bytes, starts[i], ends[i] - starts[i])) {
+            JsonNode node = AirtableCodec.DEFAULT.readTree(parser);
+            return node != null ? node : NullNode.getInstance();
+        } catch (IOException e) {
+            throw new AirtableClientException(e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+
+/**
+ * Fields of a record loaded from airtable, keeping track of the fields modified since.
+ * <p>
+ * Every put or remove through this map, its entry set or its key set marks the field as dirty.
+ * Mutating a JsonNode value in place (e.g. adding into an ArrayNode) is not tracked, put the field again instead.
+ *
+ * @see AirtableRecord#getDirtyFields()
+ */
+final class TrackingFieldMap extends AbstractMap<String, JsonNode> {
+    private final Map<String, JsonNode> fields;
+    private Set<String> dirty;
+
+    /**
+     * @param fields to track, all clean
+     */
+    TrackingFieldMap(Map<String, JsonNode> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @return fields tracked
+     */
+    Map<String, JsonNode> unwrap() {
+        return fields;
+    }
+
+    /**
+     * @return names of fields put or removed, removed fields are not in this map anymore
+     */
+    Set<String> dirty() {
+        if (dirty == null) return Collections.emptySet();
+        return Collections.unmodifiableSet(dirty);
+    }
+
+    void clean() {
+        dirty = null;
+    }
+
+    private void mark(String name) {
+        if (dirty == null) dirty = new LinkedHashSet<>();
+        dirty.add(name);
+    }
+
+    @Override
+    public JsonNode get(Object key) {
+        return fields.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return fields.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    @Override
+    public JsonNode put(String key, JsonNode value) {
+        mark(key);
+        return fields.put(key, value);
+    }
+
+    @Override
+    public JsonNode remove(Object key) {
+        if (!fields.containsKey(key)) return null;
+        mark((String) key);
+        return fields.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        fields.keySet().forEach(this::mark);
+        fields.clear();
+    }
+
+    /**
+     * @return key set of the tracked map, so that a lazy map is not decoded just for the keys
+     */
+    @Override
+    public Set<String> keySet() {
+        Set<String> keys = fields.keySet();
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<String> iterator = keys.iterator();
+                return new Iterator<String>() {
+                    private String last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        last = iterator.next();
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        iterator.remove();
+                        mark(last);
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return fields.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return fields.containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!fields.containsKey(o)) return false;
+                TrackingFieldMap.this.remove(o);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                TrackingFieldMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, JsonNode>> entrySet() {
+        Set<Entry<String, JsonNode>> entries = fields.entrySet();
+        return new AbstractSet<Entry<String, JsonNode>>() {
+            @Override
+            public Iterator<Entry<String, JsonNode>> iterator() {
+                Iterator<Entry<String, JsonNode>> iterator = entries.iterator();
+                return new Iterator<Entry<String, JsonNode>>() {
+                    private Entry<String, JsonNode> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, JsonNode> next() {
+                        Entry<String, JsonNode> entry = iterator.next();
+                        last = entry;
+                        return new Entry<String, JsonNode>() {
+                            @Override
+                            public String getKey() {
+                                return entry.getKey();
+                            }
+
+                            @Override
+                            public JsonNode getValue() {
+                                return entry.getValue();
+                            }
+
+                            @Override
+                            public JsonNode setValue(JsonNode value) {
+                                mark(entry.getKey());
+                                return entry.setValue(value);
+                            }
+
+                            @Override
+                            public boolean equals(Object o) {
+                                return entry.equals(o);
+                            }
+
+                            @Override
+                            public int hashCode() {
+                                return entry.hashCode();
+                            }
+
+                            @Override
+                            public String toString() {
+                                return entry.toString();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        String key = last.getKey();
+                        iterator.remove();
+                        mark(key);
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return fields.size();
+            }
+
+            @Override
+            public void clear() {
+                TrackingFieldMap.this.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+
+/**
+ * Checkbox field, stored in a bitset.
+ * Airtable leaves unchecked checkbox out of the record, so an unchecked row is usually null.
+ */
+public final class BooleanColumn extends Column {
+    private final BitSet values;
+
+    BooleanColumn(String name, int size, BitSet present, BitSet values) {
+        super(name, size, present);
+        this.values = values;
+    }
+
+    /**
+     * @param row index of the row
+     * @return value of the row, false if the row is null
+     */
+    public boolean getBoolean(int row) {
+        return values.get(row);
+    }
+
+    /**
+     * @return number of rows that are true
+     */
+    public int countTrue() {
+        return values.cardinality();
+    }
+
+    /**
+     * @param from index of the row, inclusive
+     * @return index of the next row that is true, -1 if none
+     */
+    public int nextTrueRow(int from) {
+        return values.nextSetBit(from);
+    }
+
+    @Nullable
+    @Override
+    public JsonNode getNode(int row) {
+        if (isNull(row)) return null;
+        return BooleanNode.valueOf(values.get(row));
+    }
+}
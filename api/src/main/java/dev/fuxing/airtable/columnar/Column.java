@@ -0,0 +1,70 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+
+/**
+ * A field of every record in a {@link ColumnarBatch}, indexed by row.
+ * <p>
+ * A row is null if the field is empty or missing in the record, tracked with a validity bitmap.
+ */
+public abstract class Column {
+    private final String name;
+    private final int size;
+    private final BitSet present;
+
+    Column(String name, int size, BitSet present) {
+        this.name = name;
+        this.size = size;
+        this.present = present;
+    }
+
+    /**
+     * @return name of the field
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of rows, same as the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row index of the row
+     * @return whether the field is empty in the row
+     */
+    public boolean isNull(int row) {
+        return !present.get(row);
+    }
+
+    /**
+     * @return number of rows with the field empty
+     */
+    public int nullCount() {
+        return size - present.cardinality();
+    }
+
+    /**
+     * @param row index of the row
+     * @return value boxed into JsonNode, {@code null} if the row is null
+     */
+    @Nullable
+    public abstract JsonNode getNode(int row);
+
+    /**
+     * To iterate non null rows: {@code for (int row = nextRow(0); row >= 0; row = nextRow(row + 1))}.
+     *
+     * @param from index of the row, inclusive
+     * @return index of the next non null row, -1 if none
+     */
+    public int nextRow(int from) {
+        int row = present.nextSetBit(from);
+        return row < size ? row : -1;
+    }
+}
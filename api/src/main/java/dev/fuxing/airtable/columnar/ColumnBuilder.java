@@ -0,0 +1,193 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+
+/**
+ * Builds a column row by row, the type of the column is decided by the values added.
+ * <p>
+ * A column starts as the type of the first value, integral numbers are widened to double on the first fractional value,
+ * any other mismatch falls back to {@link NodeColumn}.
+ */
+final class ColumnBuilder {
+    private enum Kind {
+        EMPTY, LONG, DOUBLE, STRING, BOOLEAN, NODE
+    }
+
+    private final String name;
+    private final BitSet present = new BitSet();
+    private Kind kind = Kind.EMPTY;
+
+    private long[] longs;
+    private double[] doubles;
+    private int[] codes;
+    private Map<String, Integer> codeOf;
+    private List<String> dictionary;
+    private BitSet booleans;
+    private JsonNode[] nodes;
+
+    ColumnBuilder(String name) {
+        this.name = name;
+    }
+
+    void addLong(int row, long value) {
+        if (kind == Kind.DOUBLE) {
+            addDouble(row, value);
+            return;
+        }
+        if (!expect(Kind.LONG)) {
+            addNode(row, ColumnarBatch.NODE_FACTORY.numberNode(value));
+            return;
+        }
+
+        if (longs == null) longs = new long[16];
+        longs = ensure(longs, row);
+        longs[row] = value;
+        present.set(row);
+    }
+
+    void addDouble(int row, double value) {
+        if (kind == Kind.LONG) {
+            doubles = new double[longs.length];
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                doubles[i] = longs[i];
+            }
+            longs = null;
+            kind = Kind.DOUBLE;
+        }
+        if (!expect(Kind.DOUBLE)) {
+            addNode(row, ColumnarBatch.NODE_FACTORY.numberNode(value));
+            return;
+        }
+
+        if (doubles == null) doubles = new double[16];
+        doubles = ensure(doubles, row);
+        doubles[row] = value;
+        present.set(row);
+    }
+
+    void addString(int row, String value) {
+        if (!expect(Kind.STRING)) {
+            addNode(row, ColumnarBatch.NODE_FACTORY.textNode(value));
+            return;
+        }
+
+        if (codes == null) {
+            codes = new int[16];
+            codeOf = new HashMap<>();
+            dictionary = new ArrayList<>();
+        }
+        Integer code = codeOf.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            codeOf.put(value, code);
+            dictionary.add(value);
+        }
+
+        codes = ensure(codes, row);
+        codes[row] = code;
+        present.set(row);
+    }
+
+    void addBoolean(int row, boolean value) {
+        if (!expect(Kind.BOOLEAN)) {
+            addNode(row, ColumnarBatch.NODE_FACTORY.booleanNode(value));
+            return;
+        }
+
+        if (booleans == null) booleans = new BitSet();
+        booleans.set(row, value);
+        present.set(row);
+    }
+
+    void addNode(int row, JsonNode value) {
+        if (kind != Kind.NODE) toNodes();
+
+        nodes = ensure(nodes, row);
+        nodes[row] = value;
+        present.set(row);
+    }
+
+    /**
+     * @return whether the column is or became the kind
+     */
+    private boolean expect(Kind kind) {
+        if (this.kind == kind) return true;
+        if (this.kind != Kind.EMPTY) return false;
+
+        this.kind = kind;
+        return true;
+    }
+
+    /**
+     * Box every value added before into JsonNode.
+     */
+    private void toNodes() {
+        JsonNode[] nodes = new JsonNode[16];
+        if (kind != Kind.EMPTY) {
+            Column column = build(present.length());
+            nodes = new JsonNode[Math.max(16, present.length())];
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                nodes[i] = column.getNode(i);
+            }
+        }
+
+        this.nodes = nodes;
+        this.kind = Kind.NODE;
+        this.longs = null;
+        this.doubles = null;
+        this.codes = null;
+        this.codeOf = null;
+        this.dictionary = null;
+        this.booleans = null;
+    }
+
+    /**
+     * @param size of the batch, rows not added are null
+     * @return column of the rows added
+     */
+    Column build(int size) {
+        BitSet present = (BitSet) this.present.clone();
+        switch (kind) {
+            case LONG:
+                return new LongColumn(name, size, present, Arrays.copyOf(longs, size));
+            case DOUBLE:
+                return new DoubleColumn(name, size, present, Arrays.copyOf(doubles, size));
+            case STRING:
+                int[] codes = Arrays.copyOf(this.codes, size);
+                // Rows not added are null, code -1
+                for (int i = present.nextClearBit(0); i < size; i = present.nextClearBit(i + 1)) {
+                    codes[i] = -1;
+                }
+                return new StringColumn(name, size, present, codes, dictionary.toArray(new String[0]));
+            case BOOLEAN:
+                return new BooleanColumn(name, size, present, (BitSet) booleans.clone());
+            case NODE:
+                return new NodeColumn(name, size, present, Arrays.copyOf(nodes, size));
+            case EMPTY:
+            default:
+                return new NodeColumn(name, size, present, new JsonNode[size]);
+        }
+    }
+
+    private static long[] ensure(long[] array, int row) {
+        if (row < array.length) return array;
+        return Arrays.copyOf(array, Math.max(row + 1, array.length * 2));
+    }
+
+    private static double[] ensure(double[] array, int row) {
+        if (row < array.length) return array;
+        return Arrays.copyOf(array, Math.max(row + 1, array.length * 2));
+    }
+
+    private static int[] ensure(int[] array, int row) {
+        if (row < array.length) return array;
+        return Arrays.copyOf(array, Math.max(row + 1, array.length * 2));
+    }
+
+    private static JsonNode[] ensure(JsonNode[] array, int row) {
+        if (row < array.length) return array;
+        return Arrays.copyOf(array, Math.max(row + 1, array.length * 2));
+    }
+}
@@ -0,0 +1,287 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import dev.fuxing.airtable.AirtableCodec;
+import dev.fuxing.airtable.AirtableDates;
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Records of one or more pages stored by field instead of by record, for analytics over whole tables.
+ * <p>
+ * Numbers are stored in {@code long[]} or {@code double[]}, strings are dictionary encoded and checkboxes in a bitset,
+ * each with a validity bitmap for empty fields.
+ * Aggregations over a column iterate primitive arrays, without boxing or walking JsonNode per cell.
+ *
+ * <pre>
+ * ColumnarBatch batch = table.scanColumnar(AirtableTable.QuerySpec.create());
+ * NumberColumn price = batch.getColumn("Price", NumberColumn.class);
+ * double total = price.sum();
+ * </pre>
+ */
+public final class ColumnarBatch {
+    static final JsonNodeFactory NODE_FACTORY = AirtableCodec.DEFAULT.getNodeFactory();
+
+    private final String[] ids;
+    private final long[] createdTimes;
+    private final Map<String, Column> columns;
+    private final String offset;
+
+    private ColumnarBatch(String[] ids, long[] createdTimes, Map<String, Column> columns, @Nullable String offset) {
+        this.ids = ids;
+        this.createdTimes = createdTimes;
+        this.columns = columns;
+        this.offset = offset;
+    }
+
+    /**
+     * @return number of records
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param row index of the row
+     * @return id of the record
+     */
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @param row index of the row
+     * @return createdTime of the record in epoch millis, 0 if not available
+     */
+    public long getCreatedTime(int row) {
+        return createdTimes[row];
+    }
+
+    /**
+     * @return columns in the order first seen
+     */
+    public Collection<Column> getColumns() {
+        return columns.values();
+    }
+
+    /**
+     * @param name of the field
+     * @return column of the field, {@code null} if no record has the field
+     */
+    @Nullable
+    public Column getColumn(String name) {
+        return columns.get(name);
+    }
+
+    /**
+     * @param name of the field
+     * @param type of column expected, e.g. NumberColumn
+     * @param <C>  type of column
+     * @return column of the field, {@code null} if no record has the field
+     * @throws IllegalArgumentException if the column is not of the type
+     */
+    @Nullable
+    public <C extends Column> C getColumn(String name, Class<C> type) {
+        Column column = columns.get(name);
+        if (column == null) return null;
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Column '" + name + "' is " + column.getClass().getSimpleName() + ", not " + type.getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    /**
+     * @return offset of the last page read, {@code null} if the last page is the last page of the table
+     */
+    @Nullable
+    public String getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param records to store by field
+     * @return ColumnarBatch of the records
+     */
+    public static ColumnarBatch of(List<AirtableRecord> records) {
+        Builder builder = builder();
+        records.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * @param in response of list records: {@code {"records": [...], "offset": "..."}}
+     * @return ColumnarBatch of the page, read from the tokens without a JsonNode tree
+     * @throws IOException if failed to read the response
+     */
+    public static ColumnarBatch read(InputStream in) throws IOException {
+        Builder builder = builder();
+        builder.read(in);
+        return builder.build();
+    }
+
+    /**
+     * @return new builder to append multiple pages into one batch
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Appends records row by row, not thread safe.
+     */
+    public static final class Builder {
+        private final Map<String, ColumnBuilder> columns = new LinkedHashMap<>();
+        private String[] ids = new String[128];
+        private long[] createdTimes = new long[128];
+        private int size;
+        private String offset;
+
+        private Builder() {
+        }
+
+        /**
+         * @param record to append as a row
+         * @return this builder
+         */
+        public Builder add(AirtableRecord record) {
+            int row = nextRow(record.getId());
+            Date createdTime = record.getCreatedTime();
+            if (createdTime != null) createdTimes[row] = createdTime.getTime();
+
+            record.getFields().forEach((name, value) -> add(column(name), row, value));
+            return this;
+        }
+
+        /**
+         * @param in response of list records: {@code {"records": [...], "offset": "..."}}
+         * @return offset of the page, {@code null} if it's the last page
+         * @throws IOException if failed to read the response
+         */
+        @Nullable
+        public String read(InputStream in) throws IOException {
+            offset = null;
+
+            try (JsonParser parser = AirtableCodec.DEFAULT.getFactory().createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new AirtableClientException("Expected START_OBJECT but got " + parser.currentToken());
+                }
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+
+                    if ("records".equals(name) && token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            readRecord(parser);
+                        }
+                    } else if ("offset".equals(name) && token == JsonToken.VALUE_STRING) {
+                        offset = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * @return ColumnarBatch of every row appended, with offset of the last page read
+         */
+        public ColumnarBatch build() {
+            Map<String, Column> built = new LinkedHashMap<>();
+            columns.forEach((name, column) -> built.put(name, column.build(size)));
+            return new ColumnarBatch(Arrays.copyOf(ids, size), Arrays.copyOf(createdTimes, size),
+                    Collections.unmodifiableMap(built), offset);
+        }
+
+        /**
+         * @param parser at START_OBJECT of the record, will be at END_OBJECT of the record after
+         */
+        private void readRecord(JsonParser parser) throws IOException {
+            int row = nextRow(null);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if ("id".equals(name) && token == JsonToken.VALUE_STRING) {
+                    ids[row] = parser.getText();
+                } else if ("createdTime".equals(name) && token == JsonToken.VALUE_STRING) {
+                    createdTimes[row] = AirtableDates.parseMillis(parser.getText());
+                } else if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        ColumnBuilder column = column(parser.getCurrentName());
+                        parser.nextToken();
+                        read(column, row, parser);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        private int nextRow(@Nullable String id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                createdTimes = Arrays.copyOf(createdTimes, size * 2);
+            }
+            ids[size] = id;
+            return size++;
+        }
+
+        private ColumnBuilder column(String name) {
+            return columns.computeIfAbsent(name, ColumnBuilder::new);
+        }
+
+        private static void read(ColumnBuilder column, int row, JsonParser parser) throws IOException {
+            switch (parser.currentToken()) {
+                case VALUE_NUMBER_INT:
+                    JsonParser.NumberType type = parser.getNumberType();
+                    if (type == JsonParser.NumberType.INT || type == JsonParser.NumberType.LONG) {
+                        column.addLong(row, parser.getLongValue());
+                    } else {
+                        column.addDouble(row, parser.getDoubleValue());
+                    }
+                    return;
+                case VALUE_NUMBER_FLOAT:
+                    column.addDouble(row, parser.getDoubleValue());
+                    return;
+                case VALUE_STRING:
+                    column.addString(row, parser.getText());
+                    return;
+                case VALUE_TRUE:
+                    column.addBoolean(row, true);
+                    return;
+                case VALUE_FALSE:
+                    column.addBoolean(row, false);
+                    return;
+                case VALUE_NULL:
+                    return;
+                default:
+                    column.addNode(row, AirtableCodec.DEFAULT.readTree(parser));
+            }
+        }
+
+        private static void add(ColumnBuilder column, int row, JsonNode value) {
+            if (value.isIntegralNumber() && value.canConvertToLong()) {
+                column.addLong(row, value.longValue());
+            } else if (value.isNumber()) {
+                column.addDouble(row, value.doubleValue());
+            } else if (value.isTextual()) {
+                column.addString(row, value.textValue());
+            } else if (value.isBoolean()) {
+                column.addBoolean(row, value.booleanValue());
+            } else if (!value.isNull() && !value.isMissingNode()) {
+                column.addNode(row, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+
+/**
+ * Number field with any fractional value, stored in a {@code double[]}.
+ */
+public final class DoubleColumn extends NumberColumn {
+    private final double[] values;
+
+    DoubleColumn(String name, int size, BitSet present, double[] values) {
+        super(name, size, present);
+        this.values = values;
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Nullable
+    @Override
+    public JsonNode getNode(int row) {
+        if (isNull(row)) return null;
+        return DoubleNode.valueOf(values[row]);
+    }
+}
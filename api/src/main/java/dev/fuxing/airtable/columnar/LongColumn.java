@@ -0,0 +1,60 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Number field with only integral values, stored in a {@code long[]}.
+ */
+public final class LongColumn extends NumberColumn {
+    private final long[] values;
+
+    LongColumn(String name, int size, BitSet present, long[] values) {
+        super(name, size, present);
+        this.values = values;
+    }
+
+    /**
+     * @param row index of the row
+     * @return value of the row, 0 if the row is null
+     */
+    public long getLong(int row) {
+        return values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    /**
+     * @param consumer of every non null value, in row order
+     */
+    public void forEachLong(LongConsumer consumer) {
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            consumer.accept(values[row]);
+        }
+    }
+
+    /**
+     * @return sum of every non null value, overflow is not checked
+     */
+    public long sumLong() {
+        long sum = 0;
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    @Nullable
+    @Override
+    public JsonNode getNode(int row) {
+        if (isNull(row)) return null;
+        return LongNode.valueOf(values[row]);
+    }
+}
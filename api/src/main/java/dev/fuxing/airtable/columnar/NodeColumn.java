@@ -0,0 +1,25 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+
+/**
+ * Fields that are not a single primitive, e.g. multiple select, attachments and collaborators,
+ * or a field with values of different types.
+ */
+public final class NodeColumn extends Column {
+    private final JsonNode[] values;
+
+    NodeColumn(String name, int size, BitSet present, JsonNode[] values) {
+        super(name, size, present);
+        this.values = values;
+    }
+
+    @Nullable
+    @Override
+    public JsonNode getNode(int row) {
+        return values[row];
+    }
+}
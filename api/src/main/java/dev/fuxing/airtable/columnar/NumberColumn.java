@@ -0,0 +1,76 @@
+package dev.fuxing.airtable.columnar;
+
+import java.util.BitSet;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Number, currency, percent, duration and rating fields.
+ *
+ * @see LongColumn if every value is integral
+ * @see DoubleColumn otherwise
+ */
+public abstract class NumberColumn extends Column {
+
+    NumberColumn(String name, int size, BitSet present) {
+        super(name, size, present);
+    }
+
+    /**
+     * @param row index of the row
+     * @return value of the row, 0 if the row is null
+     */
+    public abstract double getDouble(int row);
+
+    /**
+     * @param consumer of every non null value, in row order
+     */
+    public void forEachDouble(DoubleConsumer consumer) {
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            consumer.accept(getDouble(row));
+        }
+    }
+
+    /**
+     * @return sum of every non null value
+     */
+    public double sum() {
+        double sum = 0;
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            sum += getDouble(row);
+        }
+        return sum;
+    }
+
+    /**
+     * @return min of every non null value, {@link Double#NaN} if every row is null
+     */
+    public double min() {
+        double min = Double.NaN;
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            double value = getDouble(row);
+            if (!(value >= min)) min = value;
+        }
+        return min;
+    }
+
+    /**
+     * @return max of every non null value, {@link Double#NaN} if every row is null
+     */
+    public double max() {
+        double max = Double.NaN;
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            double value = getDouble(row);
+            if (!(value <= max)) max = value;
+        }
+        return max;
+    }
+
+    /**
+     * @return mean of every non null value, {@link Double#NaN} if every row is null
+     */
+    public double average() {
+        int count = size() - nullCount();
+        if (count == 0) return Double.NaN;
+        return sum() / count;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.fuxing.airtable.columnar;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Text, single select, date and other string fields, dictionary encoded.
+ * <p>
+ * Every distinct value is stored once in the dictionary, each row is a code into the dictionary.
+ * Single select with a handful of options is stored as an {@code int[]} and a few strings.
+ */
+public final class StringColumn extends Column {
+    private final int[] codes;
+    private final String[] dictionary;
+
+    StringColumn(String name, int size, BitSet present, int[] codes, String[] dictionary) {
+        super(name, size, present);
+        this.codes = codes;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @param row index of the row
+     * @return value of the row, {@code null} if the row is null
+     */
+    @Nullable
+    public String getString(int row) {
+        int code = codes[row];
+        return code < 0 ? null : dictionary[code];
+    }
+
+    /**
+     * @param row index of the row
+     * @return code of the value in the dictionary, -1 if the row is null
+     */
+    public int getCode(int row) {
+        return codes[row];
+    }
+
+    /**
+     * @param code of the value
+     * @return value of the code
+     */
+    public String getValue(int code) {
+        return dictionary[code];
+    }
+
+    /**
+     * Linear in the size of the dictionary, find the code once before iterating the rows.
+     *
+     * @param value to find
+     * @return code of the value, -1 if no row has the value
+     */
+    public int codeOf(String value) {
+        for (int code = 0; code < dictionary.length; code++) {
+            if (dictionary[code].equals(value)) return code;
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of distinct values
+     */
+    public int dictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * @param consumer of the code of every non null row, in row order
+     */
+    public void forEachCode(IntConsumer consumer) {
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            consumer.accept(codes[row]);
+        }
+    }
+
+    /**
+     * @return number of rows of each value, indexed by code
+     */
+    public int[] countByCode() {
+        int[] counts = new int[dictionary.length];
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            counts[codes[row]]++;
+        }
+        return counts;
+    }
+
+    @Nullable
+    @Override
+    public JsonNode getNode(int row) {
+        String value = getString(row);
+        if (value == null) return null;
+        return TextNode.valueOf(value);
+    }
+}
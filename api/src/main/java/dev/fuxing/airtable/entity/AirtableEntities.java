@@ -0,0 +1,153 @@
+package dev.fuxing.airtable.entity;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import dev.fuxing.airtable.AirtableApi;
+import dev.fuxing.airtable.AirtableCodec;
+import dev.fuxing.airtable.AirtableDates;
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of generated {@link AirtableEntityMapper}, loaded with {@link ServiceLoader}.
+ *
+ * <pre>
+ * AirtableEntityList&lt;Person&gt; people = table.listEntities(QuerySpec.create(), Person.class);
+ *
+ * // Or convert from a record
+ * Person person = AirtableEntities.fromRecord(record, Person.class);
+ * </pre>
+ */
+public final class AirtableEntities {
+    private static final ConcurrentMap<Class<?>, AirtableEntityMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+
+    private AirtableEntities() {
+    }
+
+    /**
+     * @param type annotated with {@link AirtableEntity}
+     * @param <T>  type of the entity
+     * @return generated mapper of the type
+     * @throws AirtableClientException if no mapper is generated for the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AirtableEntityMapper<T> mapper(Class<T> type) {
+        AirtableEntityMapper<?> mapper = MAPPERS.get(type);
+        if (mapper != null) return (AirtableEntityMapper<T>) mapper;
+
+        @SuppressWarnings("rawtypes")
+        Iterator<AirtableEntityMapper> loaded = ServiceLoader.load(AirtableEntityMapper.class, type.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!loaded.hasNext()) break;
+                AirtableEntityMapper<?> next = loaded.next();
+                MAPPERS.putIfAbsent(next.type(), next);
+            } catch (ServiceConfigurationError ignore) {
+                // Mapper of an entity since removed, left registered by an incremental build
+            }
+        }
+
+        mapper = MAPPERS.get(type);
+        if (mapper == null) {
+            throw new AirtableClientException("No AirtableEntityMapper for " + type.getName() +
+                    ", is it annotated with @AirtableEntity and the airtable-processor on the annotation processor path?");
+        }
+        return (AirtableEntityMapper<T>) mapper;
+    }
+
+    /**
+     * Register a mapper manually, e.g. when service loader is not available.
+     *
+     * @param mapper to register
+     * @param <T>    type of the entity
+     */
+    public static <T> void register(AirtableEntityMapper<T> mapper) {
+        MAPPERS.put(mapper.type(), mapper);
+    }
+
+    /**
+     * @param parser at START_OBJECT of list records response: {@code {"records": [...], "offset": "..."}}
+     * @param mapper to read each record with
+     * @param <T>    type of the entity
+     * @return page of entities
+     * @throws IOException if failed to read the response
+     */
+    public static <T> AirtableEntityList<T> readList(JsonParser parser, AirtableEntityMapper<T> mapper) throws IOException {
+        List<T> entities = new ArrayList<>();
+        String offset = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("records".equals(name) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    entities.add(mapper.read(parser));
+                }
+            } else if ("offset".equals(name) && token == JsonToken.VALUE_STRING) {
+                offset = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new AirtableEntityList<>(entities, offset);
+    }
+
+    /**
+     * @param record to convert
+     * @param type   annotated with {@link AirtableEntity}
+     * @param <T>    type of the entity
+     * @return entity
+     */
+    public static <T> T fromRecord(AirtableRecord record, Class<T> type) {
+        ObjectNode node = AirtableCodec.DEFAULT.getNodeFactory().objectNode();
+        node.put("id", record.getId());
+        if (record.getCreatedTime() != null) {
+            node.put("createdTime", AirtableDates.format(record.getCreatedTime().getTime()));
+        }
+        ObjectNode fields = node.putObject("fields");
+        record.getFields().forEach(fields::set);
+
+        try (JsonParser parser = node.traverse(AirtableApi.OBJECT_MAPPER)) {
+            parser.nextToken();
+            return mapper(type).read(parser);
+        } catch (IOException e) {
+            throw new AirtableClientException(e);
+        }
+    }
+
+    /**
+     * @param entity to convert, annotated with {@link AirtableEntity}
+     * @param <T>    type of the entity
+     * @return record with all fields dirty
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AirtableRecord toRecord(T entity) {
+        AirtableEntityMapper<T> mapper = mapper((Class<T>) entity.getClass());
+
+        try (TokenBuffer buffer = new TokenBuffer(AirtableApi.OBJECT_MAPPER, false)) {
+            buffer.writeStartObject();
+            mapper.writeFields(entity, buffer);
+            buffer.writeEndObject();
+
+            JsonNode fields = AirtableCodec.DEFAULT.readTree(buffer.asParser());
+            AirtableRecord record = new AirtableRecord(mapper.id(entity));
+            fields.fields().forEachRemaining(entry -> record.putField(entry.getKey(), entry.getValue()));
+            return record;
+        } catch (IOException e) {
+            throw new AirtableClientException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package dev.fuxing.airtable.entity;
+
+import java.lang.annotation.*;
+
+/**
+ * Generates an {@link AirtableEntityMapper} for the annotated class at compile time,
+ * with the {@code airtable-processor} annotation processor.
+ * <p>
+ * The class must have a non private no-arg constructor.
+ * Only fields annotated with {@link AirtableField} or {@link AirtableId} are mapped,
+ * private fields are accessed with their getter and setter.
+ *
+ * <pre>
+ * &#64;AirtableEntity
+ * public class Person {
+ *     &#64;AirtableId
+ *     String id;
+ *
+ *     &#64;AirtableField("Name")
+ *     String name;
+ *
+ *     &#64;AirtableField("Tags")
+ *     List&lt;String&gt; tags;
+ * }
+ * </pre>
+ *
+ * @see AirtableEntities#mapper(Class)
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface AirtableEntity {
+}
@@ -0,0 +1,29 @@
+package dev.fuxing.airtable.entity;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of entities from list records.
+ *
+ * @param <T> type of the entity
+ */
+public class AirtableEntityList<T> extends ArrayList<T> {
+    private static final long serialVersionUID = 1L;
+
+    private final String offset;
+
+    public AirtableEntityList(List<T> entities, @Nullable String offset) {
+        super(entities);
+        this.offset = offset;
+    }
+
+    /**
+     * @return offset for the next page, {@code null} if it's the last page
+     */
+    @Nullable
+    public String getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,48 @@
+package dev.fuxing.airtable.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Reads and writes an entity straight from and to JSON tokens, without reflection.
+ * <p>
+ * Implementations are generated at compile time for classes annotated with {@link AirtableEntity},
+ * and registered as a {@link java.util.ServiceLoader} service.
+ *
+ * @param <T> type of the entity
+ * @see AirtableEntities#mapper(Class)
+ */
+public interface AirtableEntityMapper<T> {
+
+    /**
+     * @return type of the entity
+     */
+    Class<T> type();
+
+    /**
+     * @param parser at START_OBJECT of the record: {@code {"id": "...", "fields": {...}, "createdTime": "..."}},
+     *               will be at END_OBJECT of the record after
+     * @return entity
+     * @throws IOException if failed to read the record
+     */
+    T read(JsonParser parser) throws IOException;
+
+    /**
+     * Writes every non null field as a field entry, the fields object must already be started.
+     *
+     * @param entity    to write
+     * @param generator inside the {@code "fields"} object
+     * @throws IOException if failed to write the fields
+     */
+    void writeFields(T entity, JsonGenerator generator) throws IOException;
+
+    /**
+     * @param entity to get id from
+     * @return id of the record, {@code null} if the entity has no {@link AirtableId} or not created yet
+     */
+    @Nullable
+    String id(T entity);
+}
@@ -0,0 +1,26 @@
+package dev.fuxing.airtable.entity;
+
+import java.lang.annotation.*;
+
+/**
+ * Maps the field of an {@link AirtableEntity} to a field of the airtable record.
+ * <p>
+ * Supported types:
+ * <ul>
+ * <li>String, enum (by name)</li>
+ * <li>int, long, double, boolean and their boxed types</li>
+ * <li>Instant, LocalDate, Date, formatted with {@link dev.fuxing.airtable.AirtableDates}</li>
+ * <li>JsonNode, for any other value e.g. attachments</li>
+ * <li>List of any of the above</li>
+ * </ul>
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface AirtableField {
+
+    /**
+     * @return name of the field in airtable
+     */
+    String value();
+}
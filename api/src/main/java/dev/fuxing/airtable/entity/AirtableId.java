@@ -0,0 +1,12 @@
+package dev.fuxing.airtable.entity;
+
+import java.lang.annotation.*;
+
+/**
+ * Maps the String field of an {@link AirtableEntity} to the id of the airtable record, prefixed with 'rec'.
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface AirtableId {
+}
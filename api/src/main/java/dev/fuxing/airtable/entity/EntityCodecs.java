@@ -0,0 +1,189 @@
+package dev.fuxing.airtable.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.airtable.AirtableCodec;
+import dev.fuxing.airtable.AirtableDates;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the supported field types from and to JSON tokens, used by generated {@link AirtableEntityMapper}.
+ * <p>
+ * Every read method expects the parser to be at the value token, and leaves it at the last token of the value.
+ */
+public final class EntityCodecs {
+    private EntityCodecs() {
+    }
+
+    /**
+     * @param <E> type of value
+     */
+    @FunctionalInterface
+    public interface Reader<E> {
+        E read(JsonParser parser) throws IOException;
+    }
+
+    @Nullable
+    public static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token.isScalarValue()) return parser.getValueAsString();
+        throw unexpected(parser, "String");
+    }
+
+    @Nullable
+    public static Integer readInteger(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token == JsonToken.VALUE_STRING) return parse(parser, "Integer", Integer::parseInt);
+        if (token.isScalarValue()) return parser.getValueAsInt();
+        throw unexpected(parser, "Integer");
+    }
+
+    @Nullable
+    public static Long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token == JsonToken.VALUE_STRING) return parse(parser, "Long", Long::parseLong);
+        if (token.isScalarValue()) return parser.getValueAsLong();
+        throw unexpected(parser, "Long");
+    }
+
+    @Nullable
+    public static Double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token == JsonToken.VALUE_STRING) return parse(parser, "Double", Double::parseDouble);
+        if (token.isScalarValue()) return parser.getValueAsDouble();
+        throw unexpected(parser, "Double");
+    }
+
+    @Nullable
+    public static Boolean readBoolean(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token.isScalarValue()) return parser.getValueAsBoolean();
+        throw unexpected(parser, "Boolean");
+    }
+
+    @Nullable
+    public static Instant readInstant(JsonParser parser) throws IOException {
+        String text = readString(parser);
+        if (text == null) return null;
+        return AirtableDates.parseInstant(text);
+    }
+
+    @Nullable
+    public static LocalDate readLocalDate(JsonParser parser) throws IOException {
+        String text = readString(parser);
+        if (text == null) return null;
+        return AirtableDates.parseLocalDate(text);
+    }
+
+    @Nullable
+    public static Date readDate(JsonParser parser) throws IOException {
+        String text = readString(parser);
+        if (text == null) return null;
+        return new Date(AirtableDates.parseMillis(text));
+    }
+
+    /**
+     * @param parser  at the value token
+     * @param valueOf of the enum type, e.g. {@code Status::valueOf}
+     * @param <E>     type of the enum
+     * @return enum constant
+     * @throws IOException              if failed to read the value
+     * @throws IllegalArgumentException if no enum constant is named the value
+     */
+    @Nullable
+    public static <E extends Enum<E>> E readEnum(JsonParser parser, Function<String, E> valueOf) throws IOException {
+        String text = readString(parser);
+        if (text == null) return null;
+        return valueOf.apply(text);
+    }
+
+    @Nullable
+    public static JsonNode readTree(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) return null;
+        return AirtableCodec.DEFAULT.readTree(parser);
+    }
+
+    /**
+     * @param parser at START_ARRAY, a single value is read as a list of one
+     * @param reader of each value
+     * @param <E>    type of value
+     * @return list of values
+     * @throws IOException if failed to read the values
+     */
+    @Nullable
+    public static <E> List<E> readList(JsonParser parser, Reader<E> reader) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token != JsonToken.START_ARRAY) {
+            return Collections.singletonList(reader.read(parser));
+        }
+
+        List<E> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(reader.read(parser));
+        }
+        return list;
+    }
+
+    public static void write(JsonGenerator generator, String value) throws IOException {
+        generator.writeString(value);
+    }
+
+    public static void write(JsonGenerator generator, Instant value) throws IOException {
+        generator.writeString(AirtableDates.format(value));
+    }
+
+    public static void write(JsonGenerator generator, LocalDate value) throws IOException {
+        generator.writeString(AirtableDates.format(value));
+    }
+
+    public static void write(JsonGenerator generator, Date value) throws IOException {
+        generator.writeString(AirtableDates.format(value.getTime()));
+    }
+
+    public static void write(JsonGenerator generator, Enum<?> value) throws IOException {
+        generator.writeString(value.name());
+    }
+
+    public static void write(JsonGenerator generator, JsonNode value) throws IOException {
+        AirtableCodec.DEFAULT.writeTree(generator, value);
+    }
+
+    /**
+     * Unlike {@code getValueAsInt()}, text that is not a number is not read as 0.
+     *
+     * @return number of the text, {@code null} if blank
+     * @throws JsonParseException if the text is not a number
+     */
+    @Nullable
+    private static <E> E parse(JsonParser parser, String type, Function<String, E> parse) throws IOException {
+        String text = parser.getText().trim();
+        if (text.isEmpty()) return null;
+        try {
+            return parse.apply(text);
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Expected " + type + " but got \"" + text + "\"", e);
+        }
+    }
+
+    private static JsonParseException unexpected(JsonParser parser, String type) {
+        return new JsonParseException(parser, "Expected " + type + " but got " + parser.currentToken());
+    }
+}
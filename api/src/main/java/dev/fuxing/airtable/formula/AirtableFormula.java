@@ -3,12 +3,18 @@ package dev.fuxing.airtable.formula;
 import dev.fuxing.airtable.AirtableRecord;
 
 import java.math.BigDecimal;
-import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A fluent interface used to filter records.
  * If the result is not {@code 0}, {@code false}, {@code ""}, {@code NaN}, {@code []}, or @{code #Error!} the record will be included in the response.
  * <p>
+ * Formula objects form an immutable expression tree, a tree is rendered once into a cached string on first {@link #toString()},
+ * and can be reused, hashed and compared.
+ * <p>
  * Note that there are too many formula that Airtable supports. Only the most common formula are implemented.
  *
  * @see <a href="https://support.airtable.com/hc/en-us/articles/203255215-Formula-Field-Reference">Airtable: Filtering Records</a>
@@ -20,71 +26,370 @@ import java.util.function.Supplier;
 public interface AirtableFormula {
 
     /**
-     * Formulas may include parentheses () to change the order of operations:
+     * Immutable node of the expression tree, rendered once and cached.
      */
-    class Parentheses implements Object {
-        private final Supplier<String> supplier;
+    abstract class Node implements Object {
+        private String string;
+        private int hash;
 
-        private Parentheses(Supplier<String> supplier) {
-            this.supplier = supplier;
+        Node() {
+        }
+
+        /**
+         * @param builder to render this node into, without caching
+         */
+        abstract void render(StringBuilder builder);
+
+        @Override
+        public void appendTo(StringBuilder builder) {
+            String string = this.string;
+            if (string != null) {
+                builder.append(string);
+            } else {
+                render(builder);
+            }
         }
 
         @Override
         public String toString() {
-            return "(" + supplier.get() + ")";
+            String string = this.string;
+            if (string == null) {
+                StringBuilder builder = new StringBuilder();
+                render(builder);
+                string = builder.toString();
+                this.string = string;
+            }
+            return string;
+        }
+
+        abstract int computeHash();
+
+        @Override
+        public int hashCode() {
+            int hash = this.hash;
+            if (hash == 0) {
+                hash = computeHash();
+                this.hash = hash;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Formulas may include parentheses () to change the order of operations:
+     */
+    final class Parentheses extends Node {
+        private final Object object;
+
+        private Parentheses(Object object) {
+            this.object = object;
+        }
+
+        /**
+         * @return object inside the parentheses
+         */
+        public Object getObject() {
+            return object;
+        }
+
+        @Override
+        void render(StringBuilder builder) {
+            builder.append('(');
+            object.appendTo(builder);
+            builder.append(')');
+        }
+
+        @Override
+        int computeHash() {
+            return 31 + object.hashCode();
+        }
+
+        @Override
+        public boolean equals(java.lang.Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return object.equals(((Parentheses) o).object);
         }
     }
 
     /**
      * Field name, surrounded by '{', '}'
      */
-    class Field implements Object {
+    final class Field extends Node {
         private final String name;
 
         private Field(String name) {
             this.name = name;
         }
 
+        /**
+         * @return airtable field name
+         */
+        public String getName() {
+            return name;
+        }
+
         public String getString(AirtableRecord record) {
             return record.getFieldString(name);
         }
 
         @Override
-        public String toString() {
-            return "{" + name + "}";
+        void render(StringBuilder builder) {
+            builder.append('{').append(name).append('}');
+        }
+
+        @Override
+        int computeHash() {
+            return 37 + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(java.lang.Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return name.equals(((Field) o).name);
         }
     }
 
     /**
      * Numeric value
      */
-    class Numeric implements Object {
+    final class Numeric extends Node {
         private final Number value;
 
         private Numeric(Number value) {
             this.value = value;
         }
 
+        public Number getValue() {
+            return value;
+        }
+
         @Override
-        public String toString() {
-            return String.valueOf(value);
+        void render(StringBuilder builder) {
+            builder.append(value);
+        }
+
+        @Override
+        int computeHash() {
+            return 41 + value.hashCode();
+        }
+
+        @Override
+        public boolean equals(java.lang.Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return value.equals(((Numeric) o).value);
         }
     }
 
     /**
-     * Text value, surrounded by: '
+     * Text value, surrounded by: ' with ' and \ escaped by \
      */
-    class Text implements Object {
+    final class Text extends Node {
         private final String value;
 
         private Text(String value) {
             this.value = value;
         }
 
+        public String getValue() {
+            return value;
+        }
 
         @Override
-        public String toString() {
-            return "'" + value + "'";
+        void render(StringBuilder builder) {
+            quote(builder, value);
+        }
+
+        /**
+         * @param builder to append to
+         * @param value   to surround with ' and escape
+         */
+        static void quote(StringBuilder builder, CharSequence value) {
+            builder.append('\'');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\'' || c == '\\') builder.append('\\');
+                builder.append(c);
+            }
+            builder.append('\'');
+        }
+
+        /**
+         * @param value to quote
+         * @return length of the value once quoted and escaped
+         */
+        static int quotedLength(CharSequence value) {
+            int length = value.length() + 2;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\'' || c == '\\') length++;
+            }
+            return length;
+        }
+
+        @Override
+        int computeHash() {
+            return 43 + value.hashCode();
+        }
+
+        @Override
+        public boolean equals(java.lang.Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return value.equals(((Text) o).value);
+        }
+    }
+
+    /**
+     * Operator between every operand: {@code left operator right [operator others...]}.
+     * Operands that are operations binding less tightly are rendered in parentheses, e.g. {@code (1+2)*3}.
+     */
+    final class Operation extends Node {
+        private final AirtableOperator operator;
+        private final List<Object> operands;
+
+        private Operation(AirtableOperator operator, List<Object> operands) {
+            this.operator = operator;
+            this.operands = operands;
+        }
+
+        public AirtableOperator getOperator() {
+            return operator;
+        }
+
+        /**
+         * @return immutable list of operands, at least 2
+         */
+        public List<Object> getOperands() {
+            return operands;
+        }
+
+        @Override
+        void render(StringBuilder builder) {
+            String symbol = operator.symbol();
+            if (symbol == null) {
+                // Custom operator, only rendered by itself
+                Object[] others = operands.subList(2, operands.size()).toArray(new Object[0]);
+                builder.append(operator.apply(operands.get(0), operands.get(1), others));
+                return;
+            }
+
+            int precedence = precedence(operator);
+            for (int i = 0; i < operands.size(); i++) {
+                if (i > 0) builder.append(symbol);
+
+                Object operand = operands.get(i);
+                if (operand instanceof Operation && needsParentheses(precedence(((Operation) operand).operator), precedence, i)) {
+                    builder.append('(');
+                    operand.appendTo(builder);
+                    builder.append(')');
+                } else {
+                    operand.appendTo(builder);
+                }
+            }
+        }
+
+        /**
+         * Operators are left associative, an operand on the right with the same precedence is wrapped: {@code a-(b-c)}.
+         *
+         * @param child    precedence of the operand
+         * @param parent   precedence of this operation
+         * @param position of the operand
+         * @return whether the operand must be wrapped in parentheses to keep the order of the tree
+         */
+        private static boolean needsParentheses(int child, int parent, int position) {
+            return child < parent || (position > 0 && child == parent);
+        }
+
+        /**
+         * @param operator of an operation
+         * @return precedence of the operator, higher binds tighter, custom operators are always wrapped
+         */
+        private static int precedence(AirtableOperator operator) {
+            String symbol = operator.symbol();
+            if (symbol == null) return 0;
+            switch (symbol) {
+                case "*":
+                case "/":
+                    return 4;
+                case "+":
+                case "-":
+                    return 3;
+                case "&":
+                    return 2;
+                default:
+                    // Comparisons: = != < > <= >=
+                    return 1;
+            }
+        }
+
+        @Override
+        int computeHash() {
+            return 31 * operator.hashCode() + operands.hashCode();
+        }
+
+        @Override
+        public boolean equals(java.lang.Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Operation that = (Operation) o;
+            return operator.equals(that.operator) && operands.equals(that.operands);
+        }
+    }
+
+    /**
+     * Function with arguments: {@code NAME(arguments...)}
+     */
+    final class Function extends Node {
+        private final AirtableFunction function;
+        private final List<Object> arguments;
+
+        private Function(AirtableFunction function, List<Object> arguments) {
+            this.function = function;
+            this.arguments = arguments;
+        }
+
+        public AirtableFunction getFunction() {
+            return function;
+        }
+
+        /**
+         * @return immutable list of arguments
+         */
+        public List<Object> getArguments() {
+            return arguments;
+        }
+
+        @Override
+        void render(StringBuilder builder) {
+            String name = function.name();
+            if (name == null) {
+                // Custom function, only rendered by itself
+                builder.append(function.apply(arguments.toArray(new Object[0])));
+                return;
+            }
+
+            builder.append(name).append('(');
+            for (int i = 0; i < arguments.size(); i++) {
+                if (i > 0) builder.append(',');
+                arguments.get(i).appendTo(builder);
+            }
+            builder.append(')');
+        }
+
+        @Override
+        int computeHash() {
+            return 31 * function.hashCode() + arguments.hashCode();
+        }
+
+        @Override
+        public boolean equals(java.lang.Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Function that = (Function) o;
+            return function.equals(that.function) && arguments.equals(that.arguments);
         }
     }
 
@@ -96,6 +401,15 @@ public interface AirtableFormula {
         @Override
         String toString();
 
+        /**
+         * Renders into the builder of the parent, nodes of the tree are not rendered into strings of their own.
+         *
+         * @param builder to append the formula to
+         */
+        default void appendTo(StringBuilder builder) {
+            builder.append(toString());
+        }
+
         /**
          * @param name airtable field name
          * @return field name wrapped Object
@@ -104,6 +418,38 @@ public interface AirtableFormula {
             return new Field(name);
         }
 
+        /**
+         * @param operator between every operand
+         * @param left     object value
+         * @param right    object value
+         * @param others   object values on the right
+         * @return operation Object, without parentheses
+         */
+        static Operation operation(AirtableOperator operator, Object left, Object right, Object... others) {
+            List<Object> operands = new ArrayList<>(2 + others.length);
+            operands.add(left);
+            operands.add(right);
+            Collections.addAll(operands, others);
+            return new Operation(operator, Collections.unmodifiableList(operands));
+        }
+
+        /**
+         * @param function to call
+         * @param objects  arguments of the function
+         * @return function Object
+         */
+        static Function function(AirtableFunction function, Object... objects) {
+            return new Function(function, Collections.unmodifiableList(Arrays.asList(objects.clone())));
+        }
+
+        /**
+         * @param object to add parentheses
+         * @return parentheses wrapped Object
+         */
+        static Object parentheses(Object object) {
+            return new Parentheses(object);
+        }
+
         /**
          * @param operator to add parentheses
          * @param left     object value
@@ -112,7 +458,7 @@ public interface AirtableFormula {
          * @return parentheses wrapped Object
          */
         static Object parentheses(AirtableOperator operator, Object left, Object right, Object... others) {
-            return new Parentheses(() -> operator.apply(left, right, others));
+            return new Parentheses(operation(operator, left, right, others));
         }
 
         /**
@@ -121,7 +467,7 @@ public interface AirtableFormula {
          * @return parentheses wrapped Object
          */
         static Object parentheses(AirtableFunction function, Object... objects) {
-            return new Parentheses(() -> function.apply(objects));
+            return new Parentheses(function(function, objects));
         }
 
         /**
@@ -0,0 +1,706 @@
+package dev.fuxing.airtable.formula;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.airtable.AirtableDates;
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles formulas into predicates that are evaluated locally against records, without calling airtable.
+ * <p>
+ * Evaluation follows the semantics of airtable:
+ * <ul>
+ * <li>Blank fields are equal to {@code ""}, {@code 0}, {@code FALSE()}, and {@code BLANK()}, and are {@code 0} in arithmetic.</li>
+ * <li>Numbers and checkboxes are compared as numbers, text that is a number is coerced to a number.</li>
+ * <li>Dates are compared as dates when compared against a date, date functions are in UTC.</li>
+ * <li>Arrays are compared as their text joined by {@code ", "}.</li>
+ * <li>Records are included if the result is not {@code 0}, {@code false}, {@code ""}, {@code NaN}, {@code []}, or an error.</li>
+ * </ul>
+ * Only the built-in operators and functions of this package can be evaluated,
+ * formulas with any other function are rejected when compiled.
+ *
+ * <pre>
+ * CompiledFormula formula = AirtableFormulaEvaluator.DEFAULT.compile("AND({Status} = 'Done', {Count} > 1)");
+ * List&lt;AirtableRecord&gt; done = records.stream().filter(formula).collect(Collectors.toList());
+ * </pre>
+ */
+public final class AirtableFormulaEvaluator {
+
+    /**
+     * Evaluator with the system UTC clock for {@code NOW()} and {@code TODAY()}.
+     */
+    public static final AirtableFormulaEvaluator DEFAULT = new AirtableFormulaEvaluator(Clock.systemUTC());
+
+    /**
+     * Result of an expression that airtable evaluates to {@code #ERROR!}.
+     */
+    static final Object ERROR = new Object() {
+        @Override
+        public String toString() {
+            return "#ERROR!";
+        }
+    };
+
+    private static final double MILLIS_PER_DAY = 86_400_000d;
+
+    /**
+     * Plain decimal text, {@link Double#parseDouble(String)} also accepts "NaN", "Infinity", hex and "1d" suffixes.
+     */
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private final Clock clock;
+
+    /**
+     * @param clock for {@code NOW()}, {@code TODAY()} and {@code TONOW()}, the date of today is in the zone of the clock
+     */
+    public AirtableFormulaEvaluator(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param formula to parse and compile
+     * @return predicate of the formula
+     * @throws AirtableClientException if the formula is not valid or can't be evaluated locally
+     */
+    public CompiledFormula compile(String formula) throws AirtableClientException {
+        return new CompiledFormula(formula, compileNode(AirtableFormulaParser.parse(formula)));
+    }
+
+    /**
+     * @param formula to compile
+     * @return predicate of the formula
+     * @throws AirtableClientException if the formula can't be evaluated locally
+     */
+    public CompiledFormula compile(AirtableFormula.Object formula) throws AirtableClientException {
+        return new CompiledFormula(formula.toString(), compileNode(formula));
+    }
+
+    /**
+     * Compiled formula, immutable and safe to share across threads.
+     */
+    public static final class CompiledFormula implements Predicate<AirtableRecord> {
+        private final String formula;
+        private final Expression expression;
+
+        private CompiledFormula(String formula, Expression expression) {
+            this.formula = formula;
+            this.expression = expression;
+        }
+
+        /**
+         * @param record to evaluate against
+         * @return whether the record is included by the formula
+         */
+        @Override
+        public boolean test(AirtableRecord record) {
+            return truthy(expression.evaluate(new RecordRow(record)));
+        }
+
+        /**
+         * @param snapshot to evaluate against
+         * @return whether the snapshot is included by the formula
+         */
+        public boolean test(AirtableRecordSnapshot snapshot) {
+            return truthy(expression.evaluate(new SnapshotRow(snapshot)));
+        }
+
+        /**
+         * @param snapshot to evaluate against
+         * @return result as null for blank, Double, String, Boolean, Instant, List, or {@code #ERROR!}
+         */
+        public Object evaluate(AirtableRecordSnapshot snapshot) {
+            return expression.evaluate(new SnapshotRow(snapshot));
+        }
+
+        /**
+         * @param record to evaluate against
+         * @return result as null for blank, Double, String, Boolean, Instant, List, or {@code #ERROR!}
+         */
+        public Object evaluate(AirtableRecord record) {
+            return expression.evaluate(new RecordRow(record));
+        }
+
+        /**
+         * @return predicate that tests snapshots
+         */
+        public Predicate<AirtableRecordSnapshot> forSnapshots() {
+            return this::test;
+        }
+
+        /**
+         * @return formula as sent to airtable
+         */
+        @Override
+        public String toString() {
+            return formula;
+        }
+    }
+
+    /**
+     * Record or snapshot being evaluated.
+     */
+    interface Row {
+        JsonNode getField(String name);
+
+        String getId();
+
+        Instant getCreatedTime();
+    }
+
+    private static final class RecordRow implements Row {
+        private final AirtableRecord record;
+
+        RecordRow(AirtableRecord record) {
+            this.record = record;
+        }
+
+        @Override
+        public JsonNode getField(String name) {
+            return record.getField(name);
+        }
+
+        @Override
+        public String getId() {
+            return record.getId();
+        }
+
+        @Override
+        public Instant getCreatedTime() {
+            Date createdTime = record.getCreatedTime();
+            return createdTime == null ? null : createdTime.toInstant();
+        }
+    }
+
+    private static final class SnapshotRow implements Row {
+        private final AirtableRecordSnapshot snapshot;
+
+        SnapshotRow(AirtableRecordSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public JsonNode getField(String name) {
+            // Only read, arrays and objects are not copied
+            return AirtableRecordSnapshot.Internal.peekField(snapshot, name);
+        }
+
+        @Override
+        public String getId() {
+            return snapshot.getId();
+        }
+
+        @Override
+        public Instant getCreatedTime() {
+            return snapshot.getCreatedTime();
+        }
+    }
+
+    /**
+     * Compiled node of the expression tree.
+     */
+    @FunctionalInterface
+    interface Expression {
+        Object evaluate(Row row);
+    }
+
+    private Expression compileNode(AirtableFormula.Object object) {
+        if (object instanceof AirtableFormula.Parentheses) {
+            return compileNode(((AirtableFormula.Parentheses) object).getObject());
+        }
+        if (object instanceof AirtableFormula.Field) {
+            String name = ((AirtableFormula.Field) object).getName();
+            return row -> value(row.getField(name));
+        }
+        if (object instanceof AirtableFormula.Numeric) {
+            Double value = ((AirtableFormula.Numeric) object).getValue().doubleValue();
+            return row -> value;
+        }
+        if (object instanceof AirtableFormula.Text) {
+            String value = ((AirtableFormula.Text) object).getValue();
+            return row -> value;
+        }
+        if (object instanceof AirtableFormula.Operation) {
+            AirtableFormula.Operation operation = (AirtableFormula.Operation) object;
+            AirtableOperator operator = builtin(operation.getOperator());
+            if (operator == null) return compileNode(AirtableFormulaParser.parse(operation.toString()));
+            return compileOperation(operator, compileAll(operation.getOperands()));
+        }
+        if (object instanceof AirtableFormula.Function) {
+            AirtableFormula.Function function = (AirtableFormula.Function) object;
+            if (function.getFunction().name() == null) {
+                return compileNode(AirtableFormulaParser.parse(function.toString()));
+            }
+            return compileFunction(Builtins.function(function.getFunction().name()), compileAll(function.getArguments()));
+        }
+
+        // Custom object, evaluated as airtable would from what it renders
+        return compileNode(AirtableFormulaParser.parse(object.toString()));
+    }
+
+    private Expression[] compileAll(List<AirtableFormula.Object> objects) {
+        Expression[] expressions = new Expression[objects.size()];
+        for (int i = 0; i < expressions.length; i++) {
+            expressions[i] = compileNode(objects.get(i));
+        }
+        return expressions;
+    }
+
+    private static AirtableOperator builtin(AirtableOperator operator) {
+        String symbol = operator.symbol();
+        return symbol == null ? null : Builtins.operator(symbol);
+    }
+
+    private static Expression compileOperation(AirtableOperator operator, Expression[] operands) {
+        Expression expression = operands[0];
+        // Left associative: a - b - c is (a - b) - c
+        for (int i = 1; i < operands.length; i++) {
+            expression = binary(operator, expression, operands[i]);
+        }
+        return expression;
+    }
+
+    private static Expression binary(AirtableOperator operator, Expression left, Expression right) {
+        if (operator == LogicalOperator.EQ) {
+            return row -> equal(left.evaluate(row), right.evaluate(row));
+        }
+        if (operator == LogicalOperator.NEQ) {
+            return row -> not(equal(left.evaluate(row), right.evaluate(row)));
+        }
+        if (operator == LogicalOperator.GT) {
+            return row -> compare(left.evaluate(row), right.evaluate(row), c -> c > 0);
+        }
+        if (operator == LogicalOperator.GTE) {
+            return row -> compare(left.evaluate(row), right.evaluate(row), c -> c >= 0);
+        }
+        if (operator == LogicalOperator.LT) {
+            return row -> compare(left.evaluate(row), right.evaluate(row), c -> c < 0);
+        }
+        if (operator == LogicalOperator.LTE) {
+            return row -> compare(left.evaluate(row), right.evaluate(row), c -> c <= 0);
+        }
+        if (operator == NumericOperator.ADD) {
+            return row -> arithmetic(left.evaluate(row), right.evaluate(row), '+');
+        }
+        if (operator == NumericOperator.SUBTRACT) {
+            return row -> arithmetic(left.evaluate(row), right.evaluate(row), '-');
+        }
+        if (operator == NumericOperator.MULTIPLY) {
+            return row -> arithmetic(left.evaluate(row), right.evaluate(row), '*');
+        }
+        if (operator == NumericOperator.DIVIDE) {
+            return row -> arithmetic(left.evaluate(row), right.evaluate(row), '/');
+        }
+        throw new AirtableClientException("Operator " + operator.symbol() + " can't be evaluated locally.");
+    }
+
+    private Expression compileFunction(AirtableFunction function, Expression[] args) {
+        if (function == LogicalFunction.AND) {
+            return row -> {
+                boolean result = true;
+                for (Expression arg : args) {
+                    Object value = arg.evaluate(row);
+                    if (value == ERROR) return ERROR;
+                    if (!truthy(value)) result = false;
+                }
+                return result;
+            };
+        }
+        if (function == LogicalFunction.OR) {
+            return row -> {
+                boolean result = false;
+                for (Expression arg : args) {
+                    Object value = arg.evaluate(row);
+                    if (value == ERROR) return ERROR;
+                    if (truthy(value)) result = true;
+                }
+                return result;
+            };
+        }
+        if (function == LogicalFunction.XOR) {
+            return row -> {
+                boolean result = false;
+                for (Expression arg : args) {
+                    Object value = arg.evaluate(row);
+                    if (value == ERROR) return ERROR;
+                    if (truthy(value)) result = !result;
+                }
+                return result;
+            };
+        }
+        if (function == LogicalFunction.NOT) {
+            arity(function, args, 1, 1);
+            return row -> {
+                Object value = args[0].evaluate(row);
+                return value == ERROR ? ERROR : !truthy(value);
+            };
+        }
+        if (function == LogicalFunction.IF) {
+            arity(function, args, 2, 3);
+            return row -> {
+                Object condition = args[0].evaluate(row);
+                if (condition == ERROR) return ERROR;
+                if (truthy(condition)) return args[1].evaluate(row);
+                return args.length == 3 ? args[2].evaluate(row) : null;
+            };
+        }
+        if (function == LogicalFunction.TRUE) return row -> true;
+        if (function == LogicalFunction.FALSE) return row -> false;
+        if (function == LogicalFunction.BLANK) return row -> null;
+
+        if (function == TextFunction.LEN) {
+            arity(function, args, 1, 1);
+            return row -> (double) text(args[0].evaluate(row)).length();
+        }
+        if (function == TextFunction.LOWER) {
+            arity(function, args, 1, 1);
+            return row -> text(args[0].evaluate(row)).toLowerCase(Locale.ROOT);
+        }
+        if (function == TextFunction.UPPER) {
+            arity(function, args, 1, 1);
+            return row -> text(args[0].evaluate(row)).toUpperCase(Locale.ROOT);
+        }
+        if (function == TextFunction.TRIM) {
+            arity(function, args, 1, 1);
+            return row -> text(args[0].evaluate(row)).trim();
+        }
+        if (function == TextFunction.CONCATENATE) {
+            return row -> {
+                StringBuilder builder = new StringBuilder();
+                for (Expression arg : args) {
+                    builder.append(text(arg.evaluate(row)));
+                }
+                return builder.toString();
+            };
+        }
+        if (function == TextFunction.FIND || function == TextFunction.SEARCH) {
+            arity(function, args, 2, 3);
+            boolean find = function == TextFunction.FIND;
+            return row -> {
+                String needle = text(args[0].evaluate(row));
+                String haystack = text(args[1].evaluate(row));
+                int start = 0;
+                if (args.length == 3) {
+                    Double number = number(args[2].evaluate(row));
+                    if (number == null) return ERROR;
+                    start = Math.max(0, number.intValue() - 1);
+                }
+
+                int index = haystack.indexOf(needle, start);
+                if (index != -1) return (double) (index + 1);
+                return find ? 0d : null;
+            };
+        }
+
+        if (function == NumericFunction.ABS) {
+            arity(function, args, 1, 1);
+            return row -> {
+                Double number = number(args[0].evaluate(row));
+                return number == null ? ERROR : Math.abs(number);
+            };
+        }
+        if (function == NumericFunction.AVERAGE) {
+            return row -> {
+                double sum = 0;
+                int count = 0;
+                for (Expression arg : args) {
+                    for (Object value : flatten(arg.evaluate(row))) {
+                        if (value == null) continue;
+                        Double number = number(value);
+                        if (number == null) return ERROR;
+                        sum += number;
+                        count++;
+                    }
+                }
+                return count == 0 ? ERROR : sum / count;
+            };
+        }
+
+        if (function == DateTimeFunction.NOW) {
+            return row -> clock.instant();
+        }
+        if (function == DateTimeFunction.TODAY) {
+            // Same instant as a date field of today, which is read as midnight UTC
+            return row -> LocalDate.now(clock).atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+        if (function == DateTimeFunction.TONOW) {
+            arity(function, args, 1, 1);
+            return row -> {
+                Instant instant = instant(args[0].evaluate(row));
+                if (instant == null) return ERROR;
+                long millis = Math.abs(clock.millis() - instant.toEpochMilli());
+                return Math.floor(millis / MILLIS_PER_DAY);
+            };
+        }
+        if (function == DateTimeFunction.IS_AFTER || function == DateTimeFunction.IS_BEFORE) {
+            arity(function, args, 2, 2);
+            boolean after = function == DateTimeFunction.IS_AFTER;
+            return row -> {
+                Instant left = instant(args[0].evaluate(row));
+                Instant right = instant(args[1].evaluate(row));
+                if (left == null || right == null) return ERROR;
+                return after ? left.isAfter(right) : left.isBefore(right);
+            };
+        }
+        if (function == DateTimeFunction.SECOND) return datePart(function, args, ZonedDateTime::getSecond);
+        if (function == DateTimeFunction.MINUTE) return datePart(function, args, ZonedDateTime::getMinute);
+        if (function == DateTimeFunction.HOUR) return datePart(function, args, ZonedDateTime::getHour);
+        if (function == DateTimeFunction.DAY) return datePart(function, args, ZonedDateTime::getDayOfMonth);
+        if (function == DateTimeFunction.MONTH) return datePart(function, args, ZonedDateTime::getMonthValue);
+        if (function == DateTimeFunction.YEAR) return datePart(function, args, ZonedDateTime::getYear);
+
+        if (function == ArrayFunction.ARRAYCOMPACT) {
+            arity(function, args, 1, 1);
+            return row -> {
+                List<Object> values = new ArrayList<>();
+                for (Object value : flatten(args[0].evaluate(row))) {
+                    if (value != null && !"".equals(value)) values.add(value);
+                }
+                return values;
+            };
+        }
+        if (function == ArrayFunction.ARRAYFLATTEN) {
+            arity(function, args, 1, 1);
+            return row -> flatten(args[0].evaluate(row));
+        }
+        if (function == ArrayFunction.ARRAYUNIQUE) {
+            arity(function, args, 1, 1);
+            return row -> new ArrayList<>(new LinkedHashSet<>(flatten(args[0].evaluate(row))));
+        }
+        if (function == ArrayFunction.ARRAYJOIN) {
+            arity(function, args, 1, 2);
+            return row -> {
+                String separator = args.length == 2 ? text(args[1].evaluate(row)) : ", ";
+                return join(flatten(args[0].evaluate(row)), separator);
+            };
+        }
+
+        if (function == RecordFunction.RECORD_ID) return Row::getId;
+        if (function == RecordFunction.CREATED_TIME) return Row::getCreatedTime;
+
+        throw new AirtableClientException("Function " + function.name() + " can't be evaluated locally.");
+    }
+
+    private static Expression datePart(AirtableFunction function, Expression[] args, ToIntFunction<ZonedDateTime> part) {
+        arity(function, args, 1, 1);
+        return row -> {
+            Instant instant = instant(args[0].evaluate(row));
+            if (instant == null) return ERROR;
+            return (double) part.applyAsInt(instant.atZone(ZoneOffset.UTC));
+        };
+    }
+
+    private static void arity(AirtableFunction function, Expression[] args, int min, int max) {
+        if (args.length < min || args.length > max) {
+            throw new AirtableClientException("Function " + function.name() + " expects " +
+                    (min == max ? min : min + " to " + max) + " arguments but got " + args.length + ".");
+        }
+    }
+
+    /**
+     * @param node of the field
+     * @return value of the field, objects are their name, filename, or url
+     */
+    static Object value(JsonNode node) {
+        if (node == null || node.isMissingNode() || node.isNull()) return null;
+        if (node.isNumber()) return node.doubleValue();
+        if (node.isBoolean()) return node.booleanValue();
+        if (node.isTextual()) return node.textValue();
+        if (node.isArray()) {
+            List<Object> values = new ArrayList<>(node.size());
+            for (JsonNode element : node) {
+                values.add(value(element));
+            }
+            return values;
+        }
+        if (node.isObject()) {
+            for (String name : new String[]{"name", "filename", "url"}) {
+                JsonNode value = node.get(name);
+                if (value != null && value.isTextual()) return value.textValue();
+            }
+        }
+        return node.toString();
+    }
+
+    static boolean truthy(Object value) {
+        if (value == null || value == ERROR) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number != 0 && !Double.isNaN(number);
+        }
+        if (value instanceof String) return !((String) value).isEmpty();
+        if (value instanceof List) return !((List<?>) value).isEmpty();
+        return true;
+    }
+
+    private static Object not(Object value) {
+        return value == ERROR ? ERROR : !(Boolean) value;
+    }
+
+    private static boolean blank(Object value) {
+        if (value == null) return true;
+        if (value instanceof String) return ((String) value).isEmpty();
+        if (value instanceof List) return ((List<?>) value).isEmpty();
+        return false;
+    }
+
+    private static Object equal(Object left, Object right) {
+        if (left == ERROR || right == ERROR) return ERROR;
+        if (left instanceof List) left = text(left);
+        if (right instanceof List) right = text(right);
+
+        if (blank(left) || blank(right)) {
+            if (blank(left) && blank(right)) return true;
+            // Blank is also equal to 0 and false
+            Object other = blank(left) ? right : left;
+            return (other instanceof Double || other instanceof Boolean) && number(other) == 0;
+        }
+
+        if (isNumeric(left) || isNumeric(right)) {
+            Double l = number(left);
+            Double r = number(right);
+            if (l != null && r != null) return l.doubleValue() == r.doubleValue();
+        }
+        if (left instanceof Instant || right instanceof Instant) {
+            Instant l = instant(left);
+            Instant r = instant(right);
+            if (l != null && r != null) return l.equals(r);
+        }
+        return text(left).equals(text(right));
+    }
+
+    private static Object compare(Object left, Object right, IntPredicate predicate) {
+        if (left == ERROR || right == ERROR) return ERROR;
+        if (left instanceof List) left = text(left);
+        if (right instanceof List) right = text(right);
+
+        if (isNumeric(left) || isNumeric(right)) {
+            Double l = number(left);
+            Double r = number(right);
+            if (l != null && r != null) return predicate.test(Double.compare(l, r));
+            return false;
+        }
+        if (left instanceof Instant || right instanceof Instant) {
+            if (left == null || right == null) return false;
+            Instant l = instant(left);
+            Instant r = instant(right);
+            if (l != null && r != null) return predicate.test(l.compareTo(r));
+            return false;
+        }
+        return predicate.test(text(left).compareTo(text(right)));
+    }
+
+    private static Object arithmetic(Object left, Object right, char operator) {
+        Double l = number(left);
+        Double r = number(right);
+        if (l == null || r == null) return ERROR;
+
+        switch (operator) {
+            case '+':
+                return l + r;
+            case '-':
+                return l - r;
+            case '*':
+                return l * r;
+            default:
+                if (r == 0) return ERROR;
+                return l / r;
+        }
+    }
+
+    private static boolean isNumeric(Object value) {
+        return value instanceof Double || value instanceof Boolean;
+    }
+
+    /**
+     * @return number of the value, blank is 0, null if not a number
+     */
+    static Double number(Object value) {
+        if (value == null) return 0d;
+        if (value instanceof Double) return (Double) value;
+        if (value instanceof Boolean) return (Boolean) value ? 1d : 0d;
+        if (value instanceof String) {
+            String text = ((String) value).trim();
+            if (text.isEmpty()) return 0d;
+            if (!DECIMAL.matcher(text).matches()) return null;
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (value instanceof List && ((List<?>) value).size() == 1) {
+            return number(((List<?>) value).get(0));
+        }
+        return null;
+    }
+
+    /**
+     * @return instant of the value, null if not a date
+     */
+    static Instant instant(Object value) {
+        if (value instanceof Instant) return (Instant) value;
+        if (value instanceof String) {
+            try {
+                return AirtableDates.parseInstant((String) value);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        if (value instanceof List && ((List<?>) value).size() == 1) {
+            return instant(((List<?>) value).get(0));
+        }
+        return null;
+    }
+
+    static String text(Object value) {
+        if (value == null) return "";
+        if (value instanceof String) return (String) value;
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number == Math.rint(number) && !Double.isInfinite(number) && Math.abs(number) < 1e15) {
+                return Long.toString((long) number);
+            }
+            return Double.toString(number);
+        }
+        if (value instanceof Boolean) return (Boolean) value ? "1" : "0";
+        if (value instanceof Instant) return AirtableDates.format((Instant) value);
+        if (value instanceof List) return join(flatten(value), ", ");
+        return value.toString();
+    }
+
+    private static List<Object> flatten(Object value) {
+        if (!(value instanceof List)) return Collections.singletonList(value);
+
+        List<Object> values = new ArrayList<>();
+        for (Object element : (List<?>) value) {
+            if (element instanceof List) {
+                values.addAll(flatten(element));
+            } else {
+                values.add(element);
+            }
+        }
+        return values;
+    }
+
+    private static String join(List<Object> values, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) builder.append(separator);
+            builder.append(text(values.get(i)));
+        }
+        return builder.toString();
+    }
+}
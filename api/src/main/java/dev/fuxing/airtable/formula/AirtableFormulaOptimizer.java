@@ -0,0 +1,311 @@
+package dev.fuxing.airtable.formula;
+
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.*;
+
+/**
+ * Rewrites formulas into shorter equivalent formulas, and splits formulas that are too long for a single request.
+ * <p>
+ * {@link #optimize(AirtableFormula.Object)}:
+ * <ul>
+ * <li>Folds constant operations and functions, e.g. {@code 1+2} into {@code 3}.</li>
+ * <li>Flattens nested AND and OR, e.g. {@code AND(a,AND(b,c))} into {@code AND(a,b,c)}.</li>
+ * <li>Removes duplicate arguments of AND and OR, and constants that don't change the result.</li>
+ * <li>Removes parentheses that don't change the order of operations.</li>
+ * </ul>
+ * {@link #split(AirtableFormula.Object, int)} splits a large {@code OR(...)}, also when it's an argument of the top level {@code AND(...)},
+ * into as few formulas as it can, each within the max length once url encoded.
+ * A record may match more than one of the split formulas.
+ *
+ * <pre>
+ * List&lt;AirtableFormula.Object&gt; formulas = AirtableFormulaOptimizer.split(formula, 8000);
+ * </pre>
+ */
+public final class AirtableFormulaOptimizer {
+    private static final AirtableFormulaEvaluator EVALUATOR = AirtableFormulaEvaluator.DEFAULT;
+    private static final AirtableRecord EMPTY = new AirtableRecord();
+
+    /**
+     * Length of {@code ,} between arguments once url encoded.
+     */
+    private static final int SEPARATOR_LENGTH = 3;
+
+    private AirtableFormulaOptimizer() {
+    }
+
+    /**
+     * @param formula to optimize
+     * @return equivalent formula, or the same formula if it can't be optimized
+     */
+    public static AirtableFormula.Object optimize(AirtableFormula.Object formula) {
+        return optimize(formula, true);
+    }
+
+    /**
+     * @param formula   to optimize and split
+     * @param maxLength of each formula once url encoded
+     * @return formulas that together match the same records as the formula, a single formula if it's within max length
+     * @throws AirtableClientException if the formula can't be split within the max length
+     */
+    public static List<AirtableFormula.Object> split(AirtableFormula.Object formula, int maxLength) throws AirtableClientException {
+        AirtableFormula.Object optimized = optimize(formula);
+        int length = encodedLength(optimized);
+        if (length <= maxLength) return Collections.singletonList(optimized);
+
+        List<AirtableFormula.Object> common = new ArrayList<>();
+        int position = 0;
+        AirtableFormula.Function or = null;
+
+        if (is(optimized, LogicalFunction.OR)) {
+            or = (AirtableFormula.Function) optimized;
+        } else if (is(optimized, LogicalFunction.AND)) {
+            // Split the longest OR, every part keeps the other arguments of AND
+            List<AirtableFormula.Object> arguments = ((AirtableFormula.Function) optimized).getArguments();
+            int longest = -1;
+            for (int i = 0; i < arguments.size(); i++) {
+                AirtableFormula.Object argument = arguments.get(i);
+                if (is(argument, LogicalFunction.OR) && (or == null || argument.toString().length() > longest)) {
+                    or = (AirtableFormula.Function) argument;
+                    longest = argument.toString().length();
+                    position = i;
+                }
+            }
+            if (or != null) {
+                common.addAll(arguments);
+                common.remove(position);
+            }
+        }
+
+        if (or == null || or.getArguments().size() < 2) {
+            throw new AirtableClientException("Formula of length " + length + " exceeds " + maxLength + " and can't be split.");
+        }
+
+        List<AirtableFormula.Object> disjuncts = or.getArguments();
+        int fixed = encodedLength(wrap(common, position, Collections.emptyList()));
+        int[] lengths = new int[disjuncts.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = encodedLength(disjuncts.get(i)) + SEPARATOR_LENGTH;
+            if (fixed + lengths[i] - SEPARATOR_LENGTH > maxLength) {
+                throw new AirtableClientException("Formula " + disjuncts.get(i) + " can't be split within " + maxLength + ".");
+            }
+        }
+
+        List<List<Integer>> bins = pack(lengths, maxLength - fixed + SEPARATOR_LENGTH);
+        List<AirtableFormula.Object> formulas = new ArrayList<>(bins.size());
+        for (List<Integer> bin : bins) {
+            List<AirtableFormula.Object> part = new ArrayList<>(bin.size());
+            for (int index : bin) {
+                part.add(disjuncts.get(index));
+            }
+            formulas.add(wrap(common, position, part));
+        }
+        return formulas;
+    }
+
+    /**
+     * First fit decreasing, longest disjuncts are placed first into the first part with room.
+     * When every disjunct has the same length, e.g. a lookup of keys, the number of parts is the fewest possible.
+     *
+     * @return indexes of each part, in their original order
+     */
+    private static List<List<Integer>> pack(int[] lengths, int capacity) {
+        Integer[] order = new Integer[lengths.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(lengths[b], lengths[a]));
+
+        List<List<Integer>> bins = new ArrayList<>();
+        List<Integer> remaining = new ArrayList<>();
+        for (int index : order) {
+            int bin = 0;
+            while (bin < bins.size() && remaining.get(bin) < lengths[index]) bin++;
+
+            if (bin == bins.size()) {
+                bins.add(new ArrayList<>());
+                remaining.add(capacity);
+            }
+            bins.get(bin).add(index);
+            remaining.set(bin, remaining.get(bin) - lengths[index]);
+        }
+
+        for (List<Integer> bin : bins) {
+            Collections.sort(bin);
+        }
+        return bins;
+    }
+
+    private static AirtableFormula.Object wrap(List<AirtableFormula.Object> common, int position, List<AirtableFormula.Object> disjuncts) {
+        AirtableFormula.Object or = AirtableFormula.Object.function(LogicalFunction.OR, disjuncts.toArray(new AirtableFormula.Object[0]));
+        if (common.isEmpty()) return or;
+
+        List<AirtableFormula.Object> arguments = new ArrayList<>(common);
+        arguments.add(position, or);
+        return AirtableFormula.Object.function(LogicalFunction.AND, arguments.toArray(new AirtableFormula.Object[0]));
+    }
+
+    /**
+     * @param grouped whether the formula is the whole formula or an argument, where parentheses are not needed
+     */
+    private static AirtableFormula.Object optimize(AirtableFormula.Object formula, boolean grouped) {
+        if (formula instanceof AirtableFormula.Parentheses) {
+            AirtableFormula.Object object = optimize(((AirtableFormula.Parentheses) formula).getObject(), true);
+            if (grouped || !(object instanceof AirtableFormula.Operation)) return object;
+            return AirtableFormula.Object.parentheses(object);
+        }
+
+        if (formula instanceof AirtableFormula.Operation) {
+            AirtableFormula.Operation operation = (AirtableFormula.Operation) formula;
+            List<AirtableFormula.Object> operands = new ArrayList<>(operation.getOperands().size());
+            for (AirtableFormula.Object operand : operation.getOperands()) {
+                operands.add(optimize(operand, false));
+            }
+
+            AirtableFormula.Object[] others = operands.subList(2, operands.size()).toArray(new AirtableFormula.Object[0]);
+            return fold(AirtableFormula.Object.operation(operation.getOperator(), operands.get(0), operands.get(1), others));
+        }
+
+        if (formula instanceof AirtableFormula.Function) {
+            AirtableFormula.Function function = (AirtableFormula.Function) formula;
+            List<AirtableFormula.Object> arguments = new ArrayList<>(function.getArguments().size());
+            for (AirtableFormula.Object argument : function.getArguments()) {
+                arguments.add(optimize(argument, true));
+            }
+
+            AirtableFunction builtin = builtin(function.getFunction());
+            if (builtin == LogicalFunction.AND || builtin == LogicalFunction.OR) {
+                return junction(builtin, arguments);
+            }
+            return fold(AirtableFormula.Object.function(function.getFunction(), arguments.toArray(new AirtableFormula.Object[0])));
+        }
+
+        return formula;
+    }
+
+    /**
+     * Flattens, removes duplicates and constants of AND or OR.
+     */
+    private static AirtableFormula.Object junction(AirtableFunction function, List<AirtableFormula.Object> arguments) {
+        boolean and = function == LogicalFunction.AND;
+        Set<AirtableFormula.Object> flattened = new LinkedHashSet<>();
+        flatten(function, arguments, flattened);
+
+        Iterator<AirtableFormula.Object> iterator = flattened.iterator();
+        while (iterator.hasNext()) {
+            Boolean constant = truthy(iterator.next());
+            if (constant == null) continue;
+
+            // AND(FALSE(),...) is always false, OR(TRUE(),...) is always true
+            if (constant != and) return AirtableFormula.Object.function(and ? LogicalFunction.FALSE : LogicalFunction.TRUE);
+            iterator.remove();
+        }
+
+        if (flattened.isEmpty()) {
+            return AirtableFormula.Object.function(and ? LogicalFunction.TRUE : LogicalFunction.FALSE);
+        }
+        return AirtableFormula.Object.function(function, flattened.toArray(new AirtableFormula.Object[0]));
+    }
+
+    private static void flatten(AirtableFunction function, List<AirtableFormula.Object> arguments, Set<AirtableFormula.Object> flattened) {
+        for (AirtableFormula.Object argument : arguments) {
+            if (is(argument, function)) {
+                flatten(function, ((AirtableFormula.Function) argument).getArguments(), flattened);
+            } else {
+                flattened.add(argument);
+            }
+        }
+    }
+
+    /**
+     * @return constant value of the formula if it doesn't depend on the record or time, else the same formula
+     */
+    private static AirtableFormula.Object fold(AirtableFormula.Object formula) {
+        if (!isConstant(formula) || truthy(formula) != null) return formula;
+
+        Object value;
+        try {
+            value = EVALUATOR.compile(formula).evaluate(EMPTY);
+        } catch (AirtableClientException e) {
+            return formula;
+        }
+
+        if (value == null) return AirtableFormula.Object.function(LogicalFunction.BLANK);
+        if (value instanceof Boolean) {
+            return AirtableFormula.Object.function((Boolean) value ? LogicalFunction.TRUE : LogicalFunction.FALSE);
+        }
+        if (value instanceof String) return AirtableFormula.Object.value((String) value);
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (Double.isNaN(number) || Double.isInfinite(number)) return formula;
+            if (number == Math.rint(number) && Math.abs(number) < 1e15) return AirtableFormula.Object.value((long) number);
+            return AirtableFormula.Object.value(number);
+        }
+        // Dates, arrays and errors are kept as they are
+        return formula;
+    }
+
+    private static boolean isConstant(AirtableFormula.Object formula) {
+        if (formula instanceof AirtableFormula.Numeric || formula instanceof AirtableFormula.Text) return true;
+        if (formula instanceof AirtableFormula.Parentheses) {
+            return isConstant(((AirtableFormula.Parentheses) formula).getObject());
+        }
+        if (formula instanceof AirtableFormula.Operation) {
+            AirtableFormula.Operation operation = (AirtableFormula.Operation) formula;
+            String symbol = operation.getOperator().symbol();
+            if (symbol == null || Builtins.operator(symbol) == null) return false;
+            return operation.getOperands().stream().allMatch(AirtableFormulaOptimizer::isConstant);
+        }
+        if (formula instanceof AirtableFormula.Function) {
+            AirtableFormula.Function function = (AirtableFormula.Function) formula;
+            AirtableFunction builtin = builtin(function.getFunction());
+            if (builtin == null || builtin instanceof Builtins.Named) return false;
+            if (builtin == DateTimeFunction.NOW || builtin == DateTimeFunction.TODAY || builtin == DateTimeFunction.TONOW) {
+                return false;
+            }
+            if (builtin instanceof RecordFunction) return false;
+            return function.getArguments().stream().allMatch(AirtableFormulaOptimizer::isConstant);
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the constant is truthy, null if not a constant
+     */
+    private static Boolean truthy(AirtableFormula.Object formula) {
+        if (formula instanceof AirtableFormula.Numeric) {
+            double number = ((AirtableFormula.Numeric) formula).getValue().doubleValue();
+            return number != 0 && !Double.isNaN(number);
+        }
+        if (formula instanceof AirtableFormula.Text) {
+            return !((AirtableFormula.Text) formula).getValue().isEmpty();
+        }
+        if (formula instanceof AirtableFormula.Function && ((AirtableFormula.Function) formula).getArguments().isEmpty()) {
+            AirtableFunction builtin = builtin(((AirtableFormula.Function) formula).getFunction());
+            if (builtin == LogicalFunction.TRUE) return true;
+            if (builtin == LogicalFunction.FALSE || builtin == LogicalFunction.BLANK) return false;
+        }
+        return null;
+    }
+
+    private static boolean is(AirtableFormula.Object formula, AirtableFunction function) {
+        return formula instanceof AirtableFormula.Function && builtin(((AirtableFormula.Function) formula).getFunction()) == function;
+    }
+
+    private static AirtableFunction builtin(AirtableFunction function) {
+        String name = function.name();
+        return name == null ? null : Builtins.function(name);
+    }
+
+    /**
+     * @return length of the formula once url encoded as a query parameter
+     */
+    static int encodedLength(AirtableFormula.Object formula) {
+        try {
+            return URLEncoder.encode(formula.toString(), "UTF-8").length();
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
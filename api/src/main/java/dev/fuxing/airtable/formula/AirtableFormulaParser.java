@@ -0,0 +1,282 @@
+package dev.fuxing.airtable.formula;
+
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a formula string into the expression tree of {@link AirtableFormula}.
+ * <p>
+ * Supports field references as {@code {Field Name}} or bare names, text in single or double quotes with backslash escapes,
+ * numbers, function calls, parentheses, and the operators by precedence:
+ * {@code * /}, {@code + -}, {@code &} (as CONCATENATE), then {@code = != < > <= >=}.
+ * Functions not built-in are kept by their name, they are rendered as is but can't be evaluated locally.
+ *
+ * <pre>
+ * AirtableFormula.Object formula = AirtableFormulaParser.parse("AND({Status} = 'Done', {Count} > 1)");
+ * </pre>
+ */
+public final class AirtableFormulaParser {
+    private final String text;
+    private int position;
+
+    private AirtableFormulaParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param formula to parse
+     * @return expression tree of the formula
+     * @throws AirtableClientException if the formula is not valid
+     */
+    public static AirtableFormula.Object parse(String formula) throws AirtableClientException {
+        AirtableFormulaParser parser = new AirtableFormulaParser(formula);
+        AirtableFormula.Object object = parser.comparison();
+        parser.skipWhitespace();
+        if (parser.position < formula.length()) {
+            throw parser.error("Unexpected '" + formula.charAt(parser.position) + "'");
+        }
+        return object;
+    }
+
+    private AirtableFormula.Object comparison() {
+        AirtableFormula.Object left = concatenation();
+        AirtableOperator chain = null;
+        List<AirtableFormula.Object> operands = new ArrayList<>();
+
+        while (true) {
+            AirtableOperator operator = comparisonOperator();
+            if (operator == null) break;
+
+            AirtableFormula.Object right = concatenation();
+            if (operator != chain) {
+                if (chain != null) left = operation(chain, operands);
+                operands.clear();
+                operands.add(left);
+                chain = operator;
+            }
+            operands.add(right);
+        }
+
+        return chain == null ? left : operation(chain, operands);
+    }
+
+    private AirtableOperator comparisonOperator() {
+        skipWhitespace();
+        if (consume("!=") || consume("<>")) return LogicalOperator.NEQ;
+        if (consume(">=")) return LogicalOperator.GTE;
+        if (consume("<=")) return LogicalOperator.LTE;
+        if (consume("=")) return LogicalOperator.EQ;
+        if (consume(">")) return LogicalOperator.GT;
+        if (consume("<")) return LogicalOperator.LT;
+        return null;
+    }
+
+    private AirtableFormula.Object concatenation() {
+        AirtableFormula.Object left = additive();
+        skipWhitespace();
+        if (!peek('&')) return left;
+
+        List<AirtableFormula.Object> arguments = new ArrayList<>();
+        arguments.add(left);
+        while (consume("&")) {
+            arguments.add(additive());
+            skipWhitespace();
+        }
+        return AirtableFormula.Object.function(TextFunction.CONCATENATE, arguments.toArray(new AirtableFormula.Object[0]));
+    }
+
+    private AirtableFormula.Object additive() {
+        return binary(true);
+    }
+
+    private AirtableFormula.Object multiplicative() {
+        return binary(false);
+    }
+
+    /**
+     * Left associative, a chain of the same operator is flattened into one operation.
+     */
+    private AirtableFormula.Object binary(boolean additive) {
+        AirtableFormula.Object left = additive ? multiplicative() : unary();
+        AirtableOperator chain = null;
+        List<AirtableFormula.Object> operands = new ArrayList<>();
+
+        while (true) {
+            skipWhitespace();
+            AirtableOperator operator;
+            if (additive && consume("+")) operator = NumericOperator.ADD;
+            else if (additive && consume("-")) operator = NumericOperator.SUBTRACT;
+            else if (!additive && consume("*")) operator = NumericOperator.MULTIPLY;
+            else if (!additive && consume("/")) operator = NumericOperator.DIVIDE;
+            else break;
+
+            AirtableFormula.Object right = additive ? multiplicative() : unary();
+            if (operator != chain) {
+                if (chain != null) left = operation(chain, operands);
+                operands.clear();
+                operands.add(left);
+                chain = operator;
+            }
+            operands.add(right);
+        }
+
+        return chain == null ? left : operation(chain, operands);
+    }
+
+    private AirtableFormula.Object unary() {
+        skipWhitespace();
+        if (!consume("-")) return primary();
+
+        skipWhitespace();
+        if (position < text.length() && isDigit(text.charAt(position))) {
+            return AirtableFormula.Object.value(number().negate());
+        }
+        return AirtableFormula.Object.operation(NumericOperator.SUBTRACT, AirtableFormula.Object.value(0), unary());
+    }
+
+    private AirtableFormula.Object primary() {
+        skipWhitespace();
+        if (position >= text.length()) throw error("Unexpected end of formula");
+
+        char c = text.charAt(position);
+        if (c == '(') {
+            position++;
+            AirtableFormula.Object object = comparison();
+            expect(')');
+            return AirtableFormula.Object.parentheses(object);
+        }
+        if (c == '{') return field();
+        if (c == '\'' || c == '"') return AirtableFormula.Object.value(text(c));
+        if (isDigit(c) || c == '.') return AirtableFormula.Object.value(number());
+        if (Character.isLetter(c) || c == '_') {
+            String name = identifier();
+            skipWhitespace();
+            if (consume("(")) return function(name);
+            return AirtableFormula.Object.field(name);
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private AirtableFormula.Object field() {
+        int end = text.indexOf('}', position + 1);
+        if (end == -1) throw error("Field is not closed with '}'");
+        String name = text.substring(position + 1, end);
+        position = end + 1;
+        return AirtableFormula.Object.field(name);
+    }
+
+    private AirtableFormula.Object function(String name) {
+        AirtableFunction function = Builtins.function(name);
+        List<AirtableFormula.Object> arguments = new ArrayList<>();
+
+        skipWhitespace();
+        if (!consume(")")) {
+            do {
+                arguments.add(comparison());
+                skipWhitespace();
+            } while (consume(","));
+            expect(')');
+        }
+        return AirtableFormula.Object.function(function, arguments.toArray(new AirtableFormula.Object[0]));
+    }
+
+    private String text(char quote) {
+        StringBuilder builder = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == quote) return builder.toString();
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+
+            if (position >= text.length()) break;
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                default:
+                    builder.append(escaped);
+            }
+        }
+        throw error("Text is not closed with " + quote);
+    }
+
+    private BigDecimal number() {
+        int start = position;
+        while (position < text.length() && (isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            position++;
+            if (position < text.length() && (text.charAt(position) == '+' || text.charAt(position) == '-')) {
+                position++;
+            }
+            while (position < text.length() && isDigit(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("Invalid number");
+        }
+    }
+
+    private String identifier() {
+        int start = position;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (!Character.isLetterOrDigit(c) && c != '_') break;
+            position++;
+        }
+        return text.substring(start, position);
+    }
+
+    private static AirtableFormula.Object operation(AirtableOperator operator, List<AirtableFormula.Object> operands) {
+        AirtableFormula.Object[] others = operands.subList(2, operands.size()).toArray(new AirtableFormula.Object[0]);
+        return AirtableFormula.Object.operation(operator, operands.get(0), operands.get(1), others);
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (!consume(String.valueOf(c))) throw error("Expected '" + c + "'");
+    }
+
+    private boolean consume(String token) {
+        if (!text.startsWith(token, position)) return false;
+        position += token.length();
+        return true;
+    }
+
+    private boolean peek(char c) {
+        return position < text.length() && text.charAt(position) == c;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private AirtableClientException error(String message) {
+        return new AirtableClientException(message + " at position " + position + " of formula: " + text);
+    }
+}
@@ -0,0 +1,172 @@
+package dev.fuxing.airtable.formula;
+
+import dev.fuxing.airtable.AirtableDates;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Formula with {@code ?} parameters, parsed and validated once, and bound to values for each request.
+ * Binding writes the parts of the template and the escaped values into a buffer sized up front,
+ * no formula objects are created per request.
+ * <p>
+ * Values are bound as:
+ * <ul>
+ * <li>{@code CharSequence}: text surrounded by ' with ' and \ escaped</li>
+ * <li>{@code Number}: number in plain notation</li>
+ * <li>{@code Boolean}: {@code TRUE()} or {@code FALSE()}</li>
+ * <li>{@code null}: {@code BLANK()}</li>
+ * <li>{@code Instant}, {@code Date}, {@code LocalDate}: ISO-8601 text</li>
+ * <li>{@link AirtableFormula.Object}: rendered formula, in parentheses if it's an operation</li>
+ * </ul>
+ * A {@code ?} inside text or a field name is not a parameter.
+ *
+ * <pre>
+ * AirtableFormulaTemplate byKey = AirtableFormulaTemplate.compile("{Key} = ?");
+ * table.list(querySpec -&gt; querySpec.filterByFormula(byKey, "O'Brien"));
+ * </pre>
+ */
+public final class AirtableFormulaTemplate {
+    private final String template;
+    private final String[] parts;
+    private final int partsLength;
+
+    private AirtableFormulaTemplate(String template, String[] parts) {
+        this.template = template;
+        this.parts = parts;
+
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+        this.partsLength = length;
+    }
+
+    /**
+     * @param template formula with {@code ?} parameters
+     * @return template ready to be bound
+     * @throws AirtableClientException if the formula is not valid
+     */
+    public static AirtableFormulaTemplate compile(String template) throws AirtableClientException {
+        List<String> parts = new ArrayList<>();
+        StringBuilder validation = new StringBuilder(template.length() + 8);
+
+        int start = 0;
+        char quote = 0;
+        boolean field = false;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') i++;
+                else if (c == quote) quote = 0;
+            } else if (field) {
+                if (c == '}') field = false;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '{') {
+                field = true;
+            } else if (c == '?') {
+                parts.add(template.substring(start, i));
+                validation.append(template, start, i).append("''");
+                start = i + 1;
+            }
+        }
+        parts.add(template.substring(start));
+        validation.append(template, start, template.length());
+
+        // Validated once with every parameter as text
+        AirtableFormulaParser.parse(validation.toString());
+        return new AirtableFormulaTemplate(template, parts.toArray(new String[0]));
+    }
+
+    /**
+     * @return number of {@code ?} parameters
+     */
+    public int getParameterCount() {
+        return parts.length - 1;
+    }
+
+    /**
+     * @param values of each parameter, in order
+     * @return formula with the values bound
+     * @throws AirtableClientException if the number of values don't match or a value is not supported
+     */
+    public String bind(Object... values) throws AirtableClientException {
+        if (values.length != parts.length - 1) {
+            throw new AirtableClientException("Template " + template + " expects " + (parts.length - 1) +
+                    " values but got " + values.length + ".");
+        }
+
+        int length = partsLength;
+        for (Object value : values) {
+            length += boundLength(value);
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(parts[0]);
+        for (int i = 0; i < values.length; i++) {
+            append(builder, values[i]);
+            builder.append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    private static int boundLength(Object value) {
+        if (value instanceof CharSequence) return AirtableFormula.Text.quotedLength((CharSequence) value);
+        // Numbers, dates and functions, resized if larger
+        return 26;
+    }
+
+    private static void append(StringBuilder builder, Object value) {
+        if (value == null) {
+            builder.append("BLANK()");
+        } else if (value instanceof CharSequence) {
+            AirtableFormula.Text.quote(builder, (CharSequence) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            builder.append(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            builder.append(plain((Number) value));
+        } else if (value instanceof Boolean) {
+            builder.append((Boolean) value ? "TRUE()" : "FALSE()");
+        } else if (value instanceof Instant) {
+            builder.append('\'').append(AirtableDates.format((Instant) value)).append('\'');
+        } else if (value instanceof Date) {
+            builder.append('\'').append(AirtableDates.format(((Date) value).getTime())).append('\'');
+        } else if (value instanceof LocalDate) {
+            builder.append('\'').append(AirtableDates.format((LocalDate) value)).append('\'');
+        } else if (value instanceof AirtableFormula.Operation) {
+            // The operators around the parameter are unknown, e.g. ? * 2
+            builder.append('(');
+            ((AirtableFormula.Operation) value).appendTo(builder);
+            builder.append(')');
+        } else if (value instanceof AirtableFormula.Object) {
+            ((AirtableFormula.Object) value).appendTo(builder);
+        } else {
+            throw new AirtableClientException("Value of " + value.getClass() + " can't be bound to a formula.");
+        }
+    }
+
+    private static String plain(Number number) {
+        if (number instanceof BigDecimal) return ((BigDecimal) number).toPlainString();
+
+        double value = number.doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new AirtableClientException("Number " + value + " can't be bound to a formula.");
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+    /**
+     * @return template with {@code ?} parameters
+     */
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -17,6 +17,13 @@ public interface AirtableFunction {
      */
     String apply(AirtableFormula.Object... objects);
 
+    /**
+     * @return name of the function, e.g. {@code AND}, or null if the function is only rendered by {@link #apply}
+     */
+    default String name() {
+        return null;
+    }
+
     /**
      * @param name    of the function
      * @param objects values to join inside
@@ -22,6 +22,13 @@ public interface AirtableOperator {
      */
     String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others);
 
+    /**
+     * @return symbol rendered between operands, e.g. {@code =}, or null if the operator is only rendered by {@link #apply}
+     */
+    default String symbol() {
+        return null;
+    }
+
     /**
      * @param operator symbol
      * @param left     value
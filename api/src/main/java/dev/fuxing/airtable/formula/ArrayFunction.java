@@ -12,41 +12,29 @@ public interface ArrayFunction extends AirtableFunction {
     /**
      * Removes empty strings and null values from the array. Keeps "false" and strings that contain one or more blank characters.
      */
-    ArrayFunction ARRAYCOMPACT = new ArrayFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("ARRAYCOMPACT", objects);
-        }
-    };
+    ArrayFunction ARRAYCOMPACT = () -> "ARRAYCOMPACT";
 
     /**
      * Flattens the array by removing any array nesting. All items become elements of a single array.
      */
-    ArrayFunction ARRAYFLATTEN = new ArrayFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("ARRAYFLATTEN", objects);
-        }
-    };
+    ArrayFunction ARRAYFLATTEN = () -> "ARRAYFLATTEN";
 
 
     /**
      * Join the array of items into a string with a separator.
      */
-    ArrayFunction ARRAYJOIN = new ArrayFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("ARRAYJOIN", objects);
-        }
-    };
+    ArrayFunction ARRAYJOIN = () -> "ARRAYJOIN";
 
     /**
      * Returns only unique items in the array.
      */
-    ArrayFunction ARRAYUNIQUE = new ArrayFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("ARRAYUNIQUE", objects);
-        }
-    };
+    ArrayFunction ARRAYUNIQUE = () -> "ARRAYUNIQUE";
+
+    @Override
+    String name();
+
+    @Override
+    default String apply(AirtableFormula.Object... objects) {
+        return AirtableFormula.Object.function(this, objects).toString();
+    }
 }
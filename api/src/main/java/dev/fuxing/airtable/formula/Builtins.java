@@ -0,0 +1,99 @@
+package dev.fuxing.airtable.formula;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Built-in operators by symbol and functions by name, for formulas parsed from strings.
+ */
+final class Builtins {
+    private static final Map<String, AirtableOperator> OPERATORS = new HashMap<>();
+    private static final Map<String, AirtableFunction> FUNCTIONS = new HashMap<>();
+
+    static {
+        operators(LogicalOperator.EQ, LogicalOperator.NEQ, LogicalOperator.GT, LogicalOperator.GTE,
+                LogicalOperator.LT, LogicalOperator.LTE);
+        operators(NumericOperator.ADD, NumericOperator.SUBTRACT, NumericOperator.MULTIPLY, NumericOperator.DIVIDE);
+
+        functions(LogicalFunction.AND, LogicalFunction.OR, LogicalFunction.NOT, LogicalFunction.XOR, LogicalFunction.IF,
+                LogicalFunction.TRUE, LogicalFunction.FALSE, LogicalFunction.BLANK);
+        functions(TextFunction.LEN, TextFunction.LOWER, TextFunction.UPPER, TextFunction.TRIM,
+                TextFunction.CONCATENATE, TextFunction.FIND, TextFunction.SEARCH);
+        functions(NumericFunction.ABS, NumericFunction.AVERAGE);
+        functions(DateTimeFunction.SECOND, DateTimeFunction.MINUTE, DateTimeFunction.HOUR, DateTimeFunction.DAY,
+                DateTimeFunction.MONTH, DateTimeFunction.YEAR, DateTimeFunction.NOW, DateTimeFunction.TODAY,
+                DateTimeFunction.TONOW, DateTimeFunction.IS_AFTER, DateTimeFunction.IS_BEFORE);
+        functions(ArrayFunction.ARRAYCOMPACT, ArrayFunction.ARRAYFLATTEN, ArrayFunction.ARRAYJOIN, ArrayFunction.ARRAYUNIQUE);
+        functions(RecordFunction.CREATED_TIME, RecordFunction.RECORD_ID);
+
+        // Aliases
+        FUNCTIONS.put("FROMNOW", DateTimeFunction.FROMNOW);
+    }
+
+    private Builtins() {
+    }
+
+    private static void operators(AirtableOperator... operators) {
+        for (AirtableOperator operator : operators) {
+            OPERATORS.put(operator.symbol(), operator);
+        }
+    }
+
+    private static void functions(AirtableFunction... functions) {
+        for (AirtableFunction function : functions) {
+            FUNCTIONS.put(function.name(), function);
+        }
+    }
+
+    /**
+     * @param symbol of the operator
+     * @return built-in operator, or null if not found
+     */
+    static AirtableOperator operator(String symbol) {
+        return OPERATORS.get(symbol);
+    }
+
+    /**
+     * @param name of the function, case insensitive
+     * @return built-in function, or a function only known by its name
+     */
+    static AirtableFunction function(String name) {
+        String upper = name.toUpperCase(Locale.ROOT);
+        AirtableFunction function = FUNCTIONS.get(upper);
+        return function != null ? function : new Named(upper);
+    }
+
+    /**
+     * Function not built-in, only rendered and compared by its name.
+     */
+    static final class Named implements AirtableFunction {
+        private final String name;
+
+        private Named(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String apply(AirtableFormula.Object... objects) {
+            return AirtableFormula.Object.function(this, objects).toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return name.equals(((Named) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+}
@@ -12,92 +12,70 @@ public interface DateTimeFunction extends AirtableFunction {
     /**
      * Returns the second of a datetime as an integer between 0 and 59.
      */
-    DateTimeFunction SECOND = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("SECOND", objects);
-        }
-    };
+    DateTimeFunction SECOND = () -> "SECOND";
 
     /**
      * Returns the minute of a datetime as an integer between 0 and 59.
      */
-    DateTimeFunction MINUTE = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("MINUTE", objects);
-        }
-    };
+    DateTimeFunction MINUTE = () -> "MINUTE";
 
     /**
      * Returns the day of the month of a datetime in the form of a number between 1-31.
      */
-    DateTimeFunction DAY = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("DAY", objects);
-        }
-    };
+    DateTimeFunction DAY = () -> "DAY";
 
     /**
      * Returns the hour of a datetime as a number between 0 (12:00am) and 23 (11:00pm).
      */
-    DateTimeFunction HOUR = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("HOUR", objects);
-        }
-    };
+    DateTimeFunction HOUR = () -> "HOUR";
 
     /**
      * Returns the month of a datetime as a number between 1 (January) and 12 (December).
      */
-    DateTimeFunction MONTH = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("MONTH", objects);
-        }
-    };
+    DateTimeFunction MONTH = () -> "MONTH";
 
     /**
      * Returns the four-digit year of a datetime.
      */
-    DateTimeFunction YEAR = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("YEAR", objects);
-        }
-    };
+    DateTimeFunction YEAR = () -> "YEAR";
 
     /**
      * Returns the current date and time.
      * (Note that the results of these functions change only when the formula is recalculated or a base is loaded. They are not updated continuously.)
      */
-    DateTimeFunction NOW = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("NOW", objects);
-        }
-    };
+    DateTimeFunction NOW = () -> "NOW";
 
     /**
-     * Returns the current date and time.
+     * Returns the current date, without the time.
      * (Note that the results of these functions change only when the formula is recalculated or a base is loaded. They are not updated continuously.)
      */
-    DateTimeFunction TODAY = NOW;
+    DateTimeFunction TODAY = () -> "TODAY";
 
     /**
      * Calculates the number of days between the current date and another date.
      */
-    DateTimeFunction TONOW = new DateTimeFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("TONOW", objects);
-        }
-    };
+    DateTimeFunction TONOW = () -> "TONOW";
 
     /**
      * Calculates the number of days between the current date and another date.
      */
     DateTimeFunction FROMNOW = TONOW;
+
+    /**
+     * Determines if [date1] is later than [date2]. Returns 1 if yes, 0 if no.
+     */
+    DateTimeFunction IS_AFTER = () -> "IS_AFTER";
+
+    /**
+     * Determines if [date1] is earlier than [date2]. Returns 1 if yes, 0 if no.
+     */
+    DateTimeFunction IS_BEFORE = () -> "IS_BEFORE";
+
+    @Override
+    String name();
+
+    @Override
+    default String apply(AirtableFormula.Object... objects) {
+        return AirtableFormula.Object.function(this, objects).toString();
+    }
 }
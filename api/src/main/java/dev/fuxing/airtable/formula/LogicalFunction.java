@@ -12,10 +12,50 @@ public interface LogicalFunction extends AirtableFunction {
     /**
      * Returns true if all the arguments are true, returns false otherwise.
      */
-    LogicalFunction AND = new LogicalFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("AND", objects);
-        }
-    };
+    LogicalFunction AND = () -> "AND";
+
+    /**
+     * Returns true if any one of the arguments is true.
+     */
+    LogicalFunction OR = () -> "OR";
+
+    /**
+     * Reverses the logical value of its argument.
+     */
+    LogicalFunction NOT = () -> "NOT";
+
+    /**
+     * Returns true if an odd number of arguments are true.
+     */
+    LogicalFunction XOR = () -> "XOR";
+
+    /**
+     * Returns value1 if the logical argument is true, otherwise it returns value2, or blank if omitted.
+     * <p>
+     * {@code IF(logical, value1, value2)}
+     */
+    LogicalFunction IF = () -> "IF";
+
+    /**
+     * Logical value true, the value of true is 1.
+     */
+    LogicalFunction TRUE = () -> "TRUE";
+
+    /**
+     * Logical value false, the value of false is 0.
+     */
+    LogicalFunction FALSE = () -> "FALSE";
+
+    /**
+     * Returns a blank value.
+     */
+    LogicalFunction BLANK = () -> "BLANK";
+
+    @Override
+    String name();
+
+    @Override
+    default String apply(AirtableFormula.Object... objects) {
+        return AirtableFormula.Object.function(this, objects).toString();
+    }
 }
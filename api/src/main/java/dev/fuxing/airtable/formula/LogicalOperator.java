@@ -12,60 +12,41 @@ public interface LogicalOperator extends AirtableOperator {
     /**
      * Greater than
      */
-    LogicalOperator GT = new LogicalOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator(">", left, right);
-        }
-    };
+    LogicalOperator GT = () -> ">";
 
     /**
      * Less than
      */
-    LogicalOperator LT = new LogicalOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("<", left, right);
-        }
-    };
+    LogicalOperator LT = () -> "<";
 
     /**
      * Greater than or equal to
      */
-    LogicalOperator GTE = new LogicalOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator(">=", left, right);
-        }
-    };
+    LogicalOperator GTE = () -> ">=";
 
     /**
      * Less than or equal to
      */
-    LogicalOperator LTE = new LogicalOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("<=", left, right);
-        }
-    };
+    LogicalOperator LTE = () -> "<=";
 
     /**
      * Equal to
      */
-    LogicalOperator EQ = new LogicalOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("=", left, right);
-        }
-    };
+    LogicalOperator EQ = () -> "=";
 
     /**
      * Not equal to
      */
-    LogicalOperator NEQ = new LogicalOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("!=", left, right);
-        }
-    };
+    LogicalOperator NEQ = () -> "!=";
+
+    @Override
+    String symbol();
+
+    /**
+     * Compares left and right, then the result with every other value, left to right: {@code a=b=c} is {@code (a=b)=c}.
+     */
+    @Override
+    default String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
+        return AirtableFormula.Object.operation(this, left, right, others).toString();
+    }
 }
@@ -12,20 +12,18 @@ public interface NumericFunction extends AirtableFunction {
     /**
      * Returns the absolute value.
      */
-    NumericFunction ABS = new NumericFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("ABS", objects);
-        }
-    };
+    NumericFunction ABS = () -> "ABS";
 
     /**
      * Returns the average of the numbers.
      */
-    NumericFunction AVERAGE = new NumericFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("AVERAGE", objects);
-        }
-    };
+    NumericFunction AVERAGE = () -> "AVERAGE";
+
+    @Override
+    String name();
+
+    @Override
+    default String apply(AirtableFormula.Object... objects) {
+        return AirtableFormula.Object.function(this, objects).toString();
+    }
 }
@@ -12,40 +12,28 @@ public interface NumericOperator extends AirtableOperator {
     /**
      * Add together two numeric values
      */
-    NumericOperator ADD = new NumericOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("+", left, right, others);
-        }
-    };
+    NumericOperator ADD = () -> "+";
 
     /**
      * Subtract two numeric values
      */
-    NumericOperator SUBTRACT = new NumericOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("-", left, right, others);
-        }
-    };
+    NumericOperator SUBTRACT = () -> "-";
 
     /**
      * Multiply two numeric values
      */
-    NumericOperator MULTIPLY = new NumericOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("*", left, right, others);
-        }
-    };
+    NumericOperator MULTIPLY = () -> "*";
 
     /**
      * Divide two numeric values
      */
-    NumericOperator DIVIDE = new NumericOperator() {
-        @Override
-        public String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
-            return operator("/", left, right, others);
-        }
-    };
+    NumericOperator DIVIDE = () -> "/";
+
+    @Override
+    String symbol();
+
+    @Override
+    default String apply(AirtableFormula.Object left, AirtableFormula.Object right, AirtableFormula.Object... others) {
+        return AirtableFormula.Object.operation(this, left, right, others).toString();
+    }
 }
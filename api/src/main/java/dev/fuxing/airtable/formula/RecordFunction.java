@@ -12,10 +12,26 @@ public interface RecordFunction extends AirtableFunction {
     /**
      * Returns the creation time of the current record.
      */
-    RecordFunction CREATED_TIME = s -> "CREATED_TIME()";
+    RecordFunction CREATED_TIME = () -> "CREATED_TIME";
 
     /**
      * Returns the ID of the current record.
      */
-    RecordFunction RECORD_ID = s -> "RECORD_ID()";
+    RecordFunction RECORD_ID = () -> "RECORD_ID";
+
+    /**
+     * Returns the date and time of the most recent modification made by a user in a non-computed field in the table.
+     */
+    RecordFunction LAST_MODIFIED_TIME = () -> "LAST_MODIFIED_TIME";
+
+    @Override
+    String name();
+
+    /**
+     * Record functions have no arguments, objects are ignored.
+     */
+    @Override
+    default String apply(AirtableFormula.Object... objects) {
+        return AirtableFormula.Object.function(this).toString();
+    }
 }
@@ -12,42 +12,22 @@ public interface TextFunction extends AirtableFunction {
     /**
      * Returns the length of a string.
      */
-    TextFunction LEN = new TextFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("LEN", objects);
-        }
-    };
+    TextFunction LEN = () -> "LEN";
 
     /**
      * Makes a string lowercase.
      */
-    TextFunction LOWER = new TextFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("LOWER", objects);
-        }
-    };
+    TextFunction LOWER = () -> "LOWER";
 
     /**
      * Makes string uppercase.
      */
-    TextFunction UPPER = new TextFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("UPPER", objects);
-        }
-    };
+    TextFunction UPPER = () -> "UPPER";
 
     /**
      * Removes whitespace at the beginning and end of string.
      */
-    TextFunction TRIM = new TextFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("TRIM", objects);
-        }
-    };
+    TextFunction TRIM = () -> "TRIM";
 
     /**
      * Joins together the text arguments into a single text value.
@@ -56,10 +36,28 @@ public interface TextFunction extends AirtableFunction {
      * <p>
      * Equivalent to use of the '&#x26;' operator.
      */
-    TextFunction CONCATENATE = new TextFunction() {
-        @Override
-        public String apply(AirtableFormula.Object... objects) {
-            return function("CONCATENATE", objects);
-        }
-    };
+    TextFunction CONCATENATE = () -> "CONCATENATE";
+
+    /**
+     * Finds an occurrence of stringToFind in whereToSearch string starting from an optional startFromPosition.
+     * Returns the position of the first character, or 0 if no occurrence is found.
+     * <p>
+     * {@code FIND(stringToFind, whereToSearch, [startFromPosition])}
+     */
+    TextFunction FIND = () -> "FIND";
+
+    /**
+     * Same as {@link #FIND}, but returns blank if no occurrence is found.
+     * <p>
+     * {@code SEARCH(stringToFind, whereToSearch, [startFromPosition])}
+     */
+    TextFunction SEARCH = () -> "SEARCH";
+
+    @Override
+    String name();
+
+    @Override
+    default String apply(AirtableFormula.Object... objects) {
+        return AirtableFormula.Object.function(this, objects).toString();
+    }
 }
@@ -0,0 +1,243 @@
+package dev.fuxing.airtable.limit;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) concurrency limiter, with a separate limit per base.
+ * <p>
+ * Every successful response grows the limit by {@code 1 / limit}, about 1 per round trip of the full window,
+ * as long as the limit is actually being used.
+ * A 429 response, or a latency above the threshold, cuts the limit by the backoff ratio.
+ * Only one cut happens per window: outcomes of requests sent before the last cut are not counted again.
+ * <p>
+ * The connection pool size of the executor is the hard ceiling, this limiter finds the level Airtable tolerates underneath it.
+ */
+public final class AdaptiveConcurrencyLimiter implements AirtableConcurrencyLimiter {
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    /**
+     * Initial limit of 4, ranging from 1 to 100, halved on 429 or latency above 5 seconds.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(4, 1, 100);
+    }
+
+    /**
+     * Halved on 429 or latency above 5 seconds.
+     *
+     * @param initialLimit in-flight requests per base to start with
+     * @param minLimit     lowest in-flight requests per base, minimum 1
+     * @param maxLimit     highest in-flight requests per base, should not exceed the connection pool size
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 0.5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param initialLimit     in-flight requests per base to start with
+     * @param minLimit         lowest in-flight requests per base, minimum 1
+     * @param maxLimit         highest in-flight requests per base, should not exceed the connection pool size
+     * @param backoffRatio     multiplier applied to the limit on 429 or slow response, between 0 and 1
+     * @param latencyThreshold latency above which a response is treated like a 429
+     * @param timeUnit         of latencyThreshold
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThreshold, TimeUnit timeUnit) {
+        if (minLimit < 1) throw new IllegalArgumentException("minLimit must be at least 1");
+        if (maxLimit < minLimit) throw new IllegalArgumentException("maxLimit must not be lower than minLimit");
+        if (backoffRatio <= 0 || backoffRatio >= 1) throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+
+        this.initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = timeUnit.toNanos(latencyThreshold);
+    }
+
+    @Override
+    public Listener acquire(String base) throws InterruptedException {
+        Bucket bucket = buckets.computeIfAbsent(base, s -> new Bucket());
+        return bucket.acquire();
+    }
+
+    /**
+     * @param base id of the app. (prefixed with 'app')
+     * @return current limit of in-flight requests for the base
+     */
+    public int getLimit(String base) {
+        Bucket bucket = buckets.get(base);
+        if (bucket == null) return initialLimit;
+        return bucket.metrics().getLimit();
+    }
+
+    /**
+     * @param base id of the app. (prefixed with 'app')
+     * @return Metrics of the base
+     */
+    public Metrics metrics(String base) {
+        Bucket bucket = buckets.get(base);
+        if (bucket == null) return new Metrics(initialLimit, 0, 0, 0, 0);
+        return bucket.metrics();
+    }
+
+    /**
+     * @return Metrics of all bases that requests have been sent to
+     */
+    public Map<String, Metrics> metrics() {
+        Map<String, Metrics> metrics = new HashMap<>();
+        buckets.forEach((base, bucket) -> metrics.put(base, bucket.metrics()));
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    private final class Bucket {
+        private double limit = initialLimit;
+        private int inFlight;
+        private long lastDropNanos = System.nanoTime();
+
+        private long completed;
+        private long dropped;
+
+        private long windowStartNanos = System.nanoTime();
+        private long windowCompleted;
+        private double throughput;
+
+        private synchronized Listener acquire() throws InterruptedException {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+            inFlight++;
+
+            long startNanos = System.nanoTime();
+            return new Listener() {
+                @Override
+                public void onSuccess(long latencyNanos) {
+                    release(startNanos, latencyNanos > latencyThresholdNanos);
+                }
+
+                @Override
+                public void onDropped() {
+                    release(startNanos, true);
+                }
+
+                @Override
+                public void onIgnore() {
+                    synchronized (Bucket.this) {
+                        inFlight--;
+                        Bucket.this.notifyAll();
+                    }
+                }
+            };
+        }
+
+        private synchronized void release(long startNanos, boolean drop) {
+            int utilized = inFlight;
+            inFlight--;
+
+            long now = System.nanoTime();
+            if (drop) {
+                dropped++;
+                // Only one decrease per window, requests sent before the last decrease are already accounted
+                if (startNanos - lastDropNanos > 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDropNanos = now;
+                }
+            } else {
+                completed++;
+                windowCompleted++;
+                // Only grow if the limit is actually used, or it will grow unbounded when idle
+                if (utilized * 2 >= (int) limit) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+
+            long elapsed = now - windowStartNanos;
+            if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+                throughput = windowCompleted * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                windowCompleted = 0;
+                windowStartNanos = now;
+            }
+
+            notifyAll();
+        }
+
+        private synchronized Metrics metrics() {
+            return new Metrics((int) limit, inFlight, completed, dropped, throughput);
+        }
+    }
+
+    /**
+     * Point in time metrics of a base.
+     */
+    public static final class Metrics {
+        private final int limit;
+        private final int inFlight;
+        private final long completed;
+        private final long dropped;
+        private final double throughput;
+
+        Metrics(int limit, int inFlight, long completed, long dropped, double throughput) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.completed = completed;
+            this.dropped = dropped;
+            this.throughput = throughput;
+        }
+
+        /**
+         * @return current limit of in-flight requests
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * @return requests currently in-flight
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * @return total requests completed
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return total requests dropped, 429 or slow response
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return completed requests per second, over the last window of at least 1 second
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "limit=" + limit +
+                    ", inFlight=" + inFlight +
+                    ", completed=" + completed +
+                    ", dropped=" + dropped +
+                    ", throughput=" + throughput +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.fuxing.airtable.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Penalty state per base, shared by every caller of the same instance.
+ * <p>
+ * Airtable locks out a base for 30 seconds after a 429, and any request sent during the lockout extends it.
+ * The first 429 received for a base pauses all outgoing traffic to that base until the penalty expires.
+ * Queued calls are then released one ramp interval apart instead of all at once.
+ * <p>
+ * Use {@link #shared()} for a JVM wide instance, executors with auto retry use it unless another backoff is set.
+ */
+public final class AirtableBackoff {
+    private static final AirtableBackoff SHARED = new AirtableBackoff(30_001, 200, TimeUnit.MILLISECONDS);
+
+    private final ConcurrentMap<String, Penalty> penalties = new ConcurrentHashMap<>();
+
+    private final long penaltyNanos;
+    private final long rampNanos;
+
+    /**
+     * @param penalty      duration to pause a base after a 429
+     * @param rampInterval duration between each queued call released after the penalty
+     * @param timeUnit     of penalty and rampInterval
+     */
+    public AirtableBackoff(long penalty, long rampInterval, TimeUnit timeUnit) {
+        this.penaltyNanos = timeUnit.toNanos(penalty);
+        this.rampNanos = timeUnit.toNanos(rampInterval);
+    }
+
+    /**
+     * @return JVM wide AirtableBackoff, 30 seconds penalty with queued calls released 200ms apart (5 per second)
+     */
+    public static AirtableBackoff shared() {
+        return SHARED;
+    }
+
+    /**
+     * Start the penalty of a base, if it's not already penalized.
+     * 429 from requests that were in-flight when the penalty started do not extend it.
+     *
+     * @param base id of the app. (prefixed with 'app')
+     */
+    public void penalize(String base) {
+        penalties.computeIfAbsent(base, s -> new Penalty()).penalize(System.nanoTime());
+    }
+
+    /**
+     * @param base id of the app. (prefixed with 'app')
+     * @return whether the base is currently penalized
+     */
+    public boolean isPenalized(String base) {
+        return remaining(base, TimeUnit.NANOSECONDS) > 0;
+    }
+
+    /**
+     * @param base     id of the app. (prefixed with 'app')
+     * @param timeUnit to convert remaining duration into
+     * @return remaining duration of the penalty, 0 if not penalized
+     */
+    public long remaining(String base, TimeUnit timeUnit) {
+        Penalty penalty = penalties.get(base);
+        if (penalty == null) return 0;
+        return timeUnit.convert(penalty.remaining(System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Block until the base is not penalized and it's the turn of this call in the ramp.
+     * Returns immediately if the base was never penalized or the ramp has drained.
+     *
+     * @param base id of the app. (prefixed with 'app')
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void await(String base) throws InterruptedException {
+        Penalty penalty = penalties.get(base);
+        if (penalty == null) return;
+
+        while (true) {
+            long wait = penalty.reserve(System.nanoTime());
+            if (wait <= 0) return;
+
+            TimeUnit.NANOSECONDS.sleep(wait);
+            // Penalized again while waiting in the ramp, queue up again
+            if (penalty.remaining(System.nanoTime()) <= 0) return;
+        }
+    }
+
+    private final class Penalty {
+        private boolean penalized;
+        private long until;
+        private long cursor;
+
+        private synchronized void penalize(long now) {
+            if (penalized && until - now > 0) return;
+
+            penalized = true;
+            until = now + penaltyNanos;
+            cursor = until;
+        }
+
+        private synchronized long remaining(long now) {
+            if (!penalized) return 0;
+            return Math.max(0, until - now);
+        }
+
+        /**
+         * @return nanos to wait for the reserved slot, 0 if no wait is required
+         */
+        private synchronized long reserve(long now) {
+            if (!penalized) return 0;
+
+            if (until - now <= 0 && cursor - now <= 0) {
+                // Penalty expired and ramp drained
+                penalized = false;
+                return 0;
+            }
+
+            long slot = cursor - until > 0 ? cursor : until;
+            cursor = slot + rampNanos;
+            return slot - now;
+        }
+    }
+}
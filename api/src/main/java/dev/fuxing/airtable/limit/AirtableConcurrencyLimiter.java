@@ -0,0 +1,40 @@
+package dev.fuxing.airtable.limit;
+
+/**
+ * Limits the number of in-flight requests per base.
+ * <p>
+ * A permit is acquired before every request (including retries) sent through an Executor built with
+ * {@link dev.fuxing.airtable.AirtableExecutor#builder()}, the outcome of the request is reported back to the returned listener.
+ */
+@FunctionalInterface
+public interface AirtableConcurrencyLimiter {
+
+    /**
+     * Block until a request to the base is permitted to be in-flight.
+     *
+     * @param base id of the app. (prefixed with 'app')
+     * @return Listener, exactly one of the method must be called to release the permit
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    Listener acquire(String base) throws InterruptedException;
+
+    interface Listener {
+
+        /**
+         * Request completed with a response from airtable.
+         *
+         * @param latencyNanos time taken from sending the request to receiving the response
+         */
+        void onSuccess(long latencyNanos);
+
+        /**
+         * Request rejected by airtable with status 429, too many request.
+         */
+        void onDropped();
+
+        /**
+         * Request failed without a response, e.g. IOException. Outcome should be ignored.
+         */
+        void onIgnore();
+    }
+}
@@ -0,0 +1,22 @@
+package dev.fuxing.airtable.limit;
+
+/**
+ * Airtable rate limits each base to 5 requests per second, across all API keys.
+ * If you exceed this rate, you will receive a 429 status code and will need to wait 30 seconds before subsequent requests will succeed.
+ * <p>
+ * A rate limiter is consulted before every request (including retries) sent through an Executor built with
+ * {@link dev.fuxing.airtable.AirtableExecutor#builder()}.
+ *
+ * @see <a href="https://airtable.com/api">Airtable: Rate Limits</a>
+ */
+@FunctionalInterface
+public interface AirtableRateLimiter {
+
+    /**
+     * Block until a request to the base is permitted to be sent.
+     *
+     * @param base id of the app. (prefixed with 'app')
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void acquire(String base) throws InterruptedException;
+}
@@ -0,0 +1,235 @@
+package dev.fuxing.airtable.limit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rate limiter shared by every JVM on the same host that opens the same file.
+ * <p>
+ * The file is memory-mapped and holds one slot per base.
+ * Each slot is a GCRA (generic cell rate algorithm) token bucket, stored as a single theoretical arrival time.
+ * A slot is read and updated under an exclusive lock of the file, held only for the update and never while waiting,
+ * threads of the same JVM are serialized before locking the file as file locks are held by the whole JVM.
+ * <p>
+ * Because a permit is a reservation in time rather than a token held by a process,
+ * a participant that crashed never leaks tokens; its reservations simply expire.
+ * <p>
+ * Wall clock is used as it is the only clock shared across processes.
+ * A slot that is ahead of the clock by more than {@link #MAX_DRIFT_MICROS} (e.g. clock went backwards) is reset.
+ *
+ * <pre>
+ * SharedRateLimiter limiter = SharedRateLimiter.open(Paths.get("/tmp/airtable.limit"));
+ * Executor executor = AirtableExecutor.builder()
+ *      .rateLimiter(limiter)
+ *      .build();
+ * </pre>
+ */
+public final class SharedRateLimiter implements AirtableRateLimiter, Closeable {
+    static final long MAGIC = 0x4149525441424C45L;
+    static final int SLOTS = 1024;
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 16;
+    static final int FILE_SIZE = HEADER_SIZE + SLOTS * SLOT_SIZE;
+
+    static final long MAX_DRIFT_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    // File locks are held by the JVM, overlapping locks from threads of the same JVM are not allowed
+    private static final ReentrantLock JVM_LOCK = new ReentrantLock();
+    private static final long LOCK_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private final long interval;
+    private final long tolerance;
+
+    private SharedRateLimiter(FileChannel channel, MappedByteBuffer buffer, double permitsPerSecond, int burst) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        this.interval = (long) (TimeUnit.SECONDS.toMicros(1) / permitsPerSecond);
+        this.tolerance = interval * (burst - 1);
+
+        FileLock lock = lock();
+        try {
+            long magic = buffer.getLong(0);
+            if (magic == 0) {
+                buffer.putLong(0, MAGIC);
+            } else if (magic != MAGIC) {
+                throw new IllegalStateException("File is not a SharedRateLimiter file.");
+            }
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * Airtable default of 5 requests per second per base, with no burst.
+     *
+     * @param file to memory-map, all participants must use the same path
+     * @return SharedRateLimiter
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static SharedRateLimiter open(Path file) throws IOException {
+        return open(file, 5, 1);
+    }
+
+    /**
+     * All participants of the same file should use the same rate and burst.
+     *
+     * @param file             to memory-map, all participants must use the same path
+     * @param permitsPerSecond per base, shared across all participants
+     * @param burst            maximum permits that can be granted at once, minimum 1
+     * @return SharedRateLimiter
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static SharedRateLimiter open(Path file, double permitsPerSecond, int burst) throws IOException {
+        if (permitsPerSecond <= 0) throw new IllegalArgumentException("permitsPerSecond must be positive");
+        if (burst < 1) throw new IllegalArgumentException("burst must be at least 1");
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            return new SharedRateLimiter(channel, buffer, permitsPerSecond, burst);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void acquire(String base) throws InterruptedException {
+        long key = hash(base);
+
+        while (true) {
+            long wait;
+            FileLock lock = lockInterruptibly();
+            try {
+                int slot = slot(key) + 8;
+                long now = now();
+                long tat = buffer.getLong(slot);
+                long start = Math.max(tat, now);
+                wait = start - now - tolerance;
+
+                if (wait > MAX_DRIFT_MICROS) {
+                    // Clock skew or a corrupted slot, reset it instead of waiting forever
+                    buffer.putLong(slot, now + interval);
+                    return;
+                }
+
+                if (wait <= 0) {
+                    buffer.putLong(slot, start + interval);
+                    return;
+                }
+            } finally {
+                unlock(lock);
+            }
+
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(wait));
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Must be called with the file locked.
+     *
+     * @param key hash of the base
+     * @return index of the slot claimed for the base
+     */
+    private int slot(long key) {
+        int index = (int) ((key ^ (key >>> 32)) & (SLOTS - 1));
+
+        for (int i = 0; i < SLOTS; i++) {
+            int slot = HEADER_SIZE + ((index + i) & (SLOTS - 1)) * SLOT_SIZE;
+            long current = buffer.getLong(slot);
+            if (current == key) return slot;
+
+            if (current == 0) {
+                buffer.putLong(slot, key);
+                return slot;
+            }
+        }
+
+        throw new IllegalStateException("SharedRateLimiter is full, more than " + SLOTS + " bases.");
+    }
+
+    private FileLock lock() throws IOException {
+        JVM_LOCK.lock();
+        try {
+            return lockFile();
+        } catch (IOException | RuntimeException | Error e) {
+            JVM_LOCK.unlock();
+            throw e;
+        }
+    }
+
+    private FileLock lockInterruptibly() throws InterruptedException {
+        JVM_LOCK.lockInterruptibly();
+        try {
+            return lockFile();
+        } catch (IOException e) {
+            JVM_LOCK.unlock();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            JVM_LOCK.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * FileChannel.lock closes the channel if the thread is interrupted, tryLock is retried instead.
+     */
+    private FileLock lockFile() throws IOException {
+        while (true) {
+            FileLock lock = channel.tryLock(0, FILE_SIZE, false);
+            if (lock != null) return lock;
+            LockSupport.parkNanos(this, LOCK_RETRY_NANOS);
+        }
+    }
+
+    private static void unlock(FileLock lock) {
+        try {
+            lock.release();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            JVM_LOCK.unlock();
+        }
+    }
+
+    /**
+     * @param base id of the app
+     * @return FNV-1a 64 bit hash, never 0 as 0 marks an empty slot
+     */
+    static long hash(String base) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : base.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long now() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    /**
+     * Closing the channel releases any file lock but do not unmap the file,
+     * the mapping is released when this limiter is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
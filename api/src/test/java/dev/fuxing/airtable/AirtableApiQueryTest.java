@@ -7,12 +7,13 @@ import dev.fuxing.airtable.formula.NumericOperator;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import java.net.URI;
 import java.time.ZoneId;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Locale;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static dev.fuxing.airtable.formula.AirtableFormula.Object.*;
@@ -93,6 +94,88 @@ class AirtableApiQueryTest {
         Assertions.assertEquals(3, size);
     }
 
+    @Test
+    void lazy() {
+        AirtableApi.Table lazy = api.app("app3h0gjxLX3Jomw8").table("Test Table", AirtableReader.LAZY);
+
+        List<AirtableRecord> expected = table.list();
+        List<AirtableRecord> actual = lazy.list();
+        Assertions.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            Assertions.assertEquals(expected.get(i).getCreatedTime(), actual.get(i).getCreatedTime());
+            Assertions.assertEquals(expected.get(i).getFieldString("Name"), actual.get(i).getFieldString("Name"));
+            Assertions.assertEquals(expected.get(i).getFields(), actual.get(i).getFields());
+        }
+    }
+
+    @Test
+    void publish() {
+        List<AirtableRecord> records = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        table.publish(querySpec -> querySpec.pageSize(2)).subscribe(new Subscriber<AirtableRecord>() {
+            Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(AirtableRecord record) {
+                records.add(record);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assertions.fail(throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                completed.set(true);
+            }
+        });
+
+        Assertions.assertTrue(completed.get());
+        Assertions.assertEquals(3, records.size());
+    }
+
+    @Test
+    void publishCancel() {
+        List<AirtableRecord> records = new ArrayList<>();
+
+        table.publish(querySpec -> querySpec.pageSize(2)).subscribe(new Subscriber<AirtableRecord>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(1);
+                subscription.cancel();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(AirtableRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assertions.fail(throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                Assertions.fail("Cancelled subscription should not complete");
+            }
+        });
+
+        Assertions.assertEquals(1, records.size());
+    }
+
     @Test
     void listFormula() {
         AirtableTable.PaginationList list = table.list(querySpec -> {
@@ -138,6 +138,26 @@ class AirtableApiTest {
         assertEquals(12345, patched.getFieldInteger("Integer"));
     }
 
+    @Test
+    void patchDirty() {
+        AirtableRecord record = new AirtableRecord();
+        record.putField("Name", TEST_NAME);
+        record.putField("Integer", 42);
+        record = table.post(record);
+
+        record = table.get(record.getId());
+        assertNotNull(record);
+        record.putField("Double", 1.5);
+        record.getFields().remove("Integer");
+        table.patch(record);
+
+        AirtableRecord patched = table.get(record.getId());
+        assertNotNull(patched);
+        assertEquals(TEST_NAME, patched.getFieldString("Name"));
+        assertEquals(1.5, patched.getFieldDouble("Double"));
+        assertNull(patched.getFieldInteger("Integer"));
+    }
+
     @Test
     void patchTypecast() throws InterruptedException {
         AirtableRecord record = new AirtableRecord();
@@ -0,0 +1,131 @@
+package dev.fuxing.airtable;
+
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bytes allocated per request by the thread, in steady state, with the per-thread allocated bytes counter of HotSpot.
+ * A report rather than a test, the numbers depend on the JIT and escape analysis.
+ * <p>
+ * Requests are executed against a client that consumes the body and returns a canned response,
+ * so only the allocations of AirtableApi, the reader and the fluent executor are counted, not of the connection.
+ *
+ * <pre>
+ * gradle :api:benchmark -Pbenchmark=dev.fuxing.airtable.AirtableBufferBenchmark
+ * </pre>
+ */
+public final class AirtableBufferBenchmark {
+    private static final int ITERATIONS = 20_000;
+
+    private static final byte[] RECORD = ("{\"id\":\"rec1\",\"createdTime\":\"2019-04-20T14:12:52.000Z\",\"fields\":{" +
+            "\"Name\":\"Name 1\",\"Notes\":\"Some longer notes of the record 1\",\"Count\":1,\"Tags\":[\"x\",\"y\"]}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) {
+        List<AirtableRecord> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AirtableRecord record = new AirtableRecord("rec" + i);
+            record.putField("Name", "Name " + i);
+            record.putField("Notes", "Some longer notes of the record " + i);
+            record.putField("Count", i);
+            record.putField("Tags", Arrays.asList("x", "y"));
+            records.add(record);
+        }
+
+        AirtableBuffer body = AirtableApi.writeBody(records, false, false);
+        System.out.println("Body of 10 records: " + body.size() + " bytes");
+        body.release();
+
+        report("writeBody, per-thread buffer", () -> AirtableApi.writeBody(records, false, false).release());
+        report("writeBody, tree to String to byte[]", () -> AirtableBufferTest.unpooled(records));
+
+        AirtableApi api = new AirtableApi("key", Executor.newInstance(new CannedClient()));
+        AirtableApi.Table table = api.app("app").table("Table", AirtableReader.LAZY);
+        AirtableRecord record = records.get(1);
+        report("post with LAZY reader, request and response", () -> table.post(record));
+    }
+
+    private static void report(String name, Runnable operation) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // Warm up, for the JIT and the buffer of the thread
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+
+        long before = bean.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long allocated = (bean.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+        System.out.println(String.format("%-48s %8d bytes/request", name, allocated));
+    }
+
+    /**
+     * Writes the request body nowhere and returns the same record for every request.
+     */
+    private static final class CannedClient extends CloseableHttpClient {
+        private static final OutputStream DISCARD = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+            if (request instanceof HttpEntityEnclosingRequest) {
+                ((HttpEntityEnclosingRequest) request).getEntity().writeTo(DISCARD);
+            }
+            return new CannedResponse();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.params.HttpParams getParams() {
+            return new org.apache.http.params.BasicHttpParams();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CannedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        CannedResponse() {
+            super(HttpVersion.HTTP_1_1, 200, "OK");
+            setEntity(new ByteArrayEntity(RECORD, ContentType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class AirtableBufferTest {
+
+    @Test
+    void reuse() throws IOException {
+        AirtableBuffer buffer = AirtableBuffer.acquire();
+        buffer.write(1);
+
+        // Nested acquire before release
+        AirtableBuffer nested = AirtableBuffer.acquire();
+        Assertions.assertNotSame(buffer, nested);
+
+        buffer.release();
+        AirtableBuffer again = AirtableBuffer.acquire();
+        Assertions.assertSame(buffer, again);
+        Assertions.assertEquals(0, again.size());
+
+        // Grown past the cap is not retained
+        byte[] large = new byte[AirtableBuffer.MAX_RETAINED_SIZE + 1];
+        again.readFrom(new ByteArrayInputStream(large));
+        Assertions.assertEquals(large.length, again.size());
+        again.release();
+        Assertions.assertNotSame(again, AirtableBuffer.acquire());
+    }
+
+    @Test
+    void writeBody() throws IOException {
+        AirtableRecord record = new AirtableRecord("rec1");
+        record.putField("Name", "a");
+        record.putField("Tags", Arrays.asList("x", "y"));
+        record.markClean();
+        record.putField("Count", 1);
+        record.getFields().remove("Name");
+
+        JsonNode post = read(AirtableApi.writeBody(record, true, false));
+        Assertions.assertEquals(AirtableApi.OBJECT_MAPPER.readTree("{\"typecast\":true,\"fields\":{\"Tags\":[\"x\",\"y\"],\"Count\":1}}"), post);
+
+        JsonNode patch = read(AirtableApi.writeBody(Arrays.asList(record, new AirtableRecord()), false, true));
+        Assertions.assertEquals(AirtableApi.OBJECT_MAPPER.readTree("{\"records\":[{\"id\":\"rec1\",\"fields\":{\"Count\":1,\"Name\":null}},{\"fields\":{}}]}"), patch);
+    }
+
+    /**
+     * Steady state request bodies are written straight into the same buffer of the thread, without growing or copying it.
+     */
+    @Test
+    void bodyReuse() throws IOException {
+        List<AirtableRecord> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AirtableRecord record = new AirtableRecord("rec" + i);
+            record.putField("Name", "Name " + i);
+            record.putField("Notes", "Some longer notes of the record " + i);
+            record.putField("Count", i);
+            record.putField("Tags", Arrays.asList("x", "y"));
+            records.add(record);
+        }
+
+        AirtableBuffer first = AirtableApi.writeBody(records, false, false);
+        byte[] array = first.array();
+        int size = first.size();
+        Assertions.assertEquals(unpooled(records).length, size);
+        first.release();
+
+        for (int i = 0; i < 1000; i++) {
+            AirtableBuffer body = AirtableApi.writeBody(records, false, false);
+            Assertions.assertSame(first, body);
+            Assertions.assertSame(array, body.array());
+            Assertions.assertEquals(size, body.size());
+            body.release();
+        }
+
+        // Same bytes as the tree written before the buffer, without its intermediate String and byte[]
+        JsonNode expected = AirtableApi.OBJECT_MAPPER.readTree(unpooled(records));
+        Assertions.assertEquals(expected, read(AirtableApi.writeBody(records, false, false)));
+    }
+
+    private static JsonNode read(AirtableBuffer buffer) throws IOException {
+        try {
+            return AirtableApi.OBJECT_MAPPER.readTree(new String(buffer.array(), 0, buffer.size(), StandardCharsets.UTF_8));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * How request bodies were written before, a tree of the body into a new String then byte[].
+     */
+    static byte[] unpooled(List<AirtableRecord> records) {
+        ObjectNode node = AirtableApi.OBJECT_MAPPER.createObjectNode();
+        ArrayNode array = node.putArray("records");
+        for (AirtableRecord record : records) {
+            ObjectNode recordNode = array.addObject();
+            recordNode.put("id", record.getId());
+            record.getFields().forEach(recordNode.putObject("fields")::set);
+        }
+        try {
+            return AirtableApi.OBJECT_MAPPER.writeValueAsString(node).getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
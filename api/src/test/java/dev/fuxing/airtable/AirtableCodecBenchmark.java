@@ -0,0 +1,106 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time to read and write list records pages with each codec, against the plain ObjectMapper.
+ * Other codecs are compared with the argument {@code codec=<class name of the AirtableCodec>}.
+ * A report rather than a test, median of several rounds after warming up the JIT.
+ * <p>
+ * Pages are the other files given as arguments, e.g. responses of list records saved with curl,
+ * else {@code list-records-page.json} in test resources, a page of 100 records in the format of airtable.
+ *
+ * <pre>
+ * gradle :api:benchmark -Pbenchmark=dev.fuxing.airtable.AirtableCodecBenchmark
+ * gradle :api:benchmark -Pbenchmark=dev.fuxing.airtable.AirtableCodecBenchmark --args="page.json codec=com.example.AfterburnerCodec"
+ * </pre>
+ */
+public final class AirtableCodecBenchmark {
+    private static final int WARMUP = 2_000;
+    private static final int ROUNDS = 15;
+    private static final int ITERATIONS = 200;
+
+    /**
+     * Results are kept, so the JIT can't drop the operation.
+     */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, AirtableCodec> codecs = new LinkedHashMap<>();
+        codecs.put("jackson", AirtableCodec.jackson(AirtableApi.OBJECT_MAPPER));
+
+        Map<String, byte[]> pages = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("codec=")) {
+                String name = arg.substring("codec=".length());
+                codecs.put(name, AirtableCodec.forName(name));
+            } else {
+                pages.put(arg, Files.readAllBytes(Paths.get(arg)));
+            }
+        }
+        if (pages.isEmpty()) {
+            try (InputStream in = AirtableCodecBenchmark.class.getResourceAsStream("list-records-page.json")) {
+                AirtableBuffer buffer = AirtableBuffer.acquire();
+                buffer.readFrom(in);
+                pages.put("list-records-page.json", buffer.toByteArray());
+            }
+        }
+
+        for (Map.Entry<String, byte[]> page : pages.entrySet()) {
+            byte[] bytes = page.getValue();
+            JsonNode tree = AirtableApi.OBJECT_MAPPER.readTree(bytes);
+            System.out.println(page.getKey() + ": " + bytes.length + " bytes, " + tree.path("records").size() + " records");
+
+            report("ObjectMapper readTree", () -> AirtableApi.OBJECT_MAPPER.readTree(new ByteArrayInputStream(bytes)));
+            for (Map.Entry<String, AirtableCodec> codec : codecs.entrySet()) {
+                report(codec.getKey() + " readTree", () -> codec.getValue().readTree(new ByteArrayInputStream(bytes)));
+            }
+
+            report("ObjectMapper writeValueAsBytes", () -> AirtableApi.OBJECT_MAPPER.writeValueAsBytes(tree));
+            for (Map.Entry<String, AirtableCodec> codec : codecs.entrySet()) {
+                report(codec.getKey() + " writeBytes", () -> codec.getValue().writeBytes(tree));
+            }
+        }
+    }
+
+    private static void report(String name, Operation operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = operation.runUnchecked();
+        }
+
+        long[] rounds = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink = operation.runUnchecked();
+            }
+            rounds[round] = (System.nanoTime() - start) / ITERATIONS;
+        }
+        Arrays.sort(rounds);
+        System.out.println(String.format("  %-32s %8.1f us/page (min %.1f, max %.1f)", name,
+                rounds[ROUNDS / 2] / 1000.0, rounds[0] / 1000.0, rounds[ROUNDS - 1] / 1000.0));
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run() throws IOException;
+
+        default Object runUnchecked() {
+            try {
+                return run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
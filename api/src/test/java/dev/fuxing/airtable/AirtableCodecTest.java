@@ -0,0 +1,114 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import dev.fuxing.airtable.fields.AttachmentField;
+import dev.fuxing.airtable.fields.CollaboratorField;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class AirtableCodecTest {
+    private static final String PAGE = "{\"records\":[{\"id\":\"rec1\",\"createdTime\":\"2019-04-20T14:12:52.000Z\",\"fields\":{" +
+            "\"Name\":\"Caf\\u00e9 \\\"1\\\"\",\"Integer\":1,\"Long\":12345678901,\"Big\":123456789012345678901234567890," +
+            "\"Double\":1.5,\"Checkbox\":true,\"Empty\":null,\"Tags\":[\"x\",\"y\"]," +
+            "\"Owner\":{\"id\":\"usr1\",\"email\":\"a@b.c\",\"name\":\"A\"}," +
+            "\"Attachments\":[{\"id\":\"att1\",\"url\":\"https://dl.airtable.com/a.png\",\"filename\":\"a.png\",\"size\":100,\"type\":\"image/png\"," +
+            "\"thumbnails\":{\"small\":{\"url\":\"https://dl.airtable.com/s.png\",\"width\":36,\"height\":36}}}]}}]," +
+            "\"offset\":\"itr1/rec1\"}";
+
+    private static final List<AirtableCodec> CODECS = Arrays.asList(
+            AirtableCodec.jackson(AirtableApi.OBJECT_MAPPER)
+    );
+
+    @Test
+    void readTree() throws IOException {
+        JsonNode expected = AirtableApi.OBJECT_MAPPER.readTree(PAGE);
+        for (AirtableCodec codec : CODECS) {
+            JsonNode node = codec.readTree(new ByteArrayInputStream(PAGE.getBytes(StandardCharsets.UTF_8)));
+            Assertions.assertEquals(expected, node);
+            Assertions.assertTrue(node.at("/records/0/fields/Integer").isInt());
+            Assertions.assertTrue(node.at("/records/0/fields/Long").isLong());
+            Assertions.assertTrue(node.at("/records/0/fields/Big").isBigInteger());
+            Assertions.assertTrue(node.at("/records/0/fields/Double").isDouble());
+
+            Assertions.assertTrue(codec.readTree(new ByteArrayInputStream(new byte[0])).isMissingNode());
+        }
+    }
+
+    @Test
+    void readTreeParser() throws IOException {
+        for (AirtableCodec codec : CODECS) {
+            try (JsonParser parser = codec.getFactory().createParser(PAGE)) {
+                parser.nextToken();
+                parser.nextToken();
+                parser.nextToken();
+
+                JsonNode records = codec.readTree(parser);
+                Assertions.assertEquals(1, records.size());
+                Assertions.assertEquals("offset", parser.nextFieldName());
+            }
+        }
+    }
+
+    @Test
+    void write() throws IOException {
+        JsonNode expected = AirtableApi.OBJECT_MAPPER.readTree(PAGE);
+        for (AirtableCodec codec : CODECS) {
+            byte[] bytes = codec.writeBytes(expected);
+            Assertions.assertEquals(expected, AirtableApi.OBJECT_MAPPER.readTree(bytes));
+            Assertions.assertArrayEquals(AirtableApi.OBJECT_MAPPER.writeValueAsBytes(expected), bytes);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator generator = codec.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                codec.writeTree(generator, expected.path("offset"));
+                codec.writeTree(generator, expected.at("/records/0/fields/Owner"));
+                generator.writeEndArray();
+            }
+            Assertions.assertEquals("[\"itr1/rec1\",{\"id\":\"usr1\",\"email\":\"a@b.c\",\"name\":\"A\"}]",
+                    new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void valueToTree() {
+        CollaboratorField collaborator = new CollaboratorField();
+        collaborator.setEmail("a@b.c");
+
+        AttachmentField attachment = new AttachmentField();
+        attachment.setUrl("https://dl.airtable.com/a.png");
+
+        List<Object> values = Arrays.asList(null, "a", 1, 12345678901L, 1.5, true,
+                collaborator, Collections.singletonList(attachment), Arrays.asList("x", 1),
+                Collections.singletonMap("a", 1));
+
+        for (AirtableCodec codec : CODECS) {
+            for (Object value : values) {
+                Assertions.assertEquals(AirtableApi.OBJECT_MAPPER.valueToTree(value), codec.valueToTree(value));
+            }
+
+            JsonNode node = codec.valueToTree(Collections.singletonList("x"));
+            Assertions.assertNotSame(node, codec.valueToTree(node));
+            Assertions.assertEquals(node, codec.valueToTree(node));
+            Assertions.assertEquals(Arrays.asList("x", "y"), codec.convertList(codec.valueToTree(Arrays.asList("x", "y")), String.class));
+        }
+    }
+
+    @Test
+    void forName() {
+        Assertions.assertTrue(AirtableCodec.forName("jackson") instanceof AirtableCodec.Jackson);
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableCodec.forName("streaming"));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableCodec.forName("java.lang.String"));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableCodec.forName("dev.fuxing.Missing"));
+    }
+}
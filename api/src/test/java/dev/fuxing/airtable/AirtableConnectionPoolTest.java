@@ -0,0 +1,114 @@
+package dev.fuxing.airtable;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.client.fluent.Request;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+class AirtableConnectionPoolTest {
+
+    @Test
+    void warmUp() {
+        try (AirtableConnectionPool pool = AirtableConnectionPool.builder()
+                .maxConnections(4)
+                .warmConnections(2)
+                .keepAlive(30, TimeUnit.SECONDS)
+                .build()) {
+
+            Assertions.assertEquals(2, pool.warmUp());
+            Assertions.assertEquals(2, pool.metrics().getAvailable());
+
+            // Already open connections are counted
+            Assertions.assertEquals(0, pool.warmUp());
+            Assertions.assertEquals(2, pool.warmUp(8));
+            Assertions.assertEquals(4, pool.metrics().getOpened());
+            Assertions.assertEquals(0, pool.metrics().getClosed());
+        }
+    }
+
+    @Test
+    void reuse() {
+        try (AirtableConnectionPool pool = AirtableConnectionPool.builder()
+                .maxConnections(2)
+                .build()) {
+            pool.warmUp(2);
+
+            AirtableApi api = new AirtableApi(System.getenv("AIRTABLE_API_KEY"), AirtableExecutor.builder()
+                    .connectionPool(pool)
+                    .build());
+            AirtableApi.Table table = api.app("app3h0gjxLX3Jomw8").table("Test Table");
+
+            for (int i = 0; i < 3; i++) {
+                table.list(querySpec -> querySpec.maxRecords(1));
+            }
+
+            // No new connection needed after warm up
+            Assertions.assertEquals(2, pool.metrics().getOpened());
+            Assertions.assertTrue(pool.metrics().getTlsSessions() > 0);
+        }
+    }
+
+    @Test
+    void metrics() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            if (exchange.getRequestURI().getPath().equals("/close")) {
+                exchange.getResponseHeaders().set("Connection", "close");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        try (AirtableConnectionPool pool = AirtableConnectionPool.builder()
+                .maxConnections(2)
+                .build()) {
+            Executor executor = AirtableExecutor.builder()
+                    .connectionPool(pool)
+                    .build();
+
+            executor.execute(Request.Get(url + "/keep")).returnContent();
+            executor.execute(Request.Get(url + "/keep")).returnContent();
+            assertMetrics(pool, 1, 0, 0, 1);
+
+            // Not reusable once the server closes it
+            executor.execute(Request.Get(url + "/close")).returnContent();
+            assertMetrics(pool, 1, 1, 0, 0);
+
+            executor.execute(Request.Get(url + "/keep")).returnContent();
+            assertMetrics(pool, 2, 1, 0, 1);
+
+            pool.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            assertMetrics(pool, 2, 2, 0, 0);
+
+            // Leased but not yet connected, nothing is opened or closed
+            HttpClientConnection connection = pool.getConnectionManager()
+                    .requestConnection(AirtableConnectionPool.ROUTE, null)
+                    .get(1, TimeUnit.SECONDS);
+            assertMetrics(pool, 2, 2, 1, 0);
+            pool.getConnectionManager().releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+            assertMetrics(pool, 2, 2, 0, 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void assertMetrics(AirtableConnectionPool pool, long opened, long closed, int leased, int available) {
+        AirtableConnectionPool.Metrics metrics = pool.metrics();
+        Assertions.assertEquals(opened, metrics.getOpened(), metrics.toString());
+        Assertions.assertEquals(closed, metrics.getClosed(), metrics.toString());
+        Assertions.assertEquals(leased, metrics.getLeased(), metrics.toString());
+        Assertions.assertEquals(available, metrics.getAvailable(), metrics.toString());
+    }
+}
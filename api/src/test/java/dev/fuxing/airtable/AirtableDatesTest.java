@@ -0,0 +1,69 @@
+package dev.fuxing.airtable;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Random;
+
+class AirtableDatesTest {
+
+    @Test
+    void parse() {
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52.000Z"), AirtableDates.parseInstant("2019-04-20T14:12:52.000Z"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52.120Z"), AirtableDates.parseInstant("2019-04-20T14:12:52.12Z"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52.123Z"), AirtableDates.parseInstant("2019-04-20T14:12:52.123456789Z"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52Z"), AirtableDates.parseInstant("2019-04-20T14:12:52Z"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:00Z"), AirtableDates.parseInstant("2019-04-20T14:12Z"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T06:12:52Z"), AirtableDates.parseInstant("2019-04-20T14:12:52+08:00"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T19:42:52Z"), AirtableDates.parseInstant("2019-04-20T14:12:52-0530"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T00:00:00Z"), AirtableDates.parseInstant("2019-04-20"));
+        Assertions.assertEquals(Instant.parse("2020-02-29T00:00:00Z"), AirtableDates.parseInstant("2020-02-29"));
+
+        Assertions.assertEquals(LocalDate.of(2019, 4, 20), AirtableDates.parseLocalDate("2019-04-20"));
+        Assertions.assertEquals(LocalDate.of(2019, 4, 19), AirtableDates.parseLocalDate("2019-04-20T02:00:00+08:00"));
+    }
+
+    @Test
+    void invalid() {
+        for (String text : new String[]{"", "2019-04", "2019-4-20", "2019-02-29", "2019-13-01", "2019-04-20T",
+                "2019-04-20T24:00:00Z", "2019-04-20T14:12:52", "2019-04-20T14:12:52.Z", "2019-04-20T14:12:52ZZ",
+                "2019-04-20T14:12:52+8", "2019-04-20 14:12:52Z"}) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> AirtableDates.parseMillis(text), text);
+        }
+    }
+
+    @Test
+    void random() {
+        Random random = new Random(42);
+        long max = Instant.parse("9999-12-31T23:59:59.999Z").toEpochMilli();
+        for (int i = 0; i < 100_000; i++) {
+            long millis = (long) (random.nextDouble() * max);
+            Instant instant = Instant.ofEpochMilli(millis);
+
+            String formatted = AirtableDates.format(millis);
+            Assertions.assertEquals(millis, AirtableDates.parseMillis(formatted));
+            Assertions.assertEquals(instant, OffsetDateTime.parse(formatted).toInstant());
+
+            LocalDate date = LocalDate.ofEpochDay(millis / 86_400_000L);
+            Assertions.assertEquals(date.toString(), AirtableDates.format(date));
+            Assertions.assertEquals(date, AirtableDates.parseLocalDate(date.toString()));
+        }
+    }
+
+    @Test
+    void record() {
+        AirtableRecord record = new AirtableRecord();
+        record.putField("Instant", Instant.parse("2019-04-20T14:12:52.001Z"));
+        record.putField("LocalDate", LocalDate.of(2019, 4, 20));
+
+        Assertions.assertEquals("2019-04-20T14:12:52.001Z", record.getFieldString("Instant"));
+        Assertions.assertEquals("2019-04-20", record.getFieldString("LocalDate"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52.001Z"), record.getFieldInstant("Instant"));
+        Assertions.assertEquals(LocalDate.of(2019, 4, 20), record.getFieldLocalDate("LocalDate"));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52.001Z").toEpochMilli(), record.getFieldDate("Instant").getTime());
+        Assertions.assertNull(record.getFieldInstant("Missing"));
+    }
+}
@@ -0,0 +1,116 @@
+package dev.fuxing.airtable;
+
+import dev.fuxing.airtable.limit.AirtableBackoff;
+import dev.fuxing.airtable.limit.AirtableConcurrencyLimiter;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class AirtableExecutorTest {
+
+    @Test
+    void backoff() {
+        Assertions.assertSame(AirtableBackoff.shared(), AirtableExecutor.builder().resolveBackoff());
+
+        // Without retry, not blocked by a 429 from another executor
+        Assertions.assertNull(AirtableExecutor.builder().retry(false, 0).resolveBackoff());
+        Assertions.assertNull(AirtableExecutor.builder().retry(true, 0).resolveBackoff());
+
+        AirtableBackoff backoff = new AirtableBackoff(1, 1, TimeUnit.SECONDS);
+        Assertions.assertSame(backoff, AirtableExecutor.builder().retry(false, 0).backoff(backoff, true).resolveBackoff());
+        Assertions.assertNull(AirtableExecutor.builder().backoff(null, true).resolveBackoff());
+    }
+
+    @Test
+    void limitRelease() throws Exception {
+        List<String> outcomes = new ArrayList<>();
+        AirtableConcurrencyLimiter limiter = base -> new AirtableConcurrencyLimiter.Listener() {
+            @Override
+            public void onSuccess(long latencyNanos) {
+                outcomes.add("success");
+            }
+
+            @Override
+            public void onDropped() {
+                outcomes.add("dropped");
+            }
+
+            @Override
+            public void onIgnore() {
+                outcomes.add("ignore");
+            }
+        };
+
+        // Rate limiter failed, the permit is released and the request not sent
+        AirtableExecutor.LimitExec failed = new AirtableExecutor.LimitExec((route, request, context, execAware) -> {
+            throw new AssertionError("Not sent");
+        }, new AirtableExecutor.LimitExec.Config(base -> {
+            throw new UncheckedIOException(new IOException("Failed"));
+        }, limiter, null, false));
+        Assertions.assertThrows(UncheckedIOException.class, () -> execute(failed));
+        Assertions.assertEquals(Collections.singletonList("ignore"), outcomes);
+        outcomes.clear();
+
+        // Released only once the body is read
+        AirtableExecutor.LimitExec exec = new AirtableExecutor.LimitExec((route, request, context, execAware) -> response(),
+                new AirtableExecutor.LimitExec.Config(null, limiter, null, false));
+        CloseableHttpResponse response = execute(exec);
+        Assertions.assertTrue(outcomes.isEmpty());
+        Assertions.assertEquals("{}", EntityUtils.toString(response.getEntity()));
+        response.close();
+        Assertions.assertEquals(Collections.singletonList("success"), outcomes);
+        outcomes.clear();
+
+        // Or once the response is closed, partially read
+        response = execute(exec);
+        try (InputStream content = response.getEntity().getContent()) {
+            Assertions.assertEquals('{', content.read());
+            Assertions.assertTrue(outcomes.isEmpty());
+        }
+        Assertions.assertEquals(Collections.singletonList("success"), outcomes);
+        outcomes.clear();
+
+        response = execute(exec);
+        response.close();
+        response.close();
+        Assertions.assertEquals(Collections.singletonList("success"), outcomes);
+    }
+
+    private static CloseableHttpResponse execute(AirtableExecutor.LimitExec exec) throws Exception {
+        HttpGet get = new HttpGet("https://api.airtable.com/v0/app1/Table");
+        return exec.execute(new HttpRoute(new HttpHost("api.airtable.com", 443, "https")),
+                HttpRequestWrapper.wrap(get), HttpClientContext.create(), null);
+    }
+
+    private static CloseableHttpResponse response() {
+        class Response extends BasicHttpResponse implements CloseableHttpResponse {
+            Response() {
+                super(HttpVersion.HTTP_1_1, 200, "OK");
+                setEntity(new StringEntity("{}", ContentType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+        return new Response();
+    }
+}
@@ -0,0 +1,90 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class AirtableInternPoolTest {
+
+    @Test
+    void intern() throws IOException {
+        AirtableInternPool pool = new AirtableInternPool(100);
+
+        JsonNode a = pool.intern(new TextNode("Todo"));
+        JsonNode b = pool.intern(new TextNode("Todo"));
+        Assertions.assertSame(a, b);
+
+        JsonNode longText = new TextNode(StringUtils.repeat('a', AirtableInternPool.MAX_TEXT_LENGTH + 1));
+        Assertions.assertNotSame(longText, pool.intern(AirtableApi.OBJECT_MAPPER.readTree("\"" + longText.textValue() + "\"")));
+
+        String collaborator = "{\"id\":\"usr1\",\"email\":\"a@b.c\",\"name\":\"A\"}";
+        JsonNode c1 = pool.intern(AirtableApi.OBJECT_MAPPER.readTree(collaborator));
+        JsonNode c2 = pool.intern(AirtableApi.OBJECT_MAPPER.readTree(collaborator));
+        Assertions.assertSame(c1, c2);
+
+        // Children are interned too
+        ArrayNode tags = (ArrayNode) pool.intern(AirtableApi.OBJECT_MAPPER.readTree("[\"Todo\",\"Done\"]"));
+        Assertions.assertSame(a, tags.get(0));
+        Assertions.assertSame(tags, pool.intern(AirtableApi.OBJECT_MAPPER.readTree("[\"Todo\",\"Done\"]")));
+
+        // Values passed in are never mutated, children deduped are interned into a new array
+        ArrayNode passed = (ArrayNode) AirtableApi.OBJECT_MAPPER.readTree("[\"Backlog\",\"Todo\"]");
+        JsonNode element = passed.get(1);
+        ArrayNode interned = (ArrayNode) pool.intern(passed);
+        Assertions.assertNotSame(passed, interned);
+        Assertions.assertSame(element, passed.get(1));
+        Assertions.assertSame(a, interned.get(1));
+        Assertions.assertEquals(passed, interned);
+
+        // Nested objects are not small
+        JsonNode attachment = AirtableApi.OBJECT_MAPPER.readTree("[{\"url\":\"a\",\"thumbnails\":{\"small\":{\"url\":\"b\"}}}]");
+        Assertions.assertSame(attachment, pool.intern(attachment));
+        Assertions.assertNotSame(attachment, pool.intern(attachment.deepCopy()));
+        Assertions.assertEquals(10, pool.hits());
+    }
+
+    @Test
+    void bounded() {
+        AirtableInternPool pool = new AirtableInternPool(2);
+        pool.intern(new TextNode("a"));
+        pool.intern(new TextNode("b"));
+
+        JsonNode c = new TextNode("c");
+        Assertions.assertSame(c, pool.intern(c));
+        Assertions.assertNotSame(c, pool.intern(new TextNode("c")));
+        Assertions.assertEquals(2, pool.size());
+    }
+
+    @Test
+    void footprint() throws IOException {
+        ObjectNode page = AirtableApi.OBJECT_MAPPER.createObjectNode();
+        ArrayNode records = page.putArray("records");
+        for (int i = 0; i < 1000; i++) {
+            ObjectNode fields = records.addObject().put("id", "rec" + i).putObject("fields");
+            fields.put("Status", i % 3 == 0 ? "Todo" : "Done");
+            fields.putArray("Tags").add("Tag " + (i % 5)).add("Tag " + (i % 7));
+            fields.putObject("Owner").put("id", "usr" + (i % 10)).put("email", "user" + (i % 10) + "@example.com").put("name", "User " + (i % 10));
+            fields.put("Name", "Unique Name " + i);
+        }
+        byte[] bytes = AirtableApi.OBJECT_MAPPER.writeValueAsBytes(page);
+
+        List<AirtableRecord> plain = AirtableReader.tree().readList(new ByteArrayInputStream(bytes));
+        List<AirtableRecord> interned = AirtableReader.tree(new AirtableInternPool(10_000)).readList(new ByteArrayInputStream(bytes));
+        Assertions.assertEquals(plain.get(7).getFields(), interned.get(7).getFields());
+
+        long plainSize = GraphLayout.parseInstance(plain).totalSize();
+        long internedSize = GraphLayout.parseInstance(interned).totalSize();
+
+        Assertions.assertTrue(internedSize * 2 < plainSize, () -> "Plain: " + plainSize + " bytes, Interned: " + internedSize + " bytes");
+    }
+}
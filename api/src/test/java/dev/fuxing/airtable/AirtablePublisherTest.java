@@ -0,0 +1,121 @@
+package dev.fuxing.airtable;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class AirtablePublisherTest {
+    private MemoryTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new MemoryTable();
+        for (int i = 0; i < 25; i++) {
+            table.add(String.format("rec%02d", i), "Name " + i, i);
+        }
+    }
+
+    @Test
+    void backpressure() {
+        Recorder recorder = new Recorder();
+        table.publish(AirtableTable.QuerySpec.create().pageSize(10)).subscribe(recorder);
+        Assertions.assertEquals(0, table.calls, "no page before demand");
+
+        recorder.subscription.request(3);
+        Assertions.assertEquals(3, recorder.records.size());
+        Assertions.assertEquals(1, table.calls);
+
+        // Buffered records of the first page are emitted without another call
+        recorder.subscription.request(7);
+        Assertions.assertEquals(10, recorder.records.size());
+        Assertions.assertEquals(1, table.calls);
+
+        recorder.subscription.request(1);
+        Assertions.assertEquals(11, recorder.records.size());
+        Assertions.assertEquals(2, table.calls);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        Assertions.assertEquals(25, recorder.records.size());
+        Assertions.assertEquals(3, table.calls);
+        Assertions.assertTrue(recorder.completed);
+        Assertions.assertEquals("rec24", recorder.records.get(24).getId());
+    }
+
+    @Test
+    void cancel() {
+        Recorder recorder = new Recorder();
+        table.publish(AirtableTable.QuerySpec.create().pageSize(10)).subscribe(recorder);
+
+        recorder.subscription.request(10);
+        Assertions.assertEquals(1, table.calls);
+        recorder.subscription.cancel();
+
+        recorder.subscription.request(10);
+        Assertions.assertEquals(10, recorder.records.size());
+        Assertions.assertEquals(1, table.calls, "no page after cancel");
+        Assertions.assertFalse(recorder.completed);
+    }
+
+    @Test
+    void resubscribe() {
+        AirtableTable.QuerySpec querySpec = AirtableTable.QuerySpec.create().pageSize(10);
+        String query = querySpec.build().toString();
+        AirtablePublisher publisher = new AirtablePublisher(table, querySpec, Runnable::run);
+
+        Recorder first = new Recorder();
+        publisher.subscribe(first);
+        first.subscription.request(Long.MAX_VALUE);
+        Assertions.assertEquals(25, first.records.size());
+        Assertions.assertEquals(query, querySpec.build().toString(), "offset not written to the given spec");
+
+        // Every subscription pages from the start
+        Recorder second = new Recorder();
+        publisher.subscribe(second);
+        second.subscription.request(Long.MAX_VALUE);
+        Assertions.assertEquals(25, second.records.size());
+        Assertions.assertEquals("rec00", second.records.get(0).getId());
+    }
+
+    @Test
+    void error() {
+        Recorder recorder = new Recorder();
+        table.publish(AirtableTable.QuerySpec.create()).subscribe(recorder);
+
+        table.failure = 503;
+        recorder.subscription.request(1);
+        Assertions.assertNotNull(recorder.error);
+        Assertions.assertTrue(recorder.records.isEmpty());
+    }
+
+    private static final class Recorder implements Subscriber<AirtableRecord> {
+        private final List<AirtableRecord> records = new ArrayList<>();
+        private Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(AirtableRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
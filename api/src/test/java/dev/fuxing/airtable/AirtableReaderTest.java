@@ -0,0 +1,66 @@
+package dev.fuxing.airtable;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+class AirtableReaderTest {
+    private static final String LIST = "{\"records\":[" +
+            "{\"id\":\"rec1\",\"fields\":{\"Name\":\"Café \\\"1\\\"\",\"Number\":1.5,\"Tags\":[\"a\",\"b\"]," +
+            "\"Nested\":{\"x\":[1,{\"y\":null}]},\"Checkbox\":true},\"createdTime\":\"2019-04-20T14:12:52.000Z\"}," +
+            "{\"id\":\"rec2\",\"createdTime\":\"2019-04-21T14:12:52.000Z\",\"fields\":{}}" +
+            "],\"offset\":\"itr1/rec2\"}";
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void lazy() throws IOException {
+        AirtableTable.PaginationList tree = AirtableReader.TREE.readList(stream(LIST));
+        AirtableTable.PaginationList lazy = AirtableReader.LAZY.readList(stream(LIST));
+
+        Assertions.assertEquals("itr1/rec2", lazy.getOffset());
+        Assertions.assertEquals(2, lazy.size());
+
+        AirtableRecord record = lazy.get(0);
+        LazyFieldMap fields = (LazyFieldMap) ((TrackingFieldMap) record.getFields()).unwrap();
+        Assertions.assertEquals("rec1", record.getId());
+        Assertions.assertEquals(tree.get(0).getCreatedTime(), record.getCreatedTime());
+        Assertions.assertEquals(0, fields.decoded());
+
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("Name", "Number", "Tags", "Nested", "Checkbox")), fields.keySet());
+        Assertions.assertEquals(0, fields.decoded());
+
+        Assertions.assertEquals("Café \"1\"", record.getFieldString("Name"));
+        Assertions.assertEquals(1.5, record.getFieldDouble("Number"));
+        Assertions.assertTrue(record.getFieldBoolean("Checkbox"));
+        Assertions.assertNull(record.getFieldString("Missing"));
+        Assertions.assertTrue(record.getField("Missing").isMissingNode());
+        Assertions.assertEquals(3, fields.decoded());
+
+        // Decoded value is cached
+        Assertions.assertSame(record.getField("Name"), record.getField("Name"));
+
+        Assertions.assertEquals(tree.get(0).getFields(), record.getFields());
+        Assertions.assertEquals(tree.get(1).getFields(), lazy.get(1).getFields());
+    }
+
+    @Test
+    void lazyModify() throws IOException {
+        AirtableRecord record = AirtableReader.LAZY.readRecord(stream("{\"id\":\"rec1\",\"fields\":{\"Name\":\"a\",\"Number\":1}}"));
+
+        record.putField("Name", "b");
+        record.getFields().remove("Number");
+
+        Assertions.assertEquals("b", record.getFieldString("Name"));
+        Assertions.assertFalse(record.getFields().containsKey("Number"));
+        Assertions.assertEquals(1, record.getFields().size());
+    }
+}
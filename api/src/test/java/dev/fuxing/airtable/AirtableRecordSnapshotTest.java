@@ -0,0 +1,88 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+class AirtableRecordSnapshotTest {
+    private static final String RECORD = "{\"id\":\"rec1\",\"createdTime\":\"2019-04-20T14:12:52.000Z\"," +
+            "\"fields\":{\"Name\":\"a\",\"Integer\":1,\"Tags\":[\"x\",\"y\"]," +
+            "\"Owner\":{\"id\":\"usr1\",\"email\":\"a@b.c\",\"name\":\"A\"}}}";
+
+    private static AirtableRecord record() throws IOException {
+        return AirtableReader.TREE.readRecord(new ByteArrayInputStream(RECORD.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void immutable() throws IOException {
+        AirtableRecord record = record();
+        AirtableRecordSnapshot snapshot = AirtableRecordSnapshot.of(record);
+
+        Assertions.assertEquals("rec1", snapshot.getId());
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52Z"), snapshot.getCreatedTime());
+        Assertions.assertEquals("a", snapshot.getFieldString("Name"));
+        Assertions.assertEquals(1, snapshot.getFieldInteger("Integer"));
+        Assertions.assertEquals("usr1", snapshot.getFieldCollaborator("Owner").getId());
+        Assertions.assertEquals(Arrays.asList("x", "y"), snapshot.getFieldList("Tags", String.class));
+
+        // Changes to the record are not reflected
+        record.putField("Name", "b");
+        ((ArrayNode) record.getField("Tags")).add("z");
+        Assertions.assertEquals("a", snapshot.getFieldString("Name"));
+        Assertions.assertEquals(2, snapshot.getField("Tags").size());
+
+        // Containers are copied on read
+        ((ArrayNode) snapshot.getField("Tags")).add("z");
+        Assertions.assertEquals(2, snapshot.getField("Tags").size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> snapshot.getFieldNames().remove("Name"));
+        Assertions.assertTrue(snapshot.getField("Missing").isMissingNode());
+    }
+
+    @Test
+    void toBuilder() throws IOException {
+        AirtableRecordSnapshot snapshot = AirtableRecordSnapshot.of(record());
+        Assertions.assertSame(snapshot, snapshot.toBuilder().build());
+
+        AirtableRecordSnapshot.Builder builder = snapshot.toBuilder()
+                .putField("Name", "b")
+                .removeField("Integer");
+        AirtableRecordSnapshot changed = builder.build();
+
+        Assertions.assertEquals("b", changed.getFieldString("Name"));
+        Assertions.assertFalse(changed.hasField("Integer"));
+        Assertions.assertEquals("a", snapshot.getFieldString("Name"));
+        Assertions.assertTrue(snapshot.hasField("Integer"));
+
+        // Builder continues from the built snapshot, without changing it
+        AirtableRecordSnapshot again = builder.putField("Name", "c").build();
+        Assertions.assertEquals("b", changed.getFieldString("Name"));
+        Assertions.assertEquals("c", again.getFieldString("Name"));
+        Assertions.assertFalse(again.hasField("Integer"));
+
+        // null values are kept as json null, to clear the field
+        AirtableRecordSnapshot cleared = snapshot.toBuilder().putField("Name", (Object) null).build();
+        Assertions.assertTrue(cleared.getField("Name").isNull());
+    }
+
+    @Test
+    void toRecord() throws IOException {
+        AirtableRecordSnapshot snapshot = AirtableRecordSnapshot.of(record());
+        AirtableRecord record = snapshot.toRecord();
+
+        Assertions.assertFalse(record.isDirty());
+        Assertions.assertEquals(snapshot, AirtableRecordSnapshot.of(record));
+
+        record.putField("Name", "b");
+        ((ArrayNode) record.getField("Tags")).add("z");
+        Assertions.assertEquals(Collections.singleton("Name"), record.getDirtyFields());
+        Assertions.assertEquals("a", snapshot.getFieldString("Name"));
+        Assertions.assertEquals(2, snapshot.getField("Tags").size());
+    }
+}
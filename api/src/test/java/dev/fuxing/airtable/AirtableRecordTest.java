@@ -0,0 +1,88 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AirtableRecordTest {
+    private static final String RECORD = "{\"id\":\"rec1\",\"createdTime\":\"2019-04-20T14:12:52.000Z\"," +
+            "\"fields\":{\"Name\":\"a\",\"Integer\":1,\"Double\":1.5}}";
+
+    @Test
+    void dirtyNew() {
+        AirtableRecord record = new AirtableRecord("rec1");
+        record.putField("Name", "a");
+        record.putField("Integer", 1);
+
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("Name", "Integer")), record.getDirtyFields());
+
+        record.markClean();
+        Assertions.assertFalse(record.isDirty());
+        record.putField("Integer", 2);
+        Assertions.assertEquals(Collections.singleton("Integer"), record.getDirtyFields());
+    }
+
+    @Test
+    void dirtyLoaded() throws IOException {
+        for (AirtableReader reader : Arrays.asList(AirtableReader.TREE, AirtableReader.LAZY)) {
+            AirtableRecord record = reader.readRecord(new ByteArrayInputStream(RECORD.getBytes(StandardCharsets.UTF_8)));
+            Assertions.assertFalse(record.isDirty());
+
+            record.getFieldString("Name");
+            Assertions.assertFalse(record.isDirty());
+
+            record.putField("Name", "b");
+            record.getFields().remove("Integer");
+            record.getFields().remove("Missing");
+            Assertions.assertEquals(new HashSet<>(Arrays.asList("Name", "Integer")), record.getDirtyFields());
+            Assertions.assertFalse(record.getFields().containsKey("Integer"));
+
+            for (Map.Entry<String, JsonNode> entry : record.getFields().entrySet()) {
+                if (entry.getKey().equals("Double")) entry.setValue(IntNode.valueOf(2));
+            }
+            Assertions.assertEquals(new HashSet<>(Arrays.asList("Name", "Integer", "Double")), record.getDirtyFields());
+
+            record.markDirty();
+            Assertions.assertEquals(new HashSet<>(Arrays.asList("Name", "Double")), record.getDirtyFields());
+        }
+    }
+
+    @Test
+    void patchClean() throws IOException {
+        // Every request fails after it's counted, no network
+        AtomicInteger requests = new AtomicInteger();
+        HttpClient client = HttpClients.custom()
+                .disableAutomaticRetries()
+                .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> {
+                    requests.incrementAndGet();
+                    throw new IOException("Offline");
+                })
+                .build();
+        AirtableTable table = new AirtableApi("key", Executor.newInstance(client)).base("app").table("Table");
+
+        AirtableRecord clean = AirtableReader.TREE.readRecord(new ByteArrayInputStream(RECORD.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertSame(clean, table.patch(clean));
+        Assertions.assertEquals(Collections.singletonList(clean), table.patch(Collections.singletonList(clean)));
+        Assertions.assertEquals(0, requests.get());
+
+        clean.putField("Name", "b");
+        Assertions.assertThrows(AirtableClientException.class, () -> table.patch(clean));
+        Assertions.assertThrows(AirtableClientException.class, () -> table.patch(Collections.singletonList(clean)));
+        Assertions.assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,97 @@
+package dev.fuxing.airtable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.*;
+
+class CompactFieldMapTest {
+
+    @Test
+    void map() {
+        FieldSchema schema = new FieldSchema();
+        Map<String, JsonNode> compact = new CompactFieldMap(schema, 0);
+        Map<String, JsonNode> expected = new HashMap<>();
+
+        for (Map<String, JsonNode> map : Arrays.asList(compact, expected)) {
+            Assertions.assertNull(map.put("a", TextNode.valueOf("1")));
+            Assertions.assertNull(map.put("b", IntNode.valueOf(2)));
+            Assertions.assertEquals(TextNode.valueOf("1"), map.put("a", TextNode.valueOf("3")));
+            Assertions.assertNull(map.put("c", null));
+            Assertions.assertEquals(IntNode.valueOf(2), map.remove("b"));
+            Assertions.assertNull(map.remove("b"));
+        }
+
+        Assertions.assertEquals(expected, compact);
+        Assertions.assertEquals(compact, expected);
+        Assertions.assertEquals(expected.hashCode(), compact.hashCode());
+        Assertions.assertTrue(compact.containsKey("c"));
+        Assertions.assertEquals(2, compact.size());
+
+        // Slots are shared with other maps of the same schema
+        Map<String, JsonNode> other = new CompactFieldMap(schema, 0);
+        other.put("b", IntNode.valueOf(4));
+        Assertions.assertFalse(compact.containsKey("b"));
+        Assertions.assertEquals(IntNode.valueOf(4), other.get("b"));
+
+        compact.entrySet().removeIf(entry -> entry.getKey().equals("a"));
+        Assertions.assertEquals(Collections.singleton("c"), compact.keySet());
+
+        compact.put("c", TextNode.valueOf("5"));
+        Assertions.assertEquals(TextNode.valueOf("5"), compact.get("c"));
+        Assertions.assertEquals(1, compact.size());
+    }
+
+    @Test
+    void schemaFull() {
+        FieldSchema schema = new FieldSchema();
+        for (int i = 0; i < FieldSchema.MAX_SLOTS; i++) {
+            schema.add("Field " + i);
+        }
+
+        Map<String, JsonNode> compact = new CompactFieldMap(schema, 0);
+        compact.put("Field 0", IntNode.valueOf(0));
+        compact.put("Overflow", IntNode.valueOf(1));
+
+        Assertions.assertEquals(-1, schema.slotOf("Overflow"));
+        Assertions.assertEquals(IntNode.valueOf(1), compact.get("Overflow"));
+        Assertions.assertEquals(2, compact.size());
+    }
+
+    /**
+     * Footprint report of the fields of 1000 records of a 50 fields table, excluding the values.
+     */
+    @Test
+    void footprint() {
+        ArrayNode nodes = AirtableApi.OBJECT_MAPPER.createArrayNode();
+        for (int i = 0; i < 1000; i++) {
+            ObjectNode node = nodes.addObject();
+            node.put("id", "rec" + i);
+            node.put("createdTime", "2019-04-20T14:12:52.000Z");
+            ObjectNode fields = node.putObject("fields");
+            for (int j = 0; j < 50; j++) {
+                fields.put("Field Name " + j, i * j);
+            }
+        }
+
+        List<Map<String, JsonNode>> hashMaps = new ArrayList<>();
+        List<Map<String, JsonNode>> compactMaps = new ArrayList<>();
+        FieldSchema schema = new FieldSchema();
+        for (JsonNode node : nodes) {
+            hashMaps.add(new AirtableRecord(node).getFields());
+            compactMaps.add(new AirtableRecord(node, schema).getFields());
+        }
+
+        long values = GraphLayout.parseInstance(nodes).totalSize();
+        long hashMap = GraphLayout.parseInstance(hashMaps, nodes).totalSize() - values;
+        long compact = GraphLayout.parseInstance(compactMaps, nodes).totalSize() - values;
+
+        Assertions.assertTrue(compact * 4 < hashMap, () -> "HashMap: " + hashMap + " bytes, CompactFieldMap: " + compact + " bytes");
+    }
+}
@@ -0,0 +1,173 @@
+package dev.fuxing.airtable;
+
+import dev.fuxing.airtable.exceptions.AirtableApiException;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import dev.fuxing.airtable.formula.AirtableFormulaEvaluator;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.utils.URLEncodedUtils;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Table in memory for tests, formulas are evaluated locally and every call is counted.
+ * Shared by the tests of other modules.
+ */
+public class MemoryTable implements AirtableTable {
+    public final List<AirtableRecord> records = new ArrayList<>();
+    public final List<String> formulas = new ArrayList<>();
+    public volatile int calls;
+
+    /**
+     * Number of records returned by every list call.
+     */
+    public volatile int returned;
+
+    /**
+     * Length of the longest url of a list call, as airtable receives it.
+     */
+    public volatile int longest;
+
+    /**
+     * Status code thrown by the next calls, 0 for none.
+     */
+    public volatile int failure;
+
+    public AirtableRecord add(String id, String name, int count) {
+        AirtableRecord record = new AirtableRecord(id);
+        record.putField("Name", name);
+        record.putField("Count", count);
+        records.add(record);
+        return record;
+    }
+
+    @Override
+    public String baseName() {
+        return "app";
+    }
+
+    @Override
+    public String tableName() {
+        return "Table";
+    }
+
+    @Override
+    public synchronized PaginationList list(QuerySpec querySpec) {
+        calls++;
+        if (failure != 0) throw new AirtableApiException(failure, "FAILURE", "Failure");
+        longest = Math.max(longest, url(querySpec).length());
+
+        Map<String, String> parameters = new HashMap<>();
+        Set<String> fields = null;
+        for (NameValuePair pair : URLEncodedUtils.parse(querySpec.build(), StandardCharsets.UTF_8)) {
+            if (pair.getName().equals("fields[]")) {
+                if (fields == null) fields = new HashSet<>();
+                fields.add(pair.getValue());
+            } else {
+                parameters.put(pair.getName(), pair.getValue());
+            }
+        }
+
+        String formula = parameters.get("filterByFormula");
+        formulas.add(formula);
+        AirtableFormulaEvaluator.CompiledFormula compiled = null;
+        try {
+            if (formula != null) compiled = AirtableFormulaEvaluator.DEFAULT.compile(formula);
+        } catch (AirtableClientException e) {
+            // Functions only airtable can evaluate, every record matches
+        }
+        int offset = Integer.parseInt(parameters.getOrDefault("offset", "0"));
+        int pageSize = Integer.parseInt(parameters.getOrDefault("pageSize", "100"));
+
+        Page page = new Page();
+        int i = offset;
+        for (; i < records.size() && page.size() < pageSize; i++) {
+            AirtableRecord record = records.get(i);
+            if (compiled != null && !compiled.test(record)) continue;
+
+            AirtableRecordSnapshot.Builder builder = AirtableRecordSnapshot.of(record).toBuilder();
+            if (fields != null) {
+                for (String name : record.getFields().keySet()) {
+                    if (!fields.contains(name)) builder.removeField(name);
+                }
+            }
+            page.add(builder.build().toRecord());
+        }
+        // Offsets as long as airtable's
+        page.offset = i < records.size() ? String.format("%0" + MAX_OFFSET_LENGTH + "d", i) : null;
+        returned += page.size();
+        return page;
+    }
+
+    /**
+     * @return url of the list call as airtable receives it
+     */
+    private String url(QuerySpec querySpec) {
+        try {
+            return new URIBuilder(querySpec.build())
+                    .setPathSegments("v0", baseName(), tableName())
+                    .build().toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized AirtableRecord get(String recordId) {
+        calls++;
+        if (failure != 0) throw new AirtableApiException(failure, "FAILURE", "Failure");
+
+        for (AirtableRecord record : records) {
+            if (record.getId().equals(recordId)) return AirtableRecordSnapshot.of(record).toRecord();
+        }
+        return null;
+    }
+
+    @Override
+    public List<AirtableRecord> post(List<AirtableRecord> records, boolean typecast) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AirtableRecord post(AirtableRecord record, boolean typecast) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<AirtableRecord> patch(List<AirtableRecord> records, boolean typecast) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<AirtableRecord> put(List<AirtableRecord> records, boolean typecast) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AirtableRecord patch(AirtableRecord record, boolean typecast) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean delete(String recordId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> delete(List<String> recordIds) {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class Page extends ArrayList<AirtableRecord> implements PaginationList {
+        private static final long serialVersionUID = 1L;
+
+        String offset;
+
+        @Override
+        public String getOffset() {
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dev.fuxing.airtable.columnar;
+
+import dev.fuxing.airtable.AirtableReader;
+import dev.fuxing.airtable.AirtableRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class ColumnarBatchTest {
+    private static final String PAGE = "{\"records\":[" +
+            "{\"id\":\"rec1\",\"createdTime\":\"2019-04-20T14:12:52.000Z\",\"fields\":{\"Name\":\"a\",\"Count\":1,\"Price\":1,\"Status\":\"Todo\",\"Done\":true,\"Tags\":[\"x\"],\"Mixed\":1}}," +
+            "{\"id\":\"rec2\",\"createdTime\":\"2019-04-20T14:12:53.000Z\",\"fields\":{\"Name\":\"b\",\"Count\":2,\"Price\":2.5,\"Status\":\"Done\",\"Mixed\":\"one\"}}," +
+            "{\"id\":\"rec3\",\"createdTime\":\"2019-04-20T14:12:54.000Z\",\"fields\":{\"Status\":\"Todo\",\"Done\":false}}" +
+            "],\"offset\":\"itr1/rec3\"}";
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void read() throws IOException {
+        ColumnarBatch batch = ColumnarBatch.read(stream(PAGE));
+        assertPage(batch);
+        Assertions.assertEquals("itr1/rec3", batch.getOffset());
+    }
+
+    @Test
+    void of() throws IOException {
+        List<AirtableRecord> records = AirtableReader.TREE.readList(stream(PAGE));
+        assertPage(ColumnarBatch.of(records));
+    }
+
+    private static void assertPage(ColumnarBatch batch) {
+        Assertions.assertEquals(3, batch.size());
+        Assertions.assertEquals("rec2", batch.getId(1));
+        Assertions.assertEquals(1555769573000L, batch.getCreatedTime(1));
+
+        LongColumn count = batch.getColumn("Count", LongColumn.class);
+        Assertions.assertEquals(3, count.sumLong());
+        Assertions.assertEquals(1.5, count.average());
+        Assertions.assertTrue(count.isNull(2));
+        Assertions.assertEquals(1, count.nullCount());
+
+        // Widened to double on the first fractional value
+        DoubleColumn price = batch.getColumn("Price", DoubleColumn.class);
+        Assertions.assertEquals(1.0, price.getDouble(0));
+        Assertions.assertEquals(3.5, price.sum());
+        Assertions.assertEquals(1.0, price.min());
+        Assertions.assertEquals(2.5, price.max());
+
+        List<Double> values = new ArrayList<>();
+        price.forEachDouble(values::add);
+        Assertions.assertEquals(2, values.size());
+
+        StringColumn status = batch.getColumn("Status", StringColumn.class);
+        Assertions.assertEquals(2, status.dictionarySize());
+        Assertions.assertEquals(status.getCode(0), status.getCode(2));
+        Assertions.assertEquals(2, status.countByCode()[status.codeOf("Todo")]);
+        Assertions.assertEquals(-1, status.codeOf("Missing"));
+
+        StringColumn name = batch.getColumn("Name", StringColumn.class);
+        Assertions.assertNull(name.getString(2));
+        Assertions.assertEquals(-1, name.getCode(2));
+
+        BooleanColumn done = batch.getColumn("Done", BooleanColumn.class);
+        Assertions.assertTrue(done.getBoolean(0));
+        Assertions.assertFalse(done.getBoolean(1));
+        Assertions.assertTrue(done.isNull(1));
+        Assertions.assertFalse(done.isNull(2));
+        Assertions.assertEquals(1, done.countTrue());
+
+        NodeColumn tags = batch.getColumn("Tags", NodeColumn.class);
+        Assertions.assertEquals("x", tags.getNode(0).path(0).asText());
+        Assertions.assertNull(tags.getNode(1));
+
+        // Mixed types fall back to JsonNode
+        NodeColumn mixed = batch.getColumn("Mixed", NodeColumn.class);
+        Assertions.assertEquals(1, mixed.getNode(0).asInt());
+        Assertions.assertEquals("one", mixed.getNode(1).asText());
+
+        Assertions.assertNull(batch.getColumn("Missing"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> batch.getColumn("Name", NumberColumn.class));
+    }
+
+    @Test
+    void builder() throws IOException {
+        ColumnarBatch.Builder builder = ColumnarBatch.builder();
+        for (int i = 0; i < 300; i++) {
+            builder.read(stream("{\"records\":[{\"id\":\"rec" + i + "\",\"fields\":{\"N\":" + i + "}}]" +
+                    (i < 299 ? ",\"offset\":\"o\"}" : "}")));
+        }
+
+        ColumnarBatch batch = builder.build();
+        Assertions.assertEquals(300, batch.size());
+        Assertions.assertNull(batch.getOffset());
+        Assertions.assertEquals(299 * 300 / 2, batch.getColumn("N", LongColumn.class).sumLong());
+        Assertions.assertEquals("rec299", batch.getId(299));
+    }
+}
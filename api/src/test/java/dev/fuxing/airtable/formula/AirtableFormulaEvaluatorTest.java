@@ -0,0 +1,183 @@
+package dev.fuxing.airtable.formula;
+
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+
+import static dev.fuxing.airtable.formula.AirtableFormula.Object.*;
+
+class AirtableFormulaEvaluatorTest {
+    private static final AirtableFormulaEvaluator EVALUATOR = new AirtableFormulaEvaluator(
+            Clock.fixed(Instant.parse("2019-05-01T00:00:00Z"), ZoneOffset.UTC));
+
+    private static AirtableRecord record() {
+        AirtableRecord record = new AirtableRecord("rec1");
+        record.setCreatedTime(Date.from(Instant.parse("2019-04-20T14:12:52Z")));
+        record.putField("Name", "Alpha");
+        record.putField("Count", 3);
+        record.putField("Price", 2.5);
+        record.putField("Done", true);
+        record.putField("Date", "2019-04-21");
+        record.putField("Tags", Arrays.asList("x", "y"));
+        return record;
+    }
+
+    private static boolean test(String formula) {
+        return EVALUATOR.compile(formula).test(record());
+    }
+
+    @Test
+    void precedence() {
+        AirtableFormula.Object[] formulas = {
+                operation(NumericOperator.MULTIPLY, operation(NumericOperator.ADD, value(1), value(2)), value(3)),
+                operation(NumericOperator.ADD, value(1), operation(NumericOperator.MULTIPLY, value(2), value(3))),
+                operation(NumericOperator.SUBTRACT, field("Count"), operation(NumericOperator.SUBTRACT, value(2), value(1))),
+                operation(NumericOperator.SUBTRACT, operation(NumericOperator.SUBTRACT, field("Count"), value(2)), value(1)),
+                operation(NumericOperator.DIVIDE, field("Price"), operation(NumericOperator.MULTIPLY, value(2), value(5))),
+                operation(NumericOperator.MULTIPLY, operation(NumericOperator.ADD, field("Count"), value(1)),
+                        operation(NumericOperator.SUBTRACT, field("Price"), value(0.5)), value(2)),
+                operation(LogicalOperator.EQ, operation(LogicalOperator.GT, field("Count"), value(1)), value(1)),
+                operation(LogicalOperator.EQ, value(0), operation(LogicalOperator.GT, field("Count"), value(5))),
+                operation(LogicalOperator.EQ, value(1), value(1), value(1)),
+        };
+
+        for (AirtableFormula.Object formula : formulas) {
+            AirtableFormula.Object parsed = AirtableFormulaParser.parse(formula.toString());
+            Assertions.assertEquals(EVALUATOR.compile(formula).evaluate(record()), EVALUATOR.compile(parsed).evaluate(record()), formula.toString());
+        }
+
+        Assertions.assertEquals(9.0, EVALUATOR.compile(formulas[0]).evaluate(record()));
+        Assertions.assertEquals(7.0, EVALUATOR.compile(formulas[1]).evaluate(record()));
+    }
+
+    @Test
+    void parse() {
+        Assertions.assertEquals("AND({Name}='a',{Count}>1)", AirtableFormulaParser.parse("AND({Name} = 'a', {Count} > 1)").toString());
+        Assertions.assertEquals("{A}+{B}*2", AirtableFormulaParser.parse("{A} + {B} * 2").toString());
+        Assertions.assertEquals("CONCATENATE({A},'-',{B})", AirtableFormulaParser.parse("{A} & \"-\" & {B}").toString());
+        Assertions.assertEquals("({A}+1)*2", AirtableFormulaParser.parse("({A}+1)*2").toString());
+
+        AirtableFormula.Object built = function(LogicalFunction.AND, operation(LogicalOperator.EQ, field("Name"), value("a")));
+        Assertions.assertEquals(built, AirtableFormulaParser.parse(built.toString()));
+
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaParser.parse("AND({A}"));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaParser.parse("{A} = 'a"));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaParser.parse("{A} ="));
+    }
+
+    @Test
+    void logical() {
+        Assertions.assertTrue(test("{Name} = 'Alpha'"));
+        Assertions.assertFalse(test("{Name} = 'alpha'"));
+        Assertions.assertTrue(test("AND({Count} > 2, {Price} <= 2.5, {Done})"));
+        Assertions.assertTrue(test("OR({Count} > 5, {Done} = TRUE())"));
+        Assertions.assertTrue(test("NOT({Count} = 4)"));
+        Assertions.assertTrue(test("XOR({Done}, FALSE())"));
+        Assertions.assertTrue(test("IF({Count} > 1, 'yes', '') = 'yes'"));
+        Assertions.assertTrue(test("{Count} != '4'"));
+        Assertions.assertTrue(test("{Count} = '3'"));
+        Assertions.assertTrue(test("RECORD_ID() = 'rec1'"));
+    }
+
+    @Test
+    void blank() {
+        Assertions.assertTrue(test("{Missing} = ''"));
+        Assertions.assertTrue(test("{Missing} = 0"));
+        Assertions.assertTrue(test("{Missing} = BLANK()"));
+        Assertions.assertTrue(test("{Missing} = FALSE()"));
+        Assertions.assertFalse(test("{Missing}"));
+        Assertions.assertFalse(test("{Name} = BLANK()"));
+        Assertions.assertTrue(test("{Missing} + 1 = 1"));
+    }
+
+    @Test
+    void functions() {
+        Assertions.assertTrue(test("LEN({Name}) = 5"));
+        Assertions.assertTrue(test("LOWER({Name}) = 'alpha'"));
+        Assertions.assertTrue(test("UPPER(TRIM(' a ')) = 'A'"));
+        Assertions.assertTrue(test("{Name} & {Count} = 'Alpha3'"));
+        Assertions.assertTrue(test("FIND('ph', {Name}) = 3"));
+        Assertions.assertTrue(test("FIND('z', {Name}) = 0"));
+        Assertions.assertTrue(test("SEARCH('z', {Name}) = BLANK()"));
+        Assertions.assertTrue(test("ABS(0 - {Count}) = 3"));
+        Assertions.assertTrue(test("AVERAGE({Count}, 5) = 4"));
+        Assertions.assertTrue(test("ARRAYJOIN({Tags}) = 'x, y'"));
+        Assertions.assertTrue(test("ARRAYJOIN({Tags}, ';') = 'x;y'"));
+        Assertions.assertTrue(test("{Tags} = 'x, y'"));
+        Assertions.assertTrue(test("(1 + 2) * 3 - 1 = 8"));
+        Assertions.assertFalse(test("1 / 0"));
+    }
+
+    @Test
+    void errors() {
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("NOT({Count} / 0)").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("OR({Count} / 0, TRUE())").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("AND(FALSE(), {Count} / 0)").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("XOR({Done}, {Count} / 0)").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("IF({Count} / 0, 'yes', 'no')").evaluate(record()));
+        Assertions.assertFalse(test("NOT({Count} / 0)"));
+        Assertions.assertFalse(test("NOT(NOT({Count} / 0))"));
+
+        // Only plain decimals are numbers, not what Double.parseDouble also accepts
+        Assertions.assertTrue(test("'1.5' + 1 = 2.5"));
+        Assertions.assertTrue(test("'-.5e1' + 0 = -5"));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("'1d' + 1").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("'NaN' * 1").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("'Infinity' - 1").evaluate(record()));
+        Assertions.assertSame(AirtableFormulaEvaluator.ERROR, EVALUATOR.compile("'0x10' + 0").evaluate(record()));
+    }
+
+    @Test
+    void dates() {
+        Assertions.assertTrue(test("YEAR({Date}) = 2019"));
+        Assertions.assertTrue(test("MONTH({Date}) = 4"));
+        Assertions.assertTrue(test("DAY(CREATED_TIME()) = 20"));
+        Assertions.assertTrue(test("HOUR(CREATED_TIME()) = 14"));
+        Assertions.assertTrue(test("TONOW({Date}) = 10"));
+        Assertions.assertTrue(test("CREATED_TIME() < NOW()"));
+        Assertions.assertTrue(test("{Date} > CREATED_TIME()"));
+        Assertions.assertFalse(test("{Missing} > CREATED_TIME()"));
+        Assertions.assertTrue(test("IS_AFTER({Date}, CREATED_TIME())"));
+        Assertions.assertTrue(test("IS_BEFORE(CREATED_TIME(), '2019-04-20T14:12:53.000Z')"));
+        Assertions.assertFalse(test("IS_AFTER({Missing}, CREATED_TIME())"));
+
+        // TODAY() is the date without the time, NOW() is not
+        AirtableFormulaEvaluator afternoon = new AirtableFormulaEvaluator(
+                Clock.fixed(Instant.parse("2019-04-21T15:30:00Z"), ZoneOffset.UTC));
+        Assertions.assertEquals("TODAY()", function(DateTimeFunction.TODAY).toString());
+        Assertions.assertTrue(afternoon.compile("{Date} = TODAY()").test(record()));
+        Assertions.assertTrue(afternoon.compile(operation(LogicalOperator.EQ, field("Date"), function(DateTimeFunction.TODAY))).test(record()));
+        Assertions.assertFalse(afternoon.compile("{Date} = NOW()").test(record()));
+        Assertions.assertTrue(afternoon.compile("NOW() > TODAY()").test(record()));
+    }
+
+    @Test
+    void compiled() {
+        AirtableFormula.Object formula = function(LogicalFunction.AND,
+                operation(LogicalOperator.GT, field("Count"), value(1)),
+                operation(LogicalOperator.EQ, function(TextFunction.LOWER, field("Name")), value("alpha")));
+
+        AirtableFormulaEvaluator.CompiledFormula compiled = EVALUATOR.compile(formula);
+        Assertions.assertEquals(formula.toString(), compiled.toString());
+        Assertions.assertTrue(compiled.test(record()));
+        Assertions.assertTrue(compiled.test(AirtableRecordSnapshot.of(record())));
+        Assertions.assertFalse(compiled.test(new AirtableRecord("rec2")));
+        Assertions.assertEquals(3.0, EVALUATOR.compile("{Count}").evaluate(record()));
+
+        // Custom operators are evaluated from what they render
+        AirtableOperator gt = (left, right, others) -> left + ">" + right;
+        Assertions.assertTrue(EVALUATOR.compile(operation(gt, field("Count"), value(2))).test(record()));
+
+        Assertions.assertThrows(AirtableClientException.class, () -> EVALUATOR.compile("UNKNOWN({Name})"));
+        Assertions.assertThrows(AirtableClientException.class, () -> EVALUATOR.compile("NOT(1, 2)"));
+        Assertions.assertThrows(AirtableClientException.class, () -> EVALUATOR.compile("LAST_MODIFIED_TIME() > NOW()"));
+    }
+}
@@ -0,0 +1,96 @@
+package dev.fuxing.airtable.formula;
+
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.MemoryTable;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static dev.fuxing.airtable.formula.AirtableFormula.Object.*;
+
+class AirtableFormulaOptimizerTest {
+
+    private static String optimize(String formula) {
+        return AirtableFormulaOptimizer.optimize(AirtableFormulaParser.parse(formula)).toString();
+    }
+
+    @Test
+    void optimize() {
+        // Constants
+        Assertions.assertEquals("{A}>3", optimize("{A} > 1 + 2"));
+        Assertions.assertEquals("{A}='ab'", optimize("{A} = 'a' & 'b'"));
+        Assertions.assertEquals("{A}=2.5", optimize("{A} = 5 / 2"));
+        Assertions.assertEquals("{A}>(1+{B})", optimize("{A} > (1 + {B})"));
+        Assertions.assertEquals("NOW()", optimize("NOW()"));
+
+        // Flatten and remove duplicates
+        Assertions.assertEquals("OR({A}=1,{A}=2,{A}=3)", optimize("OR({A}=1, OR({A}=2, {A}=1), ({A}=3))"));
+        Assertions.assertEquals("AND({A},{B})", optimize("AND({A}, AND({B}, TRUE()), 1)"));
+        Assertions.assertEquals("FALSE()", optimize("AND({A}, 1 > 2)"));
+        Assertions.assertEquals("TRUE()", optimize("OR({A}, 'x')"));
+        Assertions.assertEquals("{A}", optimize("(({A}))"));
+    }
+
+    @Test
+    void split() {
+        List<AirtableFormula.Object> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(operation(LogicalOperator.EQ, field("Key"), value(String.format("k%03d", i))));
+        }
+        AirtableFormula.Object or = function(LogicalFunction.OR, keys.toArray(new AirtableFormula.Object[0]));
+        int length = AirtableFormulaOptimizer.encodedLength(or);
+
+        Assertions.assertEquals(Collections.singletonList(or), AirtableFormulaOptimizer.split(or, length));
+
+        List<AirtableFormula.Object> formulas = AirtableFormulaOptimizer.split(or, length / 3);
+        Assertions.assertEquals(4, formulas.size());
+        int total = 0;
+        for (AirtableFormula.Object formula : formulas) {
+            Assertions.assertTrue(AirtableFormulaOptimizer.encodedLength(formula) <= length / 3);
+            total += ((AirtableFormula.Function) formula).getArguments().size();
+        }
+        Assertions.assertEquals(100, total);
+
+        // Every part keeps the other arguments of AND
+        AirtableFormula.Object and = function(LogicalFunction.AND, field("Active"), or);
+        for (AirtableFormula.Object formula : AirtableFormulaOptimizer.split(and, length / 2)) {
+            Assertions.assertTrue(formula.toString().startsWith("AND({Active},OR({Key}="));
+        }
+
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaOptimizer.split(or, 10));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaOptimizer.split(keys.get(0), 10));
+    }
+
+    @Test
+    void iterator() {
+        MemoryTable table = new MemoryTable();
+        for (int i = 0; i < 300; i++) {
+            AirtableRecord record = new AirtableRecord("rec" + i);
+            record.putField("Key", "k" + i);
+            table.records.add(record);
+        }
+
+        List<AirtableFormula.Object> keys = new ArrayList<>();
+        for (int i = 0; i < 300; i += 2) {
+            keys.add(operation(LogicalOperator.EQ, field("Key"), value("k" + i)));
+        }
+        // Records matched by more than one call are returned once
+        keys.add(operation(LogicalOperator.EQ, function(TextFunction.LOWER, field("Key")), value("k0")));
+        keys.add(operation(LogicalOperator.EQ, function(TextFunction.LOWER, field("Key")), value("k298")));
+        AirtableFormula.Object or = function(LogicalFunction.OR, keys.toArray(new AirtableFormula.Object[0]));
+
+        Set<String> ids = new HashSet<>();
+        Iterator<AirtableRecord> iterator = table.iterator(querySpec -> querySpec.pageSize(10), or, 1000);
+        while (iterator.hasNext()) {
+            Assertions.assertTrue(ids.add(iterator.next().getId()));
+        }
+
+        Assertions.assertEquals(150, ids.size());
+        Assertions.assertTrue(table.calls > 2);
+        Assertions.assertEquals(152, table.returned);
+        Assertions.assertTrue(table.longest <= 1000, "longest url " + table.longest);
+        Assertions.assertTrue(table.longest > 900, "longest url " + table.longest);
+    }
+}
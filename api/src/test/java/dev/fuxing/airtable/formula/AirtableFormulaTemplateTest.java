@@ -0,0 +1,58 @@
+package dev.fuxing.airtable.formula;
+
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static dev.fuxing.airtable.formula.AirtableFormula.Object.*;
+
+class AirtableFormulaTemplateTest {
+
+    @Test
+    void escape() {
+        Assertions.assertEquals("{Name}='O\\'Brien'", LogicalOperator.EQ.apply(field("Name"), value("O'Brien")));
+        Assertions.assertEquals("'a\\\\b'", value("a\\b").toString());
+
+        // Escaped text is read back as it is
+        AirtableFormula.Object formula = operation(LogicalOperator.EQ, field("Name"), value("O'Brien \\ 'x'"));
+        Assertions.assertEquals(formula, AirtableFormulaParser.parse(formula.toString()));
+
+        AirtableRecord record = new AirtableRecord("rec1");
+        record.putField("Name", "O'Brien \\ 'x'");
+        Assertions.assertTrue(AirtableFormulaEvaluator.DEFAULT.compile(formula).test(record));
+    }
+
+    @Test
+    void bind() {
+        AirtableFormulaTemplate template = AirtableFormulaTemplate.compile("AND({Key} = ?, {Count} > ?, {Done} = ?)");
+        Assertions.assertEquals(3, template.getParameterCount());
+        Assertions.assertEquals("AND({Key} = 'it\\'s', {Count} > 2, {Done} = TRUE())", template.bind("it's", 2, true));
+        Assertions.assertEquals("AND({Key} = BLANK(), {Count} > 2.5, {Done} = FALSE())", template.bind(null, 2.5, false));
+        Assertions.assertEquals("AND({Key} = LOWER({A}), {Count} > 0.000001, {Done} = '2019-04-20')",
+                template.bind(function(TextFunction.LOWER, field("A")), new BigDecimal("0.000001"), LocalDate.of(2019, 4, 20)));
+        Assertions.assertEquals("AND({Key} = '2019-04-20T14:12:52.000Z', {Count} > 10000000000000000000, {Done} = 1)",
+                template.bind(Instant.parse("2019-04-20T14:12:52Z"), 1e19, 1L));
+
+        // Operations keep their order between the operators of the template
+        AirtableFormulaTemplate times = AirtableFormulaTemplate.compile("? * 3 = 9");
+        AirtableFormula.Object sum = operation(NumericOperator.ADD, value(1), value(2));
+        Assertions.assertEquals("(1+2) * 3 = 9", times.bind(sum));
+        Assertions.assertTrue(AirtableFormulaEvaluator.DEFAULT.compile(times.bind(sum)).test(new AirtableRecord()));
+
+        // Not parameters
+        AirtableFormulaTemplate quoted = AirtableFormulaTemplate.compile("{Why?} = '?' & ?");
+        Assertions.assertEquals(1, quoted.getParameterCount());
+        Assertions.assertEquals("{Why?} = '?' & 'a'", quoted.bind("a"));
+
+        Assertions.assertThrows(AirtableClientException.class, () -> template.bind("a"));
+        Assertions.assertThrows(AirtableClientException.class, () -> template.bind(new Object(), 1, true));
+        Assertions.assertThrows(AirtableClientException.class, () -> template.bind("a", Double.NaN, true));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaTemplate.compile("{Key} = ? ?"));
+        Assertions.assertThrows(AirtableClientException.class, () -> AirtableFormulaTemplate.compile("AND({Key} = ?"));
+    }
+}
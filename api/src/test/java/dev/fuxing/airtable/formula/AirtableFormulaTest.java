@@ -0,0 +1,71 @@
+package dev.fuxing.airtable.formula;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static dev.fuxing.airtable.formula.AirtableFormula.Object.*;
+
+class AirtableFormulaTest {
+
+    @Test
+    void render() {
+        Assertions.assertEquals("{Name}='a'", LogicalOperator.EQ.apply(field("Name"), value("a")));
+        Assertions.assertEquals("1+2+3", NumericOperator.ADD.apply(value(1), value(2), value(3)));
+        Assertions.assertEquals("AND(1,{f2})", LogicalFunction.AND.apply(value(1), field("f2")));
+        Assertions.assertEquals("RECORD_ID()", RecordFunction.RECORD_ID.apply());
+        Assertions.assertEquals("{f1}=(AND(1,{f2}))", LogicalOperator.EQ.apply(field("f1"), parentheses(LogicalFunction.AND, value(1), field("f2"))));
+
+        AirtableFormula.Object formula = function(LogicalFunction.AND,
+                operation(LogicalOperator.GT, field("Count"), value(1)),
+                parentheses(NumericOperator.ADD, field("A"), value(2.5)));
+        Assertions.assertEquals("AND({Count}>1,({A}+2.5))", formula.toString());
+
+        // Operands binding less tightly are wrapped, operands on the right of the same precedence too
+        Assertions.assertEquals("(1+2)*3", operation(NumericOperator.MULTIPLY, operation(NumericOperator.ADD, value(1), value(2)), value(3)).toString());
+        Assertions.assertEquals("1+2*3", operation(NumericOperator.ADD, value(1), operation(NumericOperator.MULTIPLY, value(2), value(3))).toString());
+        Assertions.assertEquals("1-2-3", operation(NumericOperator.SUBTRACT, operation(NumericOperator.SUBTRACT, value(1), value(2)), value(3)).toString());
+        Assertions.assertEquals("1-(2-3)", operation(NumericOperator.SUBTRACT, value(1), operation(NumericOperator.SUBTRACT, value(2), value(3))).toString());
+        Assertions.assertEquals("{A}=({B}>1)", operation(LogicalOperator.EQ, field("A"), operation(LogicalOperator.GT, field("B"), value(1))).toString());
+
+        // Comparisons chain every operand, the same as the operation
+        Assertions.assertEquals("1=1=1", LogicalOperator.EQ.apply(value(1), value(1), value(1)));
+        Assertions.assertEquals("(1=1=1)", parentheses(LogicalOperator.EQ, value(1), value(1), value(1)).toString());
+
+        // Rendered once
+        Assertions.assertSame(formula.toString(), formula.toString());
+    }
+
+    @Test
+    void tree() {
+        AirtableFormula.Operation operation = operation(LogicalOperator.EQ, field("Name"), value("a"));
+        Assertions.assertSame(LogicalOperator.EQ, operation.getOperator());
+        Assertions.assertEquals("=", operation.getOperator().symbol());
+        Assertions.assertEquals(field("Name"), operation.getOperands().get(0));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> operation.getOperands().add(value(1)));
+
+        AirtableFormula.Function function = function(TextFunction.LOWER, field("Name"));
+        Assertions.assertEquals("LOWER", function.getFunction().name());
+        Assertions.assertEquals("Name", ((AirtableFormula.Field) function.getArguments().get(0)).getName());
+    }
+
+    @Test
+    void equality() {
+        AirtableFormula.Object a = function(LogicalFunction.AND, operation(LogicalOperator.EQ, field("Name"), value("a")), value(1));
+        AirtableFormula.Object b = function(LogicalFunction.AND, operation(LogicalOperator.EQ, field("Name"), value("a")), value(1));
+        Assertions.assertEquals(a, b);
+        Assertions.assertEquals(a.hashCode(), b.hashCode());
+
+        Assertions.assertNotEquals(a, function(LogicalFunction.AND, operation(LogicalOperator.NEQ, field("Name"), value("a")), value(1)));
+        Assertions.assertNotEquals(value("1"), value(1));
+        Assertions.assertNotEquals(field("a"), value("a"));
+    }
+
+    @Test
+    void custom() {
+        AirtableOperator concat = (left, right, others) -> left + "&" + right;
+        AirtableFunction not = objects -> "NOT(" + objects[0] + ")";
+
+        AirtableFormula.Object formula = function(not, operation(concat, field("A"), value("b")));
+        Assertions.assertEquals("NOT({A}&'b')", formula.toString());
+    }
+}
@@ -0,0 +1,68 @@
+package dev.fuxing.airtable.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void additiveIncrease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        for (int round = 0; round < 20; round++) {
+            List<AirtableConcurrencyLimiter.Listener> listeners = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit("app1"); i++) {
+                listeners.add(limiter.acquire("app1"));
+            }
+            listeners.forEach(listener -> listener.onSuccess(TimeUnit.MILLISECONDS.toNanos(100)));
+        }
+
+        Assertions.assertEquals(10, limiter.getLimit("app1"));
+        Assertions.assertEquals(2, limiter.getLimit("app2"));
+    }
+
+    @Test
+    void multiplicativeDecrease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 10);
+
+        List<AirtableConcurrencyLimiter.Listener> listeners = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            listeners.add(limiter.acquire("app1"));
+        }
+
+        // All 8 are dropped in the same window, only cut once
+        listeners.forEach(AirtableConcurrencyLimiter.Listener::onDropped);
+        Assertions.assertEquals(4, limiter.getLimit("app1"));
+        Assertions.assertEquals(8, limiter.metrics("app1").getDropped());
+        Assertions.assertEquals(0, limiter.metrics("app1").getInFlight());
+
+        // Slow response counts as dropped
+        limiter.acquire("app1").onSuccess(TimeUnit.SECONDS.toNanos(10));
+        Assertions.assertEquals(2, limiter.getLimit("app1"));
+    }
+
+    @Test
+    void blockAtLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        AirtableConcurrencyLimiter.Listener first = limiter.acquire("app1");
+
+        CompletableFuture<AirtableConcurrencyLimiter.Listener> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire("app1");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Assertions.assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+        first.onIgnore();
+        Assertions.assertNotNull(second.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, limiter.metrics("app1").getInFlight());
+    }
+}
@@ -0,0 +1,72 @@
+package dev.fuxing.airtable.limit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class AirtableBackoffTest {
+
+    @Test
+    void notPenalized() throws Exception {
+        AirtableBackoff backoff = new AirtableBackoff(300, 50, TimeUnit.MILLISECONDS);
+        Assertions.assertFalse(backoff.isPenalized("app1"));
+
+        long start = System.nanoTime();
+        backoff.await("app1");
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void penalized() throws Exception {
+        AirtableBackoff backoff = new AirtableBackoff(300, 50, TimeUnit.MILLISECONDS);
+        backoff.penalize("app1");
+        Assertions.assertTrue(backoff.isPenalized("app1"));
+        Assertions.assertFalse(backoff.isPenalized("app2"));
+
+        // In-flight 429 do not extend the penalty
+        long remaining = backoff.remaining("app1", TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+        backoff.penalize("app1");
+        Assertions.assertTrue(backoff.remaining("app1", TimeUnit.MILLISECONDS) <= remaining - 90);
+
+        long start = System.nanoTime();
+        backoff.await("app1");
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsed >= 150, "elapsed: " + elapsed);
+        Assertions.assertFalse(backoff.isPenalized("app1"));
+    }
+
+    @Test
+    void ramp() throws Exception {
+        AirtableBackoff backoff = new AirtableBackoff(200, 50, TimeUnit.MILLISECONDS);
+        backoff.penalize("app1");
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    backoff.await("app1");
+                    return System.nanoTime();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+
+        List<Long> released = new ArrayList<>();
+        for (CompletableFuture<Long> future : futures) {
+            released.add(future.get(5, TimeUnit.SECONDS));
+        }
+        Collections.sort(released);
+
+        for (int i = 1; i < released.size(); i++) {
+            long gap = TimeUnit.NANOSECONDS.toMillis(released.get(i) - released.get(i - 1));
+            Assertions.assertTrue(gap >= 40, "gap: " + gap);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package dev.fuxing.airtable.limit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit shared across multiple local JVMs.
+ */
+class SharedRateLimiterTest {
+    static final double PERMITS_PER_SECOND = 10;
+    static final long INTERVAL_MILLIS = 100;
+
+    Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("airtable", ".limit");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void sameProcess() throws Exception {
+        try (SharedRateLimiter first = SharedRateLimiter.open(file, PERMITS_PER_SECOND, 1);
+             SharedRateLimiter second = SharedRateLimiter.open(file, PERMITS_PER_SECOND, 1)) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                first.acquire("app1");
+                second.acquire("app1");
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            Assertions.assertTrue(elapsed >= 9 * INTERVAL_MILLIS - 20, "elapsed: " + elapsed);
+
+            // Different base has its own bucket
+            start = System.currentTimeMillis();
+            first.acquire("app2");
+            Assertions.assertTrue(System.currentTimeMillis() - start < INTERVAL_MILLIS);
+        }
+    }
+
+    @Test
+    void multipleJvm() throws Exception {
+        long startAt = System.currentTimeMillis() + 1500;
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            processes.add(participant(startAt, 4));
+        }
+
+        List<Long> acquired = new ArrayList<>();
+        for (Process process : processes) {
+            Assertions.assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, process.exitValue());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                reader.lines().forEach(line -> acquired.add(Long.parseLong(line)));
+            }
+        }
+        Assertions.assertEquals(12, acquired.size());
+        Collections.sort(acquired);
+
+        // Permits of every participant on a single schedule, with a burst of 1 no two permits are granted within an interval.
+        // Independent limiters would grant a permit to every participant at about the same time.
+        for (int i = 1; i < acquired.size(); i++) {
+            long gap = acquired.get(i) - acquired.get(i - 1);
+            Assertions.assertTrue(gap >= INTERVAL_MILLIS / 2, "gap: " + gap + ", acquired: " + acquired);
+
+            long elapsed = acquired.get(i) - acquired.get(0);
+            Assertions.assertTrue(elapsed >= i * INTERVAL_MILLIS - 20, "elapsed: " + elapsed + ", acquired: " + acquired);
+        }
+    }
+
+    @Test
+    void crashedParticipant() throws Exception {
+        Process process = participant(System.currentTimeMillis(), Integer.MAX_VALUE);
+        // Wait for it to start acquiring, then kill it abruptly
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!claimed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(claimed());
+        Thread.sleep(3 * INTERVAL_MILLIS);
+        Assertions.assertTrue(process.isAlive());
+        process.destroyForcibly().waitFor();
+
+        try (SharedRateLimiter limiter = SharedRateLimiter.open(file, PERMITS_PER_SECOND, 1)) {
+            long start = System.currentTimeMillis();
+            limiter.acquire("app1");
+            limiter.acquire("app1");
+            long elapsed = System.currentTimeMillis() - start;
+            Assertions.assertTrue(elapsed <= 3 * INTERVAL_MILLIS, "elapsed: " + elapsed);
+        }
+    }
+
+    private Process participant(long startAt, int permits) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Participant.class.getName(), file.toString(), String.valueOf(startAt), String.valueOf(permits))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * @return whether any participant claimed a slot in the file
+     */
+    private boolean claimed() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        for (int slot = SharedRateLimiter.HEADER_SIZE; slot + 8 <= buffer.limit(); slot += SharedRateLimiter.SLOT_SIZE) {
+            if (buffer.getLong(slot) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Separate JVM participant, acquires the permits then exits, printing the time each permit is acquired.
+     */
+    public static final class Participant {
+        public static void main(String[] args) throws Exception {
+            File file = new File(args[0]);
+            long startAt = Long.parseLong(args[1]);
+            int permits = Integer.parseInt(args[2]);
+
+            try (SharedRateLimiter limiter = SharedRateLimiter.open(file.toPath(), PERMITS_PER_SECOND, 1)) {
+                long delay = startAt - System.currentTimeMillis();
+                if (delay > 0) Thread.sleep(delay);
+
+                // Time each permit is acquired, read by the test
+                for (int i = 0; i < permits; i++) {
+                    limiter.acquire("app1");
+                    System.out.println(System.currentTimeMillis());
+                }
+            }
+        }
+    }
+}
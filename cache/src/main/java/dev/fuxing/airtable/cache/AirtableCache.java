@@ -1,6 +1,7 @@
 package dev.fuxing.airtable.cache;
 
 import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
 import dev.fuxing.airtable.AirtableTable;
 import dev.fuxing.airtable.exceptions.AirtableApiException;
 
@@ -34,7 +35,7 @@ public interface AirtableCache {
     }
 
     /**
-     * Get will always attempt to get the latest record from airtable server.
+     * Get reads by the {@link ReadPolicy} of the cache, by default it will always attempt to get the latest record from airtable server.
      * Fallback read from cache will only happen if any of the ignorable exception is thrown.
      * <p>
      * Ignorable {@link AirtableApiException} are: 429, 500, 502, 503
@@ -43,12 +44,23 @@ public interface AirtableCache {
      * @return {@link AirtableRecord} or {@code null} if don't exist
      * @throws AirtableApiException if exception is not ignorable or it is not previously cached before
      * @see AirtableCache#isIgnorable(AirtableApiException)
+     * @see ReadPolicy
      */
     @Nullable
     AirtableRecord get(String recordId) throws AirtableApiException;
 
     /**
-     * Query will always attempt to get the latest result from airtable server.
+     * Same as {@link #get(String)}, but the immutable snapshot held by the cache is returned without copying.
+     *
+     * @param recordId id of the record, prefixed with 'rec'
+     * @return {@link AirtableRecordSnapshot} or {@code null} if don't exist
+     * @throws AirtableApiException if exception is not ignorable or it is not previously cached before
+     */
+    @Nullable
+    AirtableRecordSnapshot getSnapshot(String recordId) throws AirtableApiException;
+
+    /**
+     * Query reads by the {@link ReadPolicy} of the cache, by default it will always attempt to get the latest result from airtable server.
      * Fallback read from cache will only happen if any of the ignorable exception is thrown.
      * The cache key used will be the querystring.
      * <p>
@@ -65,7 +77,7 @@ public interface AirtableCache {
     }
 
     /**
-     * Query will always attempt to get the latest result from airtable server.
+     * Query reads by the {@link ReadPolicy} of the cache, by default it will always attempt to get the latest result from airtable server.
      * Fallback read from cache will only happen if any of the ignorable exception is thrown.
      * The cache key used will be the querystring.
      * <p>
@@ -84,7 +96,7 @@ public interface AirtableCache {
     }
 
     /**
-     * Query will always attempt to get the latest result from airtable server.
+     * Query reads by the {@link ReadPolicy} of the cache, by default it will always attempt to get the latest result from airtable server.
      * Fallback read from cache will only happen if any of the ignorable exception is thrown.
      * The cache key used will be the querystring.
      * <p>
@@ -98,6 +110,21 @@ public interface AirtableCache {
     @Nonnull
     List<AirtableRecord> query(AirtableTable.QuerySpec querySpec) throws AirtableApiException;
 
+    /**
+     * Same as {@link #query(AirtableTable.QuerySpec)}, but the immutable snapshots held by the cache are returned without copying.
+     *
+     * @param querySpec fluent query spec with all the querystring options
+     * @return immutable List of AirtableRecordSnapshot or empty List
+     * @throws AirtableApiException if exception is not ignorable or it is not previously cached before
+     */
+    @Nonnull
+    List<AirtableRecordSnapshot> querySnapshots(AirtableTable.QuerySpec querySpec) throws AirtableApiException;
+
+    /**
+     * @return hit, miss and fallback counts of reads since the cache is created
+     */
+    Stats stats();
+
     /**
      * Default: 429, Too Many Ignore
      * Airtable Server Exception: 500, 502, 503
@@ -116,4 +143,94 @@ public interface AirtableCache {
 
         return false;
     }
+
+    /**
+     * How reads are served between the cache and airtable.
+     */
+    enum ReadPolicy {
+        /**
+         * Always read from airtable, the cache is only read if an ignorable exception is thrown. (Default)
+         */
+        NETWORK_FIRST,
+
+        /**
+         * Read from the cache if it was written within the freshness duration, else read from airtable.
+         * The cache is also read if an ignorable exception is thrown.
+         * With refresh after write, values are refreshed in the background before they are no longer fresh.
+         */
+        CACHE_FIRST,
+
+        /**
+         * Only read from the cache, airtable is never called.
+         * Missing records are {@code null} and missing queries are empty.
+         */
+        CACHE_ONLY,
+    }
+
+    /**
+     * Counts of reads, a snapshot at the time it's taken.
+     */
+    final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long fallbackCount;
+        private final long refreshCount;
+
+        public Stats(long hitCount, long missCount, long fallbackCount) {
+            this(hitCount, missCount, fallbackCount, 0);
+        }
+
+        public Stats(long hitCount, long missCount, long fallbackCount, long refreshCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.fallbackCount = fallbackCount;
+            this.refreshCount = refreshCount;
+        }
+
+        /**
+         * @return number of reads served from the cache without calling airtable
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * @return number of reads not served from the cache, sent to airtable unless the policy is cache only
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return number of reads sent to airtable that failed with an ignorable exception, and are served from the cache
+         */
+        public long getFallbackCount() {
+            return fallbackCount;
+        }
+
+        /**
+         * @return number of background refreshes started
+         */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        /**
+         * @return ratio of reads served from the cache without calling airtable, 1.0 if there are no reads
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 1.0 : (double) hitCount / total;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hitCount=" + hitCount +
+                    ", missCount=" + missCount +
+                    ", fallbackCount=" + fallbackCount +
+                    ", refreshCount=" + refreshCount +
+                    '}';
+        }
+    }
 }
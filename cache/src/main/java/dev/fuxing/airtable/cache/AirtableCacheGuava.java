@@ -1,31 +1,55 @@
 package dev.fuxing.airtable.cache;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import dev.fuxing.airtable.AirtableApi;
 import dev.fuxing.airtable.AirtableExecutor;
+import dev.fuxing.airtable.AirtableInternPool;
+import dev.fuxing.airtable.AirtableReader;
 import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
 import dev.fuxing.airtable.AirtableTable;
 import dev.fuxing.airtable.exceptions.AirtableApiException;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Created by: Fuxing
  * Date: 2019-04-23
  * Time: 18:08
  */
-public class AirtableCacheGuava implements AirtableCache {
-    private final Cache<String, AirtableRecord> getCache;
-    private final Cache<String, List<AirtableRecord>> queryCache;
+public class AirtableCacheGuava implements AirtableCache, Closeable {
+    private final Cache<String, Entry<AirtableRecordSnapshot>> getCache;
+    private final Cache<String, Entry<List<AirtableRecordSnapshot>>> queryCache;
 
     private final AirtableTable table;
+    private final ReadPolicy readPolicy;
+    private final long freshNanos;
+    private final long refreshNanos;
+    private final Executor refreshExecutor;
+    private final ExecutorService ownedExecutor;
+    private final Ticker ticker;
+
+    private final Set<String> refreshingGets = ConcurrentHashMap.newKeySet();
+    private final Set<String> refreshingQueries = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
 
     /**
      * Use builder. This is a fallback for those that don't know how to use builder.
@@ -42,65 +66,211 @@ public class AirtableCacheGuava implements AirtableCache {
     }
 
     AirtableCacheGuava(BuilderImpl builder) {
-        AirtableApi api = new AirtableApi(builder.apiKey, AirtableExecutor.newInstanceTurbo());
-        this.table = api.base(builder.base).table(builder.table);
+        this(builder, createTable(builder));
+    }
+
+    /**
+     * @param table to read from, with the 429 auto retry controlled by the caller
+     */
+    AirtableCacheGuava(BuilderImpl builder, AirtableTable table) {
+        this.table = table;
+        this.readPolicy = builder.readPolicy;
+        this.freshNanos = builder.freshTimeUnit.toNanos(builder.freshDuration);
+        this.refreshNanos = builder.refreshTimeUnit == null ? Long.MAX_VALUE : builder.refreshTimeUnit.toNanos(builder.refreshDuration);
+        this.ownedExecutor = builder.refreshExecutor != null || refreshNanos == Long.MAX_VALUE ?
+                null : newRefreshExecutor();
+        this.refreshExecutor = ownedExecutor != null ? ownedExecutor : builder.refreshExecutor;
+        this.ticker = builder.ticker;
 
         this.getCache = CacheBuilder.newBuilder()
                 .maximumSize(builder.getCacheSize)
                 .expireAfterAccess(builder.getDuration, builder.getTimeUnit)
+                .ticker(builder.ticker)
                 .build();
 
         this.queryCache = CacheBuilder.newBuilder()
                 .maximumSize(builder.queryCacheSize)
                 .expireAfterAccess(builder.queryDuration, builder.queryTimeUnit)
+                .ticker(builder.ticker)
                 .build();
     }
 
+    /**
+     * Bounded to 2 daemon threads and 100 pending refreshes, refreshes over the bound are skipped.
+     * Idle threads are stopped after 60 seconds, or all of them when the cache is closed.
+     */
+    private static ExecutorService newRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100), runnable -> {
+            Thread thread = new Thread(runnable, "airtable-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static AirtableTable createTable(BuilderImpl builder) {
+        AirtableApi api = new AirtableApi(builder.apiKey, AirtableExecutor.newInstanceTurbo());
+        if (builder.internPoolSize > 0) {
+            AirtableInternPool pool = new AirtableInternPool(builder.internPoolSize);
+            return api.base(builder.base).table(builder.table, AirtableReader.tree(pool));
+        }
+        return api.base(builder.base).table(builder.table);
+    }
+
+    /**
+     * @return a new mutable copy of the cached record, changes to it are not reflected in the cache
+     */
     @Nullable
     @Override
     public AirtableRecord get(String recordId) throws AirtableApiException {
-        try {
-            AirtableRecord record = table.get(recordId);
-            if (record != null) {
-                getCache.put(recordId, record);
-            }
-
-            return record;
-        } catch (AirtableApiException e) {
-            AirtableRecord record = getCache.getIfPresent(recordId);
+        AirtableRecordSnapshot snapshot = getSnapshot(recordId);
+        if (snapshot == null) return null;
+        return snapshot.toRecord();
+    }
 
-            // if record exist and error is ignorable
-            if (record != null && isIgnorable(e)) {
-                return record;
-            }
+    @Nullable
+    @Override
+    public AirtableRecordSnapshot getSnapshot(String recordId) throws AirtableApiException {
+        return read(getCache, refreshingGets, recordId, () -> {
+            AirtableRecord record = table.get(recordId);
+            // Record is only referenced here, no need to copy
+            return record == null ? null : AirtableRecordSnapshot.adopt(record);
+        });
+    }
 
-            throw e;
+    /**
+     * @return new mutable copies of the cached records, changes to them are not reflected in the cache
+     */
+    @Nonnull
+    public List<AirtableRecord> query(AirtableTable.QuerySpec querySpec) throws AirtableApiException {
+        List<AirtableRecordSnapshot> snapshots = querySnapshots(querySpec);
+        List<AirtableRecord> records = new ArrayList<>(snapshots.size());
+        for (AirtableRecordSnapshot snapshot : snapshots) {
+            records.add(snapshot.toRecord());
         }
+        return records;
     }
 
     @Nonnull
-    public List<AirtableRecord> query(AirtableTable.QuerySpec querySpec) throws AirtableApiException {
+    @Override
+    public List<AirtableRecordSnapshot> querySnapshots(AirtableTable.QuerySpec querySpec) throws AirtableApiException {
         String cacheKey = StringUtils.trimToEmpty(querySpec.build().getQuery());
+        List<AirtableRecordSnapshot> list = read(queryCache, refreshingQueries, cacheKey, () -> AirtableRecordSnapshot.adopt(table.list(querySpec)));
+        return list != null ? list : Collections.emptyList();
+    }
 
-        try {
-            AirtableTable.PaginationList list = table.list(querySpec);
-            if (!list.isEmpty()) {
-                queryCache.put(cacheKey, list);
+    @Override
+    public Stats stats() {
+        return new Stats(hitCount.sum(), missCount.sum(), fallbackCount.sum(), refreshCount.sum());
+    }
+
+    /**
+     * Stops the refresh executor created by this cache, pending refreshes are skipped.
+     * An executor given with {@link Builder#withRefreshExecutor(Executor)} is not shut down, the caller owns it.
+     * Reads after are served without refreshing in the background.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) ownedExecutor.shutdownNow();
+    }
+
+    /**
+     * @param cache      to read from or write to
+     * @param refreshing keys of the cache being refreshed
+     * @param key        of the cache
+     * @param network    to read from airtable, null if don't exist
+     * @return value by the read policy, or null if don't exist
+     * @throws AirtableApiException if exception is not ignorable or it is not previously cached before
+     */
+    @Nullable
+    private <T> T read(Cache<String, Entry<T>> cache, Set<String> refreshing, String key, Supplier<T> network) throws AirtableApiException {
+        if (readPolicy != ReadPolicy.NETWORK_FIRST) {
+            Entry<T> entry = cache.getIfPresent(key);
+            if (readPolicy == ReadPolicy.CACHE_ONLY) {
+                if (entry == null) {
+                    missCount.increment();
+                    return null;
+                }
+                hitCount.increment();
+                return entry.value;
             }
 
-            return list;
+            long age = entry == null ? 0 : ticker.read() - entry.writtenAt;
+            if (entry != null && age < freshNanos) {
+                if (age >= refreshNanos) refresh(cache, refreshing, key, entry, network);
+                hitCount.increment();
+                return entry.value;
+            }
+        }
+
+        missCount.increment();
+        try {
+            T value = network.get();
+            if (value != null) {
+                cache.put(key, new Entry<>(value, ticker.read()));
+            }
+            return value;
         } catch (AirtableApiException e) {
-            List<AirtableRecord> list = queryCache.getIfPresent(cacheKey);
+            Entry<T> entry = cache.getIfPresent(key);
 
             // if record exist and error is ignorable
-            if (list != null && isIgnorable(e)) {
-                return list;
+            if (entry != null && isIgnorable(e)) {
+                fallbackCount.increment();
+                return entry.value;
             }
 
             throw e;
         }
     }
 
+    /**
+     * Refreshes the entry in the background, only one refresh runs for each key.
+     * The value refreshed replaces the entry only if it's still the entry cached, a newer write is kept.
+     * If the refresh failed with an ignorable exception or without a response from airtable, the entry is kept,
+     * else it's removed.
+     */
+    private <T> void refresh(Cache<String, Entry<T>> cache, Set<String> refreshing, String key, Entry<T> entry, Supplier<T> network) {
+        if (!refreshing.add(key)) return;
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    T value = network.get();
+                    if (value != null) {
+                        // Only if not written or invalidated while refreshing, the value read is older
+                        cache.asMap().replace(key, entry, new Entry<>(value, ticker.read()));
+                    } else {
+                        cache.asMap().remove(key, entry);
+                    }
+                } catch (AirtableApiException e) {
+                    if (!isIgnorable(e)) cache.asMap().remove(key, entry);
+                } catch (RuntimeException e) {
+                    // Transport failure, e.g. AirtableClientException, kept like an ignorable error
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            refreshCount.increment();
+        } catch (RejectedExecutionException e) {
+            // Executor is full, refreshed by a later read
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * Cached value with the time it's written, by the ticker of the cache.
+     */
+    static final class Entry<T> {
+        final T value;
+        final long writtenAt;
+
+        Entry(T value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
     /**
      * <pre>
      * create(builder -&#x3E; builder
@@ -138,6 +308,18 @@ public class AirtableCacheGuava implements AirtableCache {
         int queryDuration = 12;
         TimeUnit queryTimeUnit = TimeUnit.HOURS;
 
+        int internPoolSize = 0;
+
+        ReadPolicy readPolicy = ReadPolicy.NETWORK_FIRST;
+        int freshDuration = 1;
+        TimeUnit freshTimeUnit = TimeUnit.MINUTES;
+
+        int refreshDuration;
+        TimeUnit refreshTimeUnit;
+        Executor refreshExecutor;
+
+        Ticker ticker = Ticker.systemTicker();
+
         @Override
         public StepBase apiKey(String apiKey) {
             this.apiKey = Objects.requireNonNull(apiKey);
@@ -171,6 +353,38 @@ public class AirtableCacheGuava implements AirtableCache {
             this.queryTimeUnit = timeUnit;
             return this;
         }
+
+        @Override
+        public Builder withInternPool(int size) {
+            this.internPoolSize = size;
+            return this;
+        }
+
+        @Override
+        public Builder withReadPolicy(ReadPolicy readPolicy) {
+            this.readPolicy = Objects.requireNonNull(readPolicy);
+            return this;
+        }
+
+        @Override
+        public Builder withFreshness(int duration, TimeUnit timeUnit) {
+            this.freshDuration = duration;
+            this.freshTimeUnit = timeUnit;
+            return this;
+        }
+
+        @Override
+        public Builder withRefreshAfterWrite(int duration, TimeUnit timeUnit) {
+            this.refreshDuration = duration;
+            this.refreshTimeUnit = Objects.requireNonNull(timeUnit);
+            return this;
+        }
+
+        @Override
+        public Builder withRefreshExecutor(Executor executor) {
+            this.refreshExecutor = Objects.requireNonNull(executor);
+            return this;
+        }
     }
 
     /**
@@ -231,5 +445,51 @@ public class AirtableCacheGuava implements AirtableCache {
          * @return the same Builder instance for fluent chaining
          */
         Builder withQuery(int size, int duration, TimeUnit timeUnit);
+
+        /**
+         * Dedupe repeated cell values of cached records, e.g. single select and collaborator, disabled by default.
+         *
+         * @param size max number of distinct values in the pool
+         * @return the same Builder instance for fluent chaining
+         * @see AirtableInternPool
+         */
+        Builder withInternPool(int size);
+
+        /**
+         * @param readPolicy how reads are served between the cache and airtable, default to NETWORK_FIRST
+         * @return the same Builder instance for fluent chaining
+         */
+        Builder withReadPolicy(ReadPolicy readPolicy);
+
+        /**
+         * Values in the cache are fresh for the duration after they are written, default to 1 minute.
+         * Only used by {@link ReadPolicy#CACHE_FIRST}, the duration should be shorter than the duration of staying in cache.
+         *
+         * @param duration of values being fresh
+         * @param timeUnit timeUnit of values being fresh
+         * @return the same Builder instance for fluent chaining
+         */
+        Builder withFreshness(int duration, TimeUnit timeUnit);
+
+        /**
+         * Values older than the duration are still served, and refreshed in the background with a single refresh for each value.
+         * If the refresh failed with an ignorable exception the value is kept.
+         * Only used by {@link ReadPolicy#CACHE_FIRST}, the duration should be shorter than the freshness, disabled by default.
+         *
+         * @param duration after a value is written to refresh it
+         * @param timeUnit timeUnit of duration
+         * @return the same Builder instance for fluent chaining
+         * @see AirtableCache#isIgnorable(AirtableApiException)
+         */
+        Builder withRefreshAfterWrite(int duration, TimeUnit timeUnit);
+
+        /**
+         * Refreshes rejected by the executor are skipped until a later read.
+         * Default to a bounded executor of 2 daemon threads and 100 pending refreshes.
+         *
+         * @param executor to run background refreshes
+         * @return the same Builder instance for fluent chaining
+         */
+        Builder withRefreshExecutor(Executor executor);
     }
 }
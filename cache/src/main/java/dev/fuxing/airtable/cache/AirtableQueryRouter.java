@@ -0,0 +1,388 @@
+package dev.fuxing.airtable.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.AirtableTable;
+import dev.fuxing.airtable.exceptions.AirtableApiException;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import dev.fuxing.airtable.formula.AirtableFormula;
+import dev.fuxing.airtable.formula.AirtableFormulaEvaluator;
+import dev.fuxing.airtable.formula.AirtableFormulaParser;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Routes queries of a table to a local copy of the table when it's fresh enough and the query can be evaluated locally,
+ * else to airtable. Each result reports the route it took.
+ * <p>
+ * A query is answered locally when:
+ * <ul>
+ * <li>The local table is loaded and refreshed within the max staleness.</li>
+ * <li>The formula only uses functions that can be evaluated locally, see {@link AirtableFormulaEvaluator}.</li>
+ * <li>Every field in the formula, sort and {@code fields[]} is loaded in the local table.</li>
+ * <li>The query has no view, offset or cellFormat other than json.</li>
+ * </ul>
+ * Either way, every record of the query is returned, pages are followed when the query is sent to airtable.
+ *
+ * <pre>
+ * AirtableQueryRouter router = new AirtableQueryRouter(table, () -&gt; local, Duration.ofMinutes(5));
+ * AirtableQueryRouter.Result result = router.query(querySpec -&gt; querySpec.filterByFormula("{Status} = 'Done'"));
+ * </pre>
+ */
+public final class AirtableQueryRouter {
+    private final AirtableTable table;
+    private final Supplier<? extends LocalTable> local;
+    private final Duration maxStaleness;
+    private final Clock clock;
+
+    private final Cache<String, Formula> formulas = CacheBuilder.newBuilder()
+            .maximumSize(256)
+            .build();
+
+    private final LongAdder localCount = new LongAdder();
+    private final LongAdder remoteCount = new LongAdder();
+
+    /**
+     * @param table        to send queries that can't be answered locally
+     * @param local        supplier of the latest local table, or null if it's not loaded
+     * @param maxStaleness of the local table for queries to be answered locally
+     */
+    public AirtableQueryRouter(AirtableTable table, Supplier<? extends LocalTable> local, Duration maxStaleness) {
+        this(table, local, maxStaleness, Clock.systemUTC());
+    }
+
+    /**
+     * @param table        to send queries that can't be answered locally
+     * @param local        supplier of the latest local table, or null if it's not loaded
+     * @param maxStaleness of the local table for queries to be answered locally
+     * @param clock        to check the staleness of the local table
+     */
+    public AirtableQueryRouter(AirtableTable table, Supplier<? extends LocalTable> local, Duration maxStaleness, Clock clock) {
+        this.table = table;
+        this.local = local;
+        this.maxStaleness = maxStaleness;
+        this.clock = clock;
+    }
+
+    /**
+     * @param consumer query spec fluent consumer with all the querystring options.
+     * @return every record of the query and the route it took
+     * @throws AirtableApiException if the query is sent to airtable and failed
+     */
+    public Result query(Consumer<AirtableTable.QuerySpec> consumer) throws AirtableApiException {
+        AirtableTable.QuerySpec querySpec = AirtableTable.QuerySpec.create();
+        consumer.accept(querySpec);
+        return query(querySpec);
+    }
+
+    /**
+     * @param querySpec fluent query spec with all the querystring options
+     * @return every record of the query and the route it took
+     * @throws AirtableApiException if the query is sent to airtable and failed
+     */
+    public Result query(AirtableTable.QuerySpec querySpec) throws AirtableApiException {
+        Query query = new Query(querySpec);
+        LocalTable local = this.local.get();
+
+        String reason = reason(query, local);
+        if (reason == null) {
+            localCount.increment();
+            return new Result(Route.LOCAL, null, evaluate(query, local));
+        }
+
+        remoteCount.increment();
+        List<AirtableRecord> records = new ArrayList<>();
+        table.iterator(querySpec).forEachRemaining(records::add);
+        return new Result(Route.REMOTE, reason, AirtableRecordSnapshot.adopt(records));
+    }
+
+    /**
+     * @return number of queries answered locally
+     */
+    public long getLocalCount() {
+        return localCount.sum();
+    }
+
+    /**
+     * @return number of queries sent to airtable
+     */
+    public long getRemoteCount() {
+        return remoteCount.sum();
+    }
+
+    /**
+     * @return why the query can't be answered locally, or null if it can
+     */
+    @Nullable
+    private String reason(Query query, @Nullable LocalTable local) {
+        if (local == null) return "Local table is not loaded.";
+        if (Duration.between(local.getRefreshedAt(), clock.instant()).compareTo(maxStaleness) > 0) {
+            return "Local table is refreshed at " + local.getRefreshedAt() + ", older than " + maxStaleness + ".";
+        }
+
+        for (String name : Arrays.asList("view", "offset", "timeZone", "userLocale")) {
+            if (query.parameters.containsKey(name)) return "Query with " + name + " can't be answered locally.";
+        }
+        String cellFormat = query.parameters.get("cellFormat");
+        if (cellFormat != null && !cellFormat.equals("json")) return "Query with cellFormat " + cellFormat + " can't be answered locally.";
+
+        Formula formula = formula(query.formula);
+        if (formula.reason != null) return formula.reason;
+
+        Set<String> loaded = local.getFieldNames();
+        if (loaded != null) {
+            Set<String> needed = new HashSet<>(formula.fields);
+            needed.addAll(query.fields);
+            for (Sort sort : query.sorts) {
+                needed.add(sort.field);
+            }
+            needed.removeAll(loaded);
+            if (!needed.isEmpty()) return "Fields " + needed + " are not loaded in the local table.";
+        }
+        return null;
+    }
+
+    private List<AirtableRecordSnapshot> evaluate(Query query, LocalTable local) {
+        AirtableFormulaEvaluator.CompiledFormula compiled = formula(query.formula).compiled;
+
+        List<AirtableRecordSnapshot> records = new ArrayList<>();
+        for (AirtableRecordSnapshot snapshot : local.getRecords()) {
+            if (compiled == null || compiled.test(snapshot)) records.add(snapshot);
+        }
+
+        if (!query.sorts.isEmpty()) {
+            records.sort(comparator(query.sorts));
+        }
+        if (query.maxRecords >= 0 && records.size() > query.maxRecords) {
+            records = records.subList(0, query.maxRecords);
+        }
+        if (!query.fields.isEmpty()) {
+            ListIterator<AirtableRecordSnapshot> iterator = records.listIterator();
+            while (iterator.hasNext()) {
+                iterator.set(project(iterator.next(), query.fields));
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(records));
+    }
+
+    private Formula formula(@Nullable String formula) {
+        if (formula == null || formula.isEmpty()) return Formula.ALL;
+
+        try {
+            return formulas.get(formula, () -> Formula.compile(formula));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static AirtableRecordSnapshot project(AirtableRecordSnapshot snapshot, Set<String> fields) {
+        AirtableRecordSnapshot.Builder builder = snapshot.toBuilder();
+        for (String name : snapshot.getFieldNames()) {
+            if (!fields.contains(name)) builder.removeField(name);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Blank values are sorted first in ascending order, numbers before text, text is compared case insensitively.
+     */
+    static Comparator<AirtableRecordSnapshot> comparator(List<Sort> sorts) {
+        Comparator<AirtableRecordSnapshot> comparator = null;
+        for (Sort sort : sorts) {
+            // Read without copying, sorting compares the same records many times
+            Comparator<AirtableRecordSnapshot> next = (a, b) -> compare(
+                    AirtableRecordSnapshot.Internal.peekField(a, sort.field),
+                    AirtableRecordSnapshot.Internal.peekField(b, sort.field));
+            if (sort.descending) next = next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    static int compare(JsonNode a, JsonNode b) {
+        boolean blankA = isBlank(a);
+        boolean blankB = isBlank(b);
+        if (blankA || blankB) return Boolean.compare(!blankA, !blankB);
+
+        boolean numberA = a.isNumber() || a.isBoolean();
+        boolean numberB = b.isNumber() || b.isBoolean();
+        if (numberA && numberB) return Double.compare(number(a), number(b));
+        if (numberA != numberB) return numberA ? -1 : 1;
+        return String.CASE_INSENSITIVE_ORDER.compare(text(a), text(b));
+    }
+
+    private static boolean isBlank(JsonNode node) {
+        return node.isMissingNode() || node.isNull() || (node.isTextual() && node.textValue().isEmpty()) ||
+                (node.isArray() && node.size() == 0);
+    }
+
+    private static double number(JsonNode node) {
+        return node.isBoolean() ? (node.booleanValue() ? 1 : 0) : node.doubleValue();
+    }
+
+    private static String text(JsonNode node) {
+        if (node.isValueNode()) return node.asText();
+        if (node.isArray()) {
+            StringJoiner joiner = new StringJoiner(", ");
+            for (JsonNode element : node) {
+                joiner.add(text(element));
+            }
+            return joiner.toString();
+        }
+        for (String name : new String[]{"name", "filename", "url"}) {
+            JsonNode value = node.get(name);
+            if (value != null && value.isTextual()) return value.textValue();
+        }
+        return node.toString();
+    }
+
+    /**
+     * Route taken by a query.
+     */
+    public enum Route {
+        /**
+         * Answered from the local table, no call to airtable.
+         */
+        LOCAL,
+
+        /**
+         * Sent to airtable.
+         */
+        REMOTE,
+    }
+
+    /**
+     * Records of a query and the route it took.
+     */
+    public static final class Result {
+        private final Route route;
+        private final String reason;
+        private final List<AirtableRecordSnapshot> records;
+
+        Result(Route route, @Nullable String reason, List<AirtableRecordSnapshot> records) {
+            this.route = route;
+            this.reason = reason;
+            this.records = records;
+        }
+
+        /**
+         * @return route taken by the query
+         */
+        public Route getRoute() {
+            return route;
+        }
+
+        /**
+         * @return why the query is sent to airtable, or null if it's answered locally
+         */
+        @Nullable
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return immutable list of every record of the query
+         */
+        public List<AirtableRecordSnapshot> getRecords() {
+            return records;
+        }
+    }
+
+    static final class Sort {
+        final String field;
+        final boolean descending;
+
+        Sort(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+    }
+
+    /**
+     * Parameters of a query spec.
+     */
+    private static final class Query {
+        private final Map<String, String> parameters = new HashMap<>();
+        private final Set<String> fields = new LinkedHashSet<>();
+        private final List<Sort> sorts = new ArrayList<>();
+        private final String formula;
+        private final int maxRecords;
+
+        Query(AirtableTable.QuerySpec querySpec) {
+            Map<Integer, String> sortFields = new TreeMap<>();
+            Map<Integer, String> sortDirections = new HashMap<>();
+
+            for (NameValuePair pair : URLEncodedUtils.parse(querySpec.build(), StandardCharsets.UTF_8)) {
+                String name = pair.getName();
+                if (name.equals("fields[]")) {
+                    fields.add(pair.getValue());
+                } else if (name.startsWith("sort[")) {
+                    int index = Integer.parseInt(name.substring(5, name.indexOf(']')));
+                    if (name.endsWith("[field]")) sortFields.put(index, pair.getValue());
+                    else sortDirections.put(index, pair.getValue());
+                } else {
+                    parameters.put(name, pair.getValue());
+                }
+            }
+
+            sortFields.forEach((index, field) -> sorts.add(new Sort(field, "desc".equals(sortDirections.get(index)))));
+            this.formula = parameters.remove("filterByFormula");
+            String maxRecords = parameters.remove("maxRecords");
+            this.maxRecords = maxRecords == null ? -1 : Integer.parseInt(maxRecords);
+            parameters.remove("pageSize");
+        }
+    }
+
+    /**
+     * Compiled formula with the fields it reads, or why it can't be evaluated locally.
+     */
+    private static final class Formula {
+        static final Formula ALL = new Formula(null, Collections.emptySet(), null);
+
+        private final AirtableFormulaEvaluator.CompiledFormula compiled;
+        private final Set<String> fields;
+        private final String reason;
+
+        private Formula(@Nullable AirtableFormulaEvaluator.CompiledFormula compiled, Set<String> fields, @Nullable String reason) {
+            this.compiled = compiled;
+            this.fields = fields;
+            this.reason = reason;
+        }
+
+        static Formula compile(String formula) {
+            try {
+                AirtableFormula.Object object = AirtableFormulaParser.parse(formula);
+                Set<String> fields = new HashSet<>();
+                collectFields(object, fields);
+                return new Formula(AirtableFormulaEvaluator.DEFAULT.compile(object), fields, null);
+            } catch (AirtableClientException e) {
+                return new Formula(null, Collections.emptySet(), e.getMessage());
+            }
+        }
+
+        private static void collectFields(AirtableFormula.Object object, Set<String> fields) {
+            if (object instanceof AirtableFormula.Field) {
+                fields.add(((AirtableFormula.Field) object).getName());
+            } else if (object instanceof AirtableFormula.Parentheses) {
+                collectFields(((AirtableFormula.Parentheses) object).getObject(), fields);
+            } else if (object instanceof AirtableFormula.Operation) {
+                ((AirtableFormula.Operation) object).getOperands().forEach(operand -> collectFields(operand, fields));
+            } else if (object instanceof AirtableFormula.Function) {
+                ((AirtableFormula.Function) object).getArguments().forEach(argument -> collectFields(argument, fields));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of the records of a table held in memory, queries can be answered from it without calling airtable.
+ *
+ * @see AirtableQueryRouter
+ */
+public interface LocalTable {
+
+    /**
+     * @return every record of the table, in the order of the table
+     */
+    List<AirtableRecordSnapshot> getRecords();
+
+    /**
+     * @return time the records were last refreshed from airtable
+     */
+    Instant getRefreshedAt();
+
+    /**
+     * @return names of the fields loaded for every record, or null if every field is loaded
+     */
+    @Nullable
+    default Set<String> getFieldNames() {
+        return null;
+    }
+
+    /**
+     * @param records     every record of the table, in the order of the table
+     * @param refreshedAt time the records were refreshed from airtable
+     * @return LocalTable with every field loaded
+     */
+    static LocalTable of(List<AirtableRecordSnapshot> records, Instant refreshedAt) {
+        return of(records, refreshedAt, null);
+    }
+
+    /**
+     * @param records     every record of the table, in the order of the table
+     * @param refreshedAt time the records were refreshed from airtable
+     * @param fieldNames  names of the fields loaded, or null if every field is loaded
+     * @return LocalTable
+     */
+    static LocalTable of(List<AirtableRecordSnapshot> records, Instant refreshedAt, @Nullable Set<String> fieldNames) {
+        List<AirtableRecordSnapshot> copy = Collections.unmodifiableList(new ArrayList<>(records));
+        Set<String> names = fieldNames == null ? null : Collections.unmodifiableSet(new HashSet<>(fieldNames));
+
+        return new LocalTable() {
+            @Override
+            public List<AirtableRecordSnapshot> getRecords() {
+                return copy;
+            }
+
+            @Override
+            public Instant getRefreshedAt() {
+                return refreshedAt;
+            }
+
+            @Nullable
+            @Override
+            public Set<String> getFieldNames() {
+                return names;
+            }
+        };
+    }
+}
@@ -0,0 +1,567 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap of row positions, in the layout of a Roaring bitmap.
+ * <p>
+ * Rows are split into chunks of 65536 by the high 16 bits, each chunk is stored as a sorted array of the low 16 bits
+ * when it has 4096 rows or less, else as a bitmap of 1024 words.
+ * Bitmaps are immutable, {@link #and(RowBitmap)}, {@link #or(RowBitmap)}, {@link #andNot(RowBitmap)} and {@link #not(int)}
+ * return new bitmaps and only chunks present in both sides are combined.
+ * <p>
+ * Rows are positions in one {@link TableSnapshot.Version}, bitmaps from a {@link SnapshotIndex.Bitmap} index are tied to
+ * the number of the version they are looked up in, and so are the bitmaps combined from them.
+ * Combining bitmaps of different versions, or resolving them in another version, throws an {@link AirtableClientException}.
+ *
+ * <pre>
+ * RowBitmap rows = status.get(version, "Done").and(owner.get(version, "usrA1B2C3").not(version.size()));
+ * int count = rows.cardinality();
+ * List&lt;AirtableRecordSnapshot&gt; records = version.getRecords(rows);
+ * </pre>
+ */
+public final class RowBitmap {
+    private static final int MAX_ARRAY = 4096;
+    private static final int WORDS = 1024;
+
+    /**
+     * Version of bitmaps not looked up in a version, e.g. from {@link #of(int...)}, they can be combined with any bitmap.
+     */
+    static final long ANY_VERSION = -1;
+
+    private char[] keys;
+    private Container[] containers;
+    private int length;
+    private final long version;
+
+    RowBitmap() {
+        this(ANY_VERSION);
+    }
+
+    private RowBitmap(long version) {
+        this(new char[4], new Container[4], 0, version);
+    }
+
+    private RowBitmap(char[] keys, Container[] containers, int length, long version) {
+        this.keys = keys;
+        this.containers = containers;
+        this.length = length;
+        this.version = version;
+    }
+
+    /**
+     * @param rows positions of the rows, not negative
+     * @return RowBitmap of the rows
+     */
+    public static RowBitmap of(int... rows) {
+        RowBitmap bitmap = new RowBitmap();
+        for (int row : rows) {
+            bitmap.add(row);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param size number of rows
+     * @return RowBitmap of every row from 0 to size, exclusive
+     */
+    public static RowBitmap full(int size) {
+        int chunks = (size + 0xFFFF) >>> 16;
+        RowBitmap bitmap = new RowBitmap(new char[Math.max(chunks, 1)], new Container[Math.max(chunks, 1)], chunks, ANY_VERSION);
+        for (int i = 0; i < chunks; i++) {
+            int count = Math.min(size - (i << 16), 1 << 16);
+            long[] words = new long[WORDS];
+            Arrays.fill(words, 0, count >>> 6, -1L);
+            if ((count & 63) != 0) words[count >>> 6] = (1L << count) - 1;
+
+            bitmap.keys[i] = (char) i;
+            bitmap.containers[i] = new BitmapContainer(words, count).optimize();
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param row position of the row
+     * @return whether the row is in the bitmap
+     */
+    public boolean contains(int row) {
+        int i = indexOf((char) (row >>> 16));
+        return i >= 0 && containers[i].contains((char) row);
+    }
+
+    /**
+     * @return number of rows in the bitmap
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < length; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return whether the bitmap has no rows
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @param other bitmap
+     * @return rows in both bitmaps
+     */
+    public RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap(version(other));
+        int i = 0, j = 0;
+        while (i < length && j < other.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other bitmap
+     * @return rows in either bitmap
+     */
+    public RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap(version(other));
+        int i = 0, j = 0;
+        while (i < length || j < other.length) {
+            if (j == other.length || i < length && keys[i] < other.keys[j]) {
+                result.append(keys[i], containers[i]);
+                i++;
+            } else if (i == length || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j]);
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other bitmap
+     * @return rows in this bitmap and not in the other bitmap
+     */
+    public RowBitmap andNot(RowBitmap other) {
+        RowBitmap result = new RowBitmap(version(other));
+        int i = 0, j = 0;
+        while (i < length) {
+            if (j == other.length || keys[i] < other.keys[j]) {
+                result.append(keys[i], containers[i]);
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], containers[i].andNot(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param size number of rows, e.g. {@link TableSnapshot.Version#size()}
+     * @return rows from 0 to size, exclusive, not in this bitmap
+     */
+    public RowBitmap not(int size) {
+        return full(size).andNot(this);
+    }
+
+    /**
+     * @param consumer of each row in ascending order
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < length; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * @return rows in ascending order
+     */
+    public int[] toArray() {
+        int[] rows = new int[cardinality()];
+        int[] i = {0};
+        forEach(row -> rows[i[0]++] = row);
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return "RowBitmap{cardinality=" + cardinality() + ", chunks=" + length + ", version=" + version + '}';
+    }
+
+    /**
+     * @return number of the version the rows are positions in, or {@link #ANY_VERSION}
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Containers are shared, bitmaps are immutable once published.
+     *
+     * @param version number of the version the bitmap is looked up in
+     * @return same rows tied to the version
+     */
+    RowBitmap tie(long version) {
+        if (this.version == version) return this;
+        return new RowBitmap(keys, containers, length, version);
+    }
+
+    /**
+     * Only used while building, bitmaps are immutable once published.
+     *
+     * @param row position of the row
+     */
+    void add(int row) {
+        char key = (char) (row >>> 16);
+        int i = indexOf(key);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) row);
+            return;
+        }
+
+        i = -i - 1;
+        ensureCapacity();
+        System.arraycopy(keys, i, keys, i + 1, length - i);
+        System.arraycopy(containers, i, containers, i + 1, length - i);
+        keys[i] = key;
+        containers[i] = new ArrayContainer(new char[]{(char) row}, 1);
+        length++;
+    }
+
+    /**
+     * Only used while building, bitmaps are immutable once published.
+     *
+     * @param row position of the row
+     */
+    void remove(int row) {
+        int i = indexOf((char) (row >>> 16));
+        if (i < 0) return;
+
+        Container container = containers[i].remove((char) row);
+        if (container.cardinality() > 0) {
+            containers[i] = container;
+            return;
+        }
+
+        System.arraycopy(keys, i + 1, keys, i, length - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, length - i - 1);
+        containers[--length] = null;
+    }
+
+    /**
+     * @return copy that can be built on, without modifying this bitmap
+     */
+    RowBitmap copy() {
+        Container[] copies = new Container[Math.max(length, 1)];
+        for (int i = 0; i < length; i++) {
+            copies[i] = containers[i].copy();
+        }
+        return new RowBitmap(Arrays.copyOf(keys, copies.length), copies, length, version);
+    }
+
+    /**
+     * @param other bitmap combined with this bitmap
+     * @return version of the combined bitmap
+     * @throws AirtableClientException if the bitmaps are of different versions
+     */
+    private long version(RowBitmap other) {
+        if (version == ANY_VERSION || version == other.version) return other.version;
+        if (other.version == ANY_VERSION) return version;
+        throw new AirtableClientException("Bitmaps of version " + version + " and " + other.version + " can't be combined.");
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, length, key);
+    }
+
+    private void append(char key, Container container) {
+        if (container.cardinality() == 0) return;
+
+        ensureCapacity();
+        keys[length] = key;
+        containers[length] = container;
+        length++;
+    }
+
+    private void ensureCapacity() {
+        if (length < keys.length) return;
+
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        containers = Arrays.copyOf(containers, containers.length * 2);
+    }
+
+    /**
+     * Low 16 bits of the rows in a chunk. Operations return new containers, except add and remove.
+     */
+    private static abstract class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer consumer);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) return this;
+            if (cardinality == MAX_ARRAY) return toBitmap().add(value);
+
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), MAX_ARRAY));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i < 0) return this;
+
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) result[count++] = values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) return other.or(this);
+
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int i = 0, j = 0, count = 0;
+            while (i < cardinality && j < array.cardinality) {
+                char a = values[i], b = array.values[j];
+                if (a <= b) i++;
+                if (b <= a) j++;
+                result[count++] = a <= b ? a : b;
+            }
+            while (i < cardinality) result[count++] = values[i++];
+            while (j < array.cardinality) result[count++] = array.values[j++];
+
+            ArrayContainer container = new ArrayContainer(result, count);
+            return count > MAX_ARRAY ? container.toBitmap() : container;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) result[count++] = values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long word = words[value >>> 6];
+            long next = word | (1L << value);
+            if (word != next) {
+                words[value >>> 6] = next;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long word = words[value >>> 6];
+            long next = word & ~(1L << value);
+            if (word == next) return this;
+
+            words[value >>> 6] = next;
+            cardinality--;
+            return optimize();
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+
+            long[] words = new long[WORDS];
+            long[] others = ((BitmapContainer) other).words;
+            int cardinality = 0;
+            for (int i = 0; i < WORDS; i++) {
+                words[i] = this.words[i] & others[i];
+                cardinality += Long.bitCount(words[i]);
+            }
+            return new BitmapContainer(words, cardinality).optimize();
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] words = this.words.clone();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    words[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+            } else {
+                long[] others = ((BitmapContainer) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    words[i] |= others[i];
+                }
+            }
+            return new BitmapContainer(words, bitCount(words));
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] words = this.words.clone();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    words[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+                }
+            } else {
+                long[] others = ((BitmapContainer) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    words[i] &= ~others[i];
+                }
+            }
+            return new BitmapContainer(words, bitCount(words)).optimize();
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        /**
+         * @return array container if it has 4096 values or less, else this
+         */
+        Container optimize() {
+            if (cardinality > MAX_ARRAY) return this;
+
+            char[] values = new char[Math.max(cardinality, 1)];
+            int[] count = {0};
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+
+        private static int bitCount(long[] words) {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,646 @@
+package dev.fuxing.airtable.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.airtable.AirtableDates;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Secondary index of a field over every version of a {@link TableSnapshot}, added with {@link TableSnapshot#addIndex(SnapshotIndex)}.
+ * <p>
+ * Indexes are maintained incrementally, each refresh only indexes the records that were modified, added or deleted.
+ * Values of an array field, e.g. multiple select, linked records or lookups, are indexed individually.
+ * Empty values are not indexed.
+ * <p>
+ * For low-cardinality fields, e.g. single select, checkbox or collaborator, a {@link Bitmap} index combines
+ * multiple predicates and counts without reading any record.
+ *
+ * <pre>
+ * SnapshotIndex.Hash status = snapshot.addIndex(SnapshotIndex.hash("Status"));
+ * SnapshotIndex.Sorted&lt;Instant&gt; due = snapshot.addIndex(SnapshotIndex.date("Due Date"));
+ *
+ * TableSnapshot.Version version = snapshot.getVersion();
+ * List&lt;AirtableRecordSnapshot&gt; done = status.get(version, "Done");
+ * List&lt;AirtableRecordSnapshot&gt; overdue = due.lessThan(version, Instant.now(), false);
+ * </pre>
+ */
+public abstract class SnapshotIndex {
+    private static final KeyMapper<Object> MAPPER = SnapshotIndex::key;
+
+    private final String field;
+
+    SnapshotIndex(String field) {
+        this.field = Objects.requireNonNull(field);
+    }
+
+    /**
+     * Equality on any field, values are compared by their text, number, boolean or the id of an object, e.g. collaborator.
+     *
+     * @param field name of the field
+     * @return Hash index
+     */
+    public static Hash hash(String field) {
+        return new Hash(field);
+    }
+
+    /**
+     * Bitmap of row positions for each value of a low-cardinality field, e.g. single select, checkbox or collaborator.
+     * Values are compared the same as {@link #hash(String)}.
+     *
+     * @param field name of the field
+     * @return Bitmap index
+     */
+    public static Bitmap bitmap(String field) {
+        return new Bitmap(field);
+    }
+
+    /**
+     * Range on a number field.
+     *
+     * @param field name of the field
+     * @return Sorted index of numbers
+     */
+    public static Sorted<Double> number(String field) {
+        return new Sorted<>(field, SnapshotIndex::number);
+    }
+
+    /**
+     * Range on a date or date time field, dates are at the start of the day in UTC.
+     *
+     * @param field name of the field
+     * @return Sorted index of instants
+     */
+    public static Sorted<Instant> date(String field) {
+        return new Sorted<>(field, SnapshotIndex::instant);
+    }
+
+    /**
+     * @return name of the field
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @param records every record of the version
+     * @return state of the index
+     */
+    abstract Object build(List<AirtableRecordSnapshot> records);
+
+    /**
+     * @param state   of the index in the previous version, not modified
+     * @param changes of the records from the previous version to the next version
+     * @return state of the index in the next version
+     */
+    abstract Object update(Object state, Changes changes);
+
+    /**
+     * @param record  to read the field
+     * @param mapper  from each value node to the key, null if the value is not indexed
+     * @param consumer of each key
+     */
+    <K> void keys(AirtableRecordSnapshot record, KeyMapper<K> mapper, Consumer<K> consumer) {
+        // Read without copying, keys are mapped from the shared node
+        JsonNode node = AirtableRecordSnapshot.Internal.peekField(record, field);
+
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                K key = mapper.map(element);
+                if (key != null) consumer.accept(key);
+            }
+        } else {
+            K key = mapper.map(node);
+            if (key != null) consumer.accept(key);
+        }
+    }
+
+    /**
+     * @param version to read the state of the index
+     * @return state of this index in the version
+     * @throws AirtableClientException if the index is not added to the snapshot of the version
+     */
+    @SuppressWarnings("unchecked")
+    <S> S state(TableSnapshot.Version version) throws AirtableClientException {
+        Object state = version.getIndexState(this);
+        if (state == null) {
+            throw new AirtableClientException("Index on " + field + " is not added to the snapshot.");
+        }
+        return (S) state;
+    }
+
+    /**
+     * @param version to resolve the ids
+     * @param ids     of records
+     * @return records of the ids, in the order of the ids
+     */
+    static List<AirtableRecordSnapshot> records(TableSnapshot.Version version, Collection<String> ids) {
+        List<AirtableRecordSnapshot> records = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            AirtableRecordSnapshot record = version.get(id);
+            if (record != null) records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * @param records to index
+     * @param base    to add the ids of the records into
+     * @return buckets of the records
+     */
+    <K> Buckets<K> build(List<AirtableRecordSnapshot> records, KeyMapper<K> mapper, Map<K, Set<String>> base, Map<K, Set<String>> changed) {
+        for (AirtableRecordSnapshot record : records) {
+            keys(record, mapper, key -> base.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(record.getId()));
+        }
+        return new Buckets<>(base, changed);
+    }
+
+    /**
+     * Copies only the buckets of the keys changed into the changes of the next state,
+     * the buckets and maps of the previous state are not modified.
+     *
+     * @param copy of a map, {@code HashMap::new} or {@code TreeMap::new}
+     * @return next state
+     */
+    <K> Buckets<K> update(Buckets<K> state, Function<Map<K, Set<String>>, Map<K, Set<String>>> copy, KeyMapper<K> mapper,
+                          List<AirtableRecordSnapshot> removed, List<AirtableRecordSnapshot> added) {
+        Map<K, Set<String>> changed = copy.apply(state.changed);
+        Set<K> copied = new HashSet<>();
+        for (AirtableRecordSnapshot record : removed) {
+            keys(record, mapper, key -> {
+                Set<String> bucket = changed.getOrDefault(key, state.base.get(key));
+                if (bucket == null) return;
+                if (copied.add(key)) bucket = new LinkedHashSet<>(bucket);
+
+                // Empty bucket removes the key of the base
+                bucket.remove(record.getId());
+                changed.put(key, bucket);
+            });
+        }
+        for (AirtableRecordSnapshot record : added) {
+            keys(record, mapper, key -> {
+                Set<String> bucket = changed.getOrDefault(key, state.base.get(key));
+                if (bucket == null) {
+                    bucket = new LinkedHashSet<>();
+                    copied.add(key);
+                } else if (copied.add(key)) {
+                    bucket = new LinkedHashSet<>(bucket);
+                }
+                bucket.add(record.getId());
+                changed.put(key, bucket);
+            });
+        }
+
+        if (changed.size() <= Buckets.maxChanges(state.base.size())) {
+            return new Buckets<>(state.base, changed);
+        }
+
+        Map<K, Set<String>> base = copy.apply(state.base);
+        changed.forEach((key, bucket) -> {
+            if (bucket.isEmpty()) {
+                base.remove(key);
+            } else {
+                base.put(key, bucket);
+            }
+        });
+        return new Buckets<>(base, copy.apply(Collections.emptyMap()));
+    }
+
+    /**
+     * @param value of a hash lookup or a node of the field
+     * @return key of the value, null if the value is not indexed
+     */
+    @Nullable
+    static Object key(@Nullable Object value) {
+        if (value instanceof JsonNode) {
+            JsonNode node = (JsonNode) value;
+            if (node.isTextual()) return key(node.asText());
+            if (node.isNumber()) return node.asDouble();
+            if (node.isBoolean()) return node.asBoolean();
+            if (node.isObject() && node.has("id")) return node.path("id").asText();
+            if (node.isNull() || node.isMissingNode()) return null;
+            return node.toString();
+        }
+        if (value instanceof CharSequence) {
+            String text = value.toString();
+            return text.isEmpty() ? null : text;
+        }
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof Boolean) return value;
+        return value == null ? null : value.toString();
+    }
+
+    @Nullable
+    static Double number(JsonNode node) {
+        return node.isNumber() ? node.asDouble() : null;
+    }
+
+    @Nullable
+    static Instant instant(JsonNode node) {
+        if (!node.isTextual()) return null;
+        try {
+            return AirtableDates.parseInstant(node.asText());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records changed from a version to the next version.
+     */
+    static final class Changes {
+        /**
+         * Every record of the next version.
+         */
+        final List<AirtableRecordSnapshot> records;
+
+        /**
+         * Position of each record of the next version, by id.
+         */
+        final Map<String, Integer> positions;
+
+        /**
+         * Records no longer in the next version, including the previous value of modified records.
+         */
+        final List<AirtableRecordSnapshot> removed;
+
+        /**
+         * Records new in the next version, including the next value of modified records.
+         */
+        final List<AirtableRecordSnapshot> added;
+
+        /**
+         * Whether any record is deleted, the position of the records after it are shifted.
+         */
+        final boolean compacted;
+
+        Changes(List<AirtableRecordSnapshot> records, Map<String, Integer> positions, List<AirtableRecordSnapshot> removed, List<AirtableRecordSnapshot> added, boolean compacted) {
+            this.records = records;
+            this.positions = positions;
+            this.removed = removed;
+            this.added = added;
+            this.compacted = compacted;
+        }
+    }
+
+    /**
+     * State of a {@link Hash} or {@link Sorted} index: ids of the records by key.
+     * <p>
+     * Copying every key on each refresh is linear in the number of distinct keys, e.g. a unique field.
+     * Instead, the buckets changed are kept apart from the base they are changed from, the base is shared by the next states.
+     * Once the changes grow past the square root of the base, they are merged into a copy of the base.
+     * Each refresh copies at most that many keys, and lookups check the changes before the base.
+     *
+     * @param <K> type of the key
+     */
+    static final class Buckets<K> {
+        /**
+         * Shared by the next states, never modified.
+         */
+        final Map<K, Set<String>> base;
+
+        /**
+         * Buckets changed from the base, an empty bucket for a key removed.
+         */
+        final Map<K, Set<String>> changed;
+
+        Buckets(Map<K, Set<String>> base, Map<K, Set<String>> changed) {
+            this.base = base;
+            this.changed = changed;
+        }
+
+        /**
+         * @param size of the base
+         * @return number of keys changed before merged into a copy of the base
+         */
+        static int maxChanges(int size) {
+            return 64 + (int) Math.sqrt(size);
+        }
+
+        /**
+         * @param key to look up
+         * @return ids with the key, or null if none
+         */
+        @Nullable
+        Set<String> get(Object key) {
+            Set<String> bucket = changed.get(key);
+            if (bucket == null) bucket = base.get(key);
+            return bucket == null || bucket.isEmpty() ? null : bucket;
+        }
+
+        /**
+         * @return every key with any id
+         */
+        Set<K> keys() {
+            if (changed.isEmpty()) return Collections.unmodifiableSet(base.keySet());
+
+            Set<K> keys = new HashSet<>(base.keySet());
+            changed.forEach((key, bucket) -> {
+                if (bucket.isEmpty()) {
+                    keys.remove(key);
+                } else {
+                    keys.add(key);
+                }
+            });
+            return Collections.unmodifiableSet(keys);
+        }
+    }
+
+    /**
+     * Maps a value node of the field to the key of the index.
+     */
+    interface KeyMapper<K> {
+        @Nullable
+        K map(JsonNode node);
+    }
+
+    /**
+     * Equality lookups in constant time.
+     */
+    public static final class Hash extends SnapshotIndex {
+        private Hash(String field) {
+            super(field);
+        }
+
+        @Override
+        Object build(List<AirtableRecordSnapshot> records) {
+            return build(records, MAPPER, new HashMap<>(), Collections.emptyMap());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object update(Object state, Changes changes) {
+            return update((Buckets<Object>) state, HashMap::new, MAPPER, changes.removed, changes.added);
+        }
+
+        /**
+         * @param version to look up
+         * @param value   text, number, boolean or id of an object
+         * @return records with the value, in the order they were indexed
+         */
+        public List<AirtableRecordSnapshot> get(TableSnapshot.Version version, Object value) {
+            Set<String> ids = this.<Buckets<Object>>state(version).get(key(value));
+            return ids == null ? Collections.emptyList() : records(version, ids);
+        }
+
+        /**
+         * @param version to look up
+         * @param value   text, number, boolean or id of an object
+         * @return number of records with the value
+         */
+        public int count(TableSnapshot.Version version, Object value) {
+            Set<String> ids = this.<Buckets<Object>>state(version).get(key(value));
+            return ids == null ? 0 : ids.size();
+        }
+
+        /**
+         * @param version to look up
+         * @return every value indexed
+         */
+        public Set<Object> values(TableSnapshot.Version version) {
+            return this.<Buckets<Object>>state(version).keys();
+        }
+    }
+
+    /**
+     * Range lookups in logarithmic time, records are returned in the order of the key.
+     *
+     * @param <K> type of the key
+     */
+    public static final class Sorted<K extends Comparable<? super K>> extends SnapshotIndex {
+        private final KeyMapper<K> mapper;
+
+        private Sorted(String field, KeyMapper<K> mapper) {
+            super(field);
+            this.mapper = mapper;
+        }
+
+        @Override
+        Object build(List<AirtableRecordSnapshot> records) {
+            return build(records, mapper, new TreeMap<>(), new TreeMap<>());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object update(Object state, Changes changes) {
+            return update((Buckets<K>) state, TreeMap::new, mapper, changes.removed, changes.added);
+        }
+
+        /**
+         * @param version       to look up
+         * @param from          lower bound, null if unbounded
+         * @param fromInclusive whether the lower bound is included
+         * @param to            upper bound, null if unbounded
+         * @param toInclusive   whether the upper bound is included
+         * @return records within the range, in ascending order of the key
+         */
+        public List<AirtableRecordSnapshot> range(TableSnapshot.Version version, @Nullable K from, boolean fromInclusive, @Nullable K to, boolean toInclusive) {
+            if (from != null && to != null) {
+                int compare = from.compareTo(to);
+                if (compare > 0 || compare == 0 && !(fromInclusive && toInclusive)) return Collections.emptyList();
+            }
+
+            Buckets<K> buckets = state(version);
+            List<String> ids = new ArrayList<>();
+            forEach(range(buckets.base, from, fromInclusive, to, toInclusive), range(buckets.changed, from, fromInclusive, to, toInclusive),
+                    Comparator.naturalOrder(), entry -> {
+                        ids.addAll(entry.getValue());
+                        return true;
+                    });
+            return records(version, ids);
+        }
+
+        /**
+         * @param version   to look up
+         * @param from      lower bound
+         * @param inclusive whether the lower bound is included
+         * @return records with a key greater than the bound, in ascending order of the key
+         */
+        public List<AirtableRecordSnapshot> greaterThan(TableSnapshot.Version version, K from, boolean inclusive) {
+            return range(version, Objects.requireNonNull(from), inclusive, null, false);
+        }
+
+        /**
+         * @param version   to look up
+         * @param to        upper bound
+         * @param inclusive whether the upper bound is included
+         * @return records with a key less than the bound, in ascending order of the key
+         */
+        public List<AirtableRecordSnapshot> lessThan(TableSnapshot.Version version, K to, boolean inclusive) {
+            return range(version, null, false, Objects.requireNonNull(to), inclusive);
+        }
+
+        /**
+         * @param version to look up
+         * @return smallest key, or null if none is indexed
+         */
+        @Nullable
+        public K first(TableSnapshot.Version version) {
+            Buckets<K> buckets = state(version);
+            return firstKey((NavigableMap<K, Set<String>>) buckets.base, (NavigableMap<K, Set<String>>) buckets.changed, Comparator.naturalOrder());
+        }
+
+        /**
+         * @param version to look up
+         * @return largest key, or null if none is indexed
+         */
+        @Nullable
+        public K last(TableSnapshot.Version version) {
+            Buckets<K> buckets = state(version);
+            return firstKey(((NavigableMap<K, Set<String>>) buckets.base).descendingMap(),
+                    ((NavigableMap<K, Set<String>>) buckets.changed).descendingMap(), Comparator.reverseOrder());
+        }
+
+        private NavigableMap<K, Set<String>> range(Map<K, Set<String>> map, @Nullable K from, boolean fromInclusive, @Nullable K to, boolean toInclusive) {
+            NavigableMap<K, Set<String>> buckets = (NavigableMap<K, Set<String>>) map;
+            if (from != null && to != null) return buckets.subMap(from, fromInclusive, to, toInclusive);
+            if (from != null) return buckets.tailMap(from, fromInclusive);
+            if (to != null) return buckets.headMap(to, toInclusive);
+            return buckets;
+        }
+
+        @Nullable
+        private K firstKey(NavigableMap<K, Set<String>> base, NavigableMap<K, Set<String>> changed, Comparator<K> order) {
+            List<K> keys = new ArrayList<>(1);
+            forEach(base, changed, order, entry -> {
+                keys.add(entry.getKey());
+                return false;
+            });
+            return keys.isEmpty() ? null : keys.get(0);
+        }
+
+        /**
+         * Iterates the buckets of the base and the changes merged in the order of the key, the changes replace the base.
+         *
+         * @param consumer of each non empty bucket, returns false to stop
+         */
+        private void forEach(NavigableMap<K, Set<String>> base, NavigableMap<K, Set<String>> changed, Comparator<K> order,
+                             Predicate<Map.Entry<K, Set<String>>> consumer) {
+            Iterator<Map.Entry<K, Set<String>>> baseEntries = base.entrySet().iterator();
+            Iterator<Map.Entry<K, Set<String>>> changedEntries = changed.entrySet().iterator();
+            Map.Entry<K, Set<String>> nextBase = baseEntries.hasNext() ? baseEntries.next() : null;
+            Map.Entry<K, Set<String>> nextChanged = changedEntries.hasNext() ? changedEntries.next() : null;
+
+            while (nextBase != null || nextChanged != null) {
+                Map.Entry<K, Set<String>> entry;
+                int compare = nextBase == null ? 1 : nextChanged == null ? -1 : order.compare(nextBase.getKey(), nextChanged.getKey());
+                if (compare < 0) {
+                    entry = nextBase;
+                    nextBase = baseEntries.hasNext() ? baseEntries.next() : null;
+                } else {
+                    if (compare == 0) nextBase = baseEntries.hasNext() ? baseEntries.next() : null;
+                    entry = nextChanged;
+                    nextChanged = changedEntries.hasNext() ? changedEntries.next() : null;
+                }
+
+                if (!entry.getValue().isEmpty() && !consumer.test(entry)) return;
+            }
+        }
+    }
+
+    /**
+     * Bitmaps of the positions of the records in {@link TableSnapshot.Version#getRecords()} for each value.
+     * Bitmaps are combined with AND, OR and NOT and counted without reading any record,
+     * resolve the records with {@link TableSnapshot.Version#getRecords(RowBitmap)}.
+     * <p>
+     * Bitmaps of the values changed are copied on refresh, all bitmaps are rebuilt if any record is deleted.
+     */
+    public static final class Bitmap extends SnapshotIndex {
+        private static final RowBitmap EMPTY = new RowBitmap();
+
+        private Bitmap(String field) {
+            super(field);
+        }
+
+        @Override
+        Object build(List<AirtableRecordSnapshot> records) {
+            Map<Object, RowBitmap> bitmaps = new HashMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                int row = i;
+                keys(records.get(i), MAPPER, key -> bitmaps.computeIfAbsent(key, k -> new RowBitmap()).add(row));
+            }
+            return bitmaps;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object update(Object state, Changes changes) {
+            if (changes.compacted) return build(changes.records);
+
+            Map<Object, RowBitmap> bitmaps = new HashMap<>((Map<Object, RowBitmap>) state);
+            Set<Object> copied = new HashSet<>();
+            for (AirtableRecordSnapshot record : changes.removed) {
+                int row = changes.positions.get(record.getId());
+                keys(record, MAPPER, key -> {
+                    RowBitmap bitmap = bitmaps.get(key);
+                    if (bitmap == null) return;
+                    if (copied.add(key)) bitmaps.put(key, bitmap = bitmap.copy());
+
+                    bitmap.remove(row);
+                    if (bitmap.isEmpty()) bitmaps.remove(key);
+                });
+            }
+            for (AirtableRecordSnapshot record : changes.added) {
+                int row = changes.positions.get(record.getId());
+                keys(record, MAPPER, key -> {
+                    RowBitmap bitmap = bitmaps.get(key);
+                    if (bitmap == null) {
+                        copied.add(key);
+                        bitmaps.put(key, bitmap = new RowBitmap());
+                    } else if (copied.add(key)) {
+                        bitmaps.put(key, bitmap = bitmap.copy());
+                    }
+                    bitmap.add(row);
+                });
+            }
+            return bitmaps;
+        }
+
+        /**
+         * @param version to look up
+         * @param value   text, number, boolean or id of an object
+         * @return positions of the records with the value, tied to the version
+         */
+        public RowBitmap get(TableSnapshot.Version version, Object value) {
+            RowBitmap bitmap = this.<Map<Object, RowBitmap>>state(version).get(key(value));
+            return (bitmap == null ? EMPTY : bitmap).tie(version.getNumber());
+        }
+
+        /**
+         * @param version to look up
+         * @param values  text, number, boolean or id of an object
+         * @return positions of the records with any of the values, tied to the version
+         */
+        public RowBitmap any(TableSnapshot.Version version, Object... values) {
+            RowBitmap bitmap = EMPTY.tie(version.getNumber());
+            for (Object value : values) {
+                bitmap = bitmap.or(get(version, value));
+            }
+            return bitmap;
+        }
+
+        /**
+         * @param version to look up
+         * @param value   text, number, boolean or id of an object
+         * @return number of records with the value
+         */
+        public int count(TableSnapshot.Version version, Object value) {
+            RowBitmap bitmap = this.<Map<Object, RowBitmap>>state(version).get(key(value));
+            return bitmap == null ? 0 : bitmap.cardinality();
+        }
+
+        /**
+         * @param version to look up
+         * @return every value indexed
+         */
+        public Set<Object> values(TableSnapshot.Version version) {
+            return Collections.unmodifiableSet(this.<Map<Object, RowBitmap>>state(version).keySet());
+        }
+    }
+}
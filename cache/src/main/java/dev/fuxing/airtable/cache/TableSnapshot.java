@@ -0,0 +1,348 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.AirtableDates;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.AirtableTable;
+import dev.fuxing.airtable.exceptions.AirtableApiException;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import dev.fuxing.airtable.formula.AirtableFormula;
+import dev.fuxing.airtable.formula.DateTimeFunction;
+import dev.fuxing.airtable.formula.LogicalFunction;
+import dev.fuxing.airtable.formula.RecordFunction;
+
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Every record of a table held in memory, loaded once and then refreshed with only the records modified since the last refresh.
+ * <p>
+ * Each refresh lists the records where {@code LAST_MODIFIED_TIME()} or {@code CREATED_TIME()} is after the watermark,
+ * the time of the previous refresh less an overlap for clock skew between the client and airtable.
+ * Deleted records are not listed by the formula, they are found by listing the ids of every record without any field,
+ * once every scan interval.
+ * <p>
+ * Refreshes are serialized, reads are lock-free and always see a consistent {@link Version}.
+ * A version is a {@link LocalTable}, the snapshot can be used with {@link AirtableQueryRouter}.
+ * Secondary indexes of fields can be added with {@link #addIndex(SnapshotIndex)}, see {@link SnapshotIndex}.
+ *
+ * <pre>
+ * TableSnapshot snapshot = new TableSnapshot(table);
+ * executor.scheduleWithFixedDelay(snapshot::refresh, 0, 30, TimeUnit.SECONDS);
+ *
+ * AirtableRecordSnapshot record = snapshot.getVersion().get("rec0W9eGVAFSy9Chb");
+ * AirtableQueryRouter router = new AirtableQueryRouter(table, snapshot::getVersion, Duration.ofMinutes(1));
+ * </pre>
+ */
+public final class TableSnapshot {
+    private final AirtableTable table;
+    private final Duration overlap;
+    private final Duration scanInterval;
+    private final Clock clock;
+
+    private final List<SnapshotIndex> indexes = new ArrayList<>();
+
+    private volatile Version version;
+
+    private Instant watermark;
+    private Instant scannedAt;
+
+    /**
+     * With an overlap of 1 minute and deletions scanned every 10 minutes.
+     *
+     * @param table to load
+     */
+    public TableSnapshot(AirtableTable table) {
+        this(table, Duration.ofMinutes(1), Duration.ofMinutes(10), Clock.systemUTC());
+    }
+
+    /**
+     * @param table        to load
+     * @param overlap      subtracted from the watermark, for clock skew and the precision of LAST_MODIFIED_TIME
+     * @param scanInterval between scans for deleted records
+     * @param clock        to read the time of each refresh
+     */
+    public TableSnapshot(AirtableTable table, Duration overlap, Duration scanInterval, Clock clock) {
+        this.table = Objects.requireNonNull(table);
+        this.overlap = Objects.requireNonNull(overlap);
+        this.scanInterval = Objects.requireNonNull(scanInterval);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * @return latest version, or null if not loaded
+     */
+    @Nullable
+    public Version getVersion() {
+        return version;
+    }
+
+    /**
+     * Adds an index to the snapshot, built over the latest version immediately if loaded,
+     * and maintained incrementally on every refresh after.
+     *
+     * @param index to add
+     * @param <T>   type of the index
+     * @return the same index, to look up versions of this snapshot
+     */
+    public synchronized <T extends SnapshotIndex> T addIndex(T index) {
+        if (indexes.contains(index)) return index;
+
+        indexes.add(index);
+        if (version != null) version = version.withIndex(index);
+        return index;
+    }
+
+    /**
+     * Loads the table if it's not loaded, else lists the records modified since the last refresh,
+     * and the ids of every record if the scan interval has passed.
+     * If the refresh failed, the previous version is kept.
+     *
+     * @return the latest version
+     * @throws AirtableApiException if any call to airtable failed
+     */
+    public synchronized Version refresh() throws AirtableApiException {
+        Instant now = clock.instant();
+        if (version == null) {
+            List<AirtableRecordSnapshot> records = new ArrayList<>();
+            table.iterator(querySpec -> {
+            }).forEachRemaining(record -> records.add(AirtableRecordSnapshot.adopt(record)));
+
+            version = new Version(1, distinct(records), now, indexes);
+            watermark = now;
+            scannedAt = now;
+            return version;
+        }
+
+        List<AirtableRecordSnapshot> modified = new ArrayList<>();
+        AirtableFormula.Object formula = modifiedAfter(watermark.minus(overlap));
+        table.iterator(querySpec -> querySpec.filterByFormula(formula))
+                .forEachRemaining(record -> modified.add(AirtableRecordSnapshot.adopt(record)));
+
+        Set<String> deleted = Collections.emptySet();
+        if (!now.isBefore(scannedAt.plus(scanInterval))) {
+            deleted = scanDeleted(modified);
+            scannedAt = now;
+        }
+
+        version = version.apply(modified, deleted, now, indexes);
+        watermark = now;
+        return version;
+    }
+
+    /**
+     * Scans for deleted records on the next refresh, regardless of the scan interval.
+     */
+    public synchronized void scanOnNextRefresh() {
+        if (scannedAt != null) scannedAt = Instant.MIN;
+    }
+
+    /**
+     * @param modified records listed in the same refresh, they exist
+     * @return ids in the current version that no longer exist in airtable
+     */
+    private Set<String> scanDeleted(List<AirtableRecordSnapshot> modified) {
+        Set<String> ids = new HashSet<>();
+        table.iterator(querySpec -> querySpec.fields(""))
+                .forEachRemaining(record -> ids.add(record.getId()));
+        for (AirtableRecordSnapshot record : modified) {
+            ids.add(record.getId());
+        }
+
+        Set<String> deleted = new HashSet<>();
+        for (AirtableRecordSnapshot record : version.records) {
+            if (!ids.contains(record.getId())) deleted.add(record.getId());
+        }
+        return deleted;
+    }
+
+    /**
+     * A record can be listed twice in the same scan when it is modified while the pages are listed.
+     *
+     * @param records listed, in the order they are listed
+     * @return records with one record per id, the last listed wins, in the order they are first listed
+     */
+    static List<AirtableRecordSnapshot> distinct(List<AirtableRecordSnapshot> records) {
+        Map<String, AirtableRecordSnapshot> distinct = new LinkedHashMap<>(records.size() * 4 / 3 + 1);
+        for (AirtableRecordSnapshot record : records) {
+            distinct.put(record.getId(), record);
+        }
+        if (distinct.size() == records.size()) return records;
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * @param instant watermark
+     * @return formula matching records modified or created after the instant
+     */
+    static AirtableFormula.Object modifiedAfter(Instant instant) {
+        AirtableFormula.Object value = AirtableFormula.Object.value(AirtableDates.format(instant));
+        return AirtableFormula.Object.function(LogicalFunction.OR,
+                AirtableFormula.Object.function(DateTimeFunction.IS_AFTER, AirtableFormula.Object.function(RecordFunction.LAST_MODIFIED_TIME), value),
+                AirtableFormula.Object.function(DateTimeFunction.IS_AFTER, AirtableFormula.Object.function(RecordFunction.CREATED_TIME), value)
+        );
+    }
+
+    /**
+     * Immutable version of the table, records keep their position across versions until a record before them is deleted.
+     * New records are appended in the order they are listed.
+     */
+    public static final class Version implements LocalTable {
+        private final long number;
+        private final List<AirtableRecordSnapshot> records;
+        private final Map<String, Integer> positions;
+        private final Instant refreshedAt;
+        private final Map<SnapshotIndex, Object> indexStates;
+
+        private Version(long number, List<AirtableRecordSnapshot> records, Instant refreshedAt, List<SnapshotIndex> indexes) {
+            this(number, Collections.unmodifiableList(records), positions(records), refreshedAt, new HashMap<>());
+            for (SnapshotIndex index : indexes) {
+                indexStates.put(index, index.build(this.records));
+            }
+        }
+
+        private Version(long number, List<AirtableRecordSnapshot> records, Map<String, Integer> positions, Instant refreshedAt, Map<SnapshotIndex, Object> indexStates) {
+            this.number = number;
+            this.records = records;
+            this.positions = positions;
+            this.refreshedAt = refreshedAt;
+            this.indexStates = indexStates;
+        }
+
+        private static Map<String, Integer> positions(List<AirtableRecordSnapshot> records) {
+            Map<String, Integer> positions = new HashMap<>(records.size() * 4 / 3 + 1);
+            for (int i = 0; i < records.size(); i++) {
+                positions.put(records.get(i).getId(), i);
+            }
+            return Collections.unmodifiableMap(positions);
+        }
+
+        /**
+         * @param index to build over the records of this version
+         * @return same version with the index
+         */
+        private Version withIndex(SnapshotIndex index) {
+            Map<SnapshotIndex, Object> states = new HashMap<>(indexStates);
+            states.put(index, index.build(records));
+            return new Version(number, records, positions, refreshedAt, states);
+        }
+
+        /**
+         * @param modified    records to replace or append
+         * @param deleted     ids of records to remove
+         * @param refreshedAt time of the refresh
+         * @param indexes     to update with the records changed
+         * @return next version, or this version with the time of the refresh if nothing changed
+         */
+        private Version apply(List<AirtableRecordSnapshot> modified, Set<String> deleted, Instant refreshedAt, List<SnapshotIndex> indexes) {
+            List<AirtableRecordSnapshot> next = new ArrayList<>(records);
+            List<AirtableRecordSnapshot> removed = new ArrayList<>();
+            List<AirtableRecordSnapshot> added = new ArrayList<>();
+            for (AirtableRecordSnapshot record : distinct(modified)) {
+                Integer position = positions.get(record.getId());
+                if (position == null) {
+                    next.add(record);
+                    added.add(record);
+                } else if (!next.get(position).equals(record)) {
+                    removed.add(next.set(position, record));
+                    added.add(record);
+                }
+            }
+
+            if (!deleted.isEmpty()) {
+                next.removeIf(record -> {
+                    if (!deleted.contains(record.getId())) return false;
+                    removed.add(record);
+                    return true;
+                });
+            }
+            if (removed.isEmpty() && added.isEmpty()) {
+                return new Version(number, records, positions, refreshedAt, indexStates);
+            }
+
+            List<AirtableRecordSnapshot> nextRecords = Collections.unmodifiableList(next);
+            Map<String, Integer> nextPositions = positions(next);
+            SnapshotIndex.Changes changes = new SnapshotIndex.Changes(nextRecords, nextPositions, removed, added, !deleted.isEmpty());
+
+            Map<SnapshotIndex, Object> states = new HashMap<>();
+            for (SnapshotIndex index : indexes) {
+                states.put(index, index.update(indexStates.get(index), changes));
+            }
+            return new Version(number + 1, nextRecords, nextPositions, refreshedAt, states);
+        }
+
+        /**
+         * @param index added to the snapshot
+         * @return state of the index in this version, or null if not added
+         */
+        @Nullable
+        Object getIndexState(SnapshotIndex index) {
+            return indexStates.get(index);
+        }
+
+        /**
+         * @return number of the version, incremented when any record is changed
+         */
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * @param recordId id of the record
+         * @return record, or null if not found
+         */
+        @Nullable
+        public AirtableRecordSnapshot get(String recordId) {
+            Integer position = positions.get(recordId);
+            return position == null ? null : records.get(position);
+        }
+
+        /**
+         * @param recordId id of the record
+         * @return position of the record in {@link #getRecords()}, or -1 if not found
+         */
+        public int indexOf(String recordId) {
+            Integer position = positions.get(recordId);
+            return position == null ? -1 : position;
+        }
+
+        /**
+         * @param rows positions of records in this version, e.g. from a {@link SnapshotIndex.Bitmap} index looked up in this version
+         * @return records of the rows, in the order of the rows
+         * @throws AirtableClientException if the rows are looked up in another version, or any row is not in this version
+         */
+        public List<AirtableRecordSnapshot> getRecords(RowBitmap rows) {
+            if (rows.getVersion() != RowBitmap.ANY_VERSION && rows.getVersion() != number) {
+                throw new AirtableClientException("Rows of version " + rows.getVersion() + " can't be resolved in version " + number + ".");
+            }
+
+            List<AirtableRecordSnapshot> list = new ArrayList<>(rows.cardinality());
+            rows.forEach(row -> {
+                if (row >= records.size()) {
+                    throw new AirtableClientException("Row " + row + " is not in version " + number + " of " + records.size() + " records.");
+                }
+                list.add(records.get(row));
+            });
+            return list;
+        }
+
+        /**
+         * @return number of records
+         */
+        public int size() {
+            return records.size();
+        }
+
+        @Override
+        public List<AirtableRecordSnapshot> getRecords() {
+            return records;
+        }
+
+        @Override
+        public Instant getRefreshedAt() {
+            return refreshedAt;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package dev.fuxing.airtable.cache;
+
+import com.google.common.base.Ticker;
+import dev.fuxing.airtable.MemoryTable;
+import dev.fuxing.airtable.exceptions.AirtableApiException;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+class AirtableCachePolicyTest {
+
+    FailingTable table;
+    AtomicLong nanos;
+    List<Runnable> refreshes;
+
+    @BeforeEach
+    void setUp() {
+        table = new FailingTable();
+        table.add("rec1", "Name 1", 1);
+        table.add("rec2", "Name 2", 2);
+        nanos = new AtomicLong();
+        refreshes = new ArrayList<>();
+    }
+
+    /**
+     * Fails without a response from airtable, e.g. connection reset.
+     */
+    static final class FailingTable extends MemoryTable {
+        volatile boolean transportFailure;
+
+        @Override
+        public synchronized PaginationList list(QuerySpec querySpec) {
+            if (transportFailure) throw new AirtableClientException(new IOException("Connection reset"));
+            return super.list(querySpec);
+        }
+    }
+
+    private AirtableCache cache(AirtableCache.ReadPolicy policy) {
+        return cache(builder -> builder.withReadPolicy(policy));
+    }
+
+    private AirtableCache cache(Consumer<AirtableCacheGuava.Builder> consumer) {
+        AirtableCacheGuava.BuilderImpl builder = (AirtableCacheGuava.BuilderImpl) AirtableCacheGuava.builder()
+                .apiKey("key")
+                .app("app")
+                .table("Table")
+                .withFreshness(1, TimeUnit.MINUTES);
+        consumer.accept(builder);
+        builder.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        return new AirtableCacheGuava(builder, table);
+    }
+
+    @Test
+    void networkFirst() {
+        AirtableCache cache = cache(AirtableCache.ReadPolicy.NETWORK_FIRST);
+        Assertions.assertNotNull(cache.get("rec1"));
+        Assertions.assertNotNull(cache.get("rec1"));
+        Assertions.assertEquals(2, table.calls);
+
+        table.failure = 429;
+        Assertions.assertEquals("Name 1", cache.get("rec1").getFieldString("Name"));
+        Assertions.assertThrows(AirtableApiException.class, () -> cache.get("rec2"));
+
+        table.failure = 422;
+        Assertions.assertThrows(AirtableApiException.class, () -> cache.get("rec1"));
+
+        AirtableCache.Stats stats = cache.stats();
+        Assertions.assertEquals(0, stats.getHitCount());
+        Assertions.assertEquals(5, stats.getMissCount());
+        Assertions.assertEquals(1, stats.getFallbackCount());
+    }
+
+    @Test
+    void cacheFirst() {
+        AirtableCache cache = cache(AirtableCache.ReadPolicy.CACHE_FIRST);
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertNotNull(cache.getSnapshot("rec1"));
+        Assertions.assertSame(cache.getSnapshot("rec1"), cache.getSnapshot("rec1"));
+        Assertions.assertEquals(2, table.calls);
+
+        // Stale after the freshness duration
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        table.add("rec3", "Name 3", 3);
+        Assertions.assertEquals(3, cache.query().size());
+        Assertions.assertEquals(3, table.calls);
+
+        // Stale and failed, served from the cache
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        table.failure = 503;
+        Assertions.assertEquals(3, cache.query().size());
+
+        AirtableCache.Stats stats = cache.stats();
+        Assertions.assertEquals(3, stats.getHitCount());
+        Assertions.assertEquals(4, stats.getMissCount());
+        Assertions.assertEquals(1, stats.getFallbackCount());
+        Assertions.assertEquals(3.0 / 7, stats.getHitRate());
+    }
+
+    @Test
+    void cacheOnly() {
+        AirtableCache cache = cache(AirtableCache.ReadPolicy.CACHE_ONLY);
+        Assertions.assertNull(cache.get("rec1"));
+        Assertions.assertTrue(cache.query().isEmpty());
+        Assertions.assertEquals(0, table.calls);
+        Assertions.assertEquals(2, cache.stats().getMissCount());
+    }
+
+    @Test
+    void refreshAfterWrite() {
+        AirtableCache cache = cache(builder -> builder
+                .withReadPolicy(AirtableCache.ReadPolicy.CACHE_FIRST)
+                .withRefreshAfterWrite(30, TimeUnit.SECONDS)
+                .withRefreshExecutor(refreshes::add));
+        Assertions.assertEquals(2, cache.query().size());
+
+        // Served while a single refresh is pending
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        table.add("rec3", "Name 3", 3);
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertEquals(1, refreshes.size());
+        refreshes.remove(0).run();
+        Assertions.assertEquals(3, cache.query().size());
+        Assertions.assertEquals(2, table.calls);
+
+        // Failed refresh keeps the value
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        table.failure = 503;
+        Assertions.assertEquals(3, cache.query().size());
+        refreshes.remove(0).run();
+        Assertions.assertEquals(3, cache.query().size());
+        Assertions.assertEquals(3, table.calls);
+
+        // Failed refresh that is not ignorable removes the value
+        table.failure = 422;
+        refreshes.remove(0).run();
+        Assertions.assertThrows(AirtableApiException.class, cache::query);
+
+        AirtableCache.Stats stats = cache.stats();
+        Assertions.assertEquals(3, stats.getRefreshCount());
+    }
+
+    @Test
+    void refreshFailedWithoutResponse() {
+        AirtableCache cache = cache(builder -> builder
+                .withReadPolicy(AirtableCache.ReadPolicy.CACHE_FIRST)
+                .withRefreshAfterWrite(30, TimeUnit.SECONDS)
+                .withRefreshExecutor(refreshes::add));
+        Assertions.assertEquals(2, cache.query().size());
+
+        // Transport failure keeps the value, and the key can be refreshed again
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        table.transportFailure = true;
+        Assertions.assertEquals(2, cache.query().size());
+        refreshes.remove(0).run();
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertEquals(1, refreshes.size());
+    }
+
+    @Test
+    void close() throws Exception {
+        AirtableCacheGuava cache = (AirtableCacheGuava) cache(builder -> builder
+                .withReadPolicy(AirtableCache.ReadPolicy.CACHE_FIRST)
+                .withRefreshAfterWrite(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, cache.query().size());
+        cache.close();
+
+        // Served without refreshing
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertEquals(0, cache.stats().getRefreshCount());
+        Assertions.assertEquals(1, table.calls);
+    }
+
+    @Test
+    void refreshAfterNewerWrite() {
+        AirtableCache cache = cache(builder -> builder
+                .withReadPolicy(AirtableCache.ReadPolicy.CACHE_FIRST)
+                .withRefreshAfterWrite(30, TimeUnit.SECONDS)
+                .withRefreshExecutor(refreshes::add));
+        Assertions.assertEquals(2, cache.query().size());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        Assertions.assertEquals(2, cache.query().size());
+        Assertions.assertEquals(1, refreshes.size());
+
+        // Written by a read past freshness while the refresh is pending
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        table.add("rec3", "Name 3", 3);
+        Assertions.assertEquals(3, cache.query().size());
+
+        // Refresh of the replaced entry doesn't overwrite the newer entry
+        table.add("rec4", "Name 4", 4);
+        refreshes.remove(0).run();
+        Assertions.assertEquals(3, cache.query().size());
+        Assertions.assertEquals(3, table.calls);
+    }
+}
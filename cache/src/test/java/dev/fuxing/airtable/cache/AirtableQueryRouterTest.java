@@ -0,0 +1,100 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.MemoryTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
+
+class AirtableQueryRouterTest {
+    private static final Instant NOW = Instant.parse("2019-05-01T00:00:00Z");
+
+    MemoryTable table;
+    LocalTable local;
+    AirtableQueryRouter router;
+
+    @BeforeEach
+    void setUp() {
+        table = new MemoryTable();
+        table.add("rec1", "b", 3);
+        table.add("rec2", "A", 1);
+        table.add("rec3", "c", 2);
+        table.add("rec4", "", 5);
+
+        List<AirtableRecordSnapshot> snapshots = table.records.stream()
+                .map(AirtableRecordSnapshot::of)
+                .collect(Collectors.toList());
+        local = LocalTable.of(snapshots, NOW.minusSeconds(60));
+        router = new AirtableQueryRouter(table, () -> local, Duration.ofMinutes(5), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static List<String> ids(AirtableQueryRouter.Result result) {
+        return result.getRecords().stream().map(AirtableRecordSnapshot::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void local() {
+        AirtableQueryRouter.Result result = router.query(querySpec -> querySpec
+                .filterByFormula("{Count} > 1")
+                .sort("Name"));
+        Assertions.assertEquals(AirtableQueryRouter.Route.LOCAL, result.getRoute());
+        Assertions.assertNull(result.getReason());
+        Assertions.assertEquals(Arrays.asList("rec4", "rec1", "rec3"), ids(result));
+
+        result = router.query(querySpec -> querySpec
+                .sort("Count", "desc")
+                .maxRecords(2)
+                .fields("Name"));
+        Assertions.assertEquals(Arrays.asList("rec4", "rec1"), ids(result));
+        Assertions.assertEquals(Collections.singleton("Name"), result.getRecords().get(1).getFieldNames());
+
+        Assertions.assertEquals(0, table.calls);
+        Assertions.assertEquals(2, router.getLocalCount());
+    }
+
+    @Test
+    void remote() {
+        // Same result either way
+        AirtableQueryRouter.Result first = router.query(querySpec -> querySpec.filterByFormula("LOWER({Name}) = 'a'"));
+        Assertions.assertEquals(AirtableQueryRouter.Route.LOCAL, first.getRoute());
+        Assertions.assertEquals(0, table.calls);
+        List<String> expected = ids(first);
+        Assertions.assertEquals(Collections.singletonList("rec2"), expected);
+
+        AirtableQueryRouter.Result result = router.query(querySpec -> querySpec
+                .filterByFormula("LOWER({Name}) = 'a'")
+                .view("Grid view"));
+        Assertions.assertEquals(AirtableQueryRouter.Route.REMOTE, result.getRoute());
+        Assertions.assertNotNull(result.getReason());
+        Assertions.assertEquals(expected, ids(result));
+
+        // Not evaluable locally
+        result = router.query(querySpec -> querySpec.filterByFormula("REGEX_MATCH({Name}, 'a')"));
+        Assertions.assertEquals(AirtableQueryRouter.Route.REMOTE, result.getRoute());
+
+        // Stale
+        local = LocalTable.of(local.getRecords(), NOW.minus(Duration.ofMinutes(10)));
+        Assertions.assertEquals(AirtableQueryRouter.Route.REMOTE, router.query(querySpec -> {
+        }).getRoute());
+
+        // Field not loaded
+        local = LocalTable.of(local.getRecords(), NOW, Collections.singleton("Name"));
+        Assertions.assertEquals(AirtableQueryRouter.Route.LOCAL, router.query(querySpec -> querySpec.filterByFormula("{Name}")).getRoute());
+        Assertions.assertEquals(AirtableQueryRouter.Route.REMOTE, router.query(querySpec -> querySpec.filterByFormula("{Count}")).getRoute());
+
+        // Not loaded
+        local = null;
+        Assertions.assertEquals(AirtableQueryRouter.Route.REMOTE, router.query(querySpec -> {
+        }).getRoute());
+
+        Assertions.assertEquals(5, router.getRemoteCount());
+        Assertions.assertEquals(5, table.calls);
+    }
+}
@@ -0,0 +1,80 @@
+package dev.fuxing.airtable.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+class RowBitmapTest {
+
+    private static BitSet random(Random random, int size, double density) {
+        BitSet bits = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() < density) bits.set(i);
+        }
+        return bits;
+    }
+
+    private static RowBitmap bitmap(BitSet bits) {
+        return RowBitmap.of(bits.stream().toArray());
+    }
+
+    @Test
+    void operations() {
+        Random random = new Random(42);
+        int size = 200_000;
+        double[] densities = {0.001, 0.05, 0.5, 0.99};
+        for (double a : densities) {
+            for (double b : densities) {
+                BitSet left = random(random, size, a);
+                BitSet right = random(random, size, b);
+                RowBitmap x = bitmap(left);
+                RowBitmap y = bitmap(right);
+
+                BitSet and = (BitSet) left.clone();
+                and.and(right);
+                Assertions.assertEquals(Arrays.toString(and.stream().toArray()), Arrays.toString(x.and(y).toArray()));
+
+                BitSet or = (BitSet) left.clone();
+                or.or(right);
+                Assertions.assertEquals(Arrays.toString(or.stream().toArray()), Arrays.toString(x.or(y).toArray()));
+                Assertions.assertEquals(or.cardinality(), x.or(y).cardinality());
+
+                BitSet andNot = (BitSet) left.clone();
+                andNot.andNot(right);
+                Assertions.assertEquals(Arrays.toString(andNot.stream().toArray()), Arrays.toString(x.andNot(y).toArray()));
+
+                BitSet not = (BitSet) left.clone();
+                not.flip(0, size);
+                Assertions.assertEquals(Arrays.toString(not.stream().toArray()), Arrays.toString(x.not(size).toArray()));
+
+                // Inputs are not modified
+                Assertions.assertEquals(Arrays.toString(left.stream().toArray()), Arrays.toString(x.toArray()));
+            }
+        }
+    }
+
+    @Test
+    void addRemove() {
+        RowBitmap bitmap = new RowBitmap();
+        for (int i = 0; i < 10_000; i += 2) {
+            bitmap.add(i);
+        }
+        bitmap.add(70_000);
+        RowBitmap copy = bitmap.copy();
+        for (int i = 0; i < 10_000; i += 4) {
+            bitmap.remove(i);
+        }
+        bitmap.remove(70_000);
+
+        Assertions.assertEquals(2_500, bitmap.cardinality());
+        Assertions.assertTrue(bitmap.contains(2));
+        Assertions.assertFalse(bitmap.contains(4));
+        Assertions.assertFalse(bitmap.contains(70_000));
+        Assertions.assertEquals(5_001, copy.cardinality());
+        Assertions.assertTrue(RowBitmap.full(0).isEmpty());
+        Assertions.assertEquals(65_537, RowBitmap.full(65_537).cardinality());
+    }
+}
@@ -0,0 +1,127 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.MemoryTable;
+import dev.fuxing.airtable.formula.AirtableFormulaEvaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Time of multi-predicate filters over a snapshot of 100k rows, with {@link SnapshotIndex.Bitmap} indexes
+ * against scanning every record with the compiled formula and with a plain predicate.
+ * A report rather than a test, median of several rounds after warming up the JIT.
+ * The number of rows is the first argument, if any.
+ *
+ * <pre>
+ * gradle :cache:benchmark -Pbenchmark=dev.fuxing.airtable.cache.SnapshotBitmapBenchmark
+ * gradle :cache:benchmark -Pbenchmark=dev.fuxing.airtable.cache.SnapshotBitmapBenchmark --args="1000000"
+ * </pre>
+ */
+public final class SnapshotBitmapBenchmark {
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 15;
+    private static final int ITERATIONS = 20;
+
+    private static final String[] STATUSES = {"Todo", "Doing", "Review", "Done", "Archived"};
+    private static final String[] TAGS = {"x", "y", "z", "u", "v", "w", "p", "q", "r", "s"};
+
+    /**
+     * Results are kept, so the JIT can't drop the filter.
+     */
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        MemoryTable table = new MemoryTable();
+        Random random = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            AirtableRecord record = table.add(String.format("rec%09d", i), "Name " + i, random.nextInt(1000));
+            record.putField("Status", STATUSES[random.nextInt(STATUSES.length)]);
+            record.putField("Owner", "usr" + random.nextInt(50));
+            record.putField("Done", random.nextBoolean());
+            record.putField("Tags", Arrays.asList(TAGS[random.nextInt(TAGS.length)], TAGS[random.nextInt(TAGS.length)]));
+        }
+
+        TableSnapshot snapshot = new TableSnapshot(table);
+        SnapshotIndex.Bitmap status = snapshot.addIndex(SnapshotIndex.bitmap("Status"));
+        SnapshotIndex.Bitmap owner = snapshot.addIndex(SnapshotIndex.bitmap("Owner"));
+        SnapshotIndex.Bitmap done = snapshot.addIndex(SnapshotIndex.bitmap("Done"));
+        SnapshotIndex.Bitmap tags = snapshot.addIndex(SnapshotIndex.bitmap("Tags"));
+        TableSnapshot.Version version = snapshot.refresh();
+        System.out.println(version.size() + " rows");
+
+        Supplier<RowBitmap> twoBitmaps = () -> status.get(version, "Review").and(owner.get(version, "usr7"));
+        compare(version, "AND({Status}='Review',{Owner}='usr7')", twoBitmaps,
+                record -> "Review".equals(record.getFieldString("Status")) && "usr7".equals(record.getFieldString("Owner")));
+
+        Supplier<RowBitmap> threeBitmaps = () -> status.any(version, "Todo", "Doing").andNot(done.get(version, true));
+        compare(version, "AND(OR({Status}='Todo',{Status}='Doing'),NOT({Done}))", threeBitmaps,
+                record -> {
+                    String value = record.getFieldString("Status");
+                    return ("Todo".equals(value) || "Doing".equals(value)) && !Boolean.TRUE.equals(record.getFieldBoolean("Done"));
+                });
+
+        Supplier<RowBitmap> fourBitmaps = () -> tags.get(version, "x")
+                .and(status.get(version, "Doing"))
+                .and(owner.any(version, "usr1", "usr2", "usr3"))
+                .andNot(done.get(version, true));
+        compare(version, "AND(FIND('x',ARRAYJOIN({Tags},',')),{Status}='Doing',OR({Owner}='usr1',{Owner}='usr2',{Owner}='usr3'),NOT({Done}))", fourBitmaps,
+                record -> {
+                    String value = record.getFieldString("Owner");
+                    List<String> list = record.getFieldList("Tags", String.class);
+                    return list != null && list.contains("x")
+                            && "Doing".equals(record.getFieldString("Status"))
+                            && ("usr1".equals(value) || "usr2".equals(value) || "usr3".equals(value))
+                            && !Boolean.TRUE.equals(record.getFieldBoolean("Done"));
+                });
+    }
+
+    private static void compare(TableSnapshot.Version version, String formula, Supplier<RowBitmap> bitmaps, Predicate<AirtableRecordSnapshot> predicate) {
+        AirtableFormulaEvaluator.CompiledFormula compiled = AirtableFormulaEvaluator.DEFAULT.compile(formula);
+        List<AirtableRecordSnapshot> records = version.getRecords();
+
+        int expected = filter(records, predicate).size();
+        if (bitmaps.get().cardinality() != expected || filter(records, compiled::test).size() != expected) {
+            throw new IllegalStateException("Filters disagree on " + formula);
+        }
+
+        System.out.println(formula + ": " + expected + " rows");
+        report("bitmap cardinality", () -> bitmaps.get().cardinality());
+        report("bitmap records", () -> version.getRecords(bitmaps.get()));
+        report("scan predicate", () -> filter(records, predicate));
+        report("scan formula", () -> filter(records, compiled::test));
+    }
+
+    private static List<AirtableRecordSnapshot> filter(List<AirtableRecordSnapshot> records, Predicate<AirtableRecordSnapshot> predicate) {
+        List<AirtableRecordSnapshot> list = new ArrayList<>();
+        for (AirtableRecordSnapshot record : records) {
+            if (predicate.test(record)) list.add(record);
+        }
+        return list;
+    }
+
+    private static void report(String name, Supplier<Object> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = operation.get();
+        }
+
+        long[] rounds = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink = operation.get();
+            }
+            rounds[round] = (System.nanoTime() - start) / ITERATIONS;
+        }
+        Arrays.sort(rounds);
+        System.out.println(String.format("  %-32s %10.1f us/filter (min %.1f, max %.1f)", name,
+                rounds[ROUNDS / 2] / 1000.0, rounds[0] / 1000.0, rounds[ROUNDS - 1] / 1000.0));
+    }
+}
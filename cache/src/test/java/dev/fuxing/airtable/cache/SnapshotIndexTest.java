@@ -0,0 +1,144 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.AirtableRecordSnapshot;
+import dev.fuxing.airtable.MemoryTable;
+import dev.fuxing.airtable.exceptions.AirtableClientException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class SnapshotIndexTest {
+    private static final Instant NOW = Instant.parse("2019-05-01T00:00:00Z");
+
+    MemoryTable table;
+    TableSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        table = new MemoryTable();
+        table.add("rec1", "a", 1).putField("Date", "2019-04-01");
+        table.add("rec2", "b", 2).putField("Date", "2019-04-02T12:00:00.000Z");
+        table.add("rec3", "a", 3).putField("Tags", Arrays.asList("x", "y"));
+        snapshot = new TableSnapshot(table, Duration.ofMinutes(1), Duration.ofMinutes(10), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static List<String> ids(List<AirtableRecordSnapshot> records) {
+        return records.stream().map(AirtableRecordSnapshot::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void hash() {
+        SnapshotIndex.Hash name = snapshot.addIndex(SnapshotIndex.hash("Name"));
+        SnapshotIndex.Hash tags = SnapshotIndex.hash("Tags");
+        TableSnapshot.Version version = snapshot.refresh();
+        Assertions.assertEquals(Arrays.asList("rec1", "rec3"), ids(name.get(version, "a")));
+        Assertions.assertEquals(0, name.count(version, "c"));
+        Assertions.assertThrows(AirtableClientException.class, () -> tags.get(version, "x"));
+
+        // Added after loaded
+        snapshot.addIndex(tags);
+        Assertions.assertEquals(Arrays.asList("rec3"), ids(tags.get(snapshot.getVersion(), "y")));
+
+        // Modified and deleted
+        table.records.get(0).putField("Name", "c");
+        table.records.remove(2);
+        snapshot.scanOnNextRefresh();
+        TableSnapshot.Version next = snapshot.refresh();
+        Assertions.assertEquals(Arrays.asList("rec1"), ids(name.get(next, "c")));
+        Assertions.assertTrue(name.get(next, "a").isEmpty());
+        Assertions.assertEquals(0, tags.count(next, "x"));
+
+        // Previous version is not modified
+        Assertions.assertEquals(Arrays.asList("rec1", "rec3"), ids(name.get(version, "a")));
+    }
+
+    @Test
+    void sorted() {
+        SnapshotIndex.Sorted<Double> count = snapshot.addIndex(SnapshotIndex.number("Count"));
+        SnapshotIndex.Sorted<Instant> date = snapshot.addIndex(SnapshotIndex.date("Date"));
+        TableSnapshot.Version version = snapshot.refresh();
+        Assertions.assertEquals(Arrays.asList("rec2", "rec3"), ids(count.greaterThan(version, 2d, true)));
+        Assertions.assertEquals(Arrays.asList("rec1"), ids(count.lessThan(version, 2d, false)));
+        Assertions.assertEquals(Arrays.asList("rec2"), ids(count.range(version, 1d, false, 3d, false)));
+        Assertions.assertTrue(count.range(version, 2d, false, 2d, true).isEmpty());
+        Assertions.assertEquals(3d, count.last(version));
+
+        Assertions.assertEquals(Arrays.asList("rec1", "rec2"), ids(date.lessThan(version, NOW, false)));
+        Assertions.assertEquals(Arrays.asList("rec2"), ids(date.greaterThan(version, Instant.parse("2019-04-02T00:00:00Z"), true)));
+
+        table.records.get(0).putField("Count", 10);
+        version = snapshot.refresh();
+        Assertions.assertEquals(Arrays.asList("rec3", "rec1"), ids(count.greaterThan(version, 3d, true)));
+        Assertions.assertEquals(2d, count.first(version));
+    }
+
+    @Test
+    void changes() {
+        SnapshotIndex.Hash name = snapshot.addIndex(SnapshotIndex.hash("Name"));
+        SnapshotIndex.Sorted<Double> count = snapshot.addIndex(SnapshotIndex.number("Count"));
+        TableSnapshot.Version first = snapshot.refresh();
+
+        // Changed more keys than kept apart from the base, merged into a copy of the base
+        for (int i = 0; i < SnapshotIndex.Buckets.maxChanges(3) * 2; i++) {
+            table.records.get(i % 3).putField("Name", "n" + i);
+            table.records.get(i % 3).putField("Count", 1000 - i);
+            TableSnapshot.Version version = snapshot.refresh();
+
+            String id = table.records.get(i % 3).getId();
+            Assertions.assertEquals(Arrays.asList(id), ids(name.get(version, "n" + i)));
+            Assertions.assertEquals(3, name.values(version).size());
+            Assertions.assertEquals(Arrays.asList(id), ids(count.range(version, 1000d - i, true, 1000d - i, true)));
+            Assertions.assertEquals(3, count.greaterThan(version, 0d, false).size());
+        }
+
+        TableSnapshot.Version version = snapshot.getVersion();
+        Assertions.assertEquals(Arrays.asList("rec1", "rec3", "rec2"), ids(count.greaterThan(version, 0d, false)));
+        Assertions.assertEquals(Arrays.asList("rec1", "rec3"), ids(count.range(version, 871d, true, 872d, true)));
+        Assertions.assertEquals(873d, count.last(version));
+
+        // Previous version is not modified
+        Assertions.assertEquals(Arrays.asList("rec1", "rec3"), ids(name.get(first, "a")));
+        Assertions.assertEquals(Arrays.asList("rec1", "rec2", "rec3"), ids(count.greaterThan(first, 0d, false)));
+        Assertions.assertEquals(1d, count.first(first));
+    }
+
+    @Test
+    void bitmap() {
+        SnapshotIndex.Bitmap name = snapshot.addIndex(SnapshotIndex.bitmap("Name"));
+        SnapshotIndex.Bitmap tags = snapshot.addIndex(SnapshotIndex.bitmap("Tags"));
+        TableSnapshot.Version version = snapshot.refresh();
+        Assertions.assertEquals(2, name.count(version, "a"));
+        Assertions.assertEquals(Arrays.asList("rec3"), ids(version.getRecords(name.get(version, "a").and(tags.get(version, "x")))));
+        Assertions.assertEquals(Arrays.asList("rec1", "rec2"), ids(version.getRecords(tags.get(version, "y").not(version.size()))));
+        Assertions.assertEquals(3, name.any(version, "a", "b").cardinality());
+
+        // Modified and added
+        table.records.get(1).putField("Name", "a");
+        table.add("rec4", "b", 4);
+        version = snapshot.refresh();
+        Assertions.assertEquals("[0, 1, 2]", Arrays.toString(name.get(version, "a").toArray()));
+        Assertions.assertEquals("[3]", Arrays.toString(name.get(version, "b").toArray()));
+
+        // Deleted, positions are shifted
+        RowBitmap stale = name.get(version, "b");
+        table.records.remove(0);
+        snapshot.scanOnNextRefresh();
+        TableSnapshot.Version next = snapshot.refresh();
+        Assertions.assertEquals(Arrays.asList("rec2", "rec3"), ids(next.getRecords(name.get(next, "a"))));
+        Assertions.assertEquals("[2]", Arrays.toString(name.get(next, "b").toArray()));
+
+        // Rows of another version don't resolve to the wrong records
+        Assertions.assertThrows(AirtableClientException.class, () -> next.getRecords(stale));
+        Assertions.assertThrows(AirtableClientException.class, () -> name.get(next, "a").and(stale));
+        Assertions.assertThrows(AirtableClientException.class, () -> next.getRecords(RowBitmap.of(3)));
+        Assertions.assertEquals(Arrays.asList("rec2"), ids(next.getRecords(RowBitmap.of(0).and(name.get(next, "a")))));
+    }
+}
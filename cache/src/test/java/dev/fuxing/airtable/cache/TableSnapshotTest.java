@@ -0,0 +1,86 @@
+package dev.fuxing.airtable.cache;
+
+import dev.fuxing.airtable.MemoryTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+class TableSnapshotTest {
+    private static final Instant NOW = Instant.parse("2019-05-01T00:00:00Z");
+
+    MemoryTable table;
+    TableSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        table = new MemoryTable();
+        table.add("rec1", "Name 1", 1);
+        table.add("rec2", "Name 2", 2);
+        snapshot = new TableSnapshot(table, Duration.ofMinutes(1), Duration.ofMinutes(10), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void refresh() {
+        Assertions.assertNull(snapshot.getVersion());
+        TableSnapshot.Version version = snapshot.refresh();
+        Assertions.assertEquals(1, version.getNumber());
+        Assertions.assertEquals(2, version.size());
+        Assertions.assertNull(table.formulas.get(0));
+
+        // Modified since the watermark, less the overlap
+        table.records.get(0).putField("Count", 10);
+        table.add("rec3", "Name 3", 3);
+        version = snapshot.refresh();
+        Assertions.assertEquals("OR(IS_AFTER(LAST_MODIFIED_TIME(),'2019-04-30T23:59:00.000Z'),IS_AFTER(CREATED_TIME(),'2019-04-30T23:59:00.000Z'))",
+                table.formulas.get(1));
+        Assertions.assertEquals(2, version.getNumber());
+        Assertions.assertEquals(10, version.get("rec1").getFieldInteger("Count"));
+        Assertions.assertEquals(2, version.indexOf("rec3"));
+        Assertions.assertSame(version, snapshot.getVersion());
+
+        // Unchanged, same number
+        Assertions.assertEquals(2, snapshot.refresh().getNumber());
+    }
+
+    @Test
+    void deleted() {
+        snapshot.refresh();
+        table.records.remove(0);
+
+        // Not scanned within the interval
+        Assertions.assertEquals(2, snapshot.refresh().size());
+
+        snapshot.scanOnNextRefresh();
+        TableSnapshot.Version version = snapshot.refresh();
+        Assertions.assertEquals(1, version.size());
+        Assertions.assertNull(version.get("rec1"));
+        Assertions.assertEquals(0, version.indexOf("rec2"));
+        Assertions.assertEquals(4, table.calls);
+    }
+
+    @Test
+    void listedTwice() {
+        SnapshotIndex.Hash names = snapshot.addIndex(SnapshotIndex.hash("Name"));
+        snapshot.refresh();
+
+        // Modified while the pages are listed, the last listed wins
+        table.add("rec3", "Name 3", 3);
+        table.add("rec3", "Name 3", 4);
+        table.records.get(0).putField("Count", 10);
+        table.add("rec1", "Name 1", 11);
+
+        TableSnapshot.Version version = snapshot.refresh();
+        Assertions.assertEquals(3, version.size());
+        Assertions.assertEquals(2, version.indexOf("rec3"));
+        Assertions.assertEquals(4, version.get("rec3").getFieldInteger("Count"));
+        Assertions.assertEquals(0, version.indexOf("rec1"));
+        Assertions.assertEquals(11, version.get("rec1").getFieldInteger("Count"));
+        Assertions.assertEquals(1, names.count(version, "Name 3"));
+        Assertions.assertEquals(1, names.count(version, "Name 1"));
+    }
+}
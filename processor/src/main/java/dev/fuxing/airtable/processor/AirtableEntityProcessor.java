@@ -0,0 +1,287 @@
+package dev.fuxing.airtable.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates an {@code AirtableEntityMapper} for every class annotated with {@code @AirtableEntity}.
+ * <p>
+ * The generated mapper {@code <Entity>_AirtableMapper} is in the same package as the entity,
+ * it reads the fields with a switch over the JSON tokens and writes each field straight into the generator,
+ * there is no reflection at runtime.
+ * The mappers are registered in {@code META-INF/services} for {@code AirtableEntities.mapper(Class)},
+ * merged with the mappers already registered in the class output by earlier incremental builds.
+ * <p>
+ * Add to the annotation processor path of your build:
+ * <pre>
+ * annotationProcessor 'dev.fuxing:airtable-processor:0.3.2'
+ * </pre>
+ */
+public class AirtableEntityProcessor extends AbstractProcessor {
+    static final String ENTITY = "dev.fuxing.airtable.entity.AirtableEntity";
+    static final String FIELD = "dev.fuxing.airtable.entity.AirtableField";
+    static final String ID = "dev.fuxing.airtable.entity.AirtableId";
+    static final String MAPPER = "dev.fuxing.airtable.entity.AirtableEntityMapper";
+
+    private final Set<String> mappers = new TreeSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ENTITY);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServices();
+            return false;
+        }
+
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ENTITY);
+        if (annotation == null) return false;
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+            try {
+                process(type);
+            } catch (IOException e) {
+                error(type, "Failed to generate mapper: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void process(TypeElement type) throws IOException {
+        if (!isValid(type)) return;
+
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+
+        EntityField id = null;
+        List<EntityField> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        boolean valid = true;
+
+        for (VariableElement field : ElementFilter.fieldsIn(elements.getAllMembers(type))) {
+            AnnotationMirror fieldMirror = getAnnotation(field, FIELD);
+            AnnotationMirror idMirror = getAnnotation(field, ID);
+            if (fieldMirror == null && idMirror == null) continue;
+
+            if (fieldMirror != null && idMirror != null) {
+                error(field, "@AirtableField and @AirtableId cannot be on the same field");
+                valid = false;
+                continue;
+            }
+
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                error(field, "Static field cannot be mapped");
+                valid = false;
+                continue;
+            }
+
+            FieldType fieldType = FieldType.of(field.asType());
+            if (fieldType == null) {
+                error(field, "Unsupported type " + field.asType() + ", see @AirtableField for supported types");
+                valid = false;
+                continue;
+            }
+
+            EntityField entityField = createField(type, packageName, field, fieldType,
+                    idMirror != null ? "id" : getValue(fieldMirror));
+            if (entityField == null) {
+                valid = false;
+                continue;
+            }
+
+            if (idMirror != null) {
+                if (id != null || !field.asType().toString().equals("java.lang.String")) {
+                    error(field, "Only one String field can be @AirtableId");
+                    valid = false;
+                }
+                id = entityField;
+            } else if (!names.add(entityField.name())) {
+                error(field, "Duplicated @AirtableField(\"" + entityField.name() + "\")");
+                valid = false;
+            } else {
+                fields.add(entityField);
+            }
+        }
+
+        if (!valid) return;
+
+        String simpleName = mapperName(type);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(new MapperWriter(packageName, simpleName, type.getQualifiedName().toString(), id, fields).write());
+        }
+        mappers.add(qualifiedName);
+    }
+
+    /**
+     * @return whether the type can be instantiated by the generated mapper
+     */
+    private boolean isValid(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "@AirtableEntity must be a concrete class");
+            return false;
+        }
+
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@AirtableEntity cannot have type parameters");
+            return false;
+        }
+
+        for (Element element = type; element.getKind().isClass(); element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                error(type, "@AirtableEntity cannot be private");
+                return false;
+            }
+            if (element.getEnclosingElement().getKind().isClass() && !element.getModifiers().contains(Modifier.STATIC)) {
+                error(type, "@AirtableEntity nested class must be static");
+                return false;
+            }
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(type, "@AirtableEntity must have a non private no-arg constructor");
+        return false;
+    }
+
+    /**
+     * Fields that are not accessible from the generated mapper are accessed with getter and setter.
+     */
+    private EntityField createField(TypeElement type, String packageName, VariableElement field, FieldType fieldType, String name) {
+        String fieldName = field.getSimpleName().toString();
+        Set<Modifier> modifiers = field.getModifiers();
+        boolean accessible = !modifiers.contains(Modifier.PRIVATE) && (modifiers.contains(Modifier.PUBLIC) ||
+                processingEnv.getElementUtils().getPackageOf(field).getQualifiedName().contentEquals(packageName));
+
+        if (accessible && !modifiers.contains(Modifier.FINAL)) {
+            return new EntityField(name, fieldType, fieldName, fieldName + " = ", "");
+        }
+
+        String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        String getter = null;
+        String setter = null;
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+
+            String methodName = method.getSimpleName().toString();
+            List<? extends VariableElement> parameters = method.getParameters();
+            if (parameters.isEmpty() && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                if (methodName.equals("get" + capitalized) || (methodName.equals("is" + capitalized) && field.asType().getKind() == TypeKind.BOOLEAN)) {
+                    getter = methodName + "()";
+                }
+            } else if (parameters.size() == 1 && methodName.equals("set" + capitalized) &&
+                    processingEnv.getTypeUtils().isSameType(parameters.get(0).asType(), field.asType())) {
+                setter = methodName + "(";
+            }
+        }
+
+        if (getter == null || setter == null) {
+            error(field, "Field is not accessible, add a getter and setter or make it non private");
+            return null;
+        }
+        return new EntityField(name, fieldType, getter, setter, ")");
+    }
+
+    /**
+     * @return Outer_Inner_AirtableMapper for nested class
+     */
+    private static String mapperName(TypeElement type) {
+        StringBuilder builder = new StringBuilder(type.getSimpleName());
+        for (Element element = type.getEnclosingElement(); element.getKind().isClass(); element = element.getEnclosingElement()) {
+            builder.insert(0, element.getSimpleName() + "_");
+        }
+        return builder.append("_AirtableMapper").toString();
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(name)) return mirror;
+        }
+        return null;
+    }
+
+    private static String getValue(AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return (String) entry.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("@AirtableField value is required");
+    }
+
+    private void writeServices() {
+        if (mappers.isEmpty()) return;
+
+        String path = "META-INF/services/" + MAPPER;
+        Set<String> services = new TreeSet<>(mappers);
+        services.addAll(readServices(path));
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (Writer writer = file.openWriter()) {
+                for (String mapper : services) {
+                    writer.write(mapper);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write services: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Incremental builds only process the entities changed, the mappers registered by earlier builds are kept.
+     *
+     * @param path of the services file
+     * @return mappers in the services file of the class output, empty if not written yet
+     */
+    private Set<String> readServices(String path) {
+        Set<String> services = new TreeSet<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (BufferedReader reader = new BufferedReader(file.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) services.add(line);
+                }
+            }
+        } catch (IOException | IllegalArgumentException ignore) {
+            // Not written yet
+        }
+        return services;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
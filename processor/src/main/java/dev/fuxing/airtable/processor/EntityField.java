@@ -0,0 +1,56 @@
+package dev.fuxing.airtable.processor;
+
+/**
+ * A mapped field of an entity, with how the generated mapper reads and writes the field.
+ */
+final class EntityField {
+    private final String name;
+    private final FieldType type;
+
+    /**
+     * Either {@code field} or {@code getField()}.
+     */
+    private final String getter;
+
+    /**
+     * Either {@code field = } or {@code setField(}, closed with {@link #setterEnd}.
+     */
+    private final String setter;
+    private final String setterEnd;
+
+    EntityField(String name, FieldType type, String getter, String setter, String setterEnd) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+        this.setterEnd = setterEnd;
+    }
+
+    /**
+     * @return name of the field in airtable
+     */
+    String name() {
+        return name;
+    }
+
+    FieldType type() {
+        return type;
+    }
+
+    /**
+     * @param entity variable name
+     * @return expression getting the value of the field
+     */
+    String get(String entity) {
+        return entity + "." + getter;
+    }
+
+    /**
+     * @param entity variable name
+     * @param value  expression of the value
+     * @return statement setting the value into the field
+     */
+    String set(String entity, String value) {
+        return entity + "." + setter + value + setterEnd + ";";
+    }
+}
@@ -0,0 +1,173 @@
+package dev.fuxing.airtable.processor;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.List;
+
+/**
+ * Supported type of an entity field, decides how the generated mapper reads and writes it.
+ */
+final class FieldType {
+    private static final String CODECS = "dev.fuxing.airtable.entity.EntityCodecs";
+
+    enum Kind {
+        STRING("java.lang.String", "readString"),
+        INTEGER("java.lang.Integer", "readInteger"),
+        LONG("java.lang.Long", "readLong"),
+        DOUBLE("java.lang.Double", "readDouble"),
+        BOOLEAN("java.lang.Boolean", "readBoolean"),
+        INSTANT("java.time.Instant", "readInstant"),
+        LOCAL_DATE("java.time.LocalDate", "readLocalDate"),
+        DATE("java.util.Date", "readDate"),
+        JSON_NODE("com.fasterxml.jackson.databind.JsonNode", "readTree"),
+        ENUM(null, "readEnum");
+
+        private final String className;
+        private final String reader;
+
+        Kind(String className, String reader) {
+            this.className = className;
+            this.reader = reader;
+        }
+
+        static Kind of(String className) {
+            for (Kind kind : values()) {
+                if (className.equals(kind.className)) return kind;
+            }
+            return null;
+        }
+    }
+
+    private final Kind kind;
+    private final boolean primitive;
+    private final boolean list;
+
+    /**
+     * Qualified name of the value type, element type for list.
+     */
+    private final String typeName;
+
+    private FieldType(Kind kind, boolean primitive, boolean list, String typeName) {
+        this.kind = kind;
+        this.primitive = primitive;
+        this.list = list;
+        this.typeName = typeName;
+    }
+
+    /**
+     * @param type of the field
+     * @return FieldType or {@code null} if not supported
+     */
+    static FieldType of(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return new FieldType(Kind.INTEGER, true, false, "int");
+            case LONG:
+                return new FieldType(Kind.LONG, true, false, "long");
+            case DOUBLE:
+                return new FieldType(Kind.DOUBLE, true, false, "double");
+            case BOOLEAN:
+                return new FieldType(Kind.BOOLEAN, true, false, "boolean");
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+
+        DeclaredType declared = (DeclaredType) type;
+        TypeElement element = (TypeElement) declared.asElement();
+        String name = element.getQualifiedName().toString();
+
+        if (name.equals("java.util.List")) {
+            List<? extends TypeMirror> arguments = declared.getTypeArguments();
+            if (arguments.size() != 1 || arguments.get(0).getKind() != TypeKind.DECLARED) return null;
+
+            FieldType value = of(arguments.get(0));
+            if (value == null || value.list) return null;
+            return new FieldType(value.kind, false, true, value.typeName);
+        }
+
+        Kind kind = element.getKind() == ElementKind.ENUM ? Kind.ENUM : Kind.of(name);
+        if (kind == null) return null;
+        if (!declared.getTypeArguments().isEmpty()) return null;
+        return new FieldType(kind, false, false, name);
+    }
+
+    boolean isPrimitive() {
+        return primitive;
+    }
+
+    boolean isList() {
+        return list;
+    }
+
+    /**
+     * @return type of the value, element type for list
+     */
+    String valueName() {
+        return typeName;
+    }
+
+    /**
+     * @return declared type of the field in source
+     */
+    String declaredName() {
+        if (list) return "java.util.List<" + typeName + ">";
+        return typeName;
+    }
+
+    /**
+     * @return boxed type read by the codec, before converted to the field type
+     */
+    String readName() {
+        if (list) return declaredName();
+        if (kind == Kind.ENUM) return typeName;
+        return kind.className;
+    }
+
+    /**
+     * @param parser variable name of the parser
+     * @return expression reading the value, {@code null} if the value is null
+     */
+    String readExpression(String parser) {
+        if (list) {
+            return CODECS + ".readList(" + parser + ", " + elementReader() + ")";
+        }
+        return scalarRead(parser);
+    }
+
+    private String elementReader() {
+        if (kind == Kind.ENUM) {
+            return "p -> " + scalarRead("p");
+        }
+        return CODECS + "::" + kind.reader;
+    }
+
+    private String scalarRead(String parser) {
+        if (kind == Kind.ENUM) {
+            return CODECS + ".readEnum(" + parser + ", " + typeName + "::valueOf)";
+        }
+        return CODECS + "." + kind.reader + "(" + parser + ")";
+    }
+
+    /**
+     * @param generator variable name of the generator
+     * @param value     variable name of the non null value, element of the list for list
+     * @return statement writing the value
+     */
+    String writeStatement(String generator, String value) {
+        switch (kind) {
+            case INTEGER:
+            case LONG:
+            case DOUBLE:
+                return generator + ".writeNumber(" + value + ");";
+            case BOOLEAN:
+                return generator + ".writeBoolean(" + value + ");";
+            default:
+                return CODECS + ".write(" + generator + ", " + value + ");";
+        }
+    }
+}
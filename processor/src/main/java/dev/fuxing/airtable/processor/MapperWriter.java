@@ -0,0 +1,215 @@
+package dev.fuxing.airtable.processor;
+
+import java.util.List;
+
+/**
+ * Writes the source of a generated mapper, all types are fully qualified to not clash with the entity package.
+ */
+final class MapperWriter {
+    private static final String PARSER = "com.fasterxml.jackson.core.JsonParser";
+    private static final String GENERATOR = "com.fasterxml.jackson.core.JsonGenerator";
+    private static final String TOKEN = "com.fasterxml.jackson.core.JsonToken";
+    private static final String IO_EXCEPTION = "java.io.IOException";
+
+    private final String packageName;
+    private final String simpleName;
+    private final String entityName;
+    private final EntityField id;
+    private final List<EntityField> fields;
+
+    private final StringBuilder builder = new StringBuilder();
+    private int indent;
+
+    MapperWriter(String packageName, String simpleName, String entityName, EntityField id, List<EntityField> fields) {
+        this.packageName = packageName;
+        this.simpleName = simpleName;
+        this.entityName = entityName;
+        this.id = id;
+        this.fields = fields;
+    }
+
+    String write() {
+        if (!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+            line("");
+        }
+
+        line("/**");
+        line(" * Generated by " + AirtableEntityProcessor.class.getName() + ", do not edit.");
+        line(" */");
+        open("public final class " + simpleName + " implements " + AirtableEntityProcessor.MAPPER + "<" + entityName + ">");
+        for (int i = 0; i < fields.size(); i++) {
+            line("private static final com.fasterxml.jackson.core.SerializableString NAME_" + i +
+                    " = new com.fasterxml.jackson.core.io.SerializedString(" + literal(fields.get(i).name()) + ");");
+        }
+        line("");
+
+        writeType();
+        writeRead();
+        writeReadFields();
+        writeFields();
+        writeId();
+        close();
+        return builder.toString();
+    }
+
+    private void writeType() {
+        line("@Override");
+        open("public Class<" + entityName + "> type()");
+        line("return " + entityName + ".class;");
+        close();
+        line("");
+    }
+
+    private void writeRead() {
+        line("@Override");
+        open("public " + entityName + " read(" + PARSER + " parser) throws " + IO_EXCEPTION);
+        line(entityName + " entity = new " + entityName + "();");
+        open("while (parser.nextToken() == " + TOKEN + ".FIELD_NAME)");
+        line("String name = parser.getCurrentName();");
+        line("parser.nextToken();");
+        open("switch (name)");
+        if (id != null) {
+            line("case \"id\":");
+            line("    " + id.set("entity", id.type().readExpression("parser")));
+            line("    break;");
+        }
+        line("case \"fields\":");
+        line("    readFields(parser, entity);");
+        line("    break;");
+        line("default:");
+        line("    parser.skipChildren();");
+        close();
+        close();
+        line("return entity;");
+        close();
+        line("");
+    }
+
+    private void writeReadFields() {
+        open("private static void readFields(" + PARSER + " parser, " + entityName + " entity) throws " + IO_EXCEPTION);
+        open("if (parser.currentToken() != " + TOKEN + ".START_OBJECT)");
+        line("parser.skipChildren();");
+        line("return;");
+        close();
+        line("");
+
+        open("while (parser.nextToken() == " + TOKEN + ".FIELD_NAME)");
+        line("String name = parser.getCurrentName();");
+        line("parser.nextToken();");
+        open("switch (name)");
+        for (EntityField field : fields) {
+            FieldType type = field.type();
+            if (type.isPrimitive()) {
+                // Null is left as the default value of the primitive
+                open("case " + literal(field.name()) + ":");
+                line(type.readName() + " value = " + type.readExpression("parser") + ";");
+                line("if (value != null) " + field.set("entity", "value"));
+                line("break;");
+                close();
+            } else {
+                line("case " + literal(field.name()) + ":");
+                line("    " + field.set("entity", type.readExpression("parser")));
+                line("    break;");
+            }
+        }
+        line("default:");
+        line("    parser.skipChildren();");
+        close();
+        close();
+        close();
+        line("");
+    }
+
+    private void writeFields() {
+        line("@Override");
+        open("public void writeFields(" + entityName + " entity, " + GENERATOR + " generator) throws " + IO_EXCEPTION);
+        for (int i = 0; i < fields.size(); i++) {
+            EntityField field = fields.get(i);
+            FieldType type = field.type();
+
+            if (type.isPrimitive()) {
+                line("generator.writeFieldName(NAME_" + i + ");");
+                line(type.writeStatement("generator", field.get("entity")));
+                continue;
+            }
+
+            open("");
+            line(type.declaredName() + " value = " + field.get("entity") + ";");
+            open("if (value != null)");
+            line("generator.writeFieldName(NAME_" + i + ");");
+            if (type.isList()) {
+                line("generator.writeStartArray();");
+                open("for (" + type.valueName() + " item : value)");
+                line("if (item == null) generator.writeNull();");
+                line("else " + type.writeStatement("generator", "item"));
+                close();
+                line("generator.writeEndArray();");
+            } else {
+                line(type.writeStatement("generator", "value"));
+            }
+            close();
+            close();
+        }
+        close();
+        line("");
+    }
+
+    private void writeId() {
+        line("@Override");
+        open("public String id(" + entityName + " entity)");
+        line(id != null ? "return " + id.get("entity") + ";" : "return null;");
+        close();
+    }
+
+    private void open(String statement) {
+        line(statement.isEmpty() ? "{" : statement + " {");
+        indent++;
+    }
+
+    private void close() {
+        indent--;
+        line("}");
+    }
+
+    private void line(String line) {
+        if (!line.isEmpty()) {
+            for (int i = 0; i < indent; i++) {
+                builder.append("    ");
+            }
+        }
+        builder.append(line).append('\n');
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        // Not unicode escape, it's translated before the literal is parsed
+                        literal.append(String.format("\\%03o", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
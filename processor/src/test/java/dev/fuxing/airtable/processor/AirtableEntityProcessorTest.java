@@ -0,0 +1,245 @@
+package dev.fuxing.airtable.processor;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.fuxing.airtable.AirtableApi;
+import dev.fuxing.airtable.AirtableRecord;
+import dev.fuxing.airtable.entity.AirtableEntities;
+import dev.fuxing.airtable.entity.AirtableEntityMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class AirtableEntityProcessorTest {
+    private static final String PERSON = "package sample;\n" +
+            "\n" +
+            "import com.fasterxml.jackson.databind.JsonNode;\n" +
+            "import dev.fuxing.airtable.entity.*;\n" +
+            "import java.time.*;\n" +
+            "import java.util.List;\n" +
+            "\n" +
+            "@AirtableEntity\n" +
+            "public class Person {\n" +
+            "    @AirtableId public String id;\n" +
+            "    @AirtableField(\"Name\") public String name;\n" +
+            "    @AirtableField(\"Age\") public int age;\n" +
+            "    @AirtableField(\"Score\") public Double score;\n" +
+            "    @AirtableField(\"Active\") private boolean active;\n" +
+            "    @AirtableField(\"Born\") public LocalDate born;\n" +
+            "    @AirtableField(\"Updated\") public Instant updated;\n" +
+            "    @AirtableField(\"Status\") public Status status;\n" +
+            "    @AirtableField(\"Tags \\\"quoted\\\"\") public List<String> tags;\n" +
+            "    @AirtableField(\"Statuses\") public List<Status> statuses;\n" +
+            "    @AirtableField(\"Attachments\") public JsonNode attachments;\n" +
+            "\n" +
+            "    public boolean isActive() { return active; }\n" +
+            "    public void setActive(boolean active) { this.active = active; }\n" +
+            "\n" +
+            "    public enum Status { TODO, DONE }\n" +
+            "}\n";
+
+    private static final String RECORD = "{\"id\":\"rec1\",\"createdTime\":\"2019-04-20T14:12:52.000Z\",\"fields\":{" +
+            "\"Name\":\"Fuxing\",\"Age\":27,\"Score\":1.5,\"Active\":true,\"Born\":\"2019-04-20\"," +
+            "\"Updated\":\"2019-04-20T14:12:52.000Z\",\"Status\":\"DONE\",\"Tags \\\"quoted\\\"\":[\"a\",\"b\"]," +
+            "\"Statuses\":[\"TODO\",\"DONE\"],\"Attachments\":[{\"url\":\"https://dl.airtable.com/a.png\"}]," +
+            "\"Unmapped\":{\"x\":[1,2]}}}";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip() throws Exception {
+        ClassLoader loader = compile("sample/Person.java", PERSON);
+        Class<?> type = loader.loadClass("sample.Person");
+
+        AirtableEntityMapper<?> mapper = AirtableEntities.mapper(type);
+        Assertions.assertEquals("sample.Person_AirtableMapper", mapper.getClass().getName());
+
+        Object person;
+        try (JsonParser parser = AirtableApi.OBJECT_MAPPER.getFactory().createParser(RECORD)) {
+            parser.nextToken();
+            person = mapper.read(parser);
+            Assertions.assertNull(parser.nextToken());
+        }
+
+        Assertions.assertEquals("rec1", type.getField("id").get(person));
+        Assertions.assertEquals("Fuxing", type.getField("name").get(person));
+        Assertions.assertEquals(27, type.getField("age").get(person));
+        Assertions.assertEquals(1.5, type.getField("score").get(person));
+        Assertions.assertEquals(true, type.getMethod("isActive").invoke(person));
+        Assertions.assertEquals(LocalDate.of(2019, 4, 20), type.getField("born").get(person));
+        Assertions.assertEquals(Instant.parse("2019-04-20T14:12:52Z"), type.getField("updated").get(person));
+        Assertions.assertEquals("DONE", type.getField("status").get(person).toString());
+        Assertions.assertEquals(Arrays.asList("a", "b"), type.getField("tags").get(person));
+        Assertions.assertEquals("[TODO, DONE]", type.getField("statuses").get(person).toString());
+        Assertions.assertEquals("https://dl.airtable.com/a.png", ((JsonNode) type.getField("attachments").get(person)).path(0).path("url").asText());
+
+        JsonNode expected = AirtableApi.OBJECT_MAPPER.readTree(RECORD).path("fields");
+        ((com.fasterxml.jackson.databind.node.ObjectNode) expected).remove("Unmapped");
+        Assertions.assertEquals(expected, writeFields(mapper, person));
+
+        AirtableRecord record = AirtableEntities.toRecord(person);
+        Assertions.assertEquals("rec1", record.getId());
+        Assertions.assertEquals("Fuxing", record.getFieldString("Name"));
+        Assertions.assertTrue(record.isDirty());
+
+        Object converted = AirtableEntities.fromRecord(record, type);
+        Assertions.assertEquals(expected, writeFields(mapper, converted));
+    }
+
+    @Test
+    void nulls() throws Exception {
+        ClassLoader loader = compile("sample/Person.java", PERSON);
+        Class<?> type = loader.loadClass("sample.Person");
+        AirtableEntityMapper<?> mapper = AirtableEntities.mapper(type);
+
+        Object person;
+        try (JsonParser parser = AirtableApi.OBJECT_MAPPER.getFactory().createParser("{\"id\":\"rec1\",\"fields\":{\"Age\":null,\"Tags \\\"quoted\\\"\":\"single\"}}")) {
+            parser.nextToken();
+            person = mapper.read(parser);
+        }
+
+        Assertions.assertEquals(0, type.getField("age").get(person));
+        Assertions.assertNull(type.getField("name").get(person));
+        Assertions.assertEquals(Collections.singletonList("single"), type.getField("tags").get(person));
+
+        // Only primitives and non null fields are written
+        JsonNode fields = writeFields(mapper, person);
+        Assertions.assertEquals(3, fields.size());
+        Assertions.assertEquals(0, fields.path("Age").asInt());
+        Assertions.assertFalse(fields.path("Active").asBoolean());
+    }
+
+    @Test
+    void numbers() throws Exception {
+        ClassLoader loader = compile("sample/Person.java", PERSON);
+        Class<?> type = loader.loadClass("sample.Person");
+        AirtableEntityMapper<?> mapper = AirtableEntities.mapper(type);
+
+        Object person;
+        try (JsonParser parser = AirtableApi.OBJECT_MAPPER.getFactory().createParser("{\"fields\":{\"Age\":\" 27 \",\"Score\":\"1.5\"}}")) {
+            parser.nextToken();
+            person = mapper.read(parser);
+        }
+        Assertions.assertEquals(27, type.getField("age").get(person));
+        Assertions.assertEquals(1.5, type.getField("score").get(person));
+
+        try (JsonParser parser = AirtableApi.OBJECT_MAPPER.getFactory().createParser("{\"fields\":{\"Age\":\"twenty\"}}")) {
+            parser.nextToken();
+            JsonParseException e = Assertions.assertThrows(JsonParseException.class, () -> mapper.read(parser));
+            Assertions.assertTrue(e.getMessage().contains("\"twenty\""), e.getMessage());
+        }
+    }
+
+    @Test
+    void incremental() throws Exception {
+        compile("sample/Person.java", PERSON);
+        ClassLoader loader = compile("sample/Task.java", "package sample;\n" +
+                "\n" +
+                "@dev.fuxing.airtable.entity.AirtableEntity\n" +
+                "public class Task {\n" +
+                "    @dev.fuxing.airtable.entity.AirtableField(\"Name\") public String name;\n" +
+                "}\n");
+
+        // Mappers of the earlier compile are kept
+        Path services = dir.resolve("classes/META-INF/services/" + AirtableEntityMapper.class.getName());
+        Assertions.assertEquals(Arrays.asList("sample.Person_AirtableMapper", "sample.Task_AirtableMapper"), Files.readAllLines(services));
+        Assertions.assertNotNull(AirtableEntities.mapper(loader.loadClass("sample.Person")));
+        Assertions.assertNotNull(AirtableEntities.mapper(loader.loadClass("sample.Task")));
+
+        // Mappers of deleted entities are skipped
+        Files.delete(dir.resolve("classes/sample/Person_AirtableMapper.class"));
+        loader = compile("sample/Other.java", "package sample;\n" +
+                "\n" +
+                "@dev.fuxing.airtable.entity.AirtableEntity\n" +
+                "public class Other {\n" +
+                "    @dev.fuxing.airtable.entity.AirtableField(\"Name\") public String name;\n" +
+                "}\n");
+        Assertions.assertNotNull(AirtableEntities.mapper(loader.loadClass("sample.Other")));
+    }
+
+    @Test
+    void unsupported() throws IOException {
+        String source = "package sample;\n" +
+                "\n" +
+                "@dev.fuxing.airtable.entity.AirtableEntity\n" +
+                "public class Invalid {\n" +
+                "    @dev.fuxing.airtable.entity.AirtableField(\"Object\") public Object object;\n" +
+                "    @dev.fuxing.airtable.entity.AirtableField(\"Private\") private String hidden;\n" +
+                "    public Invalid(String object) {}\n" +
+                "}\n";
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Assertions.assertFalse(compile("sample/Invalid.java", source, diagnostics));
+
+        StringBuilder messages = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            messages.append(diagnostic.getMessage(null)).append('\n');
+        }
+        Assertions.assertTrue(messages.toString().contains("no-arg constructor"), messages.toString());
+
+        source = source.replace("    public Invalid(String object) {}\n", "");
+        diagnostics = new DiagnosticCollector<>();
+        Assertions.assertFalse(compile("sample/Invalid.java", source, diagnostics));
+
+        messages = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            messages.append(diagnostic.getMessage(null)).append('\n');
+        }
+        Assertions.assertTrue(messages.toString().contains("Unsupported type java.lang.Object"), messages.toString());
+        Assertions.assertTrue(messages.toString().contains("Field is not accessible"), messages.toString());
+    }
+
+    private static JsonNode writeFields(AirtableEntityMapper<?> mapper, Object entity) throws IOException {
+        @SuppressWarnings("unchecked")
+        AirtableEntityMapper<Object> objectMapper = (AirtableEntityMapper<Object>) mapper;
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = AirtableApi.OBJECT_MAPPER.getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            objectMapper.writeFields(entity, generator);
+            generator.writeEndObject();
+        }
+        return AirtableApi.OBJECT_MAPPER.readTree(writer.toString());
+    }
+
+    private ClassLoader compile(String path, String source) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Assertions.assertTrue(compile(path, source, diagnostics), diagnostics.getDiagnostics().toString());
+        return new URLClassLoader(new URL[]{dir.resolve("classes").toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    private boolean compile(String path, String source, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        Path file = dir.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-d", classes.toString(), "-classpath", System.getProperty("java.class.path"));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(file.toFile()));
+            task.setProcessors(Collections.singletonList(new AirtableEntityProcessor()));
+            return task.call();
+        }
+    }
+}